@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
+import com.googlecode.concurrentlinkedhashmap.EvictionListener;
+import com.googlecode.concurrentlinkedhashmap.Weigher;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.metrics.ChunkCacheMetrics;
+
+/**
+ * A node-wide cache of decompressed chunks of compressed sstables, kept off-heap, so that hot chunks are not
+ * decompressed again by every read (and every pooled reader) that needs them.
+ *
+ * Chunks are identified by the data file path and the chunk's offset in the compressed file, and are dropped
+ * when the sstable's data file is closed, since sstable files are never rewritten in place.
+ */
+public class ChunkCache
+{
+    public static final ChunkCache instance = new ChunkCache(DatabaseDescriptor.getChunkCacheSizeInMB() * 1024L * 1024L);
+
+    private static final int DEFAULT_CONCURENCY_LEVEL = 64;
+
+    private final ConcurrentLinkedHashMap<Key, RefCountedMemory> map;
+    public final ChunkCacheMetrics metrics;
+
+    private ChunkCache(long capacity)
+    {
+        EvictionListener<Key, RefCountedMemory> listener = new EvictionListener<Key, RefCountedMemory>()
+        {
+            public void onEviction(Key key, RefCountedMemory mem)
+            {
+                mem.unreference();
+                metrics.evictions.mark();
+            }
+        };
+
+        map = new ConcurrentLinkedHashMap.Builder<Key, RefCountedMemory>()
+              .weigher(new Weigher<RefCountedMemory>()
+              {
+                  public int weightOf(RefCountedMemory mem)
+                  {
+                      return (int) mem.size();
+                  }
+              })
+              .maximumWeightedCapacity(capacity)
+              .concurrencyLevel(DEFAULT_CONCURENCY_LEVEL)
+              .listener(listener)
+              .build();
+        metrics = new ChunkCacheMetrics(this);
+    }
+
+    public boolean isEnabled()
+    {
+        return map.capacity() > 0;
+    }
+
+    /**
+     * Copies the decompressed chunk at the given offset of the given file into buffer.
+     *
+     * @return the length of the chunk, or -1 if it is not cached
+     */
+    public int read(String path, long offset, byte[] buffer)
+    {
+        metrics.requests.mark();
+        RefCountedMemory mem = map.get(new Key(path, offset));
+        if (mem == null || !mem.reference())
+            return -1;
+
+        try
+        {
+            int length = (int) mem.size();
+            mem.getBytes(0, buffer, 0, length);
+            metrics.hits.mark();
+            return length;
+        }
+        finally
+        {
+            mem.unreference();
+        }
+    }
+
+    public void put(String path, long offset, byte[] buffer, int length)
+    {
+        if (length <= 0)
+            return;
+
+        RefCountedMemory mem;
+        try
+        {
+            mem = new RefCountedMemory(length);
+        }
+        catch (OutOfMemoryError e)
+        {
+            return; // never mind, the chunk will be decompressed again next time
+        }
+        mem.setBytes(0, buffer, 0, length);
+
+        RefCountedMemory old = map.put(new Key(path, offset), mem);
+        if (old != null)
+            old.unreference();
+    }
+
+    /**
+     * Drops all the chunks of the given file.
+     */
+    public void invalidateFile(String path)
+    {
+        if (map.isEmpty())
+            return;
+
+        List<Key> keys = new ArrayList<Key>();
+        for (Key key : map.keySet())
+        {
+            if (key.path.equals(path))
+                keys.add(key);
+        }
+        for (Key key : keys)
+        {
+            RefCountedMemory mem = map.remove(key);
+            if (mem != null)
+                mem.unreference();
+        }
+    }
+
+    public long capacity()
+    {
+        return map.capacity();
+    }
+
+    public void setCapacity(long capacity)
+    {
+        map.setCapacity(capacity);
+    }
+
+    public long weightedSize()
+    {
+        return map.weightedSize();
+    }
+
+    public int size()
+    {
+        return map.size();
+    }
+
+    public void clear()
+    {
+        for (Key key : map.keySet())
+        {
+            RefCountedMemory mem = map.remove(key);
+            if (mem != null)
+                mem.unreference();
+        }
+    }
+
+    private static final class Key
+    {
+        final String path;
+        final long offset;
+
+        Key(String path, long offset)
+        {
+            this.path = path;
+            this.offset = offset;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+
+            Key that = (Key) o;
+            return offset == that.offset && path.equals(that.path);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * path.hashCode() + (int) (offset ^ (offset >>> 32));
+        }
+    }
+}
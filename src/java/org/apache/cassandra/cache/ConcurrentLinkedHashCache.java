@@ -96,6 +96,12 @@ public class ConcurrentLinkedHashCache<K extends IMeasurableMemory, V extends IM
         return map.get(key);
     }
 
+    public <R> R read(K key, ICacheReader<V, R> reader)
+    {
+        V value = map.get(key);
+        return value == null ? null : reader.read(value);
+    }
+
     public void put(K key, V value)
     {
         map.put(key, value);
@@ -38,6 +38,11 @@ public interface ICache<K, V>
 
     public V get(K key);
 
+    /**
+     * @return what reader read from the value cached for key, or null if there is none
+     */
+    public <R> R read(K key, ICacheReader<V, R> reader);
+
     public void remove(K key);
 
     public int size();
@@ -0,0 +1,36 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.cache;
+
+import java.io.IOException;
+
+import org.apache.cassandra.io.util.Memory;
+
+/**
+ * Reads the part of a cached value a caller is interested in, from either the value itself or, for caches
+ * keeping their values off-heap, straight from its serialized form so that the rest need not be deserialized.
+ */
+public interface ICacheReader<V, R>
+{
+    public R read(V value);
+
+    /**
+     * @param serialized the value as written by the cache's serializer. It is only valid for the duration of the call.
+     */
+    public R read(Memory serialized) throws IOException;
+}
@@ -63,6 +63,15 @@ public class InstrumentingCache<K, V>
         return v;
     }
 
+    public <R> R read(K key, ICacheReader<V, R> reader)
+    {
+        R r = map.read(key, reader);
+        metrics.requests.mark();
+        if (r != null)
+            metrics.hits.mark();
+        return r;
+    }
+
     public V getInternal(K key)
     {
         return map.get(key);
@@ -0,0 +1,563 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sun.misc.Unsafe;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.RowIndexEntry;
+import org.apache.cassandra.io.sstable.Descriptor;
+import org.apache.cassandra.io.util.DataOutputBuffer;
+import org.apache.cassandra.io.util.IAllocator;
+import org.apache.cassandra.io.util.Memory;
+import org.apache.cassandra.io.util.NativeAllocator;
+import org.apache.cassandra.notifications.INotification;
+import org.apache.cassandra.notifications.INotificationConsumer;
+import org.apache.cassandra.notifications.SSTableDeletingNotification;
+
+/**
+ * A key cache keeping both keys and RowIndexEntries off-heap, so that a large key cache does not mean millions of
+ * small objects for the garbage collector to trace.
+ *
+ * The cache is split in segments, each an open-addressing (linear probing) hash table of entry addresses, itself
+ * off-heap, and guarded by its own lock.  Each entry is allocated separately with the configured IAllocator, and
+ * holds the hash, the sstable, the key and the serialized RowIndexEntry.  When a segment grows over its share of
+ * the capacity, entries are evicted following the CLOCK algorithm: the hand sweeps the table, clearing the
+ * referenced bit of the entries read since its last pass, and evicting the first entry whose bit is already clear.
+ *
+ * Sstables are referred to by an int id, the Descriptors themselves staying on-heap in a map with one entry per
+ * sstable cached.  The cache subscribes to the DataTrackers of the tables to drop that entry when the sstable is
+ * deleted; the sstable's cached entries are then unreachable, and are the first ones evicted.
+ */
+public class OffHeapKeyCache implements ICache<KeyCacheKey, RowIndexEntry>, INotificationConsumer
+{
+    private static final Logger logger = LoggerFactory.getLogger(OffHeapKeyCache.class);
+
+    private static final Unsafe unsafe = NativeAllocator.unsafe;
+    private static final IAllocator allocator = DatabaseDescriptor.getoffHeapMemoryAllocator();
+    private static final long BYTE_ARRAY_BASE_OFFSET = unsafe.arrayBaseOffset(byte[].class);
+
+    private static final int SEGMENTS = 64; // must be a power of two
+    private static final int SEGMENT_SHIFT = Integer.SIZE - Integer.numberOfTrailingZeros(SEGMENTS);
+    private static final int INITIAL_SLOTS = 256;
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final int SLOT_SIZE = 8;
+
+    /*
+     * Entry format:
+     * <hash int> <sstable id int> <key length int> <value length int> <referenced byte> <key> <serialized RowIndexEntry>
+     */
+    private static final int HASH_OFFSET = 0;
+    private static final int SSTABLE_OFFSET = 4;
+    private static final int KEY_LENGTH_OFFSET = 8;
+    private static final int VALUE_LENGTH_OFFSET = 12;
+    private static final int REFERENCED_OFFSET = 16;
+    private static final int HEADER_SIZE = 17;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private volatile long capacity;
+
+    private final ConcurrentMap<Descriptor, Integer> sstableIds = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, Descriptor> sstables = new ConcurrentHashMap<>();
+    private final AtomicInteger nextSSTableId = new AtomicInteger();
+
+    private OffHeapKeyCache(long capacity)
+    {
+        this.capacity = capacity;
+        for (int i = 0; i < SEGMENTS; i++)
+            segments[i] = new Segment();
+    }
+
+    public static OffHeapKeyCache create(long weightedCapacity)
+    {
+        return new OffHeapKeyCache(weightedCapacity);
+    }
+
+    public long capacity()
+    {
+        return capacity;
+    }
+
+    public void setCapacity(long capacity)
+    {
+        this.capacity = capacity;
+        for (Segment segment : segments)
+            segment.evict();
+    }
+
+    private long segmentCapacity()
+    {
+        return capacity / SEGMENTS;
+    }
+
+    public void put(KeyCacheKey key, RowIndexEntry value)
+    {
+        int id = sstableId(key.desc);
+        int hash = hash(id, key.key);
+        segmentFor(hash).put(hash, id, key.key, serialize(value), false);
+    }
+
+    public boolean putIfAbsent(KeyCacheKey key, RowIndexEntry value)
+    {
+        int id = sstableId(key.desc);
+        int hash = hash(id, key.key);
+        return segmentFor(hash).put(hash, id, key.key, serialize(value), true);
+    }
+
+    public boolean replace(KeyCacheKey key, RowIndexEntry old, RowIndexEntry value)
+    {
+        Integer id = sstableIds.get(key.desc);
+        if (id == null)
+            return false;
+        int hash = hash(id, key.key);
+        return segmentFor(hash).replace(hash, id, key.key, serialize(old), serialize(value));
+    }
+
+    public RowIndexEntry get(KeyCacheKey key)
+    {
+        Integer id = sstableIds.get(key.desc);
+        if (id == null)
+            return null;
+        int hash = hash(id, key.key);
+        byte[] value = segmentFor(hash).get(hash, id, key.key);
+        return value == null ? null : deserialize(value, key.desc);
+    }
+
+    public <R> R read(KeyCacheKey key, ICacheReader<RowIndexEntry, R> reader)
+    {
+        RowIndexEntry value = get(key);
+        return value == null ? null : reader.read(value);
+    }
+
+    public void remove(KeyCacheKey key)
+    {
+        Integer id = sstableIds.get(key.desc);
+        if (id == null)
+            return;
+        int hash = hash(id, key.key);
+        segmentFor(hash).remove(hash, id, key.key);
+    }
+
+    public boolean containsKey(KeyCacheKey key)
+    {
+        Integer id = sstableIds.get(key.desc);
+        if (id == null)
+            return false;
+        int hash = hash(id, key.key);
+        return segmentFor(hash).find(hash, id, key.key) >= 0;
+    }
+
+    public int size()
+    {
+        int size = 0;
+        for (Segment segment : segments)
+            size += segment.count;
+        return size;
+    }
+
+    public long weightedSize()
+    {
+        long size = 0;
+        for (Segment segment : segments)
+            size += segment.bytes + segment.table.size();
+        return size;
+    }
+
+    public void clear()
+    {
+        for (Segment segment : segments)
+            segment.clear();
+    }
+
+    public Set<KeyCacheKey> keySet()
+    {
+        Set<KeyCacheKey> keys = new HashSet<>();
+        for (Segment segment : segments)
+            segment.collectKeys(keys, Integer.MAX_VALUE, false);
+        return keys;
+    }
+
+    /**
+     * CLOCK keeps no order between entries, so the hottest keys are taken to be those read since the hand last
+     * went past them.
+     */
+    public Set<KeyCacheKey> hotKeySet(int n)
+    {
+        Set<KeyCacheKey> keys = new HashSet<>();
+        for (Segment segment : segments)
+            segment.collectKeys(keys, n, true);
+        for (Segment segment : segments)
+            segment.collectKeys(keys, n, false);
+        return keys;
+    }
+
+    public void handleNotification(INotification notification, Object sender)
+    {
+        if (notification instanceof SSTableDeletingNotification)
+            removeSSTable(((SSTableDeletingNotification) notification).deleting.descriptor);
+    }
+
+    /**
+     * Forgets the given sstable: its entries are no longer returned, and are evicted before any other.
+     */
+    public void removeSSTable(Descriptor desc)
+    {
+        Integer id = sstableIds.remove(desc);
+        if (id != null)
+            sstables.remove(id);
+    }
+
+    /**
+     * @return the number of sstables the cache keeps an id for
+     */
+    @VisibleForTesting
+    public int sstableCount()
+    {
+        return sstableIds.size();
+    }
+
+    private int sstableId(Descriptor desc)
+    {
+        Integer id = sstableIds.get(desc);
+        if (id != null)
+            return id;
+
+        Integer newId = nextSSTableId.getAndIncrement();
+        sstables.put(newId, desc);
+        id = sstableIds.putIfAbsent(desc, newId);
+        if (id == null)
+            return newId;
+        sstables.remove(newId);
+        return id;
+    }
+
+    private static int hash(int sstableId, byte[] key)
+    {
+        int h = 31 * sstableId + Arrays.hashCode(key);
+        // mix all the bits (murmur3's finalizer), as the segment is taken from the high bits and the slot from the low ones
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        return h ^ (h >>> 16);
+    }
+
+    private Segment segmentFor(int hash)
+    {
+        return segments[hash >>> SEGMENT_SHIFT];
+    }
+
+    private static byte[] serialize(RowIndexEntry value)
+    {
+        try
+        {
+            DataOutputBuffer out = new DataOutputBuffer(value.serializedSize());
+            RowIndexEntry.serializer.serialize(value, out);
+            return out.getLength() == out.getData().length ? out.getData() : Arrays.copyOf(out.getData(), out.getLength());
+        }
+        catch (IOException e)
+        {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static RowIndexEntry deserialize(byte[] value, Descriptor desc)
+    {
+        try
+        {
+            return RowIndexEntry.serializer.deserialize(new DataInputStream(new ByteArrayInputStream(value)), desc.version);
+        }
+        catch (IOException e)
+        {
+            logger.debug("Cannot read key cache entry, falling back to the index", e);
+            return null;
+        }
+    }
+
+    private static long allocateEntry(int hash, int sstableId, byte[] key, byte[] value)
+    {
+        long address = allocator.allocate(HEADER_SIZE + key.length + value.length);
+        unsafe.putInt(address + HASH_OFFSET, hash);
+        unsafe.putInt(address + SSTABLE_OFFSET, sstableId);
+        unsafe.putInt(address + KEY_LENGTH_OFFSET, key.length);
+        unsafe.putInt(address + VALUE_LENGTH_OFFSET, value.length);
+        unsafe.putByte(address + REFERENCED_OFFSET, (byte) 1);
+        unsafe.copyMemory(key, BYTE_ARRAY_BASE_OFFSET, null, address + HEADER_SIZE, key.length);
+        unsafe.copyMemory(value, BYTE_ARRAY_BASE_OFFSET, null, address + HEADER_SIZE + key.length, value.length);
+        return address;
+    }
+
+    private static long entrySize(long address)
+    {
+        return HEADER_SIZE + unsafe.getInt(address + KEY_LENGTH_OFFSET) + unsafe.getInt(address + VALUE_LENGTH_OFFSET);
+    }
+
+    private static byte[] copyKey(long address)
+    {
+        byte[] key = new byte[unsafe.getInt(address + KEY_LENGTH_OFFSET)];
+        unsafe.copyMemory(null, address + HEADER_SIZE, key, BYTE_ARRAY_BASE_OFFSET, key.length);
+        return key;
+    }
+
+    private static byte[] copyValue(long address)
+    {
+        int keyLength = unsafe.getInt(address + KEY_LENGTH_OFFSET);
+        byte[] value = new byte[unsafe.getInt(address + VALUE_LENGTH_OFFSET)];
+        unsafe.copyMemory(null, address + HEADER_SIZE + keyLength, value, BYTE_ARRAY_BASE_OFFSET, value.length);
+        return value;
+    }
+
+    private static boolean matches(long address, int hash, int sstableId, byte[] key)
+    {
+        if (unsafe.getInt(address + HASH_OFFSET) != hash
+            || unsafe.getInt(address + SSTABLE_OFFSET) != sstableId
+            || unsafe.getInt(address + KEY_LENGTH_OFFSET) != key.length)
+            return false;
+
+        for (int i = 0; i < key.length; i++)
+            if (unsafe.getByte(address + HEADER_SIZE + i) != key[i])
+                return false;
+        return true;
+    }
+
+    private static boolean valueEquals(long address, byte[] value)
+    {
+        return unsafe.getInt(address + VALUE_LENGTH_OFFSET) == value.length && Arrays.equals(copyValue(address), value);
+    }
+
+    private final class Segment
+    {
+        private Memory table;
+        private int mask;
+        private int clockHand;
+
+        // only modified with the segment's lock held
+        private volatile int count;
+        private volatile long bytes;
+
+        Segment()
+        {
+            table = newTable(INITIAL_SLOTS);
+            mask = INITIAL_SLOTS - 1;
+        }
+
+        private Memory newTable(int slots)
+        {
+            Memory newTable = Memory.allocate((long) slots * SLOT_SIZE);
+            newTable.setMemory(0, newTable.size(), (byte) 0);
+            return newTable;
+        }
+
+        private long slot(int i)
+        {
+            return table.getLong((long) i * SLOT_SIZE);
+        }
+
+        private void setSlot(int i, long address)
+        {
+            table.setLong((long) i * SLOT_SIZE, address);
+        }
+
+        /**
+         * @return the slot of the entry for the given key, or -1 if there is none
+         */
+        synchronized int find(int hash, int sstableId, byte[] key)
+        {
+            for (int i = hash & mask; ; i = (i + 1) & mask)
+            {
+                long address = slot(i);
+                if (address == 0)
+                    return -1;
+                if (matches(address, hash, sstableId, key))
+                    return i;
+            }
+        }
+
+        synchronized byte[] get(int hash, int sstableId, byte[] key)
+        {
+            int i = find(hash, sstableId, key);
+            if (i < 0)
+                return null;
+
+            long address = slot(i);
+            unsafe.putByte(address + REFERENCED_OFFSET, (byte) 1);
+            return copyValue(address);
+        }
+
+        synchronized boolean put(int hash, int sstableId, byte[] key, byte[] value, boolean onlyIfAbsent)
+        {
+            int i = find(hash, sstableId, key);
+            if (i >= 0 && onlyIfAbsent)
+                return false;
+
+            long address = allocateEntry(hash, sstableId, key, value);
+            if (i >= 0)
+            {
+                long old = slot(i);
+                bytes -= entrySize(old);
+                allocator.free(old);
+                setSlot(i, address);
+            }
+            else
+            {
+                if (count + 1 > (mask + 1) * LOAD_FACTOR)
+                    resize();
+                insert(address, hash);
+                count++;
+            }
+            bytes += entrySize(address);
+            evict();
+            return true;
+        }
+
+        synchronized boolean replace(int hash, int sstableId, byte[] key, byte[] old, byte[] value)
+        {
+            int i = find(hash, sstableId, key);
+            if (i < 0 || !valueEquals(slot(i), old))
+                return false;
+            return put(hash, sstableId, key, value, false);
+        }
+
+        synchronized void remove(int hash, int sstableId, byte[] key)
+        {
+            int i = find(hash, sstableId, key);
+            if (i >= 0)
+                removeAt(i);
+        }
+
+        synchronized void clear()
+        {
+            for (int i = 0; i <= mask; i++)
+            {
+                long address = slot(i);
+                if (address != 0)
+                    allocator.free(address);
+            }
+            table.free();
+            table = newTable(INITIAL_SLOTS);
+            mask = INITIAL_SLOTS - 1;
+            clockHand = 0;
+            count = 0;
+            bytes = 0;
+        }
+
+        synchronized void collectKeys(Set<KeyCacheKey> keys, int limit, boolean referencedOnly)
+        {
+            for (int i = 0; i <= mask && keys.size() < limit; i++)
+            {
+                long address = slot(i);
+                if (address == 0 || (referencedOnly && unsafe.getByte(address + REFERENCED_OFFSET) == 0))
+                    continue;
+
+                Descriptor desc = sstables.get(unsafe.getInt(address + SSTABLE_OFFSET));
+                if (desc != null)
+                    keys.add(new KeyCacheKey(desc, ByteBuffer.wrap(copyKey(address))));
+            }
+        }
+
+        /**
+         * Sweeps the CLOCK hand until the segment fits in its share of the capacity.
+         */
+        synchronized void evict()
+        {
+            long segmentCapacity = segmentCapacity();
+            while (count > 0 && bytes + table.size() > segmentCapacity)
+            {
+                long address = slot(clockHand);
+                if (address != 0
+                    && unsafe.getByte(address + REFERENCED_OFFSET) != 0
+                    && sstables.containsKey(unsafe.getInt(address + SSTABLE_OFFSET)))
+                {
+                    unsafe.putByte(address + REFERENCED_OFFSET, (byte) 0);
+                }
+                else if (address != 0)
+                {
+                    // another entry may be shifted into this slot, so the hand stays to look at it next
+                    removeAt(clockHand);
+                    continue;
+                }
+                clockHand = (clockHand + 1) & mask;
+            }
+        }
+
+        private void insert(long address, int hash)
+        {
+            int i = hash & mask;
+            while (slot(i) != 0)
+                i = (i + 1) & mask;
+            setSlot(i, address);
+        }
+
+        /**
+         * Frees the entry at slot i, moving back the entries of its probe sequence so that lookups need no tombstones.
+         */
+        private void removeAt(int i)
+        {
+            long address = slot(i);
+            bytes -= entrySize(address);
+            count--;
+            allocator.free(address);
+
+            int hole = i;
+            for (int j = (i + 1) & mask; ; j = (j + 1) & mask)
+            {
+                long next = slot(j);
+                if (next == 0)
+                    break;
+
+                // the entry can fill the hole unless its home slot lies cyclically in (hole, j]
+                int home = unsafe.getInt(next + HASH_OFFSET) & mask;
+                boolean stays = hole <= j ? hole < home && home <= j : hole < home || home <= j;
+                if (!stays)
+                {
+                    setSlot(hole, next);
+                    hole = j;
+                }
+            }
+            setSlot(hole, 0);
+        }
+
+        private void resize()
+        {
+            Memory oldTable = table;
+            int oldSlots = mask + 1;
+            table = newTable(oldSlots * 2);
+            mask = oldSlots * 2 - 1;
+            for (int i = 0; i < oldSlots; i++)
+            {
+                long address = oldTable.getLong((long) i * SLOT_SIZE);
+                if (address != 0)
+                    insert(address, unsafe.getInt(address + HASH_OFFSET));
+            }
+            oldTable.free();
+            clockHand = 0;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.cache;
+
+import java.io.DataInput;
+import java.io.IOError;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+
+import com.google.common.collect.AbstractIterator;
+
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.config.Schema;
+import org.apache.cassandra.db.ArrayBackedSortedColumns;
+import org.apache.cassandra.db.Column;
+import org.apache.cassandra.db.ColumnFamily;
+import org.apache.cassandra.db.DeletionInfo;
+import org.apache.cassandra.db.filter.ColumnSlice;
+import org.apache.cassandra.db.filter.NamesQueryFilter;
+import org.apache.cassandra.db.filter.QueryFilter;
+import org.apache.cassandra.db.filter.SliceQueryFilter;
+import org.apache.cassandra.db.marshal.AbstractType;
+import org.apache.cassandra.io.util.Memory;
+import org.apache.cassandra.io.util.MemoryInputStream;
+import org.apache.cassandra.net.MessagingService;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.vint.EncodedDataInputStream;
+
+/**
+ * Applies a query filter to a cached partition.  When the partition is kept off-heap, the filter is evaluated
+ * against the serialized partition, using its column index to deserialize only the columns it selects.
+ *
+ * Cached partitions are returned filtered, but not purged of their tombstones (see ColumnFamilyStore.removeDeletedCF);
+ * sentinels and partition heads are returned as they are.
+ */
+public class RowCacheFilter implements ICacheReader<IRowCacheEntry, IRowCacheEntry>
+{
+    private static final SerializingCacheProvider.RowCacheSerializer serializer = new SerializingCacheProvider.RowCacheSerializer();
+
+    private final QueryFilter filter;
+    private final int gcBefore;
+
+    public RowCacheFilter(QueryFilter filter, int gcBefore)
+    {
+        this.filter = filter;
+        this.gcBefore = gcBefore;
+    }
+
+    public IRowCacheEntry read(IRowCacheEntry value)
+    {
+        if (!(value instanceof ColumnFamily))
+            return value;
+
+        ColumnFamily cached = (ColumnFamily) value;
+        ColumnFamily cf = cached.cloneMeShallow(ArrayBackedSortedColumns.factory, filter.filter.isReversed());
+        filter.collateOnDiskAtom(cf, filter.getColumnFamilyIterator(cached), gcBefore);
+        return cf;
+    }
+
+    public IRowCacheEntry read(Memory serialized) throws IOException
+    {
+        if (serialized.getByte(0) != SerializingCacheProvider.RowCacheSerializer.PARTITION
+            || !(filter.filter instanceof SliceQueryFilter || filter.filter instanceof NamesQueryFilter))
+            return read(serializer.deserialize(input(serialized, 0)));
+
+        try
+        {
+            return new SerializedPartition(serialized).filter();
+        }
+        catch (IOError e)
+        {
+            throw (IOException) e.getCause();
+        }
+    }
+
+    private static DataInput input(Memory serialized, int position) throws IOException
+    {
+        MemoryInputStream in = new MemoryInputStream(serialized);
+        in.skipBytes(position);
+        return new EncodedDataInputStream(in);
+    }
+
+    private class SerializedPartition
+    {
+        private final Memory serialized;
+        private final CFMetaData metadata;
+        private final AbstractType<?> comparator;
+        private final DeletionInfo deletionInfo;
+        private final int columnCount;
+        private final long indexPosition;
+
+        SerializedPartition(Memory serialized) throws IOException
+        {
+            this.serialized = serialized;
+
+            // see RowCacheSerializer for the format
+            DataInput in = input(serialized, 1);
+            boolean present = in.readBoolean();
+            assert present;
+            metadata = Schema.instance.getCFMetaData(ColumnFamily.serializer.deserializeCfId(in, MessagingService.current_version));
+            comparator = metadata.comparator;
+            deletionInfo = DeletionInfo.serializer().deserialize(in, MessagingService.current_version, comparator);
+            columnCount = in.readInt();
+            indexPosition = serialized.size() - (long) columnCount * SerializingCacheProvider.RowCacheSerializer.INDEX_ENTRY_SIZE;
+        }
+
+        ColumnFamily filter() throws IOException
+        {
+            ColumnFamily cf = ArrayBackedSortedColumns.factory.create(metadata, filter.filter.isReversed());
+            cf.delete(deletionInfo);
+            Iterator<Column> columns = filter.filter instanceof NamesQueryFilter
+                                     ? byNames((NamesQueryFilter) filter.filter)
+                                     : bySlices((SliceQueryFilter) filter.filter);
+            filter.collateOnDiskAtom(cf, columns, gcBefore);
+            return cf;
+        }
+
+        private Iterator<Column> byNames(final NamesQueryFilter namesFilter)
+        {
+            return new AbstractIterator<Column>()
+            {
+                private final Iterator<ByteBuffer> names = namesFilter.columns.iterator();
+
+                protected Column computeNext()
+                {
+                    while (names.hasNext())
+                    {
+                        ByteBuffer name = names.next();
+                        int i = firstNotBefore(name);
+                        if (i < columnCount && comparator.compare(nameAt(i), name) == 0)
+                            return columnAt(i);
+                    }
+                    return endOfData();
+                }
+            };
+        }
+
+        private Iterator<Column> bySlices(final SliceQueryFilter sliceFilter)
+        {
+            return new AbstractIterator<Column>()
+            {
+                private int slice = -1;
+                private int next;
+                private ByteBuffer finish;
+
+                protected Column computeNext()
+                {
+                    while (true)
+                    {
+                        if (slice >= 0 && (sliceFilter.reversed ? next >= 0 : next < columnCount))
+                        {
+                            Column column = columnAt(next);
+                            if (finish.remaining() == 0 || (sliceFilter.reversed
+                                                            ? comparator.compare(column.name(), finish) >= 0
+                                                            : comparator.compare(column.name(), finish) <= 0))
+                            {
+                                next += sliceFilter.reversed ? -1 : 1;
+                                return column;
+                            }
+                        }
+
+                        if (++slice >= sliceFilter.slices.length)
+                            return endOfData();
+
+                        ColumnSlice current = sliceFilter.slices[slice];
+                        finish = current.finish;
+                        if (sliceFilter.reversed)
+                            next = current.start.remaining() == 0 ? columnCount - 1 : firstAfter(current.start) - 1;
+                        else
+                            next = current.start.remaining() == 0 ? 0 : firstNotBefore(current.start);
+                    }
+                }
+            };
+        }
+
+        /**
+         * @return the index of the first column whose name is not before the given one, or columnCount if there is none
+         */
+        private int firstNotBefore(ByteBuffer name)
+        {
+            int low = 0, high = columnCount;
+            while (low < high)
+            {
+                int mid = (low + high) >>> 1;
+                if (comparator.compare(nameAt(mid), name) < 0)
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+            return low;
+        }
+
+        /**
+         * @return the index of the first column whose name is after the given one, or columnCount if there is none
+         */
+        private int firstAfter(ByteBuffer name)
+        {
+            int low = 0, high = columnCount;
+            while (low < high)
+            {
+                int mid = (low + high) >>> 1;
+                if (comparator.compare(nameAt(mid), name) <= 0)
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+            return low;
+        }
+
+        private int positionOf(int i)
+        {
+            long position = indexPosition + (long) i * SerializingCacheProvider.RowCacheSerializer.INDEX_ENTRY_SIZE;
+            return (serialized.getByte(position) & 0xFF) << 24
+                 | (serialized.getByte(position + 1) & 0xFF) << 16
+                 | (serialized.getByte(position + 2) & 0xFF) << 8
+                 | (serialized.getByte(position + 3) & 0xFF);
+        }
+
+        private ByteBuffer nameAt(int i)
+        {
+            try
+            {
+                return ByteBufferUtil.readWithShortLength(input(serialized, positionOf(i)));
+            }
+            catch (IOException e)
+            {
+                throw new IOError(e);
+            }
+        }
+
+        private Column columnAt(int i)
+        {
+            try
+            {
+                return Column.serializer.deserialize(input(serialized, positionOf(i)));
+            }
+            catch (IOException e)
+            {
+                throw new IOError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.cache;
+
+import java.nio.ByteBuffer;
+
+import org.apache.cassandra.db.ColumnFamily;
+import org.apache.cassandra.db.marshal.AbstractType;
+
+/**
+ * The first rows of a partition too large to be cached in full, for tables with rows_per_partition_to_cache set.
+ * Holds every cell from the start of the partition up to (and including) the boundary, or from the boundary to
+ * the end of the partition if the head was read in reversed order, along with the partition's deletion info.
+ */
+public class RowCacheHead implements IRowCacheEntry
+{
+    public final ColumnFamily data;
+    public final boolean reversed;
+
+    public RowCacheHead(ColumnFamily data, boolean reversed)
+    {
+        assert data.getColumnCount() > 0;
+        this.data = data;
+        this.reversed = reversed;
+    }
+
+    /**
+     * @return the name of the last cached cell, in the order the head was read
+     */
+    public ByteBuffer boundary()
+    {
+        return reversed ? data.getSortedColumns().iterator().next().name() : data.getReverseSortedColumns().iterator().next().name();
+    }
+
+    /**
+     * @return true if every cell between the start of the head and the given slice bound or column name is cached.
+     * An empty bound denotes the end of the partition, which is never covered.
+     */
+    public boolean covers(ByteBuffer bound, AbstractType<?> comparator)
+    {
+        if (bound.remaining() == 0)
+            return false;
+        int cmp = comparator.compare(bound, boundary());
+        return reversed ? cmp >= 0 : cmp <= 0;
+    }
+}
@@ -171,6 +171,28 @@ public class SerializingCache<K, V> implements ICache<K, V>
         }
     }
 
+    public <R> R read(K key, ICacheReader<V, R> reader)
+    {
+        RefCountedMemory mem = map.get(key);
+        if (mem == null)
+            return null;
+        if (!mem.reference())
+            return null;
+        try
+        {
+            return reader.read(mem);
+        }
+        catch (IOException e)
+        {
+            logger.debug("Cannot fetch in memory data, we will failback to read from disk ", e);
+            return null;
+        }
+        finally
+        {
+            mem.unreference();
+        }
+    }
+
     public void put(K key, V value)
     {
         RefCountedMemory mem = serialize(value);
@@ -20,7 +20,9 @@ package org.apache.cassandra.cache;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
+import org.apache.cassandra.db.Column;
 import org.apache.cassandra.db.ColumnFamily;
 import org.apache.cassandra.db.TypeSizes;
 import org.apache.cassandra.io.ISerializer;
@@ -33,35 +35,104 @@ public class SerializingCacheProvider
         return SerializingCache.create(capacity, new RowCacheSerializer());
     }
 
+    /*
+     * Serialized row cache entry format:
+     *
+     * <kind byte>
+     * [sentinel]  <sentinel id>
+     * [head]      <reversed boolean> <ColumnFamily, as serialized by ColumnFamilySerializer>
+     * [partition] <ColumnFamily, as serialized by ColumnFamilySerializer>
+     *             <column index: the position of each column in the entry, as 4 unencoded bytes>
+     *
+     * The column index sits at the end of the entry so that RowCacheFilter can find it from the entry's size,
+     * and lets it find the columns a filter selects without deserializing the others.
+     */
     // Package protected for tests
     static class RowCacheSerializer implements ISerializer<IRowCacheEntry>
     {
+        static final byte PARTITION = 0;
+        static final byte SENTINEL = 1;
+        static final byte HEAD = 2;
+
+        static final int INDEX_ENTRY_SIZE = 4;
+
         public void serialize(IRowCacheEntry entry, DataOutput out) throws IOException
         {
             assert entry != null; // unlike CFS we don't support nulls, since there is no need for that in the cache
-            boolean isSentinel = entry instanceof RowCacheSentinel;
-            out.writeBoolean(isSentinel);
-            if (isSentinel)
+            if (entry instanceof RowCacheSentinel)
+            {
+                out.writeByte(SENTINEL);
                 out.writeLong(((RowCacheSentinel) entry).sentinelId);
+            }
+            else if (entry instanceof RowCacheHead)
+            {
+                out.writeByte(HEAD);
+                out.writeBoolean(((RowCacheHead) entry).reversed);
+                ColumnFamily.serializer.serialize(((RowCacheHead) entry).data, out, MessagingService.current_version);
+            }
             else
-                ColumnFamily.serializer.serialize((ColumnFamily) entry, out, MessagingService.current_version);
+            {
+                ColumnFamily cf = (ColumnFamily) entry;
+                out.writeByte(PARTITION);
+                ColumnFamily.serializer.serialize(cf, out, MessagingService.current_version);
+                out.write(columnIndex(cf));
+            }
+        }
+
+        /**
+         * The positions are those of the columns once encoded by SerializingCache, which is the only user of this
+         * serializer.
+         */
+        private static byte[] columnIndex(ColumnFamily cf)
+        {
+            TypeSizes typeSizes = TypeSizes.VINT;
+            long columnsSize = 0;
+            for (Column column : cf)
+                columnsSize += column.serializedSize(typeSizes);
+            long position = 1 + ColumnFamily.serializer.serializedSize(cf, typeSizes, MessagingService.current_version) - columnsSize;
+
+            ByteBuffer index = ByteBuffer.allocate(cf.getColumnCount() * INDEX_ENTRY_SIZE);
+            for (Column column : cf)
+            {
+                index.putInt((int) position);
+                position += column.serializedSize(typeSizes);
+            }
+            return index.array();
         }
 
         public IRowCacheEntry deserialize(DataInput in) throws IOException
         {
-            boolean isSentinel = in.readBoolean();
-            if (isSentinel)
-                return new RowCacheSentinel(in.readLong());
-            return ColumnFamily.serializer.deserialize(in, MessagingService.current_version);
+            byte kind = in.readByte();
+            switch (kind)
+            {
+                case SENTINEL:
+                    return new RowCacheSentinel(in.readLong());
+                case HEAD:
+                    boolean reversed = in.readBoolean();
+                    return new RowCacheHead(ColumnFamily.serializer.deserialize(in, MessagingService.current_version), reversed);
+                default:
+                    // the column index is only of use to RowCacheFilter, and is left unread
+                    return ColumnFamily.serializer.deserialize(in, MessagingService.current_version);
+            }
         }
 
         public long serializedSize(IRowCacheEntry entry, TypeSizes typeSizes)
         {
-            int size = typeSizes.sizeof(true);
+            long size = 1;
             if (entry instanceof RowCacheSentinel)
+            {
                 size += typeSizes.sizeof(((RowCacheSentinel) entry).sentinelId);
+            }
+            else if (entry instanceof RowCacheHead)
+            {
+                size += typeSizes.sizeof(true) + ColumnFamily.serializer.serializedSize(((RowCacheHead) entry).data, typeSizes, MessagingService.current_version);
+            }
             else
-                size += ColumnFamily.serializer.serializedSize((ColumnFamily) entry, typeSizes, MessagingService.current_version);
+            {
+                ColumnFamily cf = (ColumnFamily) entry;
+                size += ColumnFamily.serializer.serializedSize(cf, typeSizes, MessagingService.current_version);
+                size += cf.getColumnCount() * INDEX_ENTRY_SIZE;
+            }
             return size;
         }
     }
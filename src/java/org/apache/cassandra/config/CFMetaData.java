@@ -83,9 +83,12 @@ public final class CFMetaData
     public final static Class<? extends AbstractCompactionStrategy> DEFAULT_COMPACTION_STRATEGY_CLASS = SizeTieredCompactionStrategy.class;
     public final static Caching DEFAULT_CACHING_STRATEGY = Caching.KEYS_ONLY;
     public final static int DEFAULT_DEFAULT_TIME_TO_LIVE = 0;
+    public final static int DEFAULT_ROWS_PER_PARTITION_TO_CACHE = 0;
     public final static SpeculativeRetry DEFAULT_SPECULATIVE_RETRY = new SpeculativeRetry(SpeculativeRetry.RetryType.PERCENTILE, 0.99);
     public final static int DEFAULT_INDEX_INTERVAL = 128;
     public final static boolean DEFAULT_POPULATE_IO_CACHE_ON_FLUSH = false;
+    public final static boolean DEFAULT_PARALLEL_SSTABLE_READS = false;
+    public final static boolean DEFAULT_INDEX_PARTITION_BOUNDS = false;
 
     // Note that this is the default only for user created tables
     public final static String DEFAULT_COMPRESSOR = LZ4Compressor.class.getCanonicalName();
@@ -129,6 +132,9 @@ public final class CFMetaData
                                                                     + "bloom_filter_fp_chance double,"
                                                                     + "caching text,"
                                                                     + "default_time_to_live int,"
+                                                                    + "rows_per_partition_to_cache int,"
+                                                                    + "parallel_sstable_reads boolean,"
+                                                                    + "index_partition_bounds boolean,"
                                                                     + "compaction_strategy_class text,"
                                                                     + "compression_parameters text,"
                                                                     + "value_alias text,"
@@ -388,8 +394,11 @@ public final class CFMetaData
     private volatile int indexInterval = DEFAULT_INDEX_INTERVAL;
     private int memtableFlushPeriod = 0;
     private volatile int defaultTimeToLive = DEFAULT_DEFAULT_TIME_TO_LIVE;
+    private volatile int rowsPerPartitionToCache = DEFAULT_ROWS_PER_PARTITION_TO_CACHE;
     private volatile SpeculativeRetry speculativeRetry = DEFAULT_SPECULATIVE_RETRY;
     private volatile boolean populateIoCacheOnFlush = DEFAULT_POPULATE_IO_CACHE_ON_FLUSH;
+    private volatile boolean parallelSSTableReads = DEFAULT_PARALLEL_SSTABLE_READS;
+    private volatile boolean indexPartitionBounds = DEFAULT_INDEX_PARTITION_BOUNDS;
     private volatile Map<ByteBuffer, Long> droppedColumns = new HashMap<>();
     private volatile Map<String, TriggerDefinition> triggers = new HashMap<>();
 
@@ -438,8 +447,11 @@ public final class CFMetaData
     public CFMetaData indexInterval(int prop) {indexInterval = prop; return this;}
     public CFMetaData memtableFlushPeriod(int prop) {memtableFlushPeriod = prop; return this;}
     public CFMetaData defaultTimeToLive(int prop) {defaultTimeToLive = prop; return this;}
+    public CFMetaData rowsPerPartitionToCache(int prop) {rowsPerPartitionToCache = prop; return this;}
     public CFMetaData speculativeRetry(SpeculativeRetry prop) {speculativeRetry = prop; return this;}
     public CFMetaData populateIoCacheOnFlush(boolean prop) {populateIoCacheOnFlush = prop; return this;}
+    public CFMetaData parallelSSTableReads(boolean prop) {parallelSSTableReads = prop; return this;}
+    public CFMetaData indexPartitionBounds(boolean prop) {indexPartitionBounds = prop; return this;}
     public CFMetaData droppedColumns(Map<ByteBuffer, Long> cols) {droppedColumns = cols; return this;}
     public CFMetaData triggers(Map<String, TriggerDefinition> prop) {triggers = prop; return this;}
 
@@ -588,10 +600,13 @@ public final class CFMetaData
                       .bloomFilterFpChance(oldCFMD.bloomFilterFpChance)
                       .caching(oldCFMD.caching)
                       .defaultTimeToLive(oldCFMD.defaultTimeToLive)
+                      .rowsPerPartitionToCache(oldCFMD.rowsPerPartitionToCache)
                       .indexInterval(oldCFMD.indexInterval)
                       .speculativeRetry(oldCFMD.speculativeRetry)
                       .memtableFlushPeriod(oldCFMD.memtableFlushPeriod)
                       .populateIoCacheOnFlush(oldCFMD.populateIoCacheOnFlush)
+                      .parallelSSTableReads(oldCFMD.parallelSSTableReads)
+                      .indexPartitionBounds(oldCFMD.indexPartitionBounds)
                       .droppedColumns(new HashMap<>(oldCFMD.droppedColumns))
                       .triggers(new HashMap<>(oldCFMD.triggers))
                       .rebuild();
@@ -653,6 +668,23 @@ public final class CFMetaData
         return populateIoCacheOnFlush;
     }
 
+    /**
+     * @return true if reads of a partition should open its sstables concurrently rather than one after the other.
+     */
+    public boolean parallelSSTableReads()
+    {
+        return parallelSSTableReads;
+    }
+
+    /**
+     * @return true if the row index entries of new sstables should record the clustering bounds and max timestamp
+     * of every partition, so that reads can skip the partitions that have nothing for them.
+     */
+    public boolean indexPartitionBounds()
+    {
+        return indexPartitionBounds;
+    }
+
     public int getGcGraceSeconds()
     {
         return gcGraceSeconds;
@@ -759,6 +791,15 @@ public final class CFMetaData
         return defaultTimeToLive;
     }
 
+    /**
+     * @return the number of CQL rows the row cache keeps per partition: the first ones if positive, the last ones
+     * if negative, or 0 to cache whole partitions.
+     */
+    public int getRowsPerPartitionToCache()
+    {
+        return rowsPerPartitionToCache;
+    }
+
     public Map<ByteBuffer, Long> getDroppedColumns()
     {
         return droppedColumns;
@@ -799,9 +840,12 @@ public final class CFMetaData
             .append(memtableFlushPeriod, rhs.memtableFlushPeriod)
             .append(caching, rhs.caching)
             .append(defaultTimeToLive, rhs.defaultTimeToLive)
+            .append(rowsPerPartitionToCache, rhs.rowsPerPartitionToCache)
             .append(indexInterval, rhs.indexInterval)
             .append(speculativeRetry, rhs.speculativeRetry)
             .append(populateIoCacheOnFlush, rhs.populateIoCacheOnFlush)
+            .append(parallelSSTableReads, rhs.parallelSSTableReads)
+            .append(indexPartitionBounds, rhs.indexPartitionBounds)
             .append(droppedColumns, rhs.droppedColumns)
             .append(triggers, rhs.triggers)
             .isEquals();
@@ -832,9 +876,12 @@ public final class CFMetaData
             .append(memtableFlushPeriod)
             .append(caching)
             .append(defaultTimeToLive)
+            .append(rowsPerPartitionToCache)
             .append(indexInterval)
             .append(speculativeRetry)
             .append(populateIoCacheOnFlush)
+            .append(parallelSSTableReads)
+            .append(indexPartitionBounds)
             .append(droppedColumns)
             .append(triggers)
             .toHashCode();
@@ -1021,8 +1068,11 @@ public final class CFMetaData
         memtableFlushPeriod = cfm.memtableFlushPeriod;
         caching = cfm.caching;
         defaultTimeToLive = cfm.defaultTimeToLive;
+        rowsPerPartitionToCache = cfm.rowsPerPartitionToCache;
         speculativeRetry = cfm.speculativeRetry;
         populateIoCacheOnFlush = cfm.populateIoCacheOnFlush;
+        parallelSSTableReads = cfm.parallelSSTableReads;
+        indexPartitionBounds = cfm.indexPartitionBounds;
 
         if (!cfm.droppedColumns.isEmpty())
             droppedColumns = cfm.droppedColumns;
@@ -1571,6 +1621,9 @@ public final class CFMetaData
         cf.addColumn(Column.create(memtableFlushPeriod, timestamp, cfName, "memtable_flush_period_in_ms"));
         cf.addColumn(Column.create(caching.toString(), timestamp, cfName, "caching"));
         cf.addColumn(Column.create(defaultTimeToLive, timestamp, cfName, "default_time_to_live"));
+        cf.addColumn(Column.create(rowsPerPartitionToCache, timestamp, cfName, "rows_per_partition_to_cache"));
+        cf.addColumn(Column.create(parallelSSTableReads, timestamp, cfName, "parallel_sstable_reads"));
+        cf.addColumn(Column.create(indexPartitionBounds, timestamp, cfName, "index_partition_bounds"));
         cf.addColumn(Column.create(compactionStrategyClass.getName(), timestamp, cfName, "compaction_strategy_class"));
         cf.addColumn(Column.create(json(compressionParameters.asThriftOptions()), timestamp, cfName, "compression_parameters"));
         cf.addColumn(Column.create(json(compactionStrategyOptions), timestamp, cfName, "compaction_strategy_options"));
@@ -1615,6 +1668,8 @@ public final class CFMetaData
             cfm.caching(Caching.valueOf(result.getString("caching")));
             if (result.has("default_time_to_live"))
                 cfm.defaultTimeToLive(result.getInt("default_time_to_live"));
+            if (result.has("rows_per_partition_to_cache"))
+                cfm.rowsPerPartitionToCache(result.getInt("rows_per_partition_to_cache"));
             if (result.has("speculative_retry"))
                 cfm.speculativeRetry(SpeculativeRetry.fromString(result.getString("speculative_retry")));
             cfm.compactionStrategyClass(createCompactionStrategy(result.getString("compaction_strategy_class")));
@@ -1634,6 +1689,10 @@ public final class CFMetaData
             }
             if (result.has("populate_io_cache_on_flush"))
                 cfm.populateIoCacheOnFlush(result.getBoolean("populate_io_cache_on_flush"));
+            if (result.has("parallel_sstable_reads"))
+                cfm.parallelSSTableReads(result.getBoolean("parallel_sstable_reads"));
+            if (result.has("index_partition_bounds"))
+                cfm.indexPartitionBounds(result.getBoolean("index_partition_bounds"));
 
             /*
              * The info previously hold by key_aliases, column_aliases and value_alias is now stored in column_metadata (because 1) this
@@ -2113,9 +2172,12 @@ public final class CFMetaData
             .append("memtable_flush_period_in_ms", memtableFlushPeriod)
             .append("caching", caching)
             .append("defaultTimeToLive", defaultTimeToLive)
+            .append("rowsPerPartitionToCache", rowsPerPartitionToCache)
             .append("speculative_retry", speculativeRetry)
             .append("indexInterval", indexInterval)
             .append("populateIoCacheOnFlush", populateIoCacheOnFlush)
+            .append("parallelSSTableReads", parallelSSTableReads)
+            .append("indexPartitionBounds", indexPartitionBounds)
             .append("droppedColumns", droppedColumns)
             .append("triggers", triggers)
             .toString();
@@ -69,10 +69,12 @@ public class Config
     public volatile Double phi_convict_threshold = 8.0;
 
     public Integer concurrent_reads = 8;
+    public Integer concurrent_sstable_reads = 32;
     public Integer concurrent_writes = 32;
     public Integer concurrent_replicates = 32;
 
     public Integer memtable_flush_writers = null; // will get set to the length of data dirs in DatabaseDescriptor
+    public int memtable_flush_split_threshold_in_mb = 128;
     public Integer memtable_total_space_in_mb;
 
     public Integer storage_port = 7000;
@@ -110,11 +112,20 @@ public class Config
     public Integer in_memory_compaction_limit_in_mb = 64;
     public Integer concurrent_compactors = FBUtilities.getAvailableProcessors();
     public volatile Integer compaction_throughput_mb_per_sec = 16;
+    public Boolean adaptive_compaction_throughput = false;
+    public Integer compaction_throughput_floor_mb_per_sec = 8;
+    public Integer compaction_throughput_ceiling_mb_per_sec = 128;
     public Boolean multithreaded_compaction = false;
+    public Integer compaction_range_splits = 1;
+    public Integer compaction_range_split_min_size_in_mb = 1024;
+    public Boolean precompute_repair_hashes = false;
+    public Integer concurrent_repair_ranges = 4;
+    public Integer max_repair_validation_rounds = 1;
 
     public Integer max_streaming_retries = 3;
 
     public volatile Integer stream_throughput_outbound_megabits_per_sec = 200;
+    public Boolean zero_copy_streaming = false;
 
     public String[] data_file_directories;
 
@@ -145,6 +156,7 @@ public class Config
     public ServerEncryptionOptions encryption_options;
 
     public InternodeCompression internode_compression = InternodeCompression.none;
+    public InternodeCompressor internode_compressor = InternodeCompressor.lz4;
 
     @Deprecated
     public Integer index_interval = null;
@@ -162,6 +174,14 @@ public class Config
     public Long key_cache_size_in_mb = null;
     public volatile int key_cache_save_period = 14400;
     public int key_cache_keys_to_save = Integer.MAX_VALUE;
+    public KeyCacheProvider key_cache_provider = KeyCacheProvider.heap;
+
+    public Long index_summary_capacity_in_mb;
+    public int index_summary_resize_interval_in_minutes = 60;
+
+    public BloomFilterType bloom_filter_type = BloomFilterType.standard;
+
+    public Long chunk_cache_size_in_mb = null;
 
     public long row_cache_size_in_mb = 0;
     public volatile int row_cache_save_period = 0;
@@ -177,6 +197,13 @@ public class Config
 
     public boolean inter_dc_tcp_nodelay = true;
 
+    public int internode_large_message_connections = 1;
+    public int internode_large_message_threshold_in_kb = 64;
+
+    public OTCCoalescingStrategy otc_coalescing_strategy = OTCCoalescingStrategy.disabled;
+    public int otc_coalescing_window_us = 200;
+    public int inter_dc_otc_coalescing_window_us = 200;
+
     public String memtable_allocator = "SlabAllocator";
 
     private static boolean outboundBindAny = false;
@@ -215,6 +242,30 @@ public class Config
         all, none, dc
     }
 
+    public static enum InternodeCompressor
+    {
+        snappy, lz4
+    }
+
+    public static enum OTCCoalescingStrategy
+    {
+        disabled,
+        fixed,
+        movingaverage
+    }
+
+    public static enum KeyCacheProvider
+    {
+        heap,
+        offheap
+    }
+
+    public static enum BloomFilterType
+    {
+        standard,
+        blocked
+    }
+
     public static enum DiskAccessMode
     {
         auto,
@@ -85,6 +85,8 @@ public class DatabaseDescriptor
     private static RequestSchedulerOptions requestSchedulerOptions;
 
     private static long keyCacheSizeInMB;
+    private static long indexSummaryCapacityInMB;
+    private static long chunkCacheSizeInMB;
     private static IAllocator memoryAllocator;
 
     private static String localDC;
@@ -246,6 +248,11 @@ public class DatabaseDescriptor
             throw new ConfigurationException("concurrent_reads must be at least 2");
         }
 
+        if (conf.concurrent_sstable_reads != null && conf.concurrent_sstable_reads < 1)
+        {
+            throw new ConfigurationException("concurrent_sstable_reads must be at least 1");
+        }
+
         if (conf.concurrent_writes != null && conf.concurrent_writes < 2)
         {
             throw new ConfigurationException("concurrent_writes must be at least 2");
@@ -265,6 +272,17 @@ public class DatabaseDescriptor
             throw new ConfigurationException("memtable_total_space_in_mb must be positive");
         logger.info("Global memtable threshold is enabled at {}MB", conf.memtable_total_space_in_mb);
 
+        if (conf.internode_large_message_connections < 0)
+            throw new ConfigurationException("internode_large_message_connections must be positive, or 0 to send large messages along with the others");
+        if (conf.internode_large_message_threshold_in_kb <= 0)
+            throw new ConfigurationException("internode_large_message_threshold_in_kb must be positive");
+
+        if (conf.otc_coalescing_window_us < 0 || conf.inter_dc_otc_coalescing_window_us < 0)
+            throw new ConfigurationException("otc_coalescing_window_us and inter_dc_otc_coalescing_window_us must be positive, or 0 to disable coalescing");
+
+        if (conf.memtable_flush_split_threshold_in_mb < 0)
+            throw new ConfigurationException("memtable_flush_split_threshold_in_mb must be positive, or 0 to disable split flushes");
+
         /* Memtable flush writer threads */
         if (conf.memtable_flush_writers != null && conf.memtable_flush_writers < 1)
         {
@@ -409,6 +427,24 @@ public class DatabaseDescriptor
         if (conf.concurrent_compactors <= 0)
             throw new ConfigurationException("concurrent_compactors should be strictly greater than 0");
 
+        if (conf.concurrent_repair_ranges <= 0)
+            throw new ConfigurationException("concurrent_repair_ranges should be strictly greater than 0");
+
+        if (conf.max_repair_validation_rounds <= 0)
+            throw new ConfigurationException("max_repair_validation_rounds should be strictly greater than 0");
+
+        if (conf.compaction_range_splits <= 0)
+            throw new ConfigurationException("compaction_range_splits should be strictly greater than 0");
+
+        if (conf.compaction_range_split_min_size_in_mb <= 0)
+            throw new ConfigurationException("compaction_range_split_min_size_in_mb should be strictly greater than 0");
+
+        if (conf.compaction_throughput_floor_mb_per_sec <= 0)
+            throw new ConfigurationException("compaction_throughput_floor_mb_per_sec should be strictly greater than 0");
+
+        if (conf.compaction_throughput_ceiling_mb_per_sec < conf.compaction_throughput_floor_mb_per_sec)
+            throw new ConfigurationException("compaction_throughput_ceiling_mb_per_sec should not be less than compaction_throughput_floor_mb_per_sec");
+
         /* data file and commit log directories. they get created later, when they're needed. */
         if (conf.commitlog_directory != null && conf.data_file_directories != null && conf.saved_caches_directory != null)
         {
@@ -456,6 +492,38 @@ public class DatabaseDescriptor
                     + conf.key_cache_size_in_mb + "', supported values are <integer> >= 0.");
         }
 
+        try
+        {
+            // if index_summary_capacity_in_mb is not set, use 5% of the heap
+            indexSummaryCapacityInMB = (conf.index_summary_capacity_in_mb == null)
+                ? Math.max(1, (int) (Runtime.getRuntime().maxMemory() * 0.05 / 1024 / 1024))
+                : conf.index_summary_capacity_in_mb;
+
+            if (indexSummaryCapacityInMB < 0)
+                throw new NumberFormatException(); // to escape duplicating error message
+        }
+        catch (NumberFormatException e)
+        {
+            throw new ConfigurationException("index_summary_capacity_in_mb option was set incorrectly to '"
+                    + conf.index_summary_capacity_in_mb + "', it should be a non-negative integer.");
+        }
+
+        try
+        {
+            // if chunk_cache_size_in_mb is not set, use min(5% of Heap (in MB), 100MB)
+            chunkCacheSizeInMB = (conf.chunk_cache_size_in_mb == null)
+                ? Math.min(Math.max(1, (int) (Runtime.getRuntime().maxMemory() * 0.05 / 1024 / 1024)), 100)
+                : conf.chunk_cache_size_in_mb;
+
+            if (chunkCacheSizeInMB < 0)
+                throw new NumberFormatException(); // to escape duplicating error message
+        }
+        catch (NumberFormatException e)
+        {
+            throw new ConfigurationException("chunk_cache_size_in_mb option was set incorrectly to '"
+                    + conf.chunk_cache_size_in_mb + "', supported values are <integer> >= 0.");
+        }
+
         memoryAllocator = FBUtilities.newOffHeapAllocator(conf.memory_allocator);
 
         if(conf.encryption_options != null)
@@ -721,6 +789,11 @@ public class DatabaseDescriptor
         return conf.max_streaming_retries;
     }
 
+    public static boolean isZeroCopyStreaming()
+    {
+        return conf.zero_copy_streaming;
+    }
+
     public static int getStoragePort()
     {
         return Integer.parseInt(System.getProperty("cassandra.storage_port", conf.storage_port.toString()));
@@ -844,6 +917,11 @@ public class DatabaseDescriptor
         return conf.concurrent_reads;
     }
 
+    public static int getConcurrentSSTableReads()
+    {
+        return conf.concurrent_sstable_reads;
+    }
+
     public static int getConcurrentWriters()
     {
         return conf.concurrent_writes;
@@ -859,6 +937,20 @@ public class DatabaseDescriptor
             return conf.memtable_flush_writers;
     }
 
+    /**
+     * @return the estimated flush size in bytes above which a memtable is split by token range into one sstable
+     * per data directory, or 0 if split flushes are disabled.
+     */
+    public static long getFlushSplitThreshold()
+    {
+        return conf.memtable_flush_split_threshold_in_mb * 1024L * 1024L;
+    }
+
+    public static void setFlushSplitThreshold(int sizeInMB)
+    {
+        conf.memtable_flush_split_threshold_in_mb = sizeInMB;
+    }
+
     public static int getInMemoryCompactionLimit()
     {
         return conf.in_memory_compaction_limit_in_mb * 1024 * 1024;
@@ -879,6 +971,51 @@ public class DatabaseDescriptor
         return conf.multithreaded_compaction;
     }
 
+    public static boolean isPrecomputeRepairHashes()
+    {
+        return conf.precompute_repair_hashes;
+    }
+
+    public static void setPrecomputeRepairHashes(boolean precomputeRepairHashes)
+    {
+        conf.precompute_repair_hashes = precomputeRepairHashes;
+    }
+
+    public static int getConcurrentRepairRanges()
+    {
+        return conf.concurrent_repair_ranges;
+    }
+
+    public static int getMaxRepairValidationRounds()
+    {
+        return conf.max_repair_validation_rounds;
+    }
+
+    public static void setMaxRepairValidationRounds(int maxRepairValidationRounds)
+    {
+        conf.max_repair_validation_rounds = maxRepairValidationRounds;
+    }
+
+    public static int getCompactionRangeSplits()
+    {
+        return conf.compaction_range_splits;
+    }
+
+    public static long getCompactionRangeSplitMinSize()
+    {
+        return conf.compaction_range_split_min_size_in_mb * 1024L * 1024L;
+    }
+
+    public static void setCompactionRangeSplits(int compactionRangeSplits)
+    {
+        conf.compaction_range_splits = compactionRangeSplits;
+    }
+
+    public static void setCompactionRangeSplitMinSizeInMB(int compactionRangeSplitMinSizeInMB)
+    {
+        conf.compaction_range_split_min_size_in_mb = compactionRangeSplitMinSizeInMB;
+    }
+
     public static int getCompactionThroughputMbPerSec()
     {
         return conf.compaction_throughput_mb_per_sec;
@@ -889,6 +1026,21 @@ public class DatabaseDescriptor
         conf.compaction_throughput_mb_per_sec = value;
     }
 
+    public static boolean isAdaptiveCompactionThroughput()
+    {
+        return conf.adaptive_compaction_throughput;
+    }
+
+    public static int getCompactionThroughputFloorMbPerSec()
+    {
+        return conf.compaction_throughput_floor_mb_per_sec;
+    }
+
+    public static int getCompactionThroughputCeilingMbPerSec()
+    {
+        return conf.compaction_throughput_ceiling_mb_per_sec;
+    }
+
     public static int getStreamThroughputOutboundMegabitsPerSec()
     {
         return conf.stream_throughput_outbound_megabits_per_sec;
@@ -1247,6 +1399,31 @@ public class DatabaseDescriptor
         return conf.key_cache_keys_to_save;
     }
 
+    public static Config.KeyCacheProvider getKeyCacheProvider()
+    {
+        return conf.key_cache_provider;
+    }
+
+    public static long getIndexSummaryCapacityInMB()
+    {
+        return indexSummaryCapacityInMB;
+    }
+
+    public static int getIndexSummaryResizeIntervalInMinutes()
+    {
+        return conf.index_summary_resize_interval_in_minutes;
+    }
+
+    public static Config.BloomFilterType getBloomFilterType()
+    {
+        return conf.bloom_filter_type;
+    }
+
+    public static long getChunkCacheSizeInMB()
+    {
+        return chunkCacheSizeInMB;
+    }
+
     public static void setKeyCacheKeysToSave(int keyCacheKeysToSave)
     {
         conf.key_cache_keys_to_save = keyCacheKeysToSave;
@@ -1302,11 +1479,41 @@ public class DatabaseDescriptor
         return conf.internode_compression;
     }
 
+    public static Config.InternodeCompressor internodeCompressor()
+    {
+        return conf.internode_compressor;
+    }
+
     public static boolean getInterDCTcpNoDelay()
     {
         return conf.inter_dc_tcp_nodelay;
     }
 
+    public static int getInternodeLargeMessageConnections()
+    {
+        return conf.internode_large_message_connections;
+    }
+
+    public static int getInternodeLargeMessageThreshold()
+    {
+        return conf.internode_large_message_threshold_in_kb * 1024;
+    }
+
+    public static Config.OTCCoalescingStrategy getOTCCoalescingStrategy()
+    {
+        return conf.otc_coalescing_strategy;
+    }
+
+    public static int getOTCCoalescingWindow()
+    {
+        return conf.otc_coalescing_window_us;
+    }
+
+    public static int getInterDCOTCCoalescingWindow()
+    {
+        return conf.inter_dc_otc_coalescing_window_us;
+    }
+
     public static boolean shouldPreheatPageCache()
     {
         return conf.preheat_kernel_page_cache;
@@ -37,9 +37,12 @@ public class CFPropDefs extends PropertyDefinitions
     public static final String KW_REPLICATEONWRITE = "replicate_on_write";
     public static final String KW_CACHING = "caching";
     public static final String KW_DEFAULT_TIME_TO_LIVE = "default_time_to_live";
+    public static final String KW_ROWS_PER_PARTITION_TO_CACHE = "rows_per_partition_to_cache";
     public static final String KW_INDEX_INTERVAL = "index_interval";
     public static final String KW_SPECULATIVE_RETRY = "speculative_retry";
     public static final String KW_POPULATE_IO_CACHE_ON_FLUSH = "populate_io_cache_on_flush";
+    public static final String KW_PARALLEL_SSTABLE_READS = "parallel_sstable_reads";
+    public static final String KW_INDEX_PARTITION_BOUNDS = "index_partition_bounds";
     public static final String KW_BF_FP_CHANCE = "bloom_filter_fp_chance";
     public static final String KW_MEMTABLE_FLUSH_PERIOD = "memtable_flush_period_in_ms";
 
@@ -60,9 +63,12 @@ public class CFPropDefs extends PropertyDefinitions
         keywords.add(KW_REPLICATEONWRITE);
         keywords.add(KW_CACHING);
         keywords.add(KW_DEFAULT_TIME_TO_LIVE);
+        keywords.add(KW_ROWS_PER_PARTITION_TO_CACHE);
         keywords.add(KW_INDEX_INTERVAL);
         keywords.add(KW_SPECULATIVE_RETRY);
         keywords.add(KW_POPULATE_IO_CACHE_ON_FLUSH);
+        keywords.add(KW_PARALLEL_SSTABLE_READS);
+        keywords.add(KW_INDEX_PARTITION_BOUNDS);
         keywords.add(KW_BF_FP_CHANCE);
         keywords.add(KW_COMPACTION);
         keywords.add(KW_COMPRESSION);
@@ -113,6 +119,8 @@ public class CFPropDefs extends PropertyDefinitions
 
         validateMinimumInt(KW_DEFAULT_TIME_TO_LIVE, 0, CFMetaData.DEFAULT_DEFAULT_TIME_TO_LIVE);
         validateMinimumInt(KW_INDEX_INTERVAL, 1, CFMetaData.DEFAULT_INDEX_INTERVAL);
+        // negative values cache the last rows of each partition
+        validateMinimumInt(KW_ROWS_PER_PARTITION_TO_CACHE, -Integer.MAX_VALUE, CFMetaData.DEFAULT_ROWS_PER_PARTITION_TO_CACHE);
 
         SpeculativeRetry.fromString(getString(KW_SPECULATIVE_RETRY, SpeculativeRetry.RetryType.NONE.name()));
     }
@@ -155,9 +163,12 @@ public class CFPropDefs extends PropertyDefinitions
         cfm.maxCompactionThreshold(maxCompactionThreshold);
         cfm.caching(CFMetaData.Caching.fromString(getString(KW_CACHING, cfm.getCaching().toString())));
         cfm.defaultTimeToLive(getInt(KW_DEFAULT_TIME_TO_LIVE, cfm.getDefaultTimeToLive()));
+        cfm.rowsPerPartitionToCache(getInt(KW_ROWS_PER_PARTITION_TO_CACHE, cfm.getRowsPerPartitionToCache()));
         cfm.speculativeRetry(CFMetaData.SpeculativeRetry.fromString(getString(KW_SPECULATIVE_RETRY, cfm.getSpeculativeRetry().toString())));
         cfm.memtableFlushPeriod(getInt(KW_MEMTABLE_FLUSH_PERIOD, cfm.getMemtableFlushPeriod()));
         cfm.populateIoCacheOnFlush(getBoolean(KW_POPULATE_IO_CACHE_ON_FLUSH, cfm.populateIoCacheOnFlush()));
+        cfm.parallelSSTableReads(getBoolean(KW_PARALLEL_SSTABLE_READS, cfm.parallelSSTableReads()));
+        cfm.indexPartitionBounds(getBoolean(KW_INDEX_PARTITION_BOUNDS, cfm.indexPartitionBounds()));
         cfm.indexInterval(getInt(KW_INDEX_INTERVAL, cfm.getIndexInterval()));
 
         if (compactionStrategyClass != null)
@@ -19,9 +19,17 @@ package org.apache.cassandra.db;
 
 import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.Uninterruptibles;
 
+import org.apache.cassandra.concurrent.JMXEnabledThreadPoolExecutor;
+import org.apache.cassandra.concurrent.NamedThreadFactory;
+import org.apache.cassandra.concurrent.StageManager;
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.columniterator.OnDiskAtomIterator;
 import org.apache.cassandra.db.compaction.SizeTieredCompactionStrategy;
 import org.apache.cassandra.db.filter.NamesQueryFilter;
@@ -35,6 +43,15 @@ import org.apache.cassandra.utils.HeapAllocator;
 
 public class CollationController
 {
+    // Opens (and for name queries, reads) the sstables of a partition concurrently for tables with
+    // parallel_sstable_reads.  Tasks never wait on anything but disk, so read stage threads can safely block on them.
+    private static final ExecutorService sstableReadExecutor = new JMXEnabledThreadPoolExecutor(DatabaseDescriptor.getConcurrentSSTableReads(),
+                                                                                                StageManager.KEEPALIVE,
+                                                                                                TimeUnit.SECONDS,
+                                                                                                new LinkedBlockingQueue<Runnable>(),
+                                                                                                new NamedThreadFactory("SSTableReads"),
+                                                                                                "internal");
+
     private final ColumnFamilyStore cfs;
     private final QueryFilter filter;
     private final int gcBefore;
@@ -73,6 +90,7 @@ public class CollationController
         // which allows a (sorted) set of columns to be merged even if they are not uniformly sorted after the existing
         // ones.
         ColumnFamily temp = ArrayBackedSortedColumns.factory.create(cfs.metadata, filter.filter.isReversed());
+        List<SSTableRead<ColumnFamily>> reads = null;
 
         try
         {
@@ -101,10 +119,70 @@ public class CollationController
             /* add the SSTables on disk */
             Collections.sort(view.sstables, SSTable.maxTimestampComparator);
 
+            // When reading in parallel, every sstable is read with the columns still wanted after the memtables;
+            // the merge below then stops at the same point the sequential loop would have.
+            if (cfs.metadata.parallelSSTableReads() && view.sstables.size() > 1)
+            {
+                final NamesQueryFilter parallelNamesFilter = namesFilter.withUpdatedColumns(new TreeSet<ByteBuffer>(filterColumns));
+                final QueryFilter parallelFilter = new QueryFilter(filter.key, filter.cfName, parallelNamesFilter, filter.timestamp);
+                // the memtable data, as the tasks see it while the merge below adds to the container
+                final ColumnFamily memtableData = container.cloneMe();
+                Tracing.trace("Reading {} sstables in parallel", view.sstables.size());
+                reads = new ArrayList<SSTableRead<ColumnFamily>>(view.sstables.size());
+                for (final SSTableReader sstable : view.sstables)
+                {
+                    SSTableRead<ColumnFamily> read = new SSTableRead<ColumnFamily>(new Callable<ColumnFamily>()
+                    {
+                        public ColumnFamily call() throws Exception
+                        {
+                            // as in the sequential loop, leave out the columns the memtables have newer data for than
+                            // the partition in this sstable, and skip the sstable if that leaves nothing to read
+                            RowIndexEntry indexEntry = sstable.getPosition(filter.key, SSTableReader.Operator.EQ);
+                            QueryFilter sstableFilter = parallelFilter;
+                            if (indexEntry != null && indexEntry.hasPartitionBounds() && indexEntry.maxTimestamp() < sstable.getMaxTimestamp())
+                            {
+                                TreeSet<ByteBuffer> sstableColumns = new TreeSet<ByteBuffer>(parallelNamesFilter.columns);
+                                sstableFilter = new QueryFilter(filter.key, filter.cfName, parallelNamesFilter.withUpdatedColumns(sstableColumns), filter.timestamp);
+                                reduceNameFilter(sstableFilter, memtableData, indexEntry.maxTimestamp());
+                                if (sstableColumns.isEmpty())
+                                {
+                                    Tracing.trace("Skipping sstable {}, whose data for the partition is older than what was read", sstable.descriptor.generation);
+                                    return null;
+                                }
+                            }
+
+                            Tracing.trace("Reading data from sstable {}", sstable.descriptor.generation);
+                            OnDiskAtomIterator iter = sstableFilter.getSSTableColumnIterator(sstable, null, filter.key, indexEntry);
+                            try
+                            {
+                                if (iter.getColumnFamily() == null)
+                                    return null;
+
+                                ColumnFamily cf = ArrayBackedSortedColumns.factory.create(cfs.metadata, parallelFilter.filter.isReversed());
+                                cf.delete(iter.getColumnFamily());
+                                while (iter.hasNext())
+                                    cf.addAtom(iter.next());
+                                Tracing.trace("Read data from sstable {}", sstable.descriptor.generation);
+                                return cf;
+                            }
+                            finally
+                            {
+                                FileUtils.closeQuietly(iter);
+                            }
+                        }
+                    });
+                    reads.add(read);
+                    sstableReadExecutor.execute(read);
+                }
+            }
+
             // read sorted sstables
             long mostRecentRowTombstone = Long.MIN_VALUE;
-            for (SSTableReader sstable : view.sstables)
+            boolean consultedSSTables = false;
+            for (int i = 0; i < view.sstables.size(); i++)
             {
+                SSTableReader sstable = view.sstables.get(i);
+
                 // if we've already seen a row tombstone with a timestamp greater
                 // than the most recent update to this sstable, we're done, since the rest of the sstables
                 // will also be older
@@ -116,8 +194,40 @@ public class CollationController
                 if (((NamesQueryFilter) reducedFilter.filter).columns.isEmpty())
                     break;
 
+                if (reads != null)
+                {
+                    Tracing.trace("Merging data from sstable {}", sstable.descriptor.generation);
+                    ColumnFamily cf = getRead(reads.get(i));
+                    consultedSSTables = true;
+                    if (cf != null)
+                    {
+                        if (cf.isMarkedForDelete())
+                            mostRecentRowTombstone = cf.deletionInfo().getTopLevelDeletion().markedForDeleteAt;
+                        sstablesIterated++;
+                        container.addAll(cf, HeapAllocator.instance);
+                    }
+                    continue;
+                }
+
+                // The partition may be older than the rest of the sstable: if its index entry says so, leave out the
+                // columns we already have newer data for.  Only for this sstable though, as the partition may be
+                // newer in the next ones.
+                RowIndexEntry indexEntry = sstable.getPosition(filter.key, SSTableReader.Operator.EQ);
+                QueryFilter sstableFilter = reducedFilter;
+                if (indexEntry != null && indexEntry.hasPartitionBounds() && indexEntry.maxTimestamp() < currentMaxTs)
+                {
+                    TreeSet<ByteBuffer> sstableColumns = new TreeSet<ByteBuffer>(((NamesQueryFilter) reducedFilter.filter).columns);
+                    sstableFilter = new QueryFilter(filter.key, filter.cfName, namesFilter.withUpdatedColumns(sstableColumns), filter.timestamp);
+                    reduceNameFilter(sstableFilter, container, indexEntry.maxTimestamp());
+                    if (sstableColumns.isEmpty())
+                    {
+                        Tracing.trace("Skipping sstable {}, whose data for the partition is older than what was read", sstable.descriptor.generation);
+                        continue;
+                    }
+                }
+
                 Tracing.trace("Merging data from sstable {}", sstable.descriptor.generation);
-                OnDiskAtomIterator iter = reducedFilter.getSSTableColumnIterator(sstable);
+                OnDiskAtomIterator iter = sstableFilter.getSSTableColumnIterator(sstable, null, filter.key, indexEntry);
                 iterators.add(iter);
                 if (iter.getColumnFamily() != null)
                 {
@@ -136,7 +246,7 @@ public class CollationController
 
             // we need to distinguish between "there is no data at all for this row" (BF will let us rebuild that efficiently)
             // and "there used to be data, but it's gone now" (we should cache the empty CF so we don't need to rebuild that slower)
-            if (iterators.isEmpty())
+            if (iterators.isEmpty() && !consultedSSTables)
                 return null;
 
             // do a final collate.  toCollate is boilerplate required to provide a CloseableIterator
@@ -162,10 +272,58 @@ public class CollationController
         {
             for (OnDiskAtomIterator iter : iterators)
                 FileUtils.closeQuietly(iter);
+            // the reads we stopped merging early are cancelled, or waited for if they have started
+            if (reads != null)
+                cancelReads(reads);
             SSTableReader.releaseReferences(view.sstables);
         }
     }
 
+    private static <T> T getRead(Future<T> read)
+    {
+        try
+        {
+            return Uninterruptibles.getUninterruptibly(read);
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Cancels the given reads that have not started yet, then waits for the ones that have, since those may still
+     * be using their sstable.
+     *
+     * @return the reads that had started
+     */
+    private static <T> List<SSTableRead<T>> cancelReads(Collection<SSTableRead<T>> reads)
+    {
+        List<SSTableRead<T>> started = new ArrayList<SSTableRead<T>>(reads.size());
+        for (SSTableRead<T> read : reads)
+        {
+            if (!read.cancelIfNotStarted())
+                started.add(read);
+        }
+
+        for (SSTableRead<T> read : started)
+        {
+            try
+            {
+                Uninterruptibles.getUninterruptibly(read);
+            }
+            catch (ExecutionException | CancellationException e)
+            {
+                // the query did not get to this read, so it does not care how it ended
+            }
+        }
+        return started;
+    }
+
     /**
      * remove columns from @param filter where we already have data in @param container newer than @param sstableTimestamp
      */
@@ -193,6 +351,7 @@ public class CollationController
         ColumnFamilyStore.ViewFragment view = cfs.markReferenced(filter.key);
         List<OnDiskAtomIterator> iterators = new ArrayList<OnDiskAtomIterator>(Iterables.size(view.memtables) + view.sstables.size());
         ColumnFamily returnCF = ArrayBackedSortedColumns.factory.create(cfs.metadata, filter.filter.isReversed());
+        Map<SSTableReader, SSTableRead<OnDiskAtomIterator>> opens = null;
 
         try
         {
@@ -225,6 +384,32 @@ public class CollationController
             long minTimestamp = Long.MAX_VALUE;
             int nonIntersectingSSTables = 0;
 
+            // When reading in parallel, open every sstable intersecting the slice up front; the loop below then
+            // consumes them in the same order, and the ones it does not get to are cancelled, or closed unread.
+            if (cfs.metadata.parallelSSTableReads() && view.sstables.size() > 1)
+            {
+                opens = new IdentityHashMap<SSTableReader, SSTableRead<OnDiskAtomIterator>>();
+                for (final SSTableReader sstable : view.sstables)
+                {
+                    if (!filter.shouldInclude(sstable))
+                        continue;
+
+                    SSTableRead<OnDiskAtomIterator> open = new SSTableRead<OnDiskAtomIterator>(new Callable<OnDiskAtomIterator>()
+                    {
+                        public OnDiskAtomIterator call() throws Exception
+                        {
+                            Tracing.trace("Opening sstable {}", sstable.descriptor.generation);
+                            OnDiskAtomIterator iter = filter.getSSTableColumnIterator(sstable);
+                            Tracing.trace("Opened sstable {}", sstable.descriptor.generation);
+                            return iter;
+                        }
+                    });
+                    opens.put(sstable, open);
+                    sstableReadExecutor.execute(open);
+                }
+                Tracing.trace("Opening {} sstables in parallel", opens.size());
+            }
+
             for (SSTableReader sstable : view.sstables)
             {
                 minTimestamp = Math.min(minTimestamp, sstable.getMinTimestamp());
@@ -247,7 +432,9 @@ public class CollationController
                 }
 
                 sstable.incrementReadCount();
-                OnDiskAtomIterator iter = filter.getSSTableColumnIterator(sstable);
+                OnDiskAtomIterator iter = opens == null
+                                        ? filter.getSSTableColumnIterator(sstable)
+                                        : getRead(opens.remove(sstable));
                 iterators.add(iter);
                 if (iter.getColumnFamily() != null)
                 {
@@ -303,12 +490,65 @@ public class CollationController
         {
             for (OnDiskAtomIterator iter : iterators)
                 FileUtils.closeQuietly(iter);
+            if (opens != null)
+                closeOpens(opens.values());
             SSTableReader.releaseReferences(view.sstables);
         }
     }
 
+    private static void closeOpens(Collection<SSTableRead<OnDiskAtomIterator>> opens)
+    {
+        for (SSTableRead<OnDiskAtomIterator> open : cancelReads(opens))
+        {
+            try
+            {
+                FileUtils.closeQuietly(Uninterruptibles.getUninterruptibly(open));
+            }
+            catch (ExecutionException | CancellationException e)
+            {
+                // nothing to close
+            }
+        }
+    }
+
     public int getSstablesIterated()
     {
         return sstablesIterated;
     }
+
+    /**
+     * The read of one sstable by the sstable read pool.  Unlike a plain FutureTask, it can tell a read cancelled
+     * before it started, which never touches its sstable, from one that is running, which needs the sstable until
+     * it is done.
+     */
+    @VisibleForTesting
+    static class SSTableRead<T> extends FutureTask<T>
+    {
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        SSTableRead(Callable<T> callable)
+        {
+            super(callable);
+        }
+
+        @Override
+        public void run()
+        {
+            if (started.compareAndSet(false, true))
+                super.run();
+        }
+
+        /**
+         * Cancels the read unless it has started already.
+         *
+         * @return true if the read was cancelled, and will never run
+         */
+        boolean cancelIfNotStarted()
+        {
+            if (!started.compareAndSet(false, true))
+                return false;
+            cancel(false);
+            return true;
+        }
+    }
 }
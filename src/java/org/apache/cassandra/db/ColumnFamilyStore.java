@@ -39,6 +39,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.apache.cassandra.cache.IRowCacheEntry;
+import org.apache.cassandra.cache.RowCacheFilter;
+import org.apache.cassandra.cache.RowCacheHead;
 import org.apache.cassandra.cache.RowCacheKey;
 import org.apache.cassandra.cache.RowCacheSentinel;
 import org.apache.cassandra.concurrent.JMXEnabledThreadPoolExecutor;
@@ -47,6 +49,7 @@ import org.apache.cassandra.config.CFMetaData.SpeculativeRetry;
 import org.apache.cassandra.config.ColumnDefinition;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.config.Schema;
+import org.apache.cassandra.cql3.CFDefinition;
 import org.apache.cassandra.db.columniterator.OnDiskAtomIterator;
 import org.apache.cassandra.db.commitlog.CommitLog;
 import org.apache.cassandra.db.commitlog.ReplayPosition;
@@ -265,6 +268,7 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
 
         if (caching == Caching.ALL || caching == Caching.KEYS_ONLY)
             CacheService.instance.keyCache.loadSaved(this);
+        CacheService.instance.subscribeKeyCache(data);
 
         // compaction strategy should be created after the CFS has been prepared
         this.compactionStrategy = metadata.createCompactionStrategyInstance(this);
@@ -642,7 +646,7 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
                 if (new File(descriptor.filenameFor(Component.STATS)).exists())
                 {
                     Pair<SSTableMetadata, Set<Integer>> oldMetadata = SSTableMetadata.serializer.deserialize(descriptor);
-                    LeveledManifest.mutateLevel(oldMetadata, descriptor, descriptor.filenameFor(Component.STATS), 0);
+                    LeveledManifest.mutateLevel(oldMetadata, descriptor, 0);
                 }
             }
             catch (IOException e)
@@ -722,10 +726,19 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
 
     public String getTempSSTablePath(File directory)
     {
-        return getTempSSTablePath(directory, Descriptor.Version.CURRENT);
+        return getTempSSTablePath(directory, getSSTableVersion());
     }
 
-    private String getTempSSTablePath(File directory, Descriptor.Version version)
+    /**
+     * @return the version new sstables of this table are written in.  Only tables recording partition bounds in
+     * their index use the current version, since previous versions cannot read such index files.
+     */
+    public Descriptor.Version getSSTableVersion()
+    {
+        return metadata.indexPartitionBounds() ? Descriptor.Version.CURRENT : Descriptor.Version.WITHOUT_PARTITION_BOUNDS;
+    }
+
+    public String getTempSSTablePath(File directory, Descriptor.Version version)
     {
         Descriptor desc = new Descriptor(version,
                                          directory,
@@ -776,7 +789,7 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
                 // it from the memtable pending flush right away.
                 if (memtable.isClean())
                 {
-                    cfs.replaceFlushed(memtable, null);
+                    cfs.replaceFlushed(memtable, Collections.<SSTableReader>emptyList());
                     latch.countDown();
                 }
                 else
@@ -1139,9 +1152,9 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
         data.replaceCompactedSSTables(sstables, replacements, compactionType);
     }
 
-    void replaceFlushed(Memtable memtable, SSTableReader sstable)
+    void replaceFlushed(Memtable memtable, Collection<SSTableReader> sstables)
     {
-        compactionStrategy.replaceFlushed(memtable, sstable);
+        compactionStrategy.replaceFlushed(memtable, sstables);
     }
 
     public boolean isValid()
@@ -1293,10 +1306,11 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
     /**
      * fetch the row given by filter.key if it is in the cache; if not, read it from disk and cache it
      * @param cfId the column family to read the row from
-     * @param filter the columns being queried.  Note that we still cache entire rows, but if a row is uncached
-     *               and we race to cache it, only the winner will read the entire row
-     * @return the entire row for filter.key, if present in the cache (or we can cache it), or just the column
-     *         specified by filter otherwise
+     * @param filter the columns being queried.  Note that we still cache entire rows (or their first rows if
+     *               rows_per_partition_to_cache is set), but if a row is uncached and we race to cache it, only
+     *               the winner will read the row
+     * @return the columns specified by filter, read from the cache if present (or if we can cache it), or from
+     *         the sstables otherwise; null if there is no data and no tombstones
      */
     private ColumnFamily getThroughCache(UUID cfId, QueryFilter filter)
     {
@@ -1307,31 +1321,35 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
 
         // attempt a sentinel-read-cache sequence.  if a write invalidates our sentinel, we'll return our
         // (now potentially obsolete) data, but won't cache it. see CASSANDRA-3862
-        IRowCacheEntry cached = CacheService.instance.rowCache.get(key);
+        // cached partitions come back already filtered, without deserializing the columns the filter doesn't select
+        int gcBefore = gcBefore(filter.timestamp);
+        IRowCacheEntry cached = CacheService.instance.rowCache.read(key, new RowCacheFilter(filter, gcBefore));
         if (cached != null)
         {
             if (cached instanceof RowCacheSentinel)
             {
                 // Some other read is trying to cache the value, just do a normal non-caching read
                 Tracing.trace("Row cache miss (race)");
-                return getTopLevelColumns(filter, Integer.MIN_VALUE);
+                return getUncached(filter);
             }
             Tracing.trace("Row cache hit");
-            return (ColumnFamily) cached;
+            return cached instanceof ColumnFamily
+                 ? removeDeletedCF((ColumnFamily) cached, gcBefore)
+                 : filterCached(cached, filter);
         }
 
         Tracing.trace("Row cache miss");
         RowCacheSentinel sentinel = new RowCacheSentinel();
         boolean sentinelSuccess = CacheService.instance.rowCache.putIfAbsent(key, sentinel);
+        IRowCacheEntry data = null;
 
         try
         {
-            ColumnFamily data = getTopLevelColumns(QueryFilter.getIdentityFilter(filter.key, name, filter.timestamp),
-                                                   Integer.MIN_VALUE);
+            data = readForRowCache(filter.key, filter.timestamp);
             if (sentinelSuccess && data != null)
                 CacheService.instance.rowCache.replace(key, sentinel, data);
 
-            return data;
+            return data == null ? null : filterCached(data, filter);
         }
         finally
         {
@@ -1340,6 +1358,97 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
         }
     }
 
+    /**
+     * Reads what the row cache holds for a partition: all of it, or only its first (last, if negative)
+     * rows_per_partition_to_cache CQL rows when it has more than that.
+     *
+     * @return a ColumnFamily if the whole partition was read, a RowCacheHead if only its first rows were,
+     *         or null if there is no data and no tombstones
+     */
+    public IRowCacheEntry readForRowCache(DecoratedKey key, long now)
+    {
+        int rowsToCache = metadata.getRowsPerPartitionToCache();
+        if (rowsToCache == 0)
+            return getTopLevelColumns(QueryFilter.getIdentityFilter(key, name, now), Integer.MIN_VALUE);
+
+        boolean reversed = rowsToCache < 0;
+        int count = Math.abs(rowsToCache);
+        SliceQueryFilter headFilter = new SliceQueryFilter(ColumnSlice.ALL_COLUMNS_ARRAY, reversed, count, rowCacheGrouping());
+        ColumnFamily data = getTopLevelColumns(new QueryFilter(key, name, headFilter, now), Integer.MIN_VALUE);
+
+        // the filter stops as soon as it sees the first cell of row count + 1, so only then is the partition
+        // larger than what we read
+        if (data == null || headFilter.lastCounted() <= count)
+            return data;
+        return new RowCacheHead(data, reversed);
+    }
+
+    /**
+     * How the rows of a partition are counted when caching only its head: CQL3 rows, or cells for compact tables.
+     * Same as SelectStatement.
+     */
+    private int rowCacheGrouping()
+    {
+        CFDefinition cfDef = metadata.getCfDef();
+        return cfDef.isCompact ? -1 : cfDef.columns.size();
+    }
+
+    private ColumnFamily filterCached(IRowCacheEntry cached, QueryFilter filter)
+    {
+        if (cached instanceof ColumnFamily)
+            return filterColumnFamily((ColumnFamily) cached, filter);
+
+        ColumnFamily result = filterCachedHead((RowCacheHead) cached, filter);
+        if (result != null)
+            return result;
+
+        Tracing.trace("Query not covered by the cached rows, reading from sstables");
+        metric.rowCacheHeadMiss.inc();
+        return getUncached(filter);
+    }
+
+    /**
+     * @return the result of filter over the cached head of a partition, or null if some of the cells it selects
+     * may lie past the end of the head
+     */
+    private ColumnFamily filterCachedHead(RowCacheHead head, QueryFilter filter)
+    {
+        AbstractType<?> comparator = metadata.comparator;
+        if (filter.filter instanceof NamesQueryFilter)
+        {
+            for (ByteBuffer column : ((NamesQueryFilter) filter.filter).columns)
+                if (!head.covers(column, comparator))
+                    return null;
+            return filterColumnFamily(head.data, filter);
+        }
+
+        if (!(filter.filter instanceof SliceQueryFilter))
+            return null;
+
+        SliceQueryFilter sliceFilter = (SliceQueryFilter) filter.filter;
+        ColumnSlice[] slices = sliceFilter.slices;
+        // read in the other direction than the head, the query must start within it
+        if (sliceFilter.reversed != head.reversed)
+            return head.covers(slices[0].start, comparator) ? filterColumnFamily(head.data, filter) : null;
+
+        ColumnFamily result = filterColumnFamily(head.data, filter);
+        if (head.covers(slices[slices.length - 1].finish, comparator))
+            return result;
+
+        // otherwise, it is covered if it found all the rows it asked for, as long as it doesn't count in coarser
+        // groups than the head was read with (in which case its last row could continue past the head)
+        int grouping = rowCacheGrouping();
+        boolean comparableCount = sliceFilter.compositesToGroup < 0 || (grouping >= 0 && sliceFilter.compositesToGroup >= grouping);
+        return comparableCount && sliceFilter.lastCounted() >= sliceFilter.count ? result : null;
+    }
+
+    private ColumnFamily getUncached(QueryFilter filter)
+    {
+        int gcBefore = gcBefore(filter.timestamp);
+        ColumnFamily cf = getTopLevelColumns(filter, gcBefore);
+        return cf == null ? null : removeDeletedCF(cf, gcBefore);
+    }
+
     public int gcBefore(long now)
     {
         return (int) (now / 1000) - metadata.getGcGraceSeconds();
@@ -1359,29 +1468,23 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
         long start = System.nanoTime();
         try
         {
-            int gcBefore = gcBefore(filter.timestamp);
             if (isRowCacheEnabled())
             {
                 assert !isIndex(); // CASSANDRA-5732
                 UUID cfId = metadata.cfId;
 
-                ColumnFamily cached = getThroughCache(cfId, filter);
-                if (cached == null)
+                result = getThroughCache(cfId, filter);
+                if (result == null)
                 {
                     logger.trace("cached row is empty");
                     return null;
                 }
-
-                result = filterColumnFamily(cached, filter);
             }
             else
             {
-                ColumnFamily cf = getTopLevelColumns(filter, gcBefore);
-
-                if (cf == null)
+                result = getUncached(filter);
+                if (result == null)
                     return null;
-
-                result = removeDeletedCF(cf, gcBefore);
             }
 
             removeDroppedColumns(result);
@@ -1915,7 +2018,8 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
             return null;
 
         IRowCacheEntry cached = CacheService.instance.rowCache.getInternal(new RowCacheKey(metadata.cfId, key));
-        return cached == null || cached instanceof RowCacheSentinel ? null : (ColumnFamily) cached;
+        // sentinels and partition heads are no use to callers wanting the whole row
+        return cached instanceof ColumnFamily ? (ColumnFamily) cached : null;
     }
 
     /**
@@ -2394,7 +2498,7 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
         return view.sstables.isEmpty() && view.memtable.getOperations() == 0 && view.memtablesPendingFlush.isEmpty();
     }
 
-    private boolean isRowCacheEnabled()
+    public boolean isRowCacheEnabled()
     {
         return !(metadata.getCaching() == Caching.NONE
               || metadata.getCaching() == Caching.KEYS_ONLY
@@ -32,13 +32,22 @@ public class ColumnIndex
 {
     public final List<IndexHelper.IndexInfo> columnsIndex;
 
-    private static final ColumnIndex EMPTY = new ColumnIndex(Collections.<IndexHelper.IndexInfo>emptyList());
+    // the range of names covered by the atoms of the row (including the end of range tombstones) and their
+    // max timestamp; the names are null if the row has no atoms
+    public final ByteBuffer minColumnName;
+    public final ByteBuffer maxColumnName;
+    public final long maxTimestamp;
 
-    private ColumnIndex(List<IndexHelper.IndexInfo> columnsIndex)
+    private static final ColumnIndex EMPTY = new ColumnIndex(Collections.<IndexHelper.IndexInfo>emptyList(), null, null, Long.MIN_VALUE);
+
+    private ColumnIndex(List<IndexHelper.IndexInfo> columnsIndex, ByteBuffer minColumnName, ByteBuffer maxColumnName, long maxTimestamp)
     {
         assert columnsIndex != null;
 
         this.columnsIndex = columnsIndex;
+        this.minColumnName = minColumnName;
+        this.maxColumnName = maxColumnName;
+        this.maxTimestamp = maxTimestamp;
     }
 
     @VisibleForTesting
@@ -55,7 +64,11 @@ public class ColumnIndex
     {
         private static final OnDiskAtom.Serializer atomSerializer = Column.onDiskSerializer();
 
-        private final ColumnIndex result;
+        private final List<IndexHelper.IndexInfo> columnsIndex;
+        private final Comparator<ByteBuffer> comparator;
+        private ByteBuffer minColumnName;
+        private ByteBuffer maxColumnName;
+        private long maxTimestamp = Long.MIN_VALUE;
         private final long indexOffset;
         private long startPosition = -1;
         private long endPosition = 0;
@@ -80,7 +93,8 @@ public class ColumnIndex
             this.key = key;
             deletionInfo = cf.deletionInfo();
             this.indexOffset = rowHeaderSize(key, deletionInfo);
-            this.result = new ColumnIndex(new ArrayList<IndexHelper.IndexInfo>());
+            this.columnsIndex = new ArrayList<IndexHelper.IndexInfo>();
+            this.comparator = cf.getComparator();
             this.output = output;
             this.tombstoneTracker = new RangeTombstone.Tracker(cf.getComparator());
         }
@@ -162,6 +176,14 @@ public class ColumnIndex
         {
             atomCount++;
 
+            // atoms come in comparator order, but a range tombstone may extend past the atoms following it
+            if (minColumnName == null)
+                minColumnName = column.name();
+            ByteBuffer end = column instanceof RangeTombstone ? ((RangeTombstone) column).max : column.name();
+            if (maxColumnName == null || comparator.compare(end, maxColumnName) > 0)
+                maxColumnName = end;
+            maxTimestamp = Math.max(maxTimestamp, column.maxTimestamp());
+
             if (firstColumn == null)
             {
                 firstColumn = column;
@@ -180,7 +202,7 @@ public class ColumnIndex
             if (blockSize >= DatabaseDescriptor.getColumnIndexSize())
             {
                 IndexHelper.IndexInfo cIndexInfo = new IndexHelper.IndexInfo(firstColumn.name(), column.name(), indexOffset + startPosition, endPosition - startPosition);
-                result.columnsIndex.add(cIndexInfo);
+                columnsIndex.add(cIndexInfo);
                 firstColumn = null;
                 lastBlockClosing = column;
             }
@@ -210,15 +232,15 @@ public class ColumnIndex
                 return ColumnIndex.EMPTY;
 
             // the last column may have fallen on an index boundary already.  if not, index it explicitly.
-            if (result.columnsIndex.isEmpty() || lastBlockClosing != lastColumn)
+            if (columnsIndex.isEmpty() || lastBlockClosing != lastColumn)
             {
                 IndexHelper.IndexInfo cIndexInfo = new IndexHelper.IndexInfo(firstColumn.name(), lastColumn.name(), indexOffset + startPosition, endPosition - startPosition);
-                result.columnsIndex.add(cIndexInfo);
+                columnsIndex.add(cIndexInfo);
             }
 
             // we should always have at least one computed index block, but we only write it out if there is more than that.
-            assert result.columnsIndex.size() > 0;
-            return result;
+            assert columnsIndex.size() > 0;
+            return new ColumnIndex(columnsIndex, minColumnName, maxColumnName, maxTimestamp);
         }
 
         public void maybeWriteEmptyRowHeader() throws IOException
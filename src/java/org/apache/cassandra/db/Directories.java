@@ -82,6 +82,7 @@ public class Directories
 
     private final String keyspacename;
     private final String cfname;
+    private final DataDirectory[] dataDirectories;
     private final File[] sstableDirectories;
 
     public static Directories create(String keyspacename, String cfname)
@@ -95,12 +96,18 @@ public class Directories
     }
 
     private Directories(String keyspacename, String cfname, String directoryName)
+    {
+        this(keyspacename, cfname, directoryName, dataFileLocations);
+    }
+
+    private Directories(String keyspacename, String cfname, String directoryName, DataDirectory[] dataDirectories)
     {
         this.keyspacename = keyspacename;
         this.cfname = cfname;
-        this.sstableDirectories = new File[dataFileLocations.length];
-        for (int i = 0; i < dataFileLocations.length; ++i)
-            sstableDirectories[i] = new File(dataFileLocations[i].location, join(keyspacename, directoryName));
+        this.dataDirectories = dataDirectories;
+        this.sstableDirectories = new File[dataDirectories.length];
+        for (int i = 0; i < dataDirectories.length; ++i)
+            sstableDirectories[i] = new File(dataDirectories[i].location, join(keyspacename, directoryName));
 
         if (!StorageService.instance.isClientMode())
         {
@@ -168,11 +175,21 @@ public class Directories
      * @throws IOError if all directories are blacklisted.
      */
     public DataDirectory getWriteableLocation()
+    {
+        return getWriteableLocations().get(0);
+    }
+
+    /**
+     * @return all non-blacklisted directories, ordered by least current tasks and then by most free space.
+     *
+     * @throws IOError if all directories are blacklisted.
+     */
+    public List<DataDirectory> getWriteableLocations()
     {
         List<DataDirectory> candidates = new ArrayList<DataDirectory>();
 
         // pick directories with enough space and so that resulting sstable dirs aren't blacklisted for writes.
-        for (DataDirectory dataDir : dataFileLocations)
+        for (DataDirectory dataDir : dataDirectories)
         {
             if (BlacklistedDirectories.isUnwritable(getLocationForDisk(dataDir)))
                 continue;
@@ -194,7 +211,7 @@ public class Directories
             }
         });
 
-        return candidates.get(0);
+        return candidates;
     }
 
 
@@ -487,6 +504,15 @@ public class Directories
             dataFileLocations[i] = new DataDirectory(new File(loc));
     }
 
+    // Hack for tests, don't use otherwise
+    static Directories createForTest(String keyspacename, String cfname, File... locations)
+    {
+        DataDirectory[] dataDirectories = new DataDirectory[locations.length];
+        for (int i = 0; i < locations.length; ++i)
+            dataDirectories[i] = new DataDirectory(locations[i]);
+        return new Directories(keyspacename, cfname, cfname, dataDirectories);
+    }
+
     // Hack for tests, don't use otherwise
     static void resetDataDirectoriesAfterTest()
     {
@@ -22,6 +22,7 @@ import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Throwables;
 import org.cliffc.high_scale_lib.NonBlockingHashSet;
@@ -66,6 +67,17 @@ public class Memtable
                                                new NamedThreadFactory("FlushWriter"),
                                                "internal");
 
+    // Runs the additional token-range slices of a split flush (see FlushRunnable.runMayThrow); sized so that every
+    // data directory can be written concurrently.  Tasks here never block on other flush work, so this cannot deadlock
+    // with flushWriter.
+    private static final ExecutorService flushSplitWriter
+            = new JMXEnabledThreadPoolExecutor(Directories.dataFileLocations.length,
+                                               StageManager.KEEPALIVE,
+                                               TimeUnit.SECONDS,
+                                               new LinkedBlockingQueue<Runnable>(),
+                                               new NamedThreadFactory("FlushSplitWriter"),
+                                               "internal");
+
     // size in memory can never be less than serialized size
     private static final double MIN_SANE_LIVE_RATIO = 1.0;
     // max liveratio seen w/ 1-byte columns on a 64-bit jvm was 19. If it gets higher than 64 something is probably broken.
@@ -313,12 +325,33 @@ public class Memtable
             return estimatedSize;
         }
 
+        /**
+         * Large memtables are split by token range into one sstable per data directory, written concurrently;
+         * anything else is written as a single sstable to the best directory, as chosen by DiskAwareRunnable.
+         */
+        @Override
+        protected void runMayThrow() throws Exception
+        {
+            List<Directories.DataDirectory> directories = getSplitDirectories();
+            if (directories.size() < 2)
+            {
+                super.runMayThrow();
+                return;
+            }
+
+            List<SSTableReader> sstables = writeSplitContents(directories);
+            cfs.replaceFlushed(Memtable.this, sstables);
+            latch.countDown();
+        }
+
         protected void runWith(File sstableDirectory) throws Exception
         {
             assert sstableDirectory != null : "Flush task is not bound to any disk";
 
-            SSTableReader sstable = writeSortedContents(context, sstableDirectory);
-            cfs.replaceFlushed(Memtable.this, sstable);
+            SSTableReader sstable = writeSortedContents(context, sstableDirectory, rows, rows.size());
+            cfs.replaceFlushed(Memtable.this, sstable == null
+                                              ? Collections.<SSTableReader>emptyList()
+                                              : Collections.singletonList(sstable));
             latch.countDown();
         }
 
@@ -327,19 +360,99 @@ public class Memtable
             return cfs.directories;
         }
 
-        private SSTableReader writeSortedContents(Future<ReplayPosition> context, File sstableDirectory)
+        /**
+         * @return the data directories to split this flush across, or a list with less than two elements
+         * if this flush should not be split.
+         */
+        private List<Directories.DataDirectory> getSplitDirectories()
+        {
+            long threshold = DatabaseDescriptor.getFlushSplitThreshold();
+            if (threshold <= 0 || estimatedSize < threshold)
+                return Collections.emptyList();
+
+            List<Directories.DataDirectory> candidates = getDirectories().getWriteableLocations();
+            if (candidates.size() < 2)
+                return Collections.emptyList();
+            // only consider directories that can hold an even share of the flush
+            long sliceSize = estimatedSize / candidates.size();
+            List<Directories.DataDirectory> directories = new ArrayList<Directories.DataDirectory>(candidates.size());
+            for (Directories.DataDirectory directory : candidates)
+            {
+                if (directory.getEstimatedAvailableSpace() > sliceSize)
+                    directories.add(directory);
+            }
+            return directories;
+        }
+
+        /**
+         * Splits the memtable content into as many token ranges of (roughly) equal row count as there are
+         * directories, and writes each range to its own directory concurrently.
+         */
+        private List<SSTableReader> writeSplitContents(List<Directories.DataDirectory> directories) throws Exception
+        {
+            // the memtable no longer accepts writes, so its content is stable while we compute the slices
+            int rowCount = rows.size();
+            List<ConcurrentNavigableMap<RowPosition, AtomicSortedColumns>> slices = splitRows(rows, directories.size());
+            int sliceCount = slices.size();
+
+            logger.info("Splitting flush of {} into {} sstables", Memtable.this, sliceCount);
+            List<Future<SSTableReader>> futures = new ArrayList<Future<SSTableReader>>(sliceCount);
+            for (int slice = 0; slice < sliceCount; slice++)
+            {
+                FlushSliceTask task = new FlushSliceTask(directories.get(slice),
+                                                         slices.get(slice),
+                                                         rowCount / sliceCount + 1,
+                                                         estimatedSize / sliceCount);
+                // the flush thread writes the first slice itself rather than idling while the others complete
+                futures.add(slice == 0 ? new FutureTask<SSTableReader>(task) : flushSplitWriter.submit(task));
+            }
+            ((FutureTask<SSTableReader>) futures.get(0)).run();
+
+            List<SSTableReader> sstables = new ArrayList<SSTableReader>(futures.size());
+            Throwable failure = null;
+            for (Future<SSTableReader> future : futures)
+            {
+                try
+                {
+                    SSTableReader sstable = future.get();
+                    if (sstable != null)
+                        sstables.add(sstable);
+                }
+                catch (ExecutionException e)
+                {
+                    failure = e.getCause();
+                }
+            }
+
+            if (failure != null)
+            {
+                // the slices that did complete were never made visible; get rid of them
+                for (SSTableReader sstable : sstables)
+                {
+                    sstable.markObsolete();
+                    sstable.releaseReference();
+                }
+                throw Throwables.propagate(failure);
+            }
+            return sstables;
+        }
+
+        private SSTableReader writeSortedContents(Future<ReplayPosition> context,
+                                                  File sstableDirectory,
+                                                  Map<RowPosition, AtomicSortedColumns> contents,
+                                                  long estimatedKeys)
         throws ExecutionException, InterruptedException
         {
             logger.info("Writing " + Memtable.this.toString());
 
             SSTableReader ssTable;
             // errors when creating the writer that may leave empty temp files.
-            SSTableWriter writer = createFlushWriter(cfs.getTempSSTablePath(sstableDirectory));
+            SSTableWriter writer = createFlushWriter(cfs.getTempSSTablePath(sstableDirectory), estimatedKeys);
             try
             {
                 // (we can't clear out the map as-we-go to free up memory,
                 //  since the memtable is being used for queries in the "pending flush" category)
-                for (Map.Entry<RowPosition, AtomicSortedColumns> entry : rows.entrySet())
+                for (Map.Entry<RowPosition, AtomicSortedColumns> entry : contents.entrySet())
                 {
                     ColumnFamily cf = entry.getValue();
                     if (cf.isMarkedForDelete())
@@ -389,15 +502,82 @@ public class Memtable
             }
         }
 
-        public SSTableWriter createFlushWriter(String filename) throws ExecutionException, InterruptedException
+        public SSTableWriter createFlushWriter(String filename, long estimatedKeys) throws ExecutionException, InterruptedException
         {
             SSTableMetadata.Collector sstableMetadataCollector = SSTableMetadata.createCollector(cfs.metadata.comparator).replayPosition(context.get());
             return new SSTableWriter(filename,
-                                     rows.size(),
+                                     estimatedKeys,
                                      cfs.metadata,
                                      cfs.partitioner,
                                      sstableMetadataCollector);
         }
+
+        /**
+         * Writes one token range slice of a split flush to the given data directory.
+         */
+        private class FlushSliceTask implements Callable<SSTableReader>
+        {
+            private final Directories.DataDirectory directory;
+            private final Map<RowPosition, AtomicSortedColumns> contents;
+            private final long estimatedKeys;
+            private final long estimatedSize;
+
+            FlushSliceTask(Directories.DataDirectory directory, Map<RowPosition, AtomicSortedColumns> contents, long estimatedKeys, long estimatedSize)
+            {
+                this.directory = directory;
+                this.contents = contents;
+                this.estimatedKeys = estimatedKeys;
+                this.estimatedSize = estimatedSize;
+            }
+
+            public SSTableReader call() throws Exception
+            {
+                directory.currentTasks.incrementAndGet();
+                directory.estimatedWorkingSize.addAndGet(estimatedSize);
+                try
+                {
+                    return writeSortedContents(context, getDirectories().getLocationForDisk(directory), contents, estimatedKeys);
+                }
+                finally
+                {
+                    directory.estimatedWorkingSize.addAndGet(-1 * estimatedSize);
+                    directory.currentTasks.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Splits rows into at most sliceCount consecutive, disjoint key ranges of (roughly) equal row count,
+     * which together hold every row.
+     */
+    @VisibleForTesting
+    static <K, V> List<ConcurrentNavigableMap<K, V>> splitRows(ConcurrentNavigableMap<K, V> rows, int sliceCount)
+    {
+        int rowCount = rows.size();
+        sliceCount = Math.max(1, Math.min(sliceCount, rowCount));
+        List<K> boundaries = new ArrayList<K>(sliceCount - 1);
+        int i = 0;
+        for (K key : rows.keySet())
+        {
+            if (i > 0 && (long) i * sliceCount / rowCount > boundaries.size())
+                boundaries.add(key);
+            i++;
+        }
+
+        List<ConcurrentNavigableMap<K, V>> slices = new ArrayList<ConcurrentNavigableMap<K, V>>(boundaries.size() + 1);
+        for (int slice = 0; slice <= boundaries.size(); slice++)
+        {
+            if (boundaries.isEmpty())
+                slices.add(rows);
+            else if (slice == 0)
+                slices.add(rows.headMap(boundaries.get(0), false));
+            else if (slice == boundaries.size())
+                slices.add(rows.tailMap(boundaries.get(slice - 1), true));
+            else
+                slices.add(rows.subMap(boundaries.get(slice - 1), true, boundaries.get(slice), false));
+        }
+        return slices;
     }
 
     private static class MeteringRunnable implements Runnable
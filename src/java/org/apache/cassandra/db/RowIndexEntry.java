@@ -20,9 +20,11 @@ package org.apache.cassandra.db;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
 import java.util.Collections;
 import java.util.List;
+import java.util.RandomAccess;
 
 import com.google.common.primitives.Ints;
 
@@ -30,6 +32,7 @@ import org.apache.cassandra.cache.IMeasurableMemory;
 import org.apache.cassandra.io.sstable.Descriptor;
 import org.apache.cassandra.io.sstable.IndexHelper;
 import org.apache.cassandra.io.util.FileUtils;
+import org.apache.cassandra.utils.ByteBufferUtil;
 import org.apache.cassandra.utils.ObjectSizes;
 
 public class RowIndexEntry implements IMeasurableMemory
@@ -54,15 +57,39 @@ public class RowIndexEntry implements IMeasurableMemory
     }
 
     public static RowIndexEntry create(long position, DeletionTime deletionTime, ColumnIndex index)
+    {
+        return create(position, deletionTime, index, false);
+    }
+
+    /**
+     * @param withPartitionBounds whether to record the clustering bounds and max timestamp of the row, so that reads
+     * can tell from the entry alone that the row has nothing for them
+     */
+    public static RowIndexEntry create(long position, DeletionTime deletionTime, ColumnIndex index, boolean withPartitionBounds)
     {
         assert index != null;
         assert deletionTime != null;
 
+        if (withPartitionBounds)
+        {
+            List<IndexHelper.IndexInfo> columnsIndex = index.columnsIndex.size() > 1
+                                                     ? index.columnsIndex
+                                                     : Collections.<IndexHelper.IndexInfo>emptyList();
+            return new IndexedEntry(position,
+                                    deletionTime,
+                                    columnsIndex,
+                                    true,
+                                    index.minColumnName,
+                                    index.maxColumnName,
+                                    Math.max(index.maxTimestamp, deletionTime.markedForDeleteAt),
+                                    null);
+        }
+
         // we only consider the columns summary when determining whether to create an IndexedEntry,
         // since if there are insufficient columns to be worth indexing we're going to seek to
         // the beginning of the row anyway, so we might as well read the tombstone there as well.
         if (index.columnsIndex.size() > 1)
-            return new IndexedEntry(position, deletionTime, index.columnsIndex);
+            return new IndexedEntry(position, deletionTime, index.columnsIndex, false, null, null, Long.MIN_VALUE, null);
         else
             return new RowIndexEntry(position);
     }
@@ -86,11 +113,51 @@ public class RowIndexEntry implements IMeasurableMemory
         return Collections.emptyList();
     }
 
+    /**
+     * @return true if this entry records the row-level tombstone, the range of column names covered by the row and
+     * the max timestamp of its data (see minColumnName(), maxColumnName() and maxTimestamp()).
+     */
+    public boolean hasPartitionBounds()
+    {
+        return false;
+    }
+
+    /**
+     * @return the smallest name of the row's atoms, or null if the row has none
+     */
+    public ByteBuffer minColumnName()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @return the largest name covered by the row's atoms, including the end of its range tombstones, or null if
+     * the row has none
+     */
+    public ByteBuffer maxColumnName()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @return the max timestamp of the row's atoms and row-level tombstone
+     */
+    public long maxTimestamp()
+    {
+        throw new UnsupportedOperationException();
+    }
+
     public long memorySize()
     {
         return ObjectSizes.getFieldSize(TypeSizes.NATIVE.sizeof(position));
     }
 
+    /**
+     * The promoted index written after the position is, when present: the row-level tombstone, the number of
+     * column index entries and those entries, then, for sstables that have them (Version.hasPartitionBoundsInIndex),
+     * the row's partition bounds if there are bytes left: max timestamp, min and max column names (empty if the row
+     * has no atoms).  Entries with partition bounds carry a promoted index even when the row is not indexed.
+     */
     public static class Serializer
     {
         public void serialize(RowIndexEntry rie, DataOutput out) throws IOException
@@ -98,15 +165,32 @@ public class RowIndexEntry implements IMeasurableMemory
             out.writeLong(rie.position);
             out.writeInt(rie.promotedSize());
 
-            if (rie.isIndexed())
+            if (rie instanceof IndexedEntry && ((IndexedEntry) rie).serialized != null)
+            {
+                // still in the form it was read in: write it back as is
+                out.write(((IndexedEntry) rie).serialized);
+            }
+            else if (rie.isIndexed() || rie.hasPartitionBounds())
             {
                 DeletionTime.serializer.serialize(rie.deletionTime(), out);
                 out.writeInt(rie.columnsIndex().size());
                 for (IndexHelper.IndexInfo info : rie.columnsIndex())
                     info.serialize(out);
+
+                if (rie.hasPartitionBounds())
+                {
+                    out.writeLong(rie.maxTimestamp());
+                    ByteBufferUtil.writeWithShortLength(nameOrEmpty(rie.minColumnName()), out);
+                    ByteBufferUtil.writeWithShortLength(nameOrEmpty(rie.maxColumnName()), out);
+                }
             }
         }
 
+        private static ByteBuffer nameOrEmpty(ByteBuffer name)
+        {
+            return name == null ? ByteBufferUtil.EMPTY_BYTE_BUFFER : name;
+        }
+
         public RowIndexEntry deserialize(DataInput in, Descriptor.Version version) throws IOException
         {
             long position = in.readLong();
@@ -114,14 +198,52 @@ public class RowIndexEntry implements IMeasurableMemory
             int size = in.readInt();
             if (size > 0)
             {
-                DeletionTime deletionTime = DeletionTime.serializer.deserialize(in);
+                // The column index is kept in its serialized form and its entries are only deserialized when
+                // looked at, so that a lookup in a wide row only materializes the few blocks its binary search
+                // probes rather than the whole index.
+                // mapped index files can't readFully, and the entry may outlive the mapping once cached: always copy
+                byte[] promoted = ByteBufferUtil.getArray(ByteBufferUtil.read(in, size));
+                ByteBuffer buffer = ByteBuffer.wrap(promoted);
+
+                int localDeletionTime = buffer.getInt();
+                long markedForDeleteAt = buffer.getLong();
+                DeletionTime deletionTime = markedForDeleteAt == Long.MIN_VALUE && localDeletionTime == Integer.MAX_VALUE
+                                          ? DeletionTime.LIVE
+                                          : new DeletionTime(markedForDeleteAt, localDeletionTime);
 
-                int entries = in.readInt();
-                List<IndexHelper.IndexInfo> columnsIndex = new ArrayList<IndexHelper.IndexInfo>(entries);
-                for (int i = 0; i < entries; i++)
-                    columnsIndex.add(IndexHelper.IndexInfo.deserialize(in));
+                List<IndexHelper.IndexInfo> columnsIndex;
+                int boundsStart;
+                if (buffer.getInt(buffer.position()) == 0)
+                {
+                    columnsIndex = Collections.emptyList();
+                    boundsStart = buffer.position() + 4;
+                }
+                else
+                {
+                    SerializedIndexList list = new SerializedIndexList(promoted, buffer.position());
+                    columnsIndex = list;
+                    boundsStart = list.end;
+                }
 
-                return new IndexedEntry(position, deletionTime, columnsIndex);
+                if (!version.hasPartitionBoundsInIndex || boundsStart == size)
+                {
+                    assert boundsStart == size : boundsStart + " != " + size;
+                    return new IndexedEntry(position, deletionTime, columnsIndex, false, null, null, Long.MIN_VALUE, promoted);
+                }
+
+                buffer.position(boundsStart);
+                long maxTimestamp = buffer.getLong();
+                ByteBuffer minColumnName = readWithShortLength(buffer);
+                ByteBuffer maxColumnName = readWithShortLength(buffer);
+                assert !buffer.hasRemaining();
+                return new IndexedEntry(position,
+                                        deletionTime,
+                                        columnsIndex,
+                                        true,
+                                        minColumnName.hasRemaining() ? minColumnName : null,
+                                        maxColumnName.hasRemaining() ? maxColumnName : null,
+                                        maxTimestamp,
+                                        promoted);
             }
             else
             {
@@ -146,20 +268,52 @@ public class RowIndexEntry implements IMeasurableMemory
     }
 
     /**
-     * An entry in the row index for a row whose columns are indexed.
+     * @return the name at the buffer's position, sharing the buffer's bytes, and moves past it
+     */
+    private static ByteBuffer readWithShortLength(ByteBuffer buffer)
+    {
+        int length = buffer.getShort() & 0xFFFF;
+        // a duplicate rather than a slice: some comparators do not expect a non-zero array offset
+        ByteBuffer name = buffer.duplicate();
+        name.limit(name.position() + length);
+        buffer.position(buffer.position() + length);
+        return name;
+    }
+
+    /**
+     * An entry in the row index carrying the row-level tombstone, and the column index for a row whose columns
+     * are indexed.  Entries with partition bounds are also of this kind, whether the row is indexed or not.
      */
     private static class IndexedEntry extends RowIndexEntry
     {
         private final DeletionTime deletionTime;
         private final List<IndexHelper.IndexInfo> columnsIndex;
+        private final boolean hasPartitionBounds;
+        private final ByteBuffer minColumnName;
+        private final ByteBuffer maxColumnName;
+        private final long maxTimestamp;
+        // the promoted index this entry was read from, if any
+        private final byte[] serialized;
 
-        private IndexedEntry(long position, DeletionTime deletionTime, List<IndexHelper.IndexInfo> columnsIndex)
+        private IndexedEntry(long position,
+                             DeletionTime deletionTime,
+                             List<IndexHelper.IndexInfo> columnsIndex,
+                             boolean hasPartitionBounds,
+                             ByteBuffer minColumnName,
+                             ByteBuffer maxColumnName,
+                             long maxTimestamp,
+                             byte[] serialized)
         {
             super(position);
             assert deletionTime != null;
-            assert columnsIndex != null && columnsIndex.size() > 1;
+            assert columnsIndex != null && (columnsIndex.size() > 1 || (hasPartitionBounds && columnsIndex.isEmpty()));
             this.deletionTime = deletionTime;
             this.columnsIndex = columnsIndex;
+            this.hasPartitionBounds = hasPartitionBounds;
+            this.minColumnName = minColumnName;
+            this.maxColumnName = maxColumnName;
+            this.maxTimestamp = maxTimestamp;
+            this.serialized = serialized;
         }
 
         @Override
@@ -174,32 +328,137 @@ public class RowIndexEntry implements IMeasurableMemory
             return columnsIndex;
         }
 
+        @Override
+        public boolean hasPartitionBounds()
+        {
+            return hasPartitionBounds;
+        }
+
+        @Override
+        public ByteBuffer minColumnName()
+        {
+            if (!hasPartitionBounds)
+                throw new UnsupportedOperationException();
+            return minColumnName;
+        }
+
+        @Override
+        public ByteBuffer maxColumnName()
+        {
+            if (!hasPartitionBounds)
+                throw new UnsupportedOperationException();
+            return maxColumnName;
+        }
+
+        @Override
+        public long maxTimestamp()
+        {
+            if (!hasPartitionBounds)
+                throw new UnsupportedOperationException();
+            return maxTimestamp;
+        }
+
         @Override
         public int promotedSize()
         {
+            if (serialized != null)
+                return serialized.length;
+
             TypeSizes typeSizes = TypeSizes.NATIVE;
             long size = DeletionTime.serializer.serializedSize(deletionTime, typeSizes);
             size += typeSizes.sizeof(columnsIndex.size()); // number of entries
             for (IndexHelper.IndexInfo info : columnsIndex)
                 size += info.serializedSize(typeSizes);
 
+            if (hasPartitionBounds)
+            {
+                size += typeSizes.sizeof(maxTimestamp);
+                size += typeSizes.sizeof((short) 0) + (minColumnName == null ? 0 : minColumnName.remaining());
+                size += typeSizes.sizeof((short) 0) + (maxColumnName == null ? 0 : maxColumnName.remaining());
+            }
+
             return Ints.checkedCast(size);
         }
 
         @Override
         public long memorySize()
         {
+            long size = ObjectSizes.getSuperClassFieldSize(TypeSizes.NATIVE.sizeof(position))
+                        + ObjectSizes.getFieldSize(// deletionTime, columnsIndex, minColumnName, maxColumnName, serialized
+                                                   5 * ObjectSizes.getReferenceSize() +
+                                                   TypeSizes.NATIVE.sizeof(maxTimestamp) +
+                                                   TypeSizes.NATIVE.sizeof(hasPartitionBounds))
+                        + deletionTime.memorySize();
+            if (serialized != null)
+            {
+                // the names share the serialized bytes
+                if (minColumnName != null)
+                    size += 2 * ObjectSizes.getSize(ByteBufferUtil.EMPTY_BYTE_BUFFER);
+                size += ObjectSizes.getArraySize(serialized);
+                if (columnsIndex instanceof SerializedIndexList)
+                    size += ((SerializedIndexList) columnsIndex).memorySize();
+                return size;
+            }
+
+            if (minColumnName != null)
+                size += ObjectSizes.getSize(minColumnName) + ObjectSizes.getSize(maxColumnName);
+
             long entrySize = 0;
             for (IndexHelper.IndexInfo idx : columnsIndex)
                 entrySize += idx.memorySize();
 
-            return ObjectSizes.getSuperClassFieldSize(TypeSizes.NATIVE.sizeof(position))
-                   + ObjectSizes.getFieldSize(// deletionTime
-                                              ObjectSizes.getReferenceSize() +
-                                              // columnsIndex
-                                              ObjectSizes.getReferenceSize())
-                   + deletionTime.memorySize()
-                   + ObjectSizes.getArraySize(columnsIndex.size(), ObjectSizes.getReferenceSize()) + entrySize + 4;
+            return size + ObjectSizes.getArraySize(columnsIndex.size(), ObjectSizes.getReferenceSize()) + entrySize + 4;
+        }
+    }
+
+    /**
+     * A read-only view of a column index still in the serialized form of the promoted index, starting with the
+     * entry count.  The start of each entry is located once, by walking the name lengths, into a fixed offset
+     * table; an IndexInfo is then only built when get() asks for it, and its names are slices of the serialized
+     * bytes.
+     */
+    private static class SerializedIndexList extends AbstractList<IndexHelper.IndexInfo> implements RandomAccess
+    {
+        private final byte[] bytes;
+        private final int[] offsets;
+        // where the serialized entries end
+        private final int end;
+
+        private SerializedIndexList(byte[] bytes, int entriesStart)
+        {
+            this.bytes = bytes;
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            int entries = buffer.getInt(entriesStart);
+            offsets = new int[entries];
+            int offset = entriesStart + 4;
+            for (int i = 0; i < entries; i++)
+            {
+                offsets[i] = offset;
+                offset += 2 + (buffer.getShort(offset) & 0xFFFF); // firstName
+                offset += 2 + (buffer.getShort(offset) & 0xFFFF); // lastName
+                offset += 16; // offset and width
+            }
+            end = offset;
+        }
+
+        public IndexHelper.IndexInfo get(int index)
+        {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            buffer.position(offsets[index]);
+            ByteBuffer firstName = readWithShortLength(buffer);
+            ByteBuffer lastName = readWithShortLength(buffer);
+            return new IndexHelper.IndexInfo(firstName, lastName, buffer.getLong(), buffer.getLong());
+        }
+
+        public int size()
+        {
+            return offsets.length;
+        }
+
+        long memorySize()
+        {
+            return ObjectSizes.getFieldSize(2 * ObjectSizes.getReferenceSize() + 4)
+                   + ObjectSizes.getArraySize(offsets.length, 4);
         }
     }
 }
@@ -73,6 +73,10 @@ public class SSTableNamesIterator extends AbstractIterator<OnDiskAtom> implement
         }
     }
 
+    /**
+     * @param file the file to read from, or null to open one (which is closed before returning)
+     * @param indexEntry the entry of the row, or null if it is not in this sstable
+     */
     public SSTableNamesIterator(SSTableReader sstable, FileDataInput file, DecoratedKey key, SortedSet<ByteBuffer> columns, RowIndexEntry indexEntry)
     {
         assert columns != null;
@@ -80,6 +84,9 @@ public class SSTableNamesIterator extends AbstractIterator<OnDiskAtom> implement
         this.columns = columns;
         this.key = key;
 
+        if (indexEntry == null)
+            return;
+
         try
         {
             read(sstable, file, indexEntry);
@@ -89,6 +96,11 @@ public class SSTableNamesIterator extends AbstractIterator<OnDiskAtom> implement
             sstable.markSuspect();
             throw new CorruptSSTableException(e, sstable.getFilename());
         }
+        finally
+        {
+            if (fileToClose != null)
+                FileUtils.closeQuietly(fileToClose);
+        }
     }
 
     private FileDataInput createFileDataInput(long position)
@@ -102,6 +114,14 @@ public class SSTableNamesIterator extends AbstractIterator<OnDiskAtom> implement
     {
         List<IndexHelper.IndexInfo> indexList;
 
+        // If the entry shows that the row has none of the columns, only its row-level tombstone matters
+        if (indexEntry.hasPartitionBounds() && !intersects(sstable.metadata.comparator, indexEntry))
+        {
+            cf = ArrayBackedSortedColumns.factory.create(sstable.metadata);
+            cf.delete(indexEntry.deletionTime());
+            return;
+        }
+
         // If the entry is not indexed or the index is not promoted, read from the row start
         if (!indexEntry.isIndexed())
         {
@@ -152,6 +172,19 @@ public class SSTableNamesIterator extends AbstractIterator<OnDiskAtom> implement
         iter = result.iterator();
     }
 
+    private boolean intersects(AbstractType<?> comparator, RowIndexEntry indexEntry)
+    {
+        if (indexEntry.minColumnName() == null)
+            return false;
+
+        for (ByteBuffer name : columns)
+        {
+            if (comparator.compare(name, indexEntry.minColumnName()) >= 0 && comparator.compare(name, indexEntry.maxColumnName()) <= 0)
+                return true;
+        }
+        return false;
+    }
+
     private void readSimpleColumns(FileDataInput file, SortedSet<ByteBuffer> columnNames, List<OnDiskAtom> result, int columnCount)
     {
         Iterator<OnDiskAtom> atomIterator = cf.metadata().getOnDiskIterator(file, columnCount, sstable.descriptor.version);
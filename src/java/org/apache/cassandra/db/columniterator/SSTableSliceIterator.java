@@ -19,6 +19,7 @@ package org.apache.cassandra.db.columniterator;
 
 import java.io.IOException;
 
+import org.apache.cassandra.db.ArrayBackedSortedColumns;
 import org.apache.cassandra.db.ColumnFamily;
 import org.apache.cassandra.db.DecoratedKey;
 import org.apache.cassandra.db.OnDiskAtom;
@@ -62,11 +63,58 @@ public class SSTableSliceIterator implements OnDiskAtomIterator
 
     private static OnDiskAtomIterator createReader(SSTableReader sstable, RowIndexEntry indexEntry, FileDataInput file, ColumnSlice[] slices, boolean reversed)
     {
+        if (indexEntry.hasPartitionBounds() && !intersects(sstable, indexEntry, slices, reversed))
+            return new EmptyPartitionReader(sstable, indexEntry);
+
         return slices.length == 1 && slices[0].start.remaining() == 0 && !reversed
              ? new SimpleSliceReader(sstable, indexEntry, file, slices[0].finish)
              : new IndexedSliceReader(sstable, indexEntry, file, slices, reversed);
     }
 
+    private static boolean intersects(SSTableReader sstable, RowIndexEntry indexEntry, ColumnSlice[] slices, boolean reversed)
+    {
+        // a row with no atoms has nothing but its row-level tombstone to return
+        if (indexEntry.minColumnName() == null)
+            return false;
+
+        for (ColumnSlice slice : slices)
+        {
+            if (slice.intersects(sstable.metadata.comparator, indexEntry.minColumnName(), indexEntry.maxColumnName(), reversed))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * What reading a row would return when its index entry shows that none of its atoms can be in the slices:
+     * the row-level tombstone alone.  No data file I/O is done.
+     */
+    private static class EmptyPartitionReader extends SimpleAbstractColumnIterator
+    {
+        private final ColumnFamily emptyColumnFamily;
+
+        private EmptyPartitionReader(SSTableReader sstable, RowIndexEntry indexEntry)
+        {
+            emptyColumnFamily = ArrayBackedSortedColumns.factory.create(sstable.metadata);
+            emptyColumnFamily.delete(indexEntry.deletionTime());
+        }
+
+        protected OnDiskAtom computeNext()
+        {
+            return endOfData();
+        }
+
+        public ColumnFamily getColumnFamily()
+        {
+            return emptyColumnFamily;
+        }
+
+        public DecoratedKey getKey()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+
     public DecoratedKey getKey()
     {
         return key;
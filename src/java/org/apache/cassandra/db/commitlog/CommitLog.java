@@ -32,7 +32,8 @@ import org.slf4j.LoggerFactory;
 import org.apache.cassandra.config.Config;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.*;
-import org.apache.cassandra.io.FSWriteError;
+import org.apache.cassandra.io.util.DataOutputBuffer;
+import org.apache.cassandra.io.util.ReusableDataOutputBuffer;
 import org.apache.cassandra.metrics.CommitLogMetrics;
 import org.apache.cassandra.net.MessagingService;
 import org.apache.cassandra.utils.FBUtilities;
@@ -332,7 +333,19 @@ public class CommitLog implements CommitLogMBean
 
         public void run()
         {
-            long totalSize = RowMutation.serializer.serializedSize(rowMutation, MessagingService.current_version) + CommitLogSegment.ENTRY_OVERHEAD_SIZE;
+            // serialize once, to size the entry and then copy it into the segment
+            DataOutputBuffer serialized = ReusableDataOutputBuffer.get();
+            try
+            {
+                RowMutation.serializer.serialize(rowMutation, serialized, MessagingService.current_version);
+            }
+            catch (IOException e)
+            {
+                // DataOutputBuffer is in-memory, doesn't throw IOException
+                throw new AssertionError(e);
+            }
+
+            long totalSize = serialized.getLength() + CommitLogSegment.ENTRY_OVERHEAD_SIZE;
             if (totalSize > DatabaseDescriptor.getCommitLogSegmentSize())
             {
                 logger.warn("Skipping commitlog append of extremely large mutation ({} bytes)", totalSize);
@@ -347,14 +360,7 @@ public class CommitLog implements CommitLogMBean
                 // (Do this here instead of in the recycle call so we can get a head start on the archive.)
                 archiver.maybeArchive(oldSegment.getPath(), oldSegment.getName());
             }
-            try
-            {
-                activeSegment.write(rowMutation);
-            }
-            catch (IOException e)
-            {
-                throw new FSWriteError(e, activeSegment.getPath());
-            }
+            activeSegment.write(rowMutation, serialized);
         }
 
         public Object call()
@@ -17,7 +17,6 @@
  */
 package org.apache.cassandra.db.commitlog;
 
-import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
@@ -39,10 +38,8 @@ import org.apache.cassandra.config.Schema;
 import org.apache.cassandra.db.ColumnFamily;
 import org.apache.cassandra.db.RowMutation;
 import org.apache.cassandra.io.FSWriteError;
-import org.apache.cassandra.io.util.ByteBufferOutputStream;
-import org.apache.cassandra.io.util.ChecksummedOutputStream;
+import org.apache.cassandra.io.util.DataOutputBuffer;
 import org.apache.cassandra.io.util.FileUtils;
-import org.apache.cassandra.net.MessagingService;
 import org.apache.cassandra.utils.PureJavaCrc32;
 
 /*
@@ -72,7 +69,6 @@ public class CommitLogSegment
 
     private final MappedByteBuffer buffer;
     private final Checksum checksum;
-    private final DataOutputStream bufferStream;
     private boolean closed;
 
     public final CommitLogDescriptor descriptor;
@@ -127,7 +123,6 @@ public class CommitLogSegment
 
             buffer = logFileAccessor.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, DatabaseDescriptor.getCommitLogSegmentSize());
             checksum = new PureJavaCrc32();
-            bufferStream = new DataOutputStream(new ChecksummedOutputStream(new ByteBufferOutputStream(buffer), checksum));
             buffer.putInt(CommitLog.END_OF_SEGMENT_MARKER);
             buffer.position(0);
 
@@ -210,9 +205,10 @@ public class CommitLogSegment
      * Appends a row mutation onto the commit log.  Requres that hasCapacityFor has already been checked.
      *
      * @param   mutation   the mutation to append to the commit log.
+     * @param   serialized the mutation, serialized with the current messaging version.
      * @return  the position of the appended mutation
      */
-    public ReplayPosition write(RowMutation mutation) throws IOException
+    public ReplayPosition write(RowMutation mutation, DataOutputBuffer serialized)
     {
         assert !closed;
         ReplayPosition repPos = getContext();
@@ -221,12 +217,14 @@ public class CommitLogSegment
         checksum.reset();
 
         // checksummed length
-        int length = (int) RowMutation.serializer.serializedSize(mutation, MessagingService.current_version);
-        bufferStream.writeInt(length);
+        int length = serialized.getLength();
+        buffer.putInt(length);
+        updateChecksumInt(length);
         buffer.putLong(checksum.getValue());
 
         // checksummed mutation
-        RowMutation.serializer.serialize(mutation, bufferStream, MessagingService.current_version);
+        checksum.update(serialized.getData(), 0, length);
+        buffer.put(serialized.getData(), 0, length);
         buffer.putLong(checksum.getValue());
 
         if (buffer.remaining() >= 4)
@@ -240,6 +238,15 @@ public class CommitLogSegment
         return repPos;
     }
 
+    // same as feeding the int through a ChecksummedOutputStream, i.e. big-endian
+    private void updateChecksumInt(int value)
+    {
+        checksum.update((value >>> 24) & 0xFF);
+        checksum.update((value >>> 16) & 0xFF);
+        checksum.update((value >>> 8) & 0xFF);
+        checksum.update(value & 0xFF);
+    }
+
     /**
      * Forces a disk flush for this segment file.
      */
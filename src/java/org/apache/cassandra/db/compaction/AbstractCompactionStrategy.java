@@ -18,6 +18,7 @@
 package org.apache.cassandra.db.compaction;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 import com.google.common.base.Predicate;
 import com.google.common.collect.Iterables;
@@ -51,12 +52,19 @@ public abstract class AbstractCompactionStrategy
     protected static final String TOMBSTONE_THRESHOLD_OPTION = "tombstone_threshold";
     protected static final String TOMBSTONE_COMPACTION_INTERVAL_OPTION = "tombstone_compaction_interval";
     protected static final String COMPACTION_ENABLED = "enabled";
+    // how long expired sstables found to shadow overlapping data are left alone before they are checked again
+    protected static final long DEFAULT_EXPIRED_SSTABLE_CHECK_FREQUENCY = TimeUnit.MINUTES.toMillis(10);
 
     public final Map<String, String> options;
 
     protected final ColumnFamilyStore cfs;
     protected float tombstoneThreshold;
     protected long tombstoneCompactionInterval;
+    protected long expiredSSTableCheckFrequency = DEFAULT_EXPIRED_SSTABLE_CHECK_FREQUENCY;
+
+    // the expired sstables that could not be dropped the last time they were checked, and when that was
+    private Set<SSTableReader> undroppableExpired = Collections.emptySet();
+    private long lastExpiredCheck;
 
     /**
      * pause/resume/getNextBackgroundTask must synchronize.  This guarantees that after pause completes,
@@ -204,12 +212,12 @@ public abstract class AbstractCompactionStrategy
      * Handle a flushed memtable.
      *
      * @param memtable the flushed memtable
-     * @param sstable the written sstable. can be null if the memtable was clean.
+     * @param sstables the written sstables. can be empty if the memtable was clean.
      */
-    public void replaceFlushed(Memtable memtable, SSTableReader sstable)
+    public void replaceFlushed(Memtable memtable, Collection<SSTableReader> sstables)
     {
-        cfs.getDataTracker().replaceFlushed(memtable, sstable);
-        if (sstable != null)
+        cfs.getDataTracker().replaceFlushed(memtable, sstables);
+        if (!sstables.isEmpty())
             CompactionManager.instance.submitBackground(cfs);
     }
 
@@ -238,6 +246,79 @@ public abstract class AbstractCompactionStrategy
         });
     }
 
+    /**
+     * Splits sstables into the ones an incremental repair marked repaired and the others.  Strategies pick the
+     * sstables to compact together within one of the groups: compacting repaired and unrepaired data together
+     * would leave the result unrepaired, and it would have to be validated and repaired again.
+     *
+     * @return the repaired sstables and the unrepaired ones, either of which may be empty
+     */
+    public static List<List<SSTableReader>> splitByRepairStatus(Iterable<SSTableReader> sstables)
+    {
+        List<SSTableReader> repaired = new ArrayList<SSTableReader>();
+        List<SSTableReader> unrepaired = new ArrayList<SSTableReader>();
+        for (SSTableReader sstable : sstables)
+        {
+            if (sstable.isRepaired())
+                repaired.add(sstable);
+            else
+                unrepaired.add(sstable);
+        }
+        return Arrays.asList(repaired, unrepaired);
+    }
+
+    /**
+     * Drops the uncompacting sstables whose data has entirely expired (their maxLocalDeletionTime is before gcBefore)
+     * and that cannot shadow data in any overlapping sstable, without compacting them: rewriting such an sstable
+     * would only purge everything it contains.
+     *
+     * Candidates are found from the sstable metadata alone, so this is cheap when nothing has expired.  Checking them
+     * requires looking at the overlapping sstables, so candidates that could not be dropped are only checked again
+     * once expiredSSTableCheckFrequency has elapsed, unless other sstables have expired in the meantime.
+     *
+     * @param gcBefore throw away tombstones older than this
+     * @return true if any sstable was dropped
+     */
+    protected boolean dropFullyExpiredSSTables(int gcBefore)
+    {
+        Set<SSTableReader> candidates = new HashSet<SSTableReader>();
+        for (SSTableReader sstable : filterSuspectSSTables(cfs.getUncompactingSSTables()))
+        {
+            if (sstable.getSSTableMetadata().maxLocalDeletionTime < gcBefore)
+                candidates.add(sstable);
+        }
+        if (candidates.isEmpty())
+        {
+            undroppableExpired = Collections.emptySet();
+            return false;
+        }
+
+        long now = System.currentTimeMillis();
+        if (candidates.equals(undroppableExpired) && now - lastExpiredCheck < expiredSSTableCheckFrequency)
+            return false;
+        lastExpiredCheck = now;
+
+        Set<SSTableReader> expired = CompactionController.getFullyExpiredSSTables(cfs, candidates, cfs.getOverlappingSSTables(candidates), gcBefore);
+        if (expired.isEmpty())
+        {
+            undroppableExpired = candidates;
+            return false;
+        }
+        if (!cfs.getDataTracker().markCompacting(expired))
+            return false;
+
+        try
+        {
+            logger.info("Dropping fully expired sstables {}", expired);
+            cfs.markObsolete(expired, OperationType.COMPACTION);
+        }
+        finally
+        {
+            cfs.getDataTracker().unmarkCompacting(expired);
+        }
+        return true;
+    }
+
     /**
      * Returns a list of KeyScanners given sstables and a range on which to scan.
      * The default implementation simply grab one SSTableScanner per-sstable, but overriding this method
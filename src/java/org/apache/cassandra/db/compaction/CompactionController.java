@@ -23,7 +23,10 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import com.google.common.annotations.VisibleForTesting;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -47,6 +50,13 @@ public class CompactionController
     private final DataTracker.SSTableIntervalTree overlappingTree;
     private final Set<SSTableReader> overlappingSSTables;
     private final Set<SSTableReader> compacting;
+    // the smallest min timestamp of the overlapping sstables: tombstones older than that can't shadow anything in them
+    private final long overlappingMinTimestamp;
+
+    // time spent in, and number of, purge checks; published to the compaction metrics on close
+    private final AtomicLong purgeEvaluationNanos = new AtomicLong();
+    private final AtomicLong purgeChecks = new AtomicLong();
+    private final AtomicLong purgeChecksSkipped = new AtomicLong();
 
     public final int gcBefore;
 
@@ -67,6 +77,10 @@ public class CompactionController
         Set<SSTableReader> overlapping = compacting == null ? null : cfs.getAndReferenceOverlappingSSTables(compacting);
         this.overlappingSSTables = overlapping == null ? Collections.<SSTableReader>emptySet() : overlapping;
         this.overlappingTree = overlapping == null ? null : DataTracker.buildIntervalTree(overlapping);
+        long minTimestamp = Long.MAX_VALUE;
+        for (SSTableReader sstable : overlappingSSTables)
+            minTimestamp = Math.min(minTimestamp, sstable.getMinTimestamp());
+        this.overlappingMinTimestamp = minTimestamp;
     }
 
     public Set<SSTableReader> getFullyExpiredSSTables()
@@ -152,20 +166,48 @@ public class CompactionController
      */
     public boolean shouldPurge(DecoratedKey key, long maxDeletionTimestamp)
     {
-        List<SSTableReader> filteredSSTables = overlappingTree.search(key);
-        for (SSTableReader sstable : filteredSSTables)
+        purgeChecks.incrementAndGet();
+        // fast path: no overlapping sstable has data old enough to be shadowed by our tombstones
+        if (overlappingSSTables.isEmpty() || maxDeletionTimestamp < overlappingMinTimestamp)
         {
-            if (sstable.getMinTimestamp() <= maxDeletionTimestamp)
+            purgeChecksSkipped.incrementAndGet();
+            return true;
+        }
+
+        long start = System.nanoTime();
+        try
+        {
+            List<SSTableReader> filteredSSTables = overlappingTree.search(key);
+            for (SSTableReader sstable : filteredSSTables)
             {
-                // if we don't have bloom filter(bf_fp_chance=1.0 or filter file is missing),
-                // we check index file instead.
-                if (sstable.getBloomFilter() instanceof AlwaysPresentFilter && sstable.getPosition(key, SSTableReader.Operator.EQ, false) != null)
-                    return false;
-                else if (sstable.getBloomFilter().isPresent(key.key))
-                    return false;
+                if (sstable.getMinTimestamp() <= maxDeletionTimestamp)
+                {
+                    // if we don't have bloom filter(bf_fp_chance=1.0 or filter file is missing),
+                    // we check index file instead.
+                    if (sstable.getBloomFilter() instanceof AlwaysPresentFilter && sstable.getPosition(key, SSTableReader.Operator.EQ, false) != null)
+                        return false;
+                    else if (sstable.getBloomFilter().isPresent(key.key))
+                        return false;
+                }
             }
+            return true;
+        }
+        finally
+        {
+            purgeEvaluationNanos.addAndGet(System.nanoTime() - start);
         }
-        return true;
+    }
+
+    @VisibleForTesting
+    long getPurgeChecks()
+    {
+        return purgeChecks.get();
+    }
+
+    @VisibleForTesting
+    long getPurgeChecksSkipped()
+    {
+        return purgeChecksSkipped.get();
     }
 
     public void invalidateCachedRow(DecoratedKey key)
@@ -205,5 +247,16 @@ public class CompactionController
     public void close()
     {
         SSTableReader.releaseReferences(overlappingSSTables);
+
+        long checks = purgeChecks.get();
+        if (checks > 0)
+        {
+            long micros = TimeUnit.NANOSECONDS.toMicros(purgeEvaluationNanos.get());
+            CompactionManager.instance.metrics.purgeEvaluationTime.inc(micros);
+            CompactionManager.instance.metrics.purgeChecks.inc(checks);
+            CompactionManager.instance.metrics.purgeChecksSkipped.inc(purgeChecksSkipped.get());
+            logger.debug("{} purge checks against {} overlapping sstables took {}us ({} skipped)",
+                         checks, overlappingSSTables.size(), micros, purgeChecksSkipped.get());
+        }
     }
 }
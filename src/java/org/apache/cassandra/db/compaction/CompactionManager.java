@@ -27,9 +27,11 @@ import javax.management.ObjectName;
 import javax.management.openmbean.OpenDataException;
 import javax.management.openmbean.TabularData;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
 import com.google.common.collect.*;
 import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.SettableFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,6 +51,7 @@ import org.apache.cassandra.io.sstable.*;
 import org.apache.cassandra.io.util.FileUtils;
 import org.apache.cassandra.metrics.CompactionMetrics;
 import org.apache.cassandra.repair.Validator;
+import org.apache.cassandra.service.ActiveRepairService;
 import org.apache.cassandra.service.StorageService;
 import org.apache.cassandra.utils.*;
 
@@ -97,21 +100,27 @@ public class CompactionManager implements CompactionManagerMBean
     private final CompactionExecutor validationExecutor = new ValidationExecutor();
     private final static CompactionExecutor cacheCleanupExecutor = new CacheCleanupExecutor();
 
-    private final CompactionMetrics metrics = new CompactionMetrics(executor, validationExecutor);
+    public final CompactionMetrics metrics = new CompactionMetrics(executor, validationExecutor);
     private final Multiset<ColumnFamilyStore> compactingCF = ConcurrentHashMultiset.create();
 
+    // validations submitted but not started yet, see submitValidation
+    private final Queue<PendingValidation> pendingValidations = new ConcurrentLinkedQueue<>();
+
     private final RateLimiter compactionRateLimiter = RateLimiter.create(Double.MAX_VALUE);
 
     /**
      * Gets compaction rate limiter. When compaction_throughput_mb_per_sec is 0 or node is bootstrapping,
-     * this returns rate limiter with the rate of Double.MAX_VALUE bytes per second.
+     * this returns rate limiter with the rate of Double.MAX_VALUE bytes per second.  When the throughput
+     * is adaptive, the rate is the one last chosen by the CompactionThroughputController.
      * Rate unit is bytes per sec.
      *
      * @return RateLimiter with rate limit set
      */
     public RateLimiter getRateLimiter()
     {
-        double currentThroughput = DatabaseDescriptor.getCompactionThroughputMbPerSec() * 1024.0 * 1024.0;
+        double currentThroughput = (CompactionThroughputController.instance.isEnabled()
+                                    ? CompactionThroughputController.instance.getThroughputMbPerSec()
+                                    : DatabaseDescriptor.getCompactionThroughputMbPerSec()) * 1024.0 * 1024.0;
         // if throughput is set to 0, throttling is disabled
         if (currentThroughput == 0 || StorageService.instance.isBootstrapMode())
             currentThroughput = Double.MAX_VALUE;
@@ -246,7 +255,7 @@ public class CompactionManager implements CompactionManagerMBean
             {
                 for (final SSTableReader sstable : sstables)
                 {
-                    if (excludeCurrentVersion && sstable.descriptor.version.equals(Descriptor.Version.CURRENT))
+                    if (excludeCurrentVersion && sstable.descriptor.version.equals(cfs.getSSTableVersion()))
                         continue;
 
                     // SSTables are marked by the caller
@@ -385,27 +394,115 @@ public class CompactionManager implements CompactionManagerMBean
 
     /**
      * Does not mutate data, so is not scheduled.
+     *
+     * Validations of other, disjoint ranges of the same column family that are submitted until the validation
+     * starts reading sstables are done along with it, in a single pass over the sstables.
      */
     public Future<Object> submitValidation(final ColumnFamilyStore cfStore, final Validator validator)
     {
+        final PendingValidation pending = new PendingValidation(cfStore, validator);
+        pendingValidations.add(pending);
         Callable<Object> callable = new Callable<Object>()
         {
             public Object call() throws IOException
             {
+                // if it is not pending anymore, a validation that was already running took it along
+                if (!pendingValidations.remove(pending))
+                    return this;
+
+                List<PendingValidation> batch = new ArrayList<>();
+                batch.add(pending);
                 try
                 {
-                    doValidationCompaction(cfStore, validator);
+                    doValidationCompaction(cfStore, batch);
                 }
                 catch (Throwable e)
                 {
-                    // we need to inform the remote end of our failure, otherwise it will hang on repair forever
-                    validator.fail();
+                    finishValidations(batch, e);
                     throw e;
                 }
+                finishValidations(batch, null);
                 return this;
             }
         };
-        return validationExecutor.submit(callable);
+        validationExecutor.submit(callable);
+        return pending.result;
+    }
+
+    /**
+     * Completes the futures of a batch of validations that was done, or failed, in a single pass.
+     */
+    @VisibleForTesting
+    static void finishValidations(List<PendingValidation> batch, Throwable failure)
+    {
+        for (PendingValidation validation : batch)
+        {
+            if (failure == null)
+            {
+                validation.result.set(validation.validator);
+            }
+            else
+            {
+                // we need to inform the remote end of our failure, otherwise it will hang on repair forever
+                validation.validator.fail();
+                validation.result.setException(failure);
+            }
+        }
+    }
+
+    private List<PendingValidation> takeCompatibleValidations(ColumnFamilyStore cfs, List<PendingValidation> batch)
+    {
+        return takeCompatibleValidations(pendingValidations, cfs, batch);
+    }
+
+    /**
+     * Removes the pending validations that can share a pass over the sstables with the given ones: those of the
+     * same column family and kind, not reading from a snapshot of their own, and whose range does not intersect
+     * any of the given ones.
+     */
+    @VisibleForTesting
+    static List<PendingValidation> takeCompatibleValidations(Queue<PendingValidation> pendingValidations, ColumnFamilyStore cfs, List<PendingValidation> batch)
+    {
+        List<PendingValidation> taken = new ArrayList<>();
+        boolean isIncremental = batch.get(0).validator.isIncremental;
+        for (PendingValidation validation : pendingValidations)
+        {
+            if (validation.cfs != cfs
+                || validation.validator.isIncremental != isIncremental
+                || cfs.snapshotExists(validation.validator.desc.sessionId.toString())
+                || intersects(validation, batch)
+                || intersects(validation, taken))
+                continue;
+
+            // another validation task may be taking it concurrently
+            if (pendingValidations.remove(validation))
+                taken.add(validation);
+        }
+        return taken;
+    }
+
+    private static boolean intersects(PendingValidation validation, List<PendingValidation> others)
+    {
+        for (PendingValidation other : others)
+        {
+            if (validation.validator.desc.range.intersects(other.validator.desc.range))
+                return true;
+        }
+        return false;
+    }
+
+    @VisibleForTesting
+    static class PendingValidation
+    {
+        public final ColumnFamilyStore cfs;
+        public final Validator validator;
+        public final SettableFuture<Object> result = SettableFuture.create();
+
+        public PendingValidation(ColumnFamilyStore cfs, Validator validator)
+        {
+            this.cfs = cfs;
+            this.validator = validator;
+        }
     }
 
     /* Used in tests. */
@@ -744,8 +841,10 @@ public class CompactionManager implements CompactionManagerMBean
     /**
      * Performs a readonly "compaction" of all sstables in order to validate complete rows,
      * but without writing the merge result
+     *
+     * @param batch the validations to do; validations that can share the pass over the sstables are added to it
      */
-    private void doValidationCompaction(ColumnFamilyStore cfs, Validator validator) throws IOException
+    private void doValidationCompaction(ColumnFamilyStore cfs, List<PendingValidation> batch) throws IOException
     {
         // this isn't meant to be race-proof, because it's not -- it won't cause bugs for a CFS to be dropped
         // mid-validation, or to attempt to validate a droped CFS.  this is just a best effort to avoid useless work,
@@ -756,8 +855,8 @@ public class CompactionManager implements CompactionManagerMBean
             return;
 
         Collection<SSTableReader> sstables;
-        String snapshotName = validator.desc.sessionId.toString();
-        int gcBefore;
+        String snapshotName = batch.get(0).validator.desc.sessionId.toString();
+        int snapshotGcBefore = 0;
         boolean isSnapshotValidation = cfs.snapshotExists(snapshotName);
         if (isSnapshotValidation)
         {
@@ -768,22 +867,96 @@ public class CompactionManager implements CompactionManagerMBean
             // this at a different time (that's the whole purpose of repair with snaphsot). So instead we take the creation
             // time of the snapshot, which should give us roughtly the same time on each replica (roughtly being in that case
             // 'as good as in the non-snapshot' case)
-            gcBefore = cfs.gcBefore(cfs.getSnapshotCreationTime(snapshotName));
+            snapshotGcBefore = cfs.gcBefore(cfs.getSnapshotCreationTime(snapshotName));
         }
         else
         {
             // flush first so everyone is validating data that is as similar as possible
             StorageService.instance.forceKeyspaceFlush(cfs.keyspace.getName(), cfs.name);
 
+            // the other ranges of a repair arrive at about the same time, and have had the time of the flush to do so
+            batch.addAll(takeCompatibleValidations(cfs, batch));
+
             // we don't mark validating sstables as compacting in DataTracker, so we have to mark them referenced
             // instead so they won't be cleaned up if they do get compacted during the validation
             sstables = cfs.markCurrentSSTablesReferenced();
-            if (validator.gcBefore > 0)
-                gcBefore = validator.gcBefore;
+        }
+
+        List<Validator> validators = new ArrayList<>(batch.size());
+        int[] gcBefores = new int[batch.size()];
+        for (int i = 0; i < batch.size(); i++)
+        {
+            Validator validator = batch.get(i).validator;
+            validators.add(validator);
+            if (isSnapshotValidation)
+                gcBefores[i] = snapshotGcBefore;
+            else if (validator.gcBefore > 0)
+                gcBefores[i] = validator.gcBefore;
+            else
+                gcBefores[i] = getDefaultGcBefore(cfs);
+        }
+
+        try
+        {
+            Collection<SSTableReader> toValidate = sstables;
+            if (validators.get(0).isIncremental)
+            {
+                // repaired sstables were already validated and synced by a previous incremental repair; this
+                // node will be asked to mark the ones validated now as repaired once all replicas are in sync
+                toValidate = new ArrayList<>();
+                for (SSTableReader sstable : sstables)
+                {
+                    if (!sstable.isRepaired())
+                        toValidate.add(sstable);
+                }
+                for (Validator validator : validators)
+                {
+                    // sstables flushed since the first round of a job were not validated for all of its range
+                    if (validator.subRanges.isEmpty())
+                        ActiveRepairService.instance.registerValidatedSSTables(validator.desc, toValidate);
+                }
+            }
+
+            boolean isRefinement = false;
+            for (Validator validator : validators)
+            {
+                validator.limitTreeSize(toValidate);
+                isRefinement |= !validator.subRanges.isEmpty();
+            }
+
+            // finer trees only cover small parts of the range, which the per-range paths can't restrict to
+            if (!isRefinement && DatabaseDescriptor.isPrecomputeRepairHashes() && RowHashValidation.isPossible(toValidate))
+            {
+                // the Hashes components are small next to the data, reading them once per range is fine
+                for (int i = 0; i < validators.size(); i++)
+                    validateFromRowHashes(cfs, toValidate, validators.get(i), gcBefores[i]);
+            }
+            else if (!isRefinement && validators.size() == 1)
+            {
+                validateByCompaction(cfs, toValidate, validators.get(0), gcBefores[0]);
+            }
             else
-                gcBefore = getDefaultGcBefore(cfs);
+            {
+                validateByCompaction(cfs, toValidate, validators, gcBefores);
+            }
         }
+        finally
+        {
+            if (isSnapshotValidation)
+            {
+                for (SSTableReader sstable : sstables)
+                    FileUtils.closeQuietly(sstable);
+                cfs.clearSnapshot(snapshotName);
+            }
+            else
+            {
+                SSTableReader.releaseReferences(sstables);
+            }
+        }
+    }
 
+    private void validateByCompaction(ColumnFamilyStore cfs, Collection<SSTableReader> sstables, Validator validator, int gcBefore) throws IOException
+    {
         CompactionIterable ci = new ValidationCompactionIterable(cfs, sstables, validator.desc.range, gcBefore);
         CloseableIterator<AbstractCompactedRow> iter = ci.iterator();
         metrics.beginCompaction(ci);
@@ -803,21 +976,44 @@ public class CompactionManager implements CompactionManagerMBean
         finally
         {
             iter.close();
-            if (isSnapshotValidation)
-            {
-                for (SSTableReader sstable : sstables)
-                    FileUtils.closeQuietly(sstable);
-                cfs.clearSnapshot(snapshotName);
-            }
-            else
-            {
-                SSTableReader.releaseReferences(sstables);
-            }
-
             metrics.finishCompaction(ci);
         }
     }
 
+    private void validateByCompaction(ColumnFamilyStore cfs, Collection<SSTableReader> sstables, List<Validator> validators, int[] gcBefores) throws IOException
+    {
+        logger.debug("Validating {} ranges of {}.{} in a single pass", validators.size(), cfs.keyspace.getName(), cfs.name);
+        MultiRangeValidation validation = new MultiRangeValidation(cfs, sstables, validators, gcBefores);
+        metrics.beginCompaction(validation);
+        try
+        {
+            validation.validate();
+            for (Validator validator : validators)
+                validator.complete();
+        }
+        finally
+        {
+            validation.close();
+            metrics.finishCompaction(validation);
+        }
+    }
+
+    private void validateFromRowHashes(ColumnFamilyStore cfs, Collection<SSTableReader> sstables, Validator validator, int gcBefore) throws IOException
+    {
+        RowHashValidation validation = new RowHashValidation(cfs, sstables, validator.desc.range, gcBefore);
+        metrics.beginCompaction(validation);
+        try
+        {
+            validation.validate(validator);
+            validator.complete();
+        }
+        finally
+        {
+            validation.close();
+            metrics.finishCompaction(validation);
+        }
+    }
+
     /**
      * Is not scheduled, because it is performing disjoint work from sstable compaction.
      */
@@ -897,7 +1093,7 @@ public class CompactionManager implements CompactionManagerMBean
      * sstables because those sstables are not guaranteed to be active sstables
      * (since we can run repair on a snapshot).
      */
-    private static class ValidationCompactionController extends CompactionController
+    static class ValidationCompactionController extends CompactionController
     {
         public ValidationCompactionController(ColumnFamilyStore cfs, int gcBefore)
         {
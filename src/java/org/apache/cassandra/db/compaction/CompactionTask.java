@@ -20,17 +20,24 @@ package org.apache.cassandra.db.compaction;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Uninterruptibles;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.cassandra.concurrent.JMXEnabledThreadPoolExecutor;
+import org.apache.cassandra.concurrent.NamedThreadFactory;
+import org.apache.cassandra.concurrent.StageManager;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.*;
 import org.apache.cassandra.db.compaction.CompactionManager.CompactionExecutorStatsCollector;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
 import org.apache.cassandra.io.sstable.*;
 import org.apache.cassandra.utils.CloseableIterator;
 
@@ -42,6 +49,16 @@ public class CompactionTask extends AbstractCompactionTask
     private Set<SSTableReader> toCompact;
     private CompactionExecutorStatsCollector collector;
 
+    // the number of index samples per sstable and range used to pick the boundaries of concurrently compacted ranges
+    private static final int SAMPLES_PER_RANGE = 16;
+
+    private static final ExecutorService rangeExecutor = new JMXEnabledThreadPoolExecutor(DatabaseDescriptor.getCompactionRangeSplits(),
+                                                                                          StageManager.KEEPALIVE,
+                                                                                          TimeUnit.SECONDS,
+                                                                                          new LinkedBlockingQueue<Runnable>(),
+                                                                                          new NamedThreadFactory("CompactionRanges", Thread.MIN_PRIORITY),
+                                                                                          "internal");
+
     public CompactionTask(ColumnFamilyStore cfs, Iterable<SSTableReader> sstables, final int gcBefore)
     {
         super(cfs, sstables);
@@ -115,32 +132,40 @@ public class CompactionTask extends AbstractCompactionTask
         logger.info("Compacting {}", toCompact);
 
         long start = System.nanoTime();
-        long totalkeysWritten = 0;
 
-        long estimatedTotalKeys = Math.max(cfs.metadata.getIndexInterval(), SSTableReader.getApproximateKeyCount(actuallyCompact, cfs.metadata));
-        long estimatedSSTables = Math.max(1, SSTable.getTotalBytes(actuallyCompact) / strategy.getMaxSSTableBytes());
-        long keysPerSSTable = (long) Math.ceil((double) estimatedTotalKeys / estimatedSSTables);
+        List<Range<Token>> ranges = getCompactionRanges(actuallyCompact);
+        long estimatedKeysPerRange = Math.max(cfs.metadata.getIndexInterval(), SSTableReader.getApproximateKeyCount(actuallyCompact, cfs.metadata) / ranges.size());
+        long estimatedSSTablesPerRange = Math.max(1, SSTable.getTotalBytes(actuallyCompact) / ranges.size() / strategy.getMaxSSTableBytes());
+        long keysPerSSTable = (long) Math.ceil((double) estimatedKeysPerRange / estimatedSSTablesPerRange);
         if (logger.isDebugEnabled())
             logger.debug("Expected bloom filter size : " + keysPerSSTable);
 
-        AbstractCompactionIterable ci = DatabaseDescriptor.isMultithreadedCompaction()
-                                      ? new ParallelCompactionIterable(compactionType, strategy.getScanners(actuallyCompact), controller)
-                                      : new CompactionIterable(compactionType, strategy.getScanners(actuallyCompact), controller);
-        CloseableIterator<AbstractCompactedRow> iter = ci.iterator();
-        Map<DecoratedKey, RowIndexEntry> cachedKeys = new HashMap<DecoratedKey, RowIndexEntry>();
-
-        // we can't preheat until the tracker has been set. This doesn't happen until we tell the cfs to
-        // replace the old entries.  Track entries to preheat here until then.
-        Map<Descriptor, Map<DecoratedKey, RowIndexEntry>> cachedKeyMap =  new HashMap<Descriptor, Map<DecoratedKey, RowIndexEntry>>();
+        List<RangeCompaction> compactions = new ArrayList<RangeCompaction>(ranges.size());
+        for (Range<Token> range : ranges)
+            compactions.add(new RangeCompaction(strategy.getScanners(actuallyCompact, range), controller, actuallyCompact, sstableDirectory, keysPerSSTable));
+        if (ranges.size() > 1)
+            logger.info("Compacting {} token ranges concurrently: {}", ranges.size(), ranges);
 
         Collection<SSTableReader> sstables = new ArrayList<SSTableReader>();
-        Collection<SSTableWriter> writers = new ArrayList<SSTableWriter>();
+        Map<Descriptor, Map<DecoratedKey, RowIndexEntry>> cachedKeyMap = new HashMap<Descriptor, Map<DecoratedKey, RowIndexEntry>>();
+        long totalkeysWritten = 0;
 
         if (collector != null)
-            collector.beginCompaction(ci);
+        {
+            for (RangeCompaction compaction : compactions)
+                collector.beginCompaction(compaction.ci);
+        }
         try
         {
-            if (!iter.hasNext())
+            if (compactions.size() == 1)
+                compactions.get(0).call();
+            else
+                runConcurrently(compactions);
+
+            boolean wroteAnything = false;
+            for (RangeCompaction compaction : compactions)
+                wroteAnything |= !compaction.writers.isEmpty();
+            if (!wroteAnything)
             {
                 // don't mark compacted in the finally block, since if there _is_ nondeleted data,
                 // we need to sync it (via closeAndOpen) first, so there is no period during which
@@ -149,64 +174,22 @@ public class CompactionTask extends AbstractCompactionTask
                 return;
             }
 
-            SSTableWriter writer = createCompactionWriter(sstableDirectory, keysPerSSTable);
-            writers.add(writer);
-            while (iter.hasNext())
-            {
-                if (ci.isStopRequested())
-                    throw new CompactionInterruptedException(ci.getCompactionInfo());
-
-                AbstractCompactedRow row = iter.next();
-                RowIndexEntry indexEntry = writer.append(row);
-                if (indexEntry == null)
-                {
-                    controller.invalidateCachedRow(row.key);
-                    row.close();
-                    continue;
-                }
-
-                totalkeysWritten++;
-
-                if (DatabaseDescriptor.getPreheatKeyCache())
-                {
-                    for (SSTableReader sstable : actuallyCompact)
-                    {
-                        if (sstable.getCachedPosition(row.key, false) != null)
-                        {
-                            cachedKeys.put(row.key, indexEntry);
-                            break;
-                        }
-                    }
-                }
-
-                if (newSSTableSegmentThresholdReached(writer))
-                {
-                    // tmp = false because later we want to query it with descriptor from SSTableReader
-                    cachedKeyMap.put(writer.descriptor.asTemporary(false), cachedKeys);
-                    writer = createCompactionWriter(sstableDirectory, keysPerSSTable);
-                    writers.add(writer);
-                    cachedKeys = new HashMap<DecoratedKey, RowIndexEntry>();
-                }
-            }
-
-            if (writer.getFilePointer() > 0)
-            {
-                cachedKeyMap.put(writer.descriptor.asTemporary(false), cachedKeys);
-            }
-            else
+            long maxAge = getMaxDataAge(toCompact);
+            for (RangeCompaction compaction : compactions)
             {
-                writer.abort();
-                writers.remove(writer);
+                for (SSTableWriter completedWriter : compaction.writers)
+                    sstables.add(completedWriter.closeAndOpenReader(maxAge));
+                cachedKeyMap.putAll(compaction.cachedKeyMap);
+                totalkeysWritten += compaction.keysWritten;
             }
-
-            long maxAge = getMaxDataAge(toCompact);
-            for (SSTableWriter completedWriter : writers)
-                sstables.add(completedWriter.closeAndOpenReader(maxAge));
         }
         catch (Throwable t)
         {
-            for (SSTableWriter writer : writers)
-                writer.abort();
+            for (RangeCompaction compaction : compactions)
+            {
+                for (SSTableWriter writer : compaction.writers)
+                    writer.abort();
+            }
             // also remove already completed SSTables
             for (SSTableReader sstable : sstables)
             {
@@ -224,18 +207,21 @@ public class CompactionTask extends AbstractCompactionTask
             if (taskId != null)
                 SystemKeyspace.finishCompaction(taskId);
 
-            if (collector != null)
-                collector.finishCompaction(ci);
-
-            try
+            for (RangeCompaction compaction : compactions)
             {
-                // We don't expect this to throw, but just in case, we do it after the cleanup above, to make sure
-                // we don't end up with compaction information hanging around indefinitely in limbo.
-                iter.close();
-            }
-            catch (IOException e)
-            {
-                throw new RuntimeException(e);
+                if (collector != null)
+                    collector.finishCompaction(compaction.ci);
+
+                try
+                {
+                    // We don't expect this to throw, but just in case, we do it after the cleanup above, to make sure
+                    // we don't end up with compaction information hanging around indefinitely in limbo.
+                    compaction.iter.close();
+                }
+                catch (IOException e)
+                {
+                    throw new RuntimeException(e);
+                }
             }
         }
 
@@ -256,7 +242,15 @@ public class CompactionTask extends AbstractCompactionTask
 
         double mbps = dTime > 0 ? (double) endsize / (1024 * 1024) / ((double) dTime / 1000) : 0;
         long totalSourceRows = 0;
-        long[] counts = ci.getMergedRowCounts();
+        long[] counts = new long[0];
+        for (RangeCompaction compaction : compactions)
+        {
+            long[] rangeCounts = compaction.ci.getMergedRowCounts();
+            if (rangeCounts.length > counts.length)
+                counts = Arrays.copyOf(counts, rangeCounts.length);
+            for (int i = 0; i < rangeCounts.length; i++)
+                counts[i] += rangeCounts[i];
+        }
         StringBuilder mergeSummary = new StringBuilder(counts.length * 10);
         Map<Integer, Long> mergedRows = new HashMap<Integer, Long>();
         for (int i = 0; i < counts.length; i++)
@@ -277,6 +271,196 @@ public class CompactionTask extends AbstractCompactionTask
         logger.debug(String.format("CF Total Bytes Compacted: %,d", CompactionTask.addToTotalBytesCompacted(endsize)));
     }
 
+    /**
+     * Splits the token span of the given sstables into the ranges to compact concurrently, at boundaries picked
+     * from the sstables' index samples so that the ranges hold about the same number of partitions.
+     *
+     * @return the ranges to compact, or a single null range (i.e. everything) if the compaction is not worth splitting
+     */
+    private List<Range<Token>> getCompactionRanges(Set<SSTableReader> sstables)
+    {
+        long splits = Math.min(DatabaseDescriptor.getCompactionRangeSplits(),
+                               SSTable.getTotalBytes(sstables) / DatabaseDescriptor.getCompactionRangeSplitMinSize());
+        if (splits <= 1)
+            return Collections.singletonList(null);
+
+        Token minimum = cfs.partitioner.getMinimumToken();
+        Range<Token> fullRange = new Range<Token>(minimum, minimum);
+        List<DecoratedKey> samples = new ArrayList<DecoratedKey>();
+        for (SSTableReader sstable : sstables)
+        {
+            // there is no need for more than a few samples per sstable and range
+            int step = (int) Math.max(1, sstable.getKeySampleSize() / (splits * SAMPLES_PER_RANGE));
+            int i = 0;
+            for (DecoratedKey key : sstable.getKeySamples(fullRange))
+            {
+                if (i++ % step == 0)
+                    samples.add(key);
+            }
+        }
+        return splitRanges(samples, splits, minimum);
+    }
+
+    /**
+     * Splits the ring into at most {@code splits} contiguous ranges at evenly spaced sample keys. The ranges are
+     * disjoint and, taken together, cover the whole ring: the first one starts and the last one ends at the
+     * minimum token.
+     *
+     * @param samples the sampled keys, in any order (the list is sorted in place)
+     * @return the ranges, or a single null range if the samples can't be split
+     */
+    @VisibleForTesting
+    static List<Range<Token>> splitRanges(List<DecoratedKey> samples, long splits, Token minimum)
+    {
+        if (splits <= 1 || samples.size() < splits)
+            return Collections.singletonList(null);
+        Collections.sort(samples);
+
+        List<Range<Token>> ranges = new ArrayList<Range<Token>>();
+        Token left = minimum;
+        for (int i = 1; i < splits; i++)
+        {
+            Token right = samples.get((int) (i * samples.size() / splits)).token;
+            // skip duplicate boundaries; the samples are sorted so tokens never decrease
+            if (right.equals(left))
+                continue;
+            ranges.add(new Range<Token>(left, right));
+            left = right;
+        }
+        if (ranges.isEmpty())
+            return Collections.singletonList(null);
+        ranges.add(new Range<Token>(left, minimum));
+        return ranges;
+    }
+
+    /**
+     * Runs the range compactions on the range executor and waits for all of them to complete, even if one fails,
+     * so that their writers can safely be aborted.
+     */
+    private static void runConcurrently(List<RangeCompaction> compactions) throws Exception
+    {
+        List<Future<?>> futures = new ArrayList<Future<?>>(compactions.size());
+        for (RangeCompaction compaction : compactions)
+            futures.add(rangeExecutor.submit(compaction));
+
+        Throwable failure = null;
+        for (Future<?> future : futures)
+        {
+            try
+            {
+                Uninterruptibles.getUninterruptibly(future);
+            }
+            catch (ExecutionException e)
+            {
+                if (failure == null)
+                {
+                    failure = e.getCause();
+                    // no point in finishing the other ranges
+                    for (RangeCompaction compaction : compactions)
+                        compaction.ci.stop();
+                }
+            }
+        }
+        if (failure != null)
+        {
+            Throwables.propagateIfPossible(failure, Exception.class);
+            throw new RuntimeException(failure);
+        }
+    }
+
+    /**
+     * Merges the rows of one token range of the compacted sstables, writing them to new sstables of its own.
+     *
+     * The range compactions of a task share its CompactionController: the controller only reads its overlapping
+     * sstables and interval tree, which are fixed at construction, and keeps its purge statistics in atomic
+     * counters, so concurrent shouldPurge calls are safe. Row cache invalidation goes to the thread-safe cache.
+     */
+    private class RangeCompaction implements Callable<Void>
+    {
+        final AbstractCompactionIterable ci;
+        final CompactionController controller;
+        final CloseableIterator<AbstractCompactedRow> iter;
+        final Collection<SSTableReader> actuallyCompact;
+        final File sstableDirectory;
+        final long keysPerSSTable;
+
+        // we can't preheat until the tracker has been set. This doesn't happen until we tell the cfs to
+        // replace the old entries.  Track entries to preheat here until then.
+        final Map<Descriptor, Map<DecoratedKey, RowIndexEntry>> cachedKeyMap = new HashMap<Descriptor, Map<DecoratedKey, RowIndexEntry>>();
+        final List<SSTableWriter> writers = new ArrayList<SSTableWriter>();
+        long keysWritten;
+
+        RangeCompaction(List<ICompactionScanner> scanners, CompactionController controller, Collection<SSTableReader> actuallyCompact, File sstableDirectory, long keysPerSSTable)
+        {
+            this.ci = DatabaseDescriptor.isMultithreadedCompaction()
+                    ? new ParallelCompactionIterable(compactionType, scanners, controller)
+                    : new CompactionIterable(compactionType, scanners, controller);
+            this.controller = controller;
+            this.iter = ci.iterator();
+            this.actuallyCompact = actuallyCompact;
+            this.sstableDirectory = sstableDirectory;
+            this.keysPerSSTable = keysPerSSTable;
+        }
+
+        public Void call() throws IOException
+        {
+            if (!iter.hasNext())
+                return null;
+
+            Map<DecoratedKey, RowIndexEntry> cachedKeys = new HashMap<DecoratedKey, RowIndexEntry>();
+            SSTableWriter writer = createCompactionWriter(sstableDirectory, keysPerSSTable);
+            writers.add(writer);
+            while (iter.hasNext())
+            {
+                if (ci.isStopRequested())
+                    throw new CompactionInterruptedException(ci.getCompactionInfo());
+
+                AbstractCompactedRow row = iter.next();
+                RowIndexEntry indexEntry = writer.append(row);
+                if (indexEntry == null)
+                {
+                    controller.invalidateCachedRow(row.key);
+                    row.close();
+                    continue;
+                }
+
+                keysWritten++;
+
+                if (DatabaseDescriptor.getPreheatKeyCache())
+                {
+                    for (SSTableReader sstable : actuallyCompact)
+                    {
+                        if (sstable.getCachedPosition(row.key, false) != null)
+                        {
+                            cachedKeys.put(row.key, indexEntry);
+                            break;
+                        }
+                    }
+                }
+
+                if (newSSTableSegmentThresholdReached(writer))
+                {
+                    // tmp = false because later we want to query it with descriptor from SSTableReader
+                    cachedKeyMap.put(writer.descriptor.asTemporary(false), cachedKeys);
+                    writer = createCompactionWriter(sstableDirectory, keysPerSSTable);
+                    writers.add(writer);
+                    cachedKeys = new HashMap<DecoratedKey, RowIndexEntry>();
+                }
+            }
+
+            if (writer.getFilePointer() > 0)
+            {
+                cachedKeyMap.put(writer.descriptor.asTemporary(false), cachedKeys);
+            }
+            else
+            {
+                writer.abort();
+                writers.remove(writer);
+            }
+            return null;
+        }
+    }
+
     private SSTableWriter createCompactionWriter(File sstableDirectory, long keysPerSSTable)
     {
         return new SSTableWriter(cfs.getTempSSTablePath(sstableDirectory),
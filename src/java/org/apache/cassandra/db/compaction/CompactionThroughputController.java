@@ -0,0 +1,255 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.compaction;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.metrics.CompactionMetrics;
+import org.apache.cassandra.service.StorageService;
+import org.apache.cassandra.utils.WrappedRunnable;
+
+/**
+ * Periodically adjusts the throughput compaction is throttled to, between a floor and a ceiling, instead of
+ * using the fixed compaction_throughput_mb_per_sec.  Compaction is sped up while compactions are pending, and
+ * more so when reads have to merge many sstables; it is slowed down when local read latency climbs above its
+ * recent average, and when there is nothing left to compact.
+ */
+public class CompactionThroughputController implements CompactionThroughputControllerMBean
+{
+    private static final Logger logger = LoggerFactory.getLogger(CompactionThroughputController.class);
+
+    public static final String MBEAN_NAME = "org.apache.cassandra.db:type=CompactionThroughputController";
+    public static final CompactionThroughputController instance = new CompactionThroughputController();
+
+    static final int ADJUSTMENT_INTERVAL_IN_SECONDS = 10;
+    // reads merging more sstables than this (75th percentile of the worst table) call for compacting faster
+    static final double SSTABLES_PER_READ_TARGET = 4;
+    // read latency above this multiple of its recent average is considered degraded by compaction
+    static final double READ_LATENCY_TOLERANCE = 1.5;
+    // weight of the latest observation in the recent average of the read latency
+    static final double READ_LATENCY_SMOOTHING = 0.2;
+
+    enum Decision
+    {
+        RAISE_FOR_READS(1.5),
+        RAISE_FOR_BACKLOG(1.1),
+        LOWER_FOR_LATENCY(0.75),
+        LOWER_WHEN_IDLE(0.9);
+
+        final double factor;
+
+        Decision(double factor)
+        {
+            this.factor = factor;
+        }
+    }
+
+    private volatile int floorMbPerSec;
+    private volatile int ceilingMbPerSec;
+    private volatile double throughputMbPerSec;
+    private volatile Decision lastDecision;
+
+    private volatile int pendingTasks;
+    private volatile long pendingBytes;
+    private volatile double sstablesPerRead;
+    private volatile double readLatencyMicros;
+    private volatile double baselineReadLatencyMicros;
+
+    private volatile ScheduledFuture<?> future;
+
+    private CompactionThroughputController()
+    {
+        floorMbPerSec = DatabaseDescriptor.getCompactionThroughputFloorMbPerSec();
+        ceilingMbPerSec = DatabaseDescriptor.getCompactionThroughputCeilingMbPerSec();
+        throughputMbPerSec = initialThroughput(DatabaseDescriptor.getCompactionThroughputMbPerSec(), floorMbPerSec, ceilingMbPerSec);
+
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        try
+        {
+            mbs.registerMBean(this, new ObjectName(MBEAN_NAME));
+        }
+        catch (Exception e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public boolean isEnabled()
+    {
+        return future != null;
+    }
+
+    public synchronized void setEnabled(boolean enabled)
+    {
+        if (enabled == (future != null))
+            return;
+
+        if (!enabled)
+        {
+            future.cancel(false);
+            future = null;
+            logger.info("Compaction throughput is no longer adjusted; using compaction_throughput_mb_per_sec");
+            return;
+        }
+
+        future = StorageService.optionalTasks.scheduleWithFixedDelay(new WrappedRunnable()
+        {
+            protected void runMayThrow() throws Exception
+            {
+                adjust();
+            }
+        }, ADJUSTMENT_INTERVAL_IN_SECONDS, ADJUSTMENT_INTERVAL_IN_SECONDS, TimeUnit.SECONDS);
+        logger.info("Adjusting compaction throughput between {} and {} MB/s", floorMbPerSec, ceilingMbPerSec);
+    }
+
+    public int getFloorMbPerSec()
+    {
+        return floorMbPerSec;
+    }
+
+    public void setFloorMbPerSec(int floorMbPerSec)
+    {
+        if (floorMbPerSec <= 0 || floorMbPerSec > ceilingMbPerSec)
+            throw new IllegalArgumentException(String.format("floor must be in (0, %d], not %d", ceilingMbPerSec, floorMbPerSec));
+        this.floorMbPerSec = floorMbPerSec;
+    }
+
+    public int getCeilingMbPerSec()
+    {
+        return ceilingMbPerSec;
+    }
+
+    public void setCeilingMbPerSec(int ceilingMbPerSec)
+    {
+        if (ceilingMbPerSec < floorMbPerSec)
+            throw new IllegalArgumentException(String.format("ceiling must be at least %d, not %d", floorMbPerSec, ceilingMbPerSec));
+        this.ceilingMbPerSec = ceilingMbPerSec;
+    }
+
+    public double getThroughputMbPerSec()
+    {
+        return throughputMbPerSec;
+    }
+
+    public String getLastDecision()
+    {
+        Decision decision = lastDecision;
+        return decision == null ? "NONE" : decision.name();
+    }
+
+    public int getPendingTasks()
+    {
+        return pendingTasks;
+    }
+
+    public long getPendingBytes()
+    {
+        return pendingBytes;
+    }
+
+    public double getSSTablesPerRead()
+    {
+        return sstablesPerRead;
+    }
+
+    public double getReadLatencyMicros()
+    {
+        return readLatencyMicros;
+    }
+
+    public double getBaselineReadLatencyMicros()
+    {
+        return baselineReadLatencyMicros;
+    }
+
+    /**
+     * Samples the compaction backlog and the read metrics of all tables, and moves the throughput accordingly.
+     */
+    public synchronized void adjust()
+    {
+        pendingTasks = CompactionManager.instance.getPendingTasks();
+        long bytes = 0;
+        for (CompactionInfo.Holder holder : CompactionMetrics.getCompactions())
+        {
+            CompactionInfo info = holder.getCompactionInfo();
+            if (info.getTaskType() == OperationType.COMPACTION || info.getTaskType() == OperationType.TOMBSTONE_COMPACTION)
+                bytes += info.getTotal() - info.getCompleted();
+        }
+        pendingBytes = bytes;
+
+        double worstSSTablesPerRead = 0;
+        double worstReadLatency = 0;
+        for (ColumnFamilyStore cfs : ColumnFamilyStore.all())
+        {
+            worstSSTablesPerRead = Math.max(worstSSTablesPerRead, cfs.metric.sstablesPerReadHistogram.getSnapshot().get75thPercentile());
+            worstReadLatency = Math.max(worstReadLatency, cfs.metric.readLatency.latency.getSnapshot().get99thPercentile());
+        }
+        sstablesPerRead = worstSSTablesPerRead;
+        readLatencyMicros = worstReadLatency;
+
+        Decision decision = decide(pendingTasks > 0 || pendingBytes > 0, sstablesPerRead, readLatencyMicros, baselineReadLatencyMicros);
+        double previous = throughputMbPerSec;
+        throughputMbPerSec = clamp(previous * decision.factor, floorMbPerSec, ceilingMbPerSec);
+        lastDecision = decision;
+        baselineReadLatencyMicros = baselineReadLatencyMicros == 0
+                                  ? readLatencyMicros
+                                  : baselineReadLatencyMicros + READ_LATENCY_SMOOTHING * (readLatencyMicros - baselineReadLatencyMicros);
+
+        logger.debug("{}: compaction throughput {} -> {} MB/s ({} pending tasks, {} pending bytes, {} sstables per read, {}us read latency)",
+                     decision, previous, throughputMbPerSec, pendingTasks, pendingBytes, sstablesPerRead, readLatencyMicros);
+    }
+
+    @VisibleForTesting
+    static Decision decide(boolean backlog, double sstablesPerRead, double readLatencyMicros, double baselineReadLatencyMicros)
+    {
+        // reads slowed down by merging many sstables only get better by compacting faster
+        if (backlog && sstablesPerRead > SSTABLES_PER_READ_TARGET)
+            return Decision.RAISE_FOR_READS;
+        if (baselineReadLatencyMicros > 0 && readLatencyMicros > baselineReadLatencyMicros * READ_LATENCY_TOLERANCE)
+            return Decision.LOWER_FOR_LATENCY;
+        return backlog ? Decision.RAISE_FOR_BACKLOG : Decision.LOWER_WHEN_IDLE;
+    }
+
+    /**
+     * @return the throughput to start adjusting from: the configured one, or the ceiling if compaction is
+     * configured to be unthrottled (0)
+     */
+    @VisibleForTesting
+    static double initialThroughput(int configuredMbPerSec, int floorMbPerSec, int ceilingMbPerSec)
+    {
+        if (configuredMbPerSec == 0)
+            return ceilingMbPerSec;
+        return clamp(configuredMbPerSec, floorMbPerSec, ceilingMbPerSec);
+    }
+
+    @VisibleForTesting
+    static double clamp(double throughputMbPerSec, int floorMbPerSec, int ceilingMbPerSec)
+    {
+        return Math.max(floorMbPerSec, Math.min(ceilingMbPerSec, throughputMbPerSec));
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.compaction;
+
+public interface CompactionThroughputControllerMBean
+{
+    /**
+     * @return whether the compaction throughput is currently adjusted to the load, rather than fixed to
+     * compaction_throughput_mb_per_sec
+     */
+    public boolean isEnabled();
+    public void setEnabled(boolean enabled);
+
+    public int getFloorMbPerSec();
+    public void setFloorMbPerSec(int floorMbPerSec);
+    public int getCeilingMbPerSec();
+    public void setCeilingMbPerSec(int ceilingMbPerSec);
+
+    /**
+     * @return the throughput compaction is currently throttled to when the controller is enabled
+     */
+    public double getThroughputMbPerSec();
+
+    /**
+     * @return the last adjustment made and why, e.g. RAISE_FOR_READS
+     */
+    public String getLastDecision();
+
+    /**
+     * The observations the last adjustment was based on.
+     */
+    public int getPendingTasks();
+    public long getPendingBytes();
+    public double getSSTablesPerRead();
+    public double getReadLatencyMicros();
+    public double getBaselineReadLatencyMicros();
+}
@@ -34,6 +34,7 @@ import org.apache.cassandra.db.index.SecondaryIndexManager;
 import org.apache.cassandra.db.marshal.AbstractType;
 import org.apache.cassandra.io.sstable.ColumnNameHelper;
 import org.apache.cassandra.io.sstable.ColumnStats;
+import org.apache.cassandra.io.sstable.Descriptor;
 import org.apache.cassandra.io.sstable.SSTable;
 import org.apache.cassandra.io.sstable.SSTableWriter;
 import org.apache.cassandra.io.util.DataOutputBuffer;
@@ -90,7 +91,7 @@ public class LazilyCompactedRow extends AbstractCompactedRow implements Iterable
             emptyColumnFamily.purgeTombstones(controller.gcBefore);
     }
 
-    public RowIndexEntry write(long currentPosition, DataOutput out) throws IOException
+    public RowIndexEntry write(long currentPosition, DataOutput out, Descriptor.Version version) throws IOException
     {
         assert !closed;
 
@@ -127,7 +128,7 @@ public class LazilyCompactedRow extends AbstractCompactedRow implements Iterable
 
         close();
 
-        return RowIndexEntry.create(currentPosition, emptyColumnFamily.deletionInfo().getTopLevelDeletion(), columnsIndex);
+        return RowIndexEntry.create(currentPosition, emptyColumnFamily.deletionInfo().getTopLevelDeletion(), columnsIndex, SSTableWriter.withPartitionBounds(emptyColumnFamily.metadata(), version));
     }
 
     public void update(MessageDigest digest)
@@ -99,8 +99,7 @@ public class LegacyLeveledManifest
         {
             Descriptor d = entry.getKey();
             Pair<SSTableMetadata, Set<Integer>> oldMetadata = SSTableMetadata.serializer.deserialize(d, false);
-            String metadataFilename = d.filenameFor(Component.STATS);
-            LeveledManifest.mutateLevel(oldMetadata, d, metadataFilename, legacyManifest.levelOf(d.generation));
+            LeveledManifest.mutateLevel(oldMetadata, d, legacyManifest.levelOf(d.generation));
         }
         FileUtils.deleteWithConfirm(manifestFile);
     }
@@ -110,6 +110,8 @@ public class LeveledCompactionStrategy extends AbstractCompactionStrategy implem
         if (!isEnabled())
             return null;
 
+        dropFullyExpiredSSTables(gcBefore);
+
         return getMaximalTask(gcBefore);
     }
 
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.compaction;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+
+import com.google.common.util.concurrent.RateLimiter;
+
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.columniterator.OnDiskAtomIterator;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.io.sstable.SSTableIdentityIterator;
+import org.apache.cassandra.io.sstable.SSTableReader;
+import org.apache.cassandra.repair.Validator;
+import org.apache.cassandra.utils.IMergeIterator;
+import org.apache.cassandra.utils.MergeIterator;
+
+/**
+ * Builds the merkle trees of several validations of disjoint ranges of a column family with a single pass over
+ * its sstables, instead of scanning the sstables once per range; validations of sub-ranges only read those.
+ * Each row is compacted by the controller of the validation whose range contains it, since validations of
+ * different repair sessions may not agree on gcBefore, and added to that validation's tree.
+ */
+public class MultiRangeValidation extends CompactionInfo.Holder implements Closeable
+{
+    private static final Comparator<OnDiskAtomIterator> comparator = new Comparator<OnDiskAtomIterator>()
+    {
+        public int compare(OnDiskAtomIterator i1, OnDiskAtomIterator i2)
+        {
+            return i1.getKey().compareTo(i2.getKey());
+        }
+    };
+
+    private final ColumnFamilyStore cfs;
+    private final List<Validator> validators;
+    private final List<CompactionController> controllers;
+    private final List<ICompactionScanner> scanners;
+    private final IMergeIterator<OnDiskAtomIterator, List<SSTableIdentityIterator>> rows;
+    private final long totalBytes;
+    private volatile long bytesRead;
+
+    /**
+     * @param validators validations of pairwise disjoint ranges
+     * @param gcBefores the gcBefore to validate each of them with
+     */
+    public MultiRangeValidation(ColumnFamilyStore cfs, Collection<SSTableReader> sstables, List<Validator> validators, int[] gcBefores)
+    {
+        assert validators.size() == gcBefores.length;
+        this.cfs = cfs;
+        this.validators = validators;
+
+        List<Range<Token>> ranges = new ArrayList<>(validators.size());
+        controllers = new ArrayList<>(validators.size());
+        for (int i = 0; i < validators.size(); i++)
+        {
+            ranges.addAll(validators.get(i).ranges());
+            controllers.add(new CompactionManager.ValidationCompactionController(cfs, gcBefores[i]));
+        }
+
+        RateLimiter limiter = CompactionManager.instance.getRateLimiter();
+        scanners = new ArrayList<>(sstables.size());
+        long bytes = 0;
+        for (SSTableReader sstable : sstables)
+        {
+            ICompactionScanner scanner = sstable.getScanner(ranges, limiter);
+            scanners.add(scanner);
+            bytes += scanner.getLengthInBytes();
+        }
+        totalBytes = bytes;
+
+        rows = MergeIterator.get(scanners, comparator, new MergeIterator.Reducer<OnDiskAtomIterator, List<SSTableIdentityIterator>>()
+        {
+            private List<SSTableIdentityIterator> reduced = new ArrayList<>();
+
+            public void reduce(OnDiskAtomIterator current)
+            {
+                reduced.add((SSTableIdentityIterator) current);
+            }
+
+            protected List<SSTableIdentityIterator> getReduced()
+            {
+                List<SSTableIdentityIterator> result = reduced;
+                reduced = new ArrayList<>();
+                return result;
+            }
+        });
+    }
+
+    public CompactionInfo getCompactionInfo()
+    {
+        return new CompactionInfo(cfs.metadata, OperationType.VALIDATION, bytesRead, totalBytes);
+    }
+
+    /**
+     * Prepares the validators and adds every row to the one whose range contains it; the caller is responsible
+     * for completing them.
+     */
+    public void validate()
+    {
+        for (Validator validator : validators)
+            validator.prepare(cfs);
+
+        while (rows.hasNext())
+        {
+            if (isStopRequested())
+                throw new CompactionInterruptedException(getCompactionInfo());
+
+            List<SSTableIdentityIterator> row = rows.next();
+            int i = indexOf(row.get(0).getKey());
+            validators.get(i).add(controllers.get(i).getCompactedRow(row));
+
+            long n = 0;
+            for (ICompactionScanner scanner : scanners)
+                n += scanner.getCurrentPosition();
+            bytesRead = n;
+        }
+    }
+
+    private int indexOf(DecoratedKey key)
+    {
+        // there are only as many validators as repair sessions running at once, so a linear search is fine
+        for (int i = 0; i < validators.size(); i++)
+        {
+            for (Range<Token> range : validators.get(i).ranges())
+            {
+                if (range.contains(key.token))
+                    return i;
+            }
+        }
+        throw new AssertionError(key + " is not contained in any of the validated ranges");
+    }
+
+    public void close() throws IOException
+    {
+        try
+        {
+            rows.close();
+        }
+        finally
+        {
+            for (CompactionController controller : controllers)
+                controller.close();
+        }
+    }
+}
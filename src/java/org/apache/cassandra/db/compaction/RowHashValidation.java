@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.compaction;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.io.FSReadError;
+import org.apache.cassandra.io.sstable.RowHashes;
+import org.apache.cassandra.io.sstable.SSTableIdentityIterator;
+import org.apache.cassandra.io.sstable.SSTableReader;
+import org.apache.cassandra.io.util.FileUtils;
+import org.apache.cassandra.io.util.RandomAccessReader;
+import org.apache.cassandra.repair.Validator;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.CloseableIterator;
+import org.apache.cassandra.utils.IMergeIterator;
+import org.apache.cassandra.utils.MergeIterator;
+
+/**
+ * Builds a merkle tree from the Hashes components of the sstables rather than from their data: rows found in a
+ * single sstable and hashed when they were written are added from their precomputed hash, and only the
+ * remaining rows are read and merged like a validation compaction would.
+ *
+ * Columns dropped from the schema are removed when rows are read, so the hashes of an sstable that may hold
+ * columns written before a drop are not used.
+ */
+public class RowHashValidation extends CompactionInfo.Holder implements Closeable
+{
+    private static final Logger logger = LoggerFactory.getLogger(RowHashValidation.class);
+
+    private static final Comparator<RowHashes.Entry> comparator = new Comparator<RowHashes.Entry>()
+    {
+        public int compare(RowHashes.Entry e1, RowHashes.Entry e2)
+        {
+            return e1.key.compareTo(e2.key);
+        }
+    };
+
+    private final ColumnFamilyStore cfs;
+    private final CompactionController controller;
+    private final IMergeIterator<RowHashes.Entry, List<RowHashes.Entry>> entries;
+    private final Map<SSTableReader, RandomAccessReader> readers = new HashMap<>();
+    // sstables whose precomputed hashes may include dropped columns
+    private final Set<SSTableReader> withDroppedColumns = new HashSet<>();
+    private final long totalBytes;
+    private volatile long bytesDone;
+
+    public RowHashValidation(ColumnFamilyStore cfs, Collection<SSTableReader> sstables, Range<Token> range, int gcBefore)
+    {
+        this.cfs = cfs;
+        this.controller = new CompactionManager.ValidationCompactionController(cfs, gcBefore);
+
+        long lastDrop = Long.MIN_VALUE;
+        for (Long droppedAt : cfs.metadata.getDroppedColumns().values())
+            lastDrop = Math.max(lastDrop, droppedAt);
+
+        long bytes = 0;
+        List<CloseableIterator<RowHashes.Entry>> iterators = new ArrayList<>(sstables.size());
+        for (SSTableReader sstable : sstables)
+        {
+            iterators.add(RowHashes.iterator(sstable, range));
+            bytes += sstable.uncompressedLength();
+            // a column is dropped if it was written at or before the drop
+            if (sstable.getMinTimestamp() <= lastDrop)
+                withDroppedColumns.add(sstable);
+        }
+        totalBytes = bytes;
+        entries = MergeIterator.get(iterators, comparator, new MergeIterator.Reducer<RowHashes.Entry, List<RowHashes.Entry>>()
+        {
+            private List<RowHashes.Entry> reduced = new ArrayList<>();
+
+            public void reduce(RowHashes.Entry current)
+            {
+                reduced.add(current);
+            }
+
+            protected List<RowHashes.Entry> getReduced()
+            {
+                List<RowHashes.Entry> result = reduced;
+                reduced = new ArrayList<>();
+                return result;
+            }
+        });
+    }
+
+    /**
+     * @return true if every sstable has a Hashes component
+     */
+    public static boolean isPossible(Collection<SSTableReader> sstables)
+    {
+        for (SSTableReader sstable : sstables)
+        {
+            if (!RowHashes.exists(sstable))
+                return false;
+        }
+        return true;
+    }
+
+    public CompactionInfo getCompactionInfo()
+    {
+        return new CompactionInfo(cfs.metadata, OperationType.VALIDATION, bytesDone, totalBytes);
+    }
+
+    /**
+     * Prepares the validator and adds every row to it; the caller is responsible for completing it.
+     */
+    public void validate(Validator validator)
+    {
+        long precomputed = 0;
+        long read = 0;
+
+        validator.prepare(cfs);
+        while (entries.hasNext())
+        {
+            if (isStopRequested())
+                throw new CompactionInterruptedException(getCompactionInfo());
+
+            List<RowHashes.Entry> rows = entries.next();
+            RowHashes.Entry first = rows.get(0);
+            if (rows.size() == 1 && first.hash != null && !withDroppedColumns.contains(first.sstable))
+            {
+                validator.add(first.key, first.hash);
+                precomputed++;
+            }
+            else
+            {
+                validator.add(controller.getCompactedRow(read(rows)));
+                read++;
+            }
+
+            for (RowHashes.Entry row : rows)
+                bytesDone += row.length;
+        }
+
+        logger.debug("Validated {} partitions of {}.{} from precomputed hashes, {} from data",
+                     precomputed, cfs.keyspace.getName(), cfs.name, read);
+    }
+
+    private List<SSTableIdentityIterator> read(List<RowHashes.Entry> rows)
+    {
+        List<SSTableIdentityIterator> iterators = new ArrayList<>(rows.size());
+        for (RowHashes.Entry row : rows)
+        {
+            RandomAccessReader file = readers.get(row.sstable);
+            if (file == null)
+            {
+                file = row.sstable.openDataReader();
+                readers.put(row.sstable, file);
+            }
+
+            file.seek(row.position);
+            try
+            {
+                ByteBufferUtil.skipShortLength(file);
+            }
+            catch (IOException e)
+            {
+                throw new FSReadError(e, file.getPath());
+            }
+            long dataSize = row.position + row.length - file.getFilePointer();
+            iterators.add(new SSTableIdentityIterator(row.sstable, file, row.key, dataSize));
+        }
+        return iterators;
+    }
+
+    public void close() throws IOException
+    {
+        try
+        {
+            entries.close();
+        }
+        finally
+        {
+            for (RandomAccessReader file : readers.values())
+                FileUtils.closeQuietly(file);
+            controller.close();
+        }
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.compaction;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Sets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.cql3.statements.CFPropDefs;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.exceptions.ConfigurationException;
+import org.apache.cassandra.io.sstable.SSTableReader;
+import org.apache.cassandra.utils.Pair;
+
+/**
+ * Compaction strategy for time series data: sstables are grouped into fixed time windows by the maximum
+ * timestamp recorded in their metadata, and are only ever compacted with sstables of the same window.
+ * The newest window is compacted size-tiered style as data keeps arriving; older windows are compacted
+ * down to a single sstable.  SSTables whose data has entirely expired are dropped as a whole, without
+ * being read or rewritten (see AbstractCompactionStrategy.dropFullyExpiredSSTables).
+ */
+public class TimeWindowCompactionStrategy extends AbstractCompactionStrategy
+{
+    private static final Logger logger = LoggerFactory.getLogger(TimeWindowCompactionStrategy.class);
+
+    protected TimeWindowCompactionStrategyOptions options;
+    protected SizeTieredCompactionStrategyOptions stcsOptions;
+    protected volatile int estimatedRemainingTasks;
+
+    public TimeWindowCompactionStrategy(ColumnFamilyStore cfs, Map<String, String> options)
+    {
+        super(cfs, options);
+        this.estimatedRemainingTasks = 0;
+        this.options = new TimeWindowCompactionStrategyOptions(options);
+        this.stcsOptions = new SizeTieredCompactionStrategyOptions(options);
+        this.expiredSSTableCheckFrequency = this.options.expiredSSTableCheckFrequency;
+    }
+
+    public synchronized AbstractCompactionTask getNextBackgroundTask(int gcBefore)
+    {
+        if (!isEnabled())
+            return null;
+
+        while (true)
+        {
+            List<SSTableReader> latestBucket = getNextBackgroundSSTables(gcBefore);
+
+            if (latestBucket.isEmpty())
+                return null;
+
+            if (cfs.getDataTracker().markCompacting(latestBucket))
+                return new CompactionTask(cfs, latestBucket, gcBefore);
+        }
+    }
+
+    @VisibleForTesting
+    List<SSTableReader> getNextBackgroundSSTables(final int gcBefore)
+    {
+        if (!isEnabled())
+            return Collections.emptyList();
+
+        dropFullyExpiredSSTables(gcBefore);
+
+        Set<SSTableReader> uncompacting = Sets.newHashSet(filterSuspectSSTables(cfs.getUncompactingSSTables()));
+        if (uncompacting.isEmpty())
+            return Collections.emptyList();
+
+        int minThreshold = cfs.getMinimumCompactionThreshold();
+        int maxThreshold = cfs.getMaximumCompactionThreshold();
+
+        // repaired and unrepaired sstables are windowed separately
+        List<SSTableReader> mostInteresting = Collections.emptyList();
+        int estimatedTasks = 0;
+        for (List<SSTableReader> group : splitByRepairStatus(uncompacting))
+        {
+            NavigableMap<Long, List<SSTableReader>> buckets = getBuckets(createSSTableAndMaxTimestampPairs(group),
+                                                                         options.windowUnit,
+                                                                         options.windowSize,
+                                                                         options.timestampResolution);
+            logger.debug("Compaction buckets are {}", buckets);
+            estimatedTasks += estimatedCompactionsByTasks(buckets, minThreshold, maxThreshold);
+            if (mostInteresting.isEmpty())
+                mostInteresting = newestBucket(buckets, minThreshold, maxThreshold);
+        }
+        estimatedRemainingTasks = estimatedTasks;
+        if (!mostInteresting.isEmpty())
+            return mostInteresting;
+
+        // if there is no sstable to compact in standard way, try compacting single sstable whose droppable tombstone
+        // ratio is greater than threshold.
+        List<SSTableReader> sstablesWithTombstones = new ArrayList<SSTableReader>();
+        for (SSTableReader sstable : uncompacting)
+        {
+            if (worthDroppingTombstones(sstable, gcBefore))
+                sstablesWithTombstones.add(sstable);
+        }
+        if (sstablesWithTombstones.isEmpty())
+            return Collections.emptyList();
+
+        Collections.sort(sstablesWithTombstones, new SSTableReader.SizeComparator());
+        return Collections.singletonList(sstablesWithTombstones.get(0));
+    }
+
+    public static List<Pair<SSTableReader, Long>> createSSTableAndMaxTimestampPairs(Iterable<SSTableReader> sstables)
+    {
+        List<Pair<SSTableReader, Long>> sstableMaxTimestampPairs = new ArrayList<Pair<SSTableReader, Long>>();
+        for (SSTableReader sstable : sstables)
+            sstableMaxTimestampPairs.add(Pair.create(sstable, sstable.getMaxTimestamp()));
+        return sstableMaxTimestampPairs;
+    }
+
+    /**
+     * @return the start of the window containing the given timestamp, in milliseconds
+     */
+    @VisibleForTesting
+    static long getWindowLowerBound(TimeUnit windowUnit, int windowSize, long timestampInMillis)
+    {
+        long windowInMillis = windowUnit.toMillis(windowSize);
+        // floor, not truncation, so that (unlikely) negative timestamps still land in the right window
+        long offset = ((timestampInMillis % windowInMillis) + windowInMillis) % windowInMillis;
+        return timestampInMillis - offset;
+    }
+
+    /*
+     * Group files into time windows by their max timestamp.  The returned map is keyed by the start of each
+     * window, in milliseconds.
+     */
+    @VisibleForTesting
+    static <T> NavigableMap<Long, List<T>> getBuckets(Collection<Pair<T, Long>> files, TimeUnit windowUnit, int windowSize, TimeUnit timestampResolution)
+    {
+        NavigableMap<Long, List<T>> buckets = new TreeMap<Long, List<T>>();
+        for (Pair<T, Long> pair : files)
+        {
+            long timestampInMillis = TimeUnit.MILLISECONDS.convert(pair.right, timestampResolution);
+            long lowerBound = getWindowLowerBound(windowUnit, windowSize, timestampInMillis);
+            List<T> bucket = buckets.get(lowerBound);
+            if (bucket == null)
+            {
+                bucket = new ArrayList<T>();
+                buckets.put(lowerBound, bucket);
+            }
+            bucket.add(pair.left);
+        }
+        return buckets;
+    }
+
+    /**
+     * @param buckets the time windows, as returned by getBuckets
+     * @param minThreshold minimum number of sstables to compact at once in the newest window
+     * @param maxThreshold maximum number of sstables to compact at once
+     * @return the sstables to compact next: a size-tiered bucket of the newest window if there is one worth
+     * compacting, otherwise the sstables of the newest older window that is not compacted down to a single sstable.
+     */
+    @VisibleForTesting
+    List<SSTableReader> newestBucket(NavigableMap<Long, List<SSTableReader>> buckets, int minThreshold, int maxThreshold)
+    {
+        if (buckets.isEmpty())
+            return Collections.emptyList();
+
+        long newestWindow = buckets.lastKey();
+        for (Map.Entry<Long, List<SSTableReader>> entry : buckets.descendingMap().entrySet())
+        {
+            List<SSTableReader> bucket = entry.getValue();
+            if (entry.getKey() == newestWindow)
+            {
+                // data is still being written to this window; size-tier it
+                List<List<SSTableReader>> stcsBuckets = getSTCSBuckets(bucket);
+                List<SSTableReader> stcsInteresting = SizeTieredCompactionStrategy.mostInterestingBucket(stcsBuckets, minThreshold, maxThreshold);
+                if (!stcsInteresting.isEmpty())
+                    return stcsInteresting;
+            }
+            else if (bucket.size() >= 2)
+            {
+                return trimToThreshold(bucket, maxThreshold);
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    private List<List<SSTableReader>> getSTCSBuckets(Collection<SSTableReader> sstables)
+    {
+        return SizeTieredCompactionStrategy.getBuckets(SizeTieredCompactionStrategy.createSSTableAndLengthPairs(sstables),
+                                                       stcsOptions.bucketHigh,
+                                                       stcsOptions.bucketLow,
+                                                       stcsOptions.minSSTableSize);
+    }
+
+    /**
+     * @return the smallest sstables of the bucket, at most maxThreshold of them
+     */
+    @VisibleForTesting
+    static List<SSTableReader> trimToThreshold(List<SSTableReader> bucket, int maxThreshold)
+    {
+        List<SSTableReader> sorted = new ArrayList<SSTableReader>(bucket);
+        Collections.sort(sorted, new SSTableReader.SizeComparator());
+        return sorted.subList(0, Math.min(sorted.size(), maxThreshold));
+    }
+
+    @VisibleForTesting
+    int estimatedCompactionsByTasks(NavigableMap<Long, List<SSTableReader>> buckets, int minThreshold, int maxThreshold)
+    {
+        int n = 0;
+        if (!buckets.isEmpty())
+        {
+            long newestWindow = buckets.lastKey();
+            for (Map.Entry<Long, List<SSTableReader>> entry : buckets.entrySet())
+            {
+                List<SSTableReader> bucket = entry.getValue();
+                if (entry.getKey() == newestWindow)
+                {
+                    for (List<SSTableReader> stcsBucket : getSTCSBuckets(bucket))
+                    {
+                        if (stcsBucket.size() >= minThreshold)
+                            n += Math.ceil((double) stcsBucket.size() / maxThreshold);
+                    }
+                }
+                else if (bucket.size() >= 2)
+                {
+                    n += Math.ceil((double) bucket.size() / maxThreshold);
+                }
+            }
+        }
+        return n;
+    }
+
+    public AbstractCompactionTask getMaximalTask(final int gcBefore)
+    {
+        Iterable<SSTableReader> sstables = cfs.markAllCompacting();
+        if (sstables == null)
+            return null;
+
+        return new CompactionTask(cfs, sstables, gcBefore);
+    }
+
+    public AbstractCompactionTask getUserDefinedTask(Collection<SSTableReader> sstables, final int gcBefore)
+    {
+        assert !sstables.isEmpty(); // checked for by CM.submitUserDefined
+
+        if (!cfs.getDataTracker().markCompacting(sstables))
+        {
+            logger.debug("Unable to mark {} for compaction; probably a background compaction got to it first.  You can disable background compactions temporarily if this is a problem", sstables);
+            return null;
+        }
+
+        return new CompactionTask(cfs, sstables, gcBefore).setUserDefined(true);
+    }
+
+    public int getEstimatedRemainingTasks()
+    {
+        return estimatedRemainingTasks;
+    }
+
+    public long getMaxSSTableBytes()
+    {
+        return Long.MAX_VALUE;
+    }
+
+    public static Map<String, String> validateOptions(Map<String, String> options) throws ConfigurationException
+    {
+        Map<String, String> uncheckedOptions = AbstractCompactionStrategy.validateOptions(options);
+        uncheckedOptions = TimeWindowCompactionStrategyOptions.validateOptions(options, uncheckedOptions);
+        uncheckedOptions = SizeTieredCompactionStrategyOptions.validateOptions(options, uncheckedOptions);
+
+        uncheckedOptions.remove(CFPropDefs.KW_MINCOMPACTIONTHRESHOLD);
+        uncheckedOptions.remove(CFPropDefs.KW_MAXCOMPACTIONTHRESHOLD);
+
+        return uncheckedOptions;
+    }
+
+    public String toString()
+    {
+        return String.format("TimeWindowCompactionStrategy[%s/%s]",
+            cfs.getMinimumCompactionThreshold(),
+            cfs.getMaximumCompactionThreshold());
+    }
+}
@@ -63,6 +63,18 @@ public class ColumnSlice
         return !finish.equals(ByteBufferUtil.EMPTY_BYTE_BUFFER) && cmp.compare(finish, name) < 0;
     }
 
+    /**
+     * @return true if this slice, read in reversed order if {@code reversed}, may include a name between
+     * minName and maxName (inclusive).
+     */
+    public boolean intersects(AbstractType<?> comparator, ByteBuffer minName, ByteBuffer maxName, boolean reversed)
+    {
+        ByteBuffer sliceStart = reversed ? finish : start;
+        ByteBuffer sliceEnd = reversed ? start : finish;
+        return (sliceStart.remaining() == 0 || comparator.compare(maxName, sliceStart) >= 0)
+               && (sliceEnd.remaining() == 0 || comparator.compare(sliceEnd, minName) >= 0);
+    }
+
 
     @Override
     public final int hashCode()
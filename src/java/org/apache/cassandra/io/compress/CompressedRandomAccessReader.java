@@ -23,9 +23,11 @@ import java.util.zip.Adler32;
 import java.util.zip.CRC32;
 import java.util.zip.Checksum;
 
+import org.apache.cassandra.cache.ChunkCache;
 import org.apache.cassandra.io.FSReadError;
 import org.apache.cassandra.io.sstable.CorruptSSTableException;
 import org.apache.cassandra.io.util.CompressedPoolingSegmentedFile;
+import org.apache.cassandra.io.util.MmappedRegions;
 import org.apache.cassandra.io.util.PoolingSegmentedFile;
 import org.apache.cassandra.io.util.RandomAccessReader;
 import org.apache.cassandra.utils.FBUtilities;
@@ -33,14 +35,23 @@ import org.apache.cassandra.utils.FBUtilities;
 /**
  * CRAR extends RAR to transparently uncompress blocks from the file into RAR.buffer.  Most of the RAR
  * "read bytes from the buffer, rebuffering when necessary" machinery works unchanged after that.
+ *
+ * Readers pooled by a CompressedPoolingSegmentedFile, i.e. those serving queries, share the chunks they
+ * decompress through the ChunkCache.  Other readers (compaction, streaming) do not, so that scanning whole
+ * sstables does not evict the hot chunks.
  */
 public class CompressedRandomAccessReader extends RandomAccessReader
 {
     public static CompressedRandomAccessReader open(String path, CompressionMetadata metadata, CompressedPoolingSegmentedFile owner)
+    {
+        return open(path, metadata, owner, null);
+    }
+
+    public static CompressedRandomAccessReader open(String path, CompressionMetadata metadata, CompressedPoolingSegmentedFile owner, MmappedRegions regions)
     {
         try
         {
-            return new CompressedRandomAccessReader(path, metadata, owner);
+            return new CompressedRandomAccessReader(path, metadata, owner, regions);
         }
         catch (FileNotFoundException e)
         {
@@ -52,7 +63,7 @@ public class CompressedRandomAccessReader extends RandomAccessReader
     {
         try
         {
-            return new CompressedRandomAccessReader(dataFilePath, metadata, null);
+            return new CompressedRandomAccessReader(dataFilePath, metadata, null, null);
         }
         catch (FileNotFoundException e)
         {
@@ -62,6 +73,9 @@ public class CompressedRandomAccessReader extends RandomAccessReader
 
     private final CompressionMetadata metadata;
 
+    // if not null, compressed chunks are read from these mappings of the file instead of the channel
+    private final MmappedRegions regions;
+
     // we read the raw compressed bytes into this buffer, then move the uncompressed ones into super.buffer.
     private ByteBuffer compressed;
 
@@ -72,9 +86,15 @@ public class CompressedRandomAccessReader extends RandomAccessReader
     private final ByteBuffer checksumBytes = ByteBuffer.wrap(new byte[4]);
 
     protected CompressedRandomAccessReader(String dataFilePath, CompressionMetadata metadata, PoolingSegmentedFile owner) throws FileNotFoundException
+    {
+        this(dataFilePath, metadata, owner, null);
+    }
+
+    protected CompressedRandomAccessReader(String dataFilePath, CompressionMetadata metadata, PoolingSegmentedFile owner, MmappedRegions regions) throws FileNotFoundException
     {
         super(new File(dataFilePath), metadata.chunkLength(), owner);
         this.metadata = metadata;
+        this.regions = regions;
         checksum = metadata.hasPostCompressionAdlerChecksums ? new Adler32() : new CRC32();
         compressed = ByteBuffer.wrap(new byte[metadata.compressor().initialCompressedBufferLength(metadata.chunkLength())]);
     }
@@ -84,7 +104,27 @@ public class CompressedRandomAccessReader extends RandomAccessReader
     {
         try
         {
-            decompressChunk(metadata.chunkFor(current));
+            CompressionMetadata.Chunk chunk = metadata.chunkFor(current);
+            if (owner != null && ChunkCache.instance.isEnabled())
+            {
+                int length = ChunkCache.instance.read(getPath(), chunk.offset, buffer);
+                if (length >= 0)
+                {
+                    validBufferBytes = length;
+                }
+                else
+                {
+                    decompressChunk(chunk);
+                    ChunkCache.instance.put(getPath(), chunk.offset, buffer, validBufferBytes);
+                }
+            }
+            else
+            {
+                decompressChunk(chunk);
+            }
+
+            // buffer offset is always aligned
+            bufferOffset = current & ~(buffer.length - 1);
         }
         catch (CorruptBlockException e)
         {
@@ -98,17 +138,30 @@ public class CompressedRandomAccessReader extends RandomAccessReader
 
     private void decompressChunk(CompressionMetadata.Chunk chunk) throws IOException
     {
-        if (channel.position() != chunk.offset)
-            channel.position(chunk.offset);
-
         if (compressed.capacity() < chunk.length)
             compressed = ByteBuffer.wrap(new byte[chunk.length]);
         else
             compressed.clear();
         compressed.limit(chunk.length);
 
-        if (channel.read(compressed) != chunk.length)
-            throw new CorruptBlockException(getPath(), chunk);
+        // when the file is mapped, copying the chunk from the page cache saves the read() system call
+        ByteBuffer region = null;
+        if (regions != null)
+        {
+            region = regions.regionFor(chunk.offset);
+            if (region.remaining() < chunk.length + checksumBytes.capacity())
+                throw new CorruptBlockException(getPath(), chunk);
+            region.get(compressed.array(), 0, chunk.length);
+            compressed.position(chunk.length);
+        }
+        else
+        {
+            if (channel.position() != chunk.offset)
+                channel.position(chunk.offset);
+
+            if (channel.read(compressed) != chunk.length)
+                throw new CorruptBlockException(getPath(), chunk);
+        }
 
         // technically flip() is unnecessary since all the remaining work uses the raw array, but if that changes
         // in the future this will save a lot of hair-pulling
@@ -134,19 +187,19 @@ public class CompressedRandomAccessReader extends RandomAccessReader
                 checksum.update(buffer, 0, validBufferBytes);
             }
 
-            if (checksum(chunk) != (int) checksum.getValue())
+            if (checksum(chunk, region) != (int) checksum.getValue())
                 throw new CorruptBlockException(getPath(), chunk);
 
             // reset checksum object back to the original (blank) state
             checksum.reset();
         }
-
-        // buffer offset is always aligned
-        bufferOffset = current & ~(buffer.length - 1);
     }
 
-    private int checksum(CompressionMetadata.Chunk chunk) throws IOException
+    private int checksum(CompressionMetadata.Chunk chunk, ByteBuffer region) throws IOException
     {
+        if (region != null)
+            return region.getInt();
+
         assert channel.position() == chunk.offset + chunk.length;
         checksumBytes.clear();
         if (channel.read(checksumBytes) != checksumBytes.capacity())
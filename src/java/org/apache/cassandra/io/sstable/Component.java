@@ -59,6 +59,8 @@ public class Component
         SUMMARY("Summary.db"),
         // table of contents, stores the list of all components for the sstable
         TOC("TOC.txt"),
+        // per-row positions and precomputed repair hashes, see RowHashes
+        HASHES("Hashes.db"),
         // custom component, used by e.g. custom compaction strategy
         CUSTOM(null);
 
@@ -88,6 +90,7 @@ public class Component
     public final static Component CRC = new Component(Type.CRC);
     public final static Component SUMMARY = new Component(Type.SUMMARY);
     public final static Component TOC = new Component(Type.TOC);
+    public final static Component HASHES = new Component(Type.HASHES);
 
     public final Type type;
     public final String name;
@@ -126,7 +129,21 @@ public class Component
 
         // parse the component suffix
         Type type = Type.fromRepresentation(path.right);
-        // build (or retrieve singleton for) the component object
+        return Pair.create(path.left, forType(type, path.right));
+    }
+
+    /**
+     * @return the component of a known type named {@code name}, or null if {@code name} is a custom component's
+     */
+    public static Component fromKnownName(String name)
+    {
+        Type type = Type.fromRepresentation(name);
+        return type == Type.CUSTOM ? null : forType(type, name);
+    }
+
+    // build (or retrieve singleton for) the component object
+    private static Component forType(Type type, String name)
+    {
         Component component;
         switch(type)
         {
@@ -140,12 +157,13 @@ public class Component
             case CRC:               component = Component.CRC;                          break;
             case SUMMARY:           component = Component.SUMMARY;                      break;
             case TOC:               component = Component.TOC;                          break;
-            case CUSTOM:            component = new Component(Type.CUSTOM, path.right); break;
+            case HASHES:            component = Component.HASHES;                       break;
+            case CUSTOM:            component = new Component(Type.CUSTOM, name);       break;
             default:
                  throw new IllegalStateException();
         }
 
-        return Pair.create(path.left, component);
+        return component;
     }
 
     @Override
@@ -44,7 +44,7 @@ public class Descriptor
     public static class Version
     {
         // This needs to be at the begining for initialization sake
-        public static final String current_version = "jb";
+        public static final String current_version = "jd";
 
         // ic (1.2.5): omits per-row bloom filter of column names
         // ja (2.0.0): super columns are serialized as composites (note that there is no real format change,
@@ -57,8 +57,13 @@ public class Descriptor
         //             tracks max/min column values (according to comparator)
         // jb (2.0.1): switch from crc32 to adler32 for compression checksums
         //             checksum the compressed data
+        // jc (2.0.x): tracks the time of the incremental repair that covered the sstable, if any
+        // jd (2.0.x): index entries may record the partition's clustering bounds and max timestamp.  Previous versions
+        //             misread such index files, so only tables with index_partition_bounds write this version
 
         public static final Version CURRENT = new Version(current_version);
+        // the version written for tables that do not record partition bounds in their index
+        public static final Version WITHOUT_PARTITION_BOUNDS = new Version("jc");
 
         private final String version;
 
@@ -70,6 +75,8 @@ public class Descriptor
         public final boolean hasRowSizeAndColumnCount;
         public final boolean tracksMaxMinColumnNames;
         public final boolean hasPostCompressionAdlerChecksums;
+        public final boolean hasPartitionBoundsInIndex;
+        public final boolean hasRepairedAt;
 
         public Version(String version)
         {
@@ -82,6 +89,8 @@ public class Descriptor
             hasRowSizeAndColumnCount = version.compareTo("ja") < 0;
             tracksMaxMinColumnNames = version.compareTo("ja") >= 0;
             hasPostCompressionAdlerChecksums = version.compareTo("jb") >= 0;
+            hasPartitionBoundsInIndex = version.compareTo("jd") >= 0;
+            hasRepairedAt = version.compareTo("jc") >= 0;
         }
 
         /**
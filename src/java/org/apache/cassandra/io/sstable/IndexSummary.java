@@ -22,6 +22,7 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.cassandra.db.DecoratedKey;
 import org.apache.cassandra.db.RowPosition;
@@ -38,6 +39,8 @@ public class IndexSummary implements Closeable
     private final IPartitioner partitioner;
     private final int summary_size;
     private final Memory bytes;
+    // one reference for the sstable owning the summary, plus one for each lookup using it
+    private final AtomicInteger references = new AtomicInteger(1);
 
     public IndexSummary(IPartitioner partitioner, Memory memory, int summary_size, int indexInterval)
     {
@@ -108,6 +111,11 @@ public class IndexSummary implements Closeable
         return summary_size;
     }
 
+    public long offHeapSize()
+    {
+        return bytes.size();
+    }
+
     public static class IndexSummarySerializer
     {
         public void serialize(IndexSummary t, DataOutputStream out) throws IOException
@@ -129,9 +137,33 @@ public class IndexSummary implements Closeable
         }
     }
 
+    /**
+     * @return false if the summary has already been released by its owner and is no longer usable
+     */
+    public boolean tryReference()
+    {
+        while (true)
+        {
+            int n = references.get();
+            if (n <= 0)
+                return false;
+            if (references.compareAndSet(n, n + 1))
+                return true;
+        }
+    }
+
+    public void releaseReference()
+    {
+        if (references.decrementAndGet() == 0)
+            bytes.free();
+    }
+
+    /**
+     * Releases the owner's reference; the memory is freed once no lookup references the summary any more.
+     */
     @Override
     public void close() throws IOException
     {
-        bytes.free();
+        releaseReference();
     }
 }
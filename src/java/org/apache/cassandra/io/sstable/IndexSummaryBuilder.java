@@ -57,18 +57,34 @@ public class IndexSummaryBuilder
     public IndexSummaryBuilder maybeAddEntry(DecoratedKey decoratedKey, long indexPosition)
     {
         if (keysWritten % indexInterval == 0)
-        {
-            byte[] key = ByteBufferUtil.getArray(decoratedKey.key);
-            keys.add(key);
-            offheapSize += key.length;
-            positions.add(indexPosition);
-            offheapSize += TypeSizes.NATIVE.sizeof(indexPosition);
-        }
+            addEntry(ByteBufferUtil.getArray(decoratedKey.key), indexPosition);
         keysWritten++;
 
         return this;
     }
 
+    private void addEntry(byte[] key, long indexPosition)
+    {
+        keys.add(key);
+        offheapSize += key.length;
+        positions.add(indexPosition);
+        offheapSize += TypeSizes.NATIVE.sizeof(indexPosition);
+    }
+
+    /**
+     * Builds a summary keeping one in every factor entries of an existing one, i.e. sampling the primary index
+     * factor times less often, without having to read the primary index again.
+     */
+    public static IndexSummary downsample(IndexSummary existing, int factor, IPartitioner partitioner)
+    {
+        assert factor > 0 : factor;
+        int interval = existing.getIndexInterval() * factor;
+        IndexSummaryBuilder builder = new IndexSummaryBuilder((long) existing.size() * existing.getIndexInterval(), interval);
+        for (int i = 0; i < existing.size(); i += factor)
+            builder.addEntry(existing.getKey(i), existing.getPosition(i));
+        return builder.build(partitioner);
+    }
+
     public IndexSummary build(IPartitioner partitioner)
     {
         assert keys != null && keys.size() > 0;
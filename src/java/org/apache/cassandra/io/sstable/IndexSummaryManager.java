@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.sstable;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.concurrent.DebuggableScheduledThreadPoolExecutor;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.Keyspace;
+import org.apache.cassandra.utils.WrappedRunnable;
+
+/**
+ * Periodically shares out a fixed amount of off-heap memory among the index summaries of all sstables, in
+ * proportion to how often each sstable is read.  Cold sstables get coarser summaries, sampling as little as one key
+ * in MAX_INTERVAL_FACTOR * index_interval, while hot ones get finer summaries, sampling up to one key in
+ * index_interval / MIN_INTERVAL_DIVISOR, which shortens the scan of the primary index each of their reads does.
+ */
+public class IndexSummaryManager implements IndexSummaryManagerMBean
+{
+    private static final Logger logger = LoggerFactory.getLogger(IndexSummaryManager.class);
+
+    public static final String MBEAN_NAME = "org.apache.cassandra.db:type=IndexSummaries";
+    public static final IndexSummaryManager instance = new IndexSummaryManager();
+
+    static final int MAX_INTERVAL_FACTOR = 16;
+    static final int MIN_INTERVAL_DIVISOR = 4;
+
+    private final DebuggableScheduledThreadPoolExecutor executor;
+    private volatile long memoryPoolBytes;
+    private int resizeIntervalInMinutes = -1;
+    private ScheduledFuture<?> future;
+
+    private IndexSummaryManager()
+    {
+        executor = new DebuggableScheduledThreadPoolExecutor(1, "IndexSummaryManager", Thread.MIN_PRIORITY);
+        memoryPoolBytes = DatabaseDescriptor.getIndexSummaryCapacityInMB() * 1024L * 1024L;
+
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        try
+        {
+            mbs.registerMBean(this, new ObjectName(MBEAN_NAME));
+        }
+        catch (Exception e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public long getMemoryPoolCapacityInMB()
+    {
+        return memoryPoolBytes / 1024L / 1024L;
+    }
+
+    public void setMemoryPoolCapacityInMB(long memoryPoolCapacityInMB)
+    {
+        memoryPoolBytes = memoryPoolCapacityInMB * 1024L * 1024L;
+    }
+
+    public double getMemoryPoolSizeInMB()
+    {
+        long total = 0;
+        for (SSTableReader sstable : allSSTables())
+            total += sstable.getIndexSummaryOffHeapSize();
+        return total / 1024.0 / 1024.0;
+    }
+
+    public Map<String, Integer> getIndexIntervals()
+    {
+        Map<String, Integer> intervals = new HashMap<>();
+        for (SSTableReader sstable : allSSTables())
+            intervals.put(sstable.getFilename(), sstable.getIndexSummaryInterval());
+        return intervals;
+    }
+
+    public synchronized int getResizeIntervalInMinutes()
+    {
+        return resizeIntervalInMinutes;
+    }
+
+    public synchronized void setResizeIntervalInMinutes(int resizeIntervalInMinutes)
+    {
+        if (future != null)
+            future.cancel(false);
+        this.resizeIntervalInMinutes = resizeIntervalInMinutes;
+        if (resizeIntervalInMinutes <= 0)
+        {
+            future = null;
+            return;
+        }
+
+        future = executor.scheduleWithFixedDelay(new WrappedRunnable()
+        {
+            protected void runMayThrow() throws Exception
+            {
+                redistributeSummaries();
+            }
+        }, resizeIntervalInMinutes, resizeIntervalInMinutes, TimeUnit.MINUTES);
+    }
+
+    private static List<SSTableReader> allSSTables()
+    {
+        List<SSTableReader> sstables = new ArrayList<>();
+        for (Keyspace keyspace : Keyspace.all())
+            for (ColumnFamilyStore cfs : keyspace.getColumnFamilyStores())
+                sstables.addAll(cfs.getSSTables());
+        return sstables;
+    }
+
+    public synchronized void redistributeSummaries() throws IOException
+    {
+        List<SSTableReader> sstables = new ArrayList<>();
+        for (Keyspace keyspace : Keyspace.all())
+            for (ColumnFamilyStore cfs : keyspace.getColumnFamilyStores())
+                sstables.addAll(cfs.markCurrentSSTablesReferenced());
+
+        try
+        {
+            long start = System.nanoTime();
+            int resampled = 0;
+            for (Map.Entry<SSTableReader, Integer> entry : computeIntervals(sstables, memoryPoolBytes).entrySet())
+            {
+                SSTableReader sstable = entry.getKey();
+                int interval = entry.getValue();
+                if (interval == sstable.getIndexSummaryInterval())
+                    continue;
+
+                logger.debug("Resampling index summary of {} from an interval of {} to {}",
+                             sstable, sstable.getIndexSummaryInterval(), interval);
+                sstable.resampleIndexSummary(interval);
+                resampled++;
+            }
+            logger.info("Redistributed index summaries of {} sstables ({} resampled) in {}ms; {} MB in use out of {} MB",
+                        sstables.size(), resampled, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                        String.format("%.2f", getMemoryPoolSizeInMB()), getMemoryPoolCapacityInMB());
+        }
+        finally
+        {
+            SSTableReader.releaseReferences(sstables);
+        }
+    }
+
+    /**
+     * @return the index interval each metered sstable should be sampled at
+     * @see #computeSummaryIntervals(List, long)
+     */
+    private static Map<SSTableReader, Integer> computeIntervals(List<SSTableReader> sstables, long memoryPoolBytes)
+    {
+        List<SummaryState> states = new ArrayList<>(sstables.size());
+        for (SSTableReader sstable : sstables)
+        {
+            states.add(new SummaryState(sstable.metadata.getIndexInterval(),
+                                        sstable.getKeySampleSize(),
+                                        sstable.getIndexSummaryOffHeapSize(),
+                                        sstable.estimatedKeys(),
+                                        sstable.readMeter == null ? null : sstable.readMeter.fifteenMinuteRate()));
+        }
+
+        Map<SSTableReader, Integer> intervals = new HashMap<>();
+        List<Integer> computed = computeSummaryIntervals(states, memoryPoolBytes);
+        for (int i = 0; i < sstables.size(); i++)
+        {
+            if (computed.get(i) != null)
+                intervals.put(sstables.get(i), computed.get(i));
+        }
+        return intervals;
+    }
+
+    /**
+     * Every sstable first gets the coarsest summary allowed.  What is left of the memory pool is then split in
+     * proportion to the sstables' read rates over the last fifteen minutes, each sstable using its share to go
+     * down to the finest interval it can afford.  Sstables that are not metered (system tables) keep their
+     * summaries as they are, but these still count against the pool.
+     *
+     * @return the index interval each sstable should be sampled at, in the order of states, or null for the
+     * sstables that are not metered
+     */
+    @VisibleForTesting
+    static List<Integer> computeSummaryIntervals(List<SummaryState> states, long memoryPoolBytes)
+    {
+        long remaining = memoryPoolBytes;
+        double totalReadRate = 0;
+        for (SummaryState state : states)
+        {
+            if (state.readRate == null)
+            {
+                remaining -= state.offHeapSize;
+                continue;
+            }
+
+            totalReadRate += state.readRate;
+            remaining -= state.estimateSize(state.maxInterval());
+        }
+
+        List<Integer> intervals = new ArrayList<>(states.size());
+        for (SummaryState state : states)
+        {
+            if (state.readRate == null)
+            {
+                intervals.add(null);
+                continue;
+            }
+
+            int interval = state.maxInterval();
+            if (remaining > 0 && totalReadRate > 0)
+            {
+                double share = remaining * (state.readRate / totalReadRate);
+                double budget = state.estimateSize(interval) + share;
+                int minInterval = state.minInterval();
+                while (interval / 2 >= minInterval && state.estimateSize(interval / 2) <= budget)
+                    interval /= 2;
+            }
+            intervals.add(interval);
+        }
+        return intervals;
+    }
+
+    /**
+     * What computeSummaryIntervals needs to know of an sstable.
+     */
+    @VisibleForTesting
+    static class SummaryState
+    {
+        final int indexInterval;
+        final long keySamples;
+        final long offHeapSize;
+        final long estimatedKeys;
+        // fifteen-minute read rate, or null if the sstable is not metered
+        final Double readRate;
+
+        SummaryState(int indexInterval, long keySamples, long offHeapSize, long estimatedKeys, Double readRate)
+        {
+            this.indexInterval = indexInterval;
+            this.keySamples = keySamples;
+            this.offHeapSize = offHeapSize;
+            this.estimatedKeys = estimatedKeys;
+            this.readRate = readRate;
+        }
+
+        int maxInterval()
+        {
+            return indexInterval * MAX_INTERVAL_FACTOR;
+        }
+
+        int minInterval()
+        {
+            return Math.max(1, indexInterval / MIN_INTERVAL_DIVISOR);
+        }
+
+        /**
+         * Extrapolates the size of the summary at the given interval from the size of the current one.
+         */
+        double estimateSize(int interval)
+        {
+            double bytesPerEntry = (double) offHeapSize / Math.max(1, keySamples);
+            long estimatedEntries = Math.max(1, (estimatedKeys + interval - 1) / interval);
+            return estimatedEntries * bytesPerEntry;
+        }
+    }
+}
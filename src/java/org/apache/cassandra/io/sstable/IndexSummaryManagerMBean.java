@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.sstable;
+
+import java.io.IOException;
+import java.util.Map;
+
+public interface IndexSummaryManagerMBean
+{
+    public long getMemoryPoolCapacityInMB();
+    public void setMemoryPoolCapacityInMB(long memoryPoolCapacityInMB);
+
+    /**
+     * @return the off-heap memory currently used by the index summaries of all sstables, in megabytes
+     */
+    public double getMemoryPoolSizeInMB();
+
+    /**
+     * @return the current index interval of each sstable's summary, keyed by data file name
+     */
+    public Map<String, Integer> getIndexIntervals();
+
+    /**
+     * Resamples the index summaries of all sstables right away, instead of waiting for the next scheduled pass.
+     */
+    public void redistributeSummaries() throws IOException;
+
+    public int getResizeIntervalInMinutes();
+
+    /**
+     * @param resizeIntervalInMinutes how often summaries are resampled; -1 to disable resampling
+     */
+    public void setResizeIntervalInMinutes(int resizeIntervalInMinutes);
+}
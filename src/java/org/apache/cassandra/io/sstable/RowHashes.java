@@ -0,0 +1,316 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.sstable;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import com.google.common.collect.AbstractIterator;
+
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.*;
+import org.apache.cassandra.db.compaction.AbstractCompactedRow;
+import org.apache.cassandra.db.compaction.PrecompactedRow;
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.LocalPartitioner;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.io.FSReadError;
+import org.apache.cassandra.io.FSWriteError;
+import org.apache.cassandra.io.util.FileMark;
+import org.apache.cassandra.io.util.FileUtils;
+import org.apache.cassandra.io.util.RandomAccessReader;
+import org.apache.cassandra.io.util.SequentialWriter;
+import org.apache.cassandra.repair.Validator;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.CloseableIterator;
+import org.apache.cassandra.utils.MerkleTree;
+import org.apache.cassandra.utils.Pair;
+
+/**
+ * The Hashes component of an sstable lists every row of the data file, in order, with its position and
+ * length and, when the row was simple enough, the hash repair validation computes for it (see Validator.hash()).
+ *
+ * A row is only hashed if validation is guaranteed to see it exactly as it was written when no other sstable
+ * contains the same key: it must carry no tombstone or expiring column, since those may be purged by the time
+ * validation runs, and counters are never hashed since their shards are cleaned up on read.  Other rows, as well
+ * as rows whose hash is not at hand when they are written (large compacted rows, streamed rows), are recorded
+ * without a hash so that validation can read them back from the data file.
+ *
+ * The entries are followed by the data file position and entry offset of every SAMPLE_INTERVAL-th entry, so that
+ * a range is read from the entry closest to its start in the data file, as found through the primary index.
+ */
+public class RowHashes
+{
+    // one entry out of SAMPLE_INTERVAL is sampled, like the index summary samples the primary index
+    public static final int SAMPLE_INTERVAL = 128;
+
+    private RowHashes()
+    {
+    }
+
+    /**
+     * @return true if sstables written for the given table should carry a Hashes component
+     */
+    static boolean shouldWrite(CFMetaData metadata, IPartitioner<?> partitioner)
+    {
+        // secondary indexes are never repaired
+        return DatabaseDescriptor.isPrecomputeRepairHashes()
+               && !(partitioner instanceof LocalPartitioner)
+               && !metadata.getDefaultValidator().isCommutative();
+    }
+
+    /**
+     * @return true if the sstable has a Hashes component
+     */
+    public static boolean exists(SSTableReader sstable)
+    {
+        return sstable.components.contains(Component.HASHES);
+    }
+
+    /**
+     * @return the hash validation would compute for the row, or null if it can't be known in advance
+     */
+    static MerkleTree.RowHash hashIfStable(AbstractCompactedRow row)
+    {
+        if (!(row instanceof PrecompactedRow))
+            return null;
+
+        ColumnFamily cf = ((PrecompactedRow) row).getFullColumnFamily();
+        if (cf == null || !cf.deletionInfo().isLive())
+            return null;
+
+        for (Column column : cf)
+        {
+            if (column instanceof DeletedColumn || column instanceof ExpiringColumn)
+                return null;
+        }
+        return Validator.hash(row);
+    }
+
+    /**
+     * @return the entries of the sstable whose token is in the given range, in sstable order
+     */
+    public static CloseableIterator<Entry> iterator(SSTableReader sstable, Range<Token> range)
+    {
+        return new EntryIterator(sstable, range);
+    }
+
+    public static class Entry
+    {
+        public final SSTableReader sstable;
+        public final DecoratedKey key;
+        public final long position;
+        public final long length;
+        /** null if the row was not hashed when it was written */
+        public final MerkleTree.RowHash hash;
+
+        Entry(SSTableReader sstable, DecoratedKey key, long position, long length, MerkleTree.RowHash hash)
+        {
+            this.sstable = sstable;
+            this.key = key;
+            this.position = position;
+            this.length = length;
+            this.hash = hash;
+        }
+    }
+
+    static class Writer implements Closeable
+    {
+        private final SequentialWriter out;
+        // data file position -> offset of the entry, for every SAMPLE_INTERVAL-th entry
+        private final List<Pair<Long, Long>> samples = new ArrayList<>();
+        private long entries;
+        private FileMark mark;
+        private long markedEntries;
+
+        Writer(Descriptor descriptor)
+        {
+            out = SequentialWriter.open(new File(descriptor.filenameFor(Component.HASHES)), true);
+        }
+
+        /**
+         * @param hash the hash of the row, or null if it wasn't computed
+         */
+        void append(DecoratedKey key, long position, long length, MerkleTree.RowHash hash)
+        {
+            if (entries++ % SAMPLE_INTERVAL == 0)
+                samples.add(Pair.create(position, out.getFilePointer()));
+            try
+            {
+                ByteBufferUtil.writeWithShortLength(key.key, out.stream);
+                out.stream.writeLong(position);
+                out.stream.writeLong(length);
+                out.stream.writeBoolean(hash != null);
+                if (hash != null)
+                {
+                    out.stream.writeShort(hash.hash.length);
+                    out.stream.write(hash.hash);
+                    out.stream.writeLong(hash.size);
+                }
+            }
+            catch (IOException e)
+            {
+                throw new FSWriteError(e, out.getPath());
+            }
+        }
+
+        void mark()
+        {
+            mark = out.mark();
+            markedEntries = entries;
+        }
+
+        void resetAndTruncate()
+        {
+            out.resetAndTruncate(mark);
+            entries = markedEntries;
+            while (samples.size() > (entries + SAMPLE_INTERVAL - 1) / SAMPLE_INTERVAL)
+                samples.remove(samples.size() - 1);
+        }
+
+        public void close()
+        {
+            try
+            {
+                long samplesOffset = out.getFilePointer();
+                out.stream.writeInt(samples.size());
+                for (Pair<Long, Long> sample : samples)
+                {
+                    out.stream.writeLong(sample.left);
+                    out.stream.writeLong(sample.right);
+                }
+                out.stream.writeLong(samplesOffset);
+            }
+            catch (IOException e)
+            {
+                throw new FSWriteError(e, out.getPath());
+            }
+            out.close();
+        }
+    }
+
+    private static class EntryIterator extends AbstractIterator<Entry> implements CloseableIterator<Entry>
+    {
+        private final SSTableReader sstable;
+        private final RandomAccessReader in;
+        private final long[] samplePositions;
+        private final long[] sampleOffsets;
+        private final long entriesEnd;
+        // the sections of the data file covered by the range, in order
+        private final Iterator<Pair<Long, Long>> sections;
+        private Pair<Long, Long> section;
+
+        EntryIterator(SSTableReader sstable, Range<Token> range)
+        {
+            this.sstable = sstable;
+            this.in = RandomAccessReader.open(new File(sstable.descriptor.filenameFor(Component.HASHES)));
+            try
+            {
+                in.seek(in.length() - 8);
+                entriesEnd = in.readLong();
+                in.seek(entriesEnd);
+                int count = in.readInt();
+                samplePositions = new long[count];
+                sampleOffsets = new long[count];
+                for (int i = 0; i < count; i++)
+                {
+                    samplePositions[i] = in.readLong();
+                    sampleOffsets[i] = in.readLong();
+                }
+            }
+            catch (IOException e)
+            {
+                FileUtils.closeQuietly(in);
+                throw new FSReadError(e, in.getPath());
+            }
+            this.sections = sstable.getPositionsForRanges(Collections.singleton(range)).iterator();
+        }
+
+        protected Entry computeNext()
+        {
+            try
+            {
+                while (true)
+                {
+                    if (section == null)
+                    {
+                        if (!sections.hasNext())
+                            return endOfData();
+                        section = sections.next();
+                        seekBefore(section.left);
+                    }
+
+                    if (in.getFilePointer() >= entriesEnd)
+                        return endOfData();
+
+                    ByteBuffer key = ByteBufferUtil.readWithShortLength(in);
+                    long position = in.readLong();
+                    long length = in.readLong();
+                    byte[] hash = null;
+                    long size = 0;
+                    if (in.readBoolean())
+                    {
+                        hash = new byte[in.readShort()];
+                        in.readFully(hash);
+                        size = in.readLong();
+                    }
+
+                    if (position >= section.right)
+                    {
+                        section = null;
+                        continue;
+                    }
+                    if (position < section.left)
+                        continue;
+
+                    DecoratedKey decorated = sstable.partitioner.decorateKey(key);
+                    return new Entry(sstable, decorated, position, length, hash == null ? null : new MerkleTree.RowHash(decorated.token, hash, size));
+                }
+            }
+            catch (IOException e)
+            {
+                throw new FSReadError(e, in.getPath());
+            }
+        }
+
+        /**
+         * Seeks to the last sampled entry at or before the given data file position.
+         */
+        private void seekBefore(long position)
+        {
+            int i = Arrays.binarySearch(samplePositions, position);
+            if (i < 0)
+                i = -i - 2;
+            in.seek(i < 0 ? 0 : sampleOffsets[i]);
+        }
+
+        public void close()
+        {
+            FileUtils.closeQuietly(in);
+        }
+    }
+}
@@ -23,6 +23,7 @@ import java.util.*;
 
 import org.apache.cassandra.db.marshal.AbstractType;
 import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.FBUtilities;
 import org.apache.cassandra.utils.Pair;
 import org.apache.cassandra.utils.StreamingHistogram;
 import org.slf4j.Logger;
@@ -45,6 +46,7 @@ import org.apache.cassandra.utils.EstimatedHistogram;
  *  - partitioner
  *  - generations of sstables from which this sstable was compacted, if any
  *  - tombstone drop time histogram
+ *  - time of the incremental repair that covered all of the sstable, if any
  *
  * An SSTableMetadata should be instantiated via the Collector, openFromDescriptor()
  * or createDefaultInstance()
@@ -53,6 +55,7 @@ public class SSTableMetadata
 {
     public static final double NO_BLOOM_FLITER_FP_CHANCE = -1.0;
     public static final double NO_COMPRESSION_RATIO = -1.0;
+    public static final long UNREPAIRED = 0;
     public static final SSTableMetadataSerializer serializer = new SSTableMetadataSerializer();
 
     public final EstimatedHistogram estimatedRowSize;
@@ -68,6 +71,7 @@ public class SSTableMetadata
     public final int sstableLevel;
     public final List<ByteBuffer> maxColumnNames;
     public final List<ByteBuffer> minColumnNames;
+    public final long repairedAt;
 
     private SSTableMetadata()
     {
@@ -83,7 +87,8 @@ public class SSTableMetadata
              defaultTombstoneDropTimeHistogram(),
              0,
              Collections.<ByteBuffer>emptyList(),
-             Collections.<ByteBuffer>emptyList());
+             Collections.<ByteBuffer>emptyList(),
+             UNREPAIRED);
     }
 
     private SSTableMetadata(EstimatedHistogram rowSizes,
@@ -98,7 +103,8 @@ public class SSTableMetadata
                             StreamingHistogram estimatedTombstoneDropTime,
                             int sstableLevel,
                             List<ByteBuffer> minColumnNames,
-                            List<ByteBuffer> maxColumnNames)
+                            List<ByteBuffer> maxColumnNames,
+                            long repairedAt)
     {
         this.estimatedRowSize = rowSizes;
         this.estimatedColumnCount = columnCounts;
@@ -113,6 +119,7 @@ public class SSTableMetadata
         this.sstableLevel = sstableLevel;
         this.minColumnNames = minColumnNames;
         this.maxColumnNames = maxColumnNames;
+        this.repairedAt = repairedAt;
     }
 
     public static Collector createCollector(AbstractType<?> columnNameComparator)
@@ -126,10 +133,13 @@ public class SSTableMetadata
 
         collector.replayPosition(ReplayPosition.getReplayPosition(sstables));
         collector.sstableLevel(level);
+        // the result only counts as repaired if everything it is made of was
+        long repairedAt = Long.MAX_VALUE;
         // Get the max timestamp of the precompacted sstables
         // and adds generation of live ancestors
         for (SSTableReader sstable : sstables)
         {
+            repairedAt = Math.min(repairedAt, sstable.getRepairedAt());
             collector.addAncestor(sstable.descriptor.generation);
             for (Integer i : sstable.getAncestors())
             {
@@ -137,6 +147,8 @@ public class SSTableMetadata
                     collector.addAncestor(i);
             }
         }
+        if (!sstables.isEmpty())
+            collector.repairedAt(repairedAt);
 
         return collector;
     }
@@ -162,8 +174,30 @@ public class SSTableMetadata
                                    metadata.estimatedTombstoneDropTime,
                                    sstableLevel,
                                    metadata.minColumnNames,
-                                   metadata.maxColumnNames);
+                                   metadata.maxColumnNames,
+                                   metadata.repairedAt);
+
+    }
 
+    /**
+     * Used when marking an existing sstable as repaired
+     */
+    public static SSTableMetadata copyWithNewRepairedAt(SSTableMetadata metadata, long repairedAt)
+    {
+        return new SSTableMetadata(metadata.estimatedRowSize,
+                                   metadata.estimatedColumnCount,
+                                   metadata.replayPosition,
+                                   metadata.minTimestamp,
+                                   metadata.maxTimestamp,
+                                   metadata.maxLocalDeletionTime,
+                                   metadata.bloomFilterFPChance,
+                                   metadata.compressionRatio,
+                                   metadata.partitioner,
+                                   metadata.estimatedTombstoneDropTime,
+                                   metadata.sstableLevel,
+                                   metadata.minColumnNames,
+                                   metadata.maxColumnNames,
+                                   repairedAt);
     }
 
     static EstimatedHistogram defaultColumnCountHistogram()
@@ -222,6 +256,7 @@ public class SSTableMetadata
         protected int sstableLevel;
         protected List<ByteBuffer> minColumnNames = Collections.emptyList();
         protected List<ByteBuffer> maxColumnNames = Collections.emptyList();
+        protected long repairedAt = UNREPAIRED;
         private final AbstractType<?> columnNameComparator;
 
         private Collector(AbstractType<?> columnNameComparator)
@@ -281,7 +316,8 @@ public class SSTableMetadata
                                        estimatedTombstoneDropTime,
                                        sstableLevel,
                                        minColumnNames,
-                                       maxColumnNames);
+                                       maxColumnNames,
+                                       repairedAt);
         }
 
         public Collector estimatedRowSize(EstimatedHistogram estimatedRowSize)
@@ -333,6 +369,12 @@ public class SSTableMetadata
             return this;
         }
 
+        public Collector repairedAt(long repairedAt)
+        {
+            this.repairedAt = repairedAt;
+            return this;
+        }
+
         public Collector updateMinColumnNames(List<ByteBuffer> minColumnNames)
         {
             if (minColumnNames.size() > 0)
@@ -371,6 +413,7 @@ public class SSTableMetadata
             StreamingHistogram.serializer.serialize(sstableStats.estimatedTombstoneDropTime, out);
             out.writeInt(sstableStats.sstableLevel);
             serializeMinMaxColumnNames(sstableStats.minColumnNames, sstableStats.maxColumnNames, out);
+            out.writeLong(sstableStats.repairedAt);
         }
 
         private void serializeMinMaxColumnNames(List<ByteBuffer> minColNames, List<ByteBuffer> maxColNames, DataOutput out) throws IOException
@@ -382,6 +425,35 @@ public class SSTableMetadata
             for (ByteBuffer columnName : maxColNames)
                 ByteBufferUtil.writeWithShortLength(columnName, out);
         }
+
+        /**
+         * Replaces the stats component of an existing sstable, keeping the sstable's version.
+         *
+         * Callers must reload the metadata of any reader open on the sstable (see SSTableReader.reloadSSTableMetadata()).
+         */
+        public void rewrite(Descriptor descriptor, SSTableMetadata sstableStats, Set<Integer> ancestors) throws IOException
+        {
+            String filename = descriptor.filenameFor(Component.STATS);
+            DataOutputStream out = new DataOutputStream(new FileOutputStream(filename + "-tmp"));
+            try
+            {
+                // the stats component has not changed since the version recording repairedAt
+                if (descriptor.version.hasRepairedAt)
+                    serialize(sstableStats, ancestors, out);
+                else
+                    legacySerialize(sstableStats, ancestors, descriptor, out);
+                out.flush();
+            }
+            finally
+            {
+                out.close();
+            }
+            // we cant move a file on top of another file in windows:
+            if (!FBUtilities.isUnix())
+                FileUtils.delete(filename);
+            FileUtils.renameWithConfirm(filename + "-tmp", filename);
+        }
+
         /**
          * Used to serialize to an old version - needed to be able to update sstable level without a full compaction.
          *
@@ -414,6 +486,8 @@ public class SSTableMetadata
             out.writeInt(sstableStats.sstableLevel);
             if (legacyDesc.version.tracksMaxMinColumnNames)
                 serializeMinMaxColumnNames(sstableStats.minColumnNames, sstableStats.maxColumnNames, out);
+            if (legacyDesc.version.hasRepairedAt)
+                out.writeLong(sstableStats.repairedAt);
         }
 
         /**
@@ -500,6 +574,7 @@ public class SSTableMetadata
                 minColumnNames = Collections.emptyList();
                 maxColumnNames = Collections.emptyList();
             }
+            long repairedAt = desc.version.hasRepairedAt ? in.readLong() : UNREPAIRED;
             return Pair.create(new SSTableMetadata(rowSizes,
                                        columnCounts,
                                        replayPosition,
@@ -512,7 +587,8 @@ public class SSTableMetadata
                                        tombstoneHistogram,
                                        sstableLevel,
                                        minColumnNames,
-                                       maxColumnNames), ancestors);
+                                       maxColumnNames,
+                                       repairedAt), ancestors);
         }
     }
 }
@@ -86,7 +86,8 @@ public class SSTableReader extends SSTable implements Closeable
     private SegmentedFile ifile;
     private SegmentedFile dfile;
 
-    private IndexSummary indexSummary;
+    // replaced when the index summary is resampled, so code using it more than once must take a local copy
+    private volatile IndexSummary indexSummary;
     private IFilter bf;
 
     private InstrumentingCache<KeyCacheKey, RowIndexEntry> keyCache;
@@ -115,8 +116,8 @@ public class SSTableReader extends SSTable implements Closeable
 
         for (SSTableReader sstable : sstables)
         {
-            int indexKeyCount = sstable.getKeySampleSize();
-            count = count + (indexKeyCount + 1) * sstable.indexSummary.getIndexInterval();
+            IndexSummary summary = sstable.indexSummary;
+            count = count + (summary.size() + 1) * summary.getIndexInterval();
             if (logger.isDebugEnabled())
                 logger.debug("index size for bloom filter calc for file  : " + sstable.getFilename() + "   : " + count);
         }
@@ -447,7 +448,7 @@ public class SSTableReader extends SSTable implements Closeable
     {
         SegmentedFile.Builder ibuilder = SegmentedFile.getBuilder(DatabaseDescriptor.getIndexAccessMode());
         SegmentedFile.Builder dbuilder = compression
-                                         ? SegmentedFile.getCompressedBuilder()
+                                         ? SegmentedFile.getCompressedBuilder(DatabaseDescriptor.getDiskAccessMode())
                                          : SegmentedFile.getBuilder(DatabaseDescriptor.getDiskAccessMode());
 
         boolean summaryLoaded = loadSummary(this, ibuilder, dbuilder, metadata);
@@ -474,7 +475,7 @@ public class SSTableReader extends SSTable implements Closeable
                                : estimateRowsFromIndex(primaryIndex); // statistics is supposed to be optional
 
             if (recreateBloomFilter)
-                bf = FilterFactory.getFilter(estimatedKeys, metadata.getBloomFilterFpChance(), true);
+                bf = FilterFactory.getFilter(estimatedKeys, metadata.getBloomFilterFpChance(), true, DatabaseDescriptor.getBloomFilterType());
 
             IndexSummaryBuilder summaryBuilder = null;
             if (!summaryLoaded)
@@ -584,6 +585,71 @@ public class SSTableReader extends SSTable implements Closeable
         }
     }
 
+    /**
+     * Replaces the index summary by one sampling the primary index every newInterval keys.  A coarser summary is
+     * built from the current one when the new interval is a multiple of the current interval; otherwise the
+     * primary index is read again.  The replaced summary is freed once the reads that referenced it before the
+     * swap are done with it.
+     */
+    public synchronized void resampleIndexSummary(int newInterval) throws IOException
+    {
+        IndexSummary current = indexSummary;
+        if (newInterval == current.getIndexInterval())
+            return;
+
+        indexSummary = newInterval % current.getIndexInterval() == 0
+                     ? IndexSummaryBuilder.downsample(current, newInterval / current.getIndexInterval(), partitioner)
+                     : buildSummaryAtInterval(newInterval);
+        current.close();
+    }
+
+    /**
+     * @return the current index summary, referenced so that a concurrent resampling cannot free it until the
+     * caller releases it
+     */
+    private IndexSummary referenceSummary()
+    {
+        while (true)
+        {
+            IndexSummary summary = indexSummary;
+            // a summary is only freed after it has been replaced, so the next attempt sees its replacement
+            if (summary.tryReference())
+                return summary;
+        }
+    }
+
+    private IndexSummary buildSummaryAtInterval(int interval) throws IOException
+    {
+        RandomAccessReader primaryIndex = RandomAccessReader.open(new File(descriptor.filenameFor(Component.PRIMARY_INDEX)));
+        try
+        {
+            IndexSummaryBuilder summaryBuilder = new IndexSummaryBuilder(estimatedKeys(), interval);
+            long indexSize = primaryIndex.length();
+            long indexPosition;
+            while ((indexPosition = primaryIndex.getFilePointer()) != indexSize)
+            {
+                ByteBuffer key = ByteBufferUtil.readWithShortLength(primaryIndex);
+                summaryBuilder.maybeAddEntry(partitioner.decorateKey(key), indexPosition);
+                RowIndexEntry.serializer.skip(primaryIndex);
+            }
+            return summaryBuilder.build(partitioner);
+        }
+        finally
+        {
+            FileUtils.closeQuietly(primaryIndex);
+        }
+    }
+
+    public int getIndexSummaryInterval()
+    {
+        return indexSummary.getIndexInterval();
+    }
+
+    public long getIndexSummaryOffHeapSize()
+    {
+        return indexSummary.offHeapSize();
+    }
+
     public void releaseSummary() throws IOException
     {
         indexSummary.close();
@@ -598,6 +664,19 @@ public class SSTableReader extends SSTable implements Closeable
 
     /** get the position in the index file to start scanning to find the given key (at most indexInterval keys away) */
     public long getIndexScanPosition(RowPosition key)
+    {
+        IndexSummary summary = referenceSummary();
+        try
+        {
+            return getIndexScanPosition(summary, key);
+        }
+        finally
+        {
+            summary.releaseReference();
+        }
+    }
+
+    private static long getIndexScanPosition(IndexSummary indexSummary, RowPosition key)
     {
         int index = indexSummary.binarySearch(key);
         if (index < 0)
@@ -650,7 +729,8 @@ public class SSTableReader extends SSTable implements Closeable
      */
     public long estimatedKeys()
     {
-        return ((long) indexSummary.size()) * indexSummary.getIndexInterval();
+        IndexSummary summary = indexSummary;
+        return ((long) summary.size()) * summary.getIndexInterval();
     }
 
     /**
@@ -660,10 +740,19 @@ public class SSTableReader extends SSTable implements Closeable
     public long estimatedKeysForRanges(Collection<Range<Token>> ranges)
     {
         long sampleKeyCount = 0;
-        List<Pair<Integer, Integer>> sampleIndexes = getSampleIndexesForRanges(indexSummary, ranges);
+        IndexSummary summary = referenceSummary();
+        List<Pair<Integer, Integer>> sampleIndexes;
+        try
+        {
+            sampleIndexes = getSampleIndexesForRanges(summary, ranges);
+        }
+        finally
+        {
+            summary.releaseReference();
+        }
         for (Pair<Integer, Integer> sampleIndexRange : sampleIndexes)
             sampleKeyCount += (sampleIndexRange.right - sampleIndexRange.left + 1);
-        return Math.max(1, sampleKeyCount * indexSummary.getIndexInterval());
+        return Math.max(1, sampleKeyCount * summary.getIndexInterval());
     }
 
     /**
@@ -676,7 +765,15 @@ public class SSTableReader extends SSTable implements Closeable
 
     public byte[] getKeySample(int position)
     {
-        return indexSummary.getKey(position);
+        IndexSummary summary = referenceSummary();
+        try
+        {
+            return summary.getKey(position);
+        }
+        finally
+        {
+            summary.releaseReference();
+        }
     }
 
     private static List<Pair<Integer,Integer>> getSampleIndexesForRanges(IndexSummary summary, Collection<Range<Token>> ranges)
@@ -721,52 +818,31 @@ public class SSTableReader extends SSTable implements Closeable
         return positions;
     }
 
+    /**
+     * @return the sampled keys of the index summary that fall in range.  They are copied out of the summary, so
+     * that the summary can be resampled and freed while they are in use.
+     */
     public Iterable<DecoratedKey> getKeySamples(final Range<Token> range)
     {
-        final List<Pair<Integer, Integer>> indexRanges = getSampleIndexesForRanges(indexSummary, Collections.singletonList(range));
-
-        if (indexRanges.isEmpty())
-            return Collections.emptyList();
-
-        return new Iterable<DecoratedKey>()
+        IndexSummary summary = referenceSummary();
+        try
         {
-            public Iterator<DecoratedKey> iterator()
-            {
-                return new Iterator<DecoratedKey>()
-                {
-                    private Iterator<Pair<Integer, Integer>> rangeIter = indexRanges.iterator();
-                    private Pair<Integer, Integer> current;
-                    private int idx;
+            List<Pair<Integer, Integer>> indexRanges = getSampleIndexesForRanges(summary, Collections.singletonList(range));
+            if (indexRanges.isEmpty())
+                return Collections.emptyList();
 
-                    public boolean hasNext()
-                    {
-                        if (current == null || idx > current.right)
-                        {
-                            if (rangeIter.hasNext())
-                            {
-                                current = rangeIter.next();
-                                idx = current.left;
-                                return true;
-                            }
-                            return false;
-                        }
-
-                        return true;
-                    }
-
-                    public DecoratedKey next()
-                    {
-                        byte[] bytes = indexSummary.getKey(idx++);
-                        return partitioner.decorateKey(ByteBuffer.wrap(bytes));
-                    }
-
-                    public void remove()
-                    {
-                        throw new UnsupportedOperationException();
-                    }
-                };
+            List<DecoratedKey> keys = new ArrayList<DecoratedKey>();
+            for (Pair<Integer, Integer> indexRange : indexRanges)
+            {
+                for (int idx = indexRange.left; idx <= indexRange.right; idx++)
+                    keys.add(partitioner.decorateKey(ByteBuffer.wrap(summary.getKey(idx))));
             }
-        };
+            return keys;
+        }
+        finally
+        {
+            summary.releaseReference();
+        }
     }
 
     /**
@@ -905,7 +981,17 @@ public class SSTableReader extends SSTable implements Closeable
         }
 
         // next, see if the sampled index says it's impossible for the key to be present
-        long sampledPosition = getIndexScanPosition(key);
+        IndexSummary summary = referenceSummary();
+        long sampledPosition;
+        try
+        {
+            sampledPosition = getIndexScanPosition(summary, key);
+        }
+        finally
+        {
+            // only the interval, which is not kept off heap, is used past this point
+            summary.releaseReference();
+        }
         if (sampledPosition == -1)
         {
             if (op == Operator.EQ && updateCacheAndStats)
@@ -931,12 +1017,12 @@ public class SSTableReader extends SSTable implements Closeable
         // of the next interval).
         int i = 0;
         Iterator<FileDataInput> segments = ifile.iterator(sampledPosition);
-        while (segments.hasNext() && i <= indexSummary.getIndexInterval())
+        while (segments.hasNext() && i <= summary.getIndexInterval())
         {
             FileDataInput in = segments.next();
             try
             {
-                while (!in.isEOF() && i <= indexSummary.getIndexInterval())
+                while (!in.isEOF() && i <= summary.getIndexInterval())
                 {
                     i++;
 
@@ -1349,6 +1435,40 @@ public class SSTableReader extends SSTable implements Closeable
         return sstableMetadata;
     }
 
+    /**
+     * @return the start time of the incremental repair that covered this sstable, or SSTableMetadata.UNREPAIRED
+     */
+    public long getRepairedAt()
+    {
+        return sstableMetadata.repairedAt;
+    }
+
+    public boolean isRepaired()
+    {
+        return sstableMetadata.repairedAt != SSTableMetadata.UNREPAIRED;
+    }
+
+    /**
+     * Records in the stats component that this sstable was covered by the incremental repair started at repairedAt,
+     * and reloads the metadata.  Sstables of versions that predate repairedAt tracking are left as they are.
+     *
+     * The caller must make sure that the sstable is not being compacted meanwhile.
+     *
+     * @return true if the sstable was marked repaired
+     */
+    public boolean markRepaired(long repairedAt) throws IOException
+    {
+        if (!descriptor.version.hasRepairedAt)
+            return false;
+
+        logger.debug("Marking {} repaired at {}", descriptor.filenameFor(Component.STATS), repairedAt);
+        Pair<SSTableMetadata, Set<Integer>> oldMetadata = SSTableMetadata.serializer.deserialize(descriptor);
+        SSTableMetadata metadata = SSTableMetadata.copyWithNewRepairedAt(oldMetadata.left, repairedAt);
+        SSTableMetadata.serializer.rewrite(descriptor, metadata, oldMetadata.right);
+        reloadSSTableMetadata();
+        return true;
+    }
+
     public RandomAccessReader openDataReader(RateLimiter limiter)
     {
         assert limiter != null;
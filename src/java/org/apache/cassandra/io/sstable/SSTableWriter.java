@@ -30,6 +30,7 @@ import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.config.Schema;
 import org.apache.cassandra.db.*;
 import org.apache.cassandra.db.compaction.AbstractCompactedRow;
+import org.apache.cassandra.db.compaction.PrecompactedRow;
 import org.apache.cassandra.dht.IPartitioner;
 import org.apache.cassandra.io.FSWriteError;
 import org.apache.cassandra.io.compress.CompressedSequentialWriter;
@@ -38,6 +39,7 @@ import org.apache.cassandra.service.StorageService;
 import org.apache.cassandra.utils.ByteBufferUtil;
 import org.apache.cassandra.utils.FilterFactory;
 import org.apache.cassandra.utils.IFilter;
+import org.apache.cassandra.utils.MerkleTree;
 import org.apache.cassandra.utils.Pair;
 import org.apache.cassandra.utils.StreamingHistogram;
 
@@ -54,6 +56,7 @@ public class SSTableWriter extends SSTable
     private DecoratedKey lastWrittenKey;
     private FileMark dataMark;
     private final SSTableMetadata.Collector sstableMetadataCollector;
+    private final RowHashes.Writer hashWriter;
 
     public SSTableWriter(String filename, long keyCount)
     {
@@ -64,7 +67,7 @@ public class SSTableWriter extends SSTable
              SSTableMetadata.createCollector(Schema.instance.getCFMetaData(Descriptor.fromFilename(filename)).comparator));
     }
 
-    private static Set<Component> components(CFMetaData metadata)
+    private static Set<Component> components(CFMetaData metadata, IPartitioner<?> partitioner)
     {
         Set<Component> components = new HashSet<Component>(Arrays.asList(Component.DATA,
                                                                          Component.PRIMARY_INDEX,
@@ -86,6 +89,9 @@ public class SSTableWriter extends SSTable
             components.add(Component.DIGEST);
             components.add(Component.CRC);
         }
+
+        if (RowHashes.shouldWrite(metadata, partitioner))
+            components.add(Component.HASHES);
         return components;
     }
 
@@ -96,14 +102,14 @@ public class SSTableWriter extends SSTable
                          SSTableMetadata.Collector sstableMetadataCollector)
     {
         super(Descriptor.fromFilename(filename),
-              components(metadata),
+              components(metadata, partitioner),
               metadata,
               partitioner);
         iwriter = new IndexWriter(keyCount);
 
         if (compression)
         {
-            dbuilder = SegmentedFile.getCompressedBuilder();
+            dbuilder = SegmentedFile.getCompressedBuilder(DatabaseDescriptor.getDiskAccessMode());
             dataFile = CompressedSequentialWriter.open(getFilename(),
                                                        descriptor.filenameFor(Component.COMPRESSION_INFO),
                                                        !metadata.populateIoCacheOnFlush(),
@@ -117,6 +123,7 @@ public class SSTableWriter extends SSTable
             dataFile.setDataIntegrityWriter(DataIntegrityMetadata.checksumWriter(descriptor));
         }
 
+        hashWriter = components.contains(Component.HASHES) ? new RowHashes.Writer(descriptor) : null;
         this.sstableMetadataCollector = sstableMetadataCollector;
     }
 
@@ -124,12 +131,16 @@ public class SSTableWriter extends SSTable
     {
         dataMark = dataFile.mark();
         iwriter.mark();
+        if (hashWriter != null)
+            hashWriter.mark();
     }
 
     public void resetAndTruncate()
     {
         dataFile.resetAndTruncate(dataMark);
         iwriter.resetAndTruncate();
+        if (hashWriter != null)
+            hashWriter.resetAndTruncate();
     }
 
     /**
@@ -143,7 +154,10 @@ public class SSTableWriter extends SSTable
         return (lastWrittenKey == null) ? 0 : dataFile.getFilePointer();
     }
 
-    private void afterAppend(DecoratedKey decoratedKey, long dataPosition, RowIndexEntry index)
+    /**
+     * @param hash the repair hash of the row, or null if it is not known
+     */
+    private void afterAppend(DecoratedKey decoratedKey, long dataPosition, RowIndexEntry index, MerkleTree.RowHash hash)
     {
         lastWrittenKey = decoratedKey;
         last = lastWrittenKey;
@@ -154,6 +168,8 @@ public class SSTableWriter extends SSTable
             logger.trace("wrote " + decoratedKey + " at " + dataPosition);
         iwriter.append(decoratedKey, index);
         dbuilder.addPotentialBoundary(dataPosition);
+        if (hashWriter != null)
+            hashWriter.append(decoratedKey, dataPosition, dataFile.getFilePointer() - dataPosition, hash);
     }
 
     /**
@@ -166,7 +182,7 @@ public class SSTableWriter extends SSTable
         RowIndexEntry entry;
         try
         {
-            entry = row.write(currentPosition, dataFile.stream);
+            entry = row.write(currentPosition, dataFile.stream, descriptor.version);
             if (entry == null)
                 return null;
         }
@@ -175,7 +191,7 @@ public class SSTableWriter extends SSTable
             throw new FSWriteError(e, dataFile.getPath());
         }
         sstableMetadataCollector.update(dataFile.getFilePointer() - currentPosition, row.columnStats());
-        afterAppend(row.key, currentPosition, entry);
+        afterAppend(row.key, currentPosition, entry, hashWriter == null ? null : RowHashes.hashIfStable(row));
         return entry;
     }
 
@@ -184,8 +200,8 @@ public class SSTableWriter extends SSTable
         long startPosition = beforeAppend(decoratedKey);
         try
         {
-            RowIndexEntry entry = rawAppend(cf, startPosition, decoratedKey, dataFile.stream);
-            afterAppend(decoratedKey, startPosition, entry);
+            RowIndexEntry entry = rawAppend(cf, startPosition, decoratedKey, dataFile.stream, descriptor.version);
+            afterAppend(decoratedKey, startPosition, entry, hashWriter == null ? null : RowHashes.hashIfStable(new PrecompactedRow(decoratedKey, cf)));
         }
         catch (IOException e)
         {
@@ -194,7 +210,7 @@ public class SSTableWriter extends SSTable
         sstableMetadataCollector.update(dataFile.getFilePointer() - startPosition, cf.getColumnStats());
     }
 
-    public static RowIndexEntry rawAppend(ColumnFamily cf, long startPosition, DecoratedKey key, DataOutput out) throws IOException
+    public static RowIndexEntry rawAppend(ColumnFamily cf, long startPosition, DecoratedKey key, DataOutput out, Descriptor.Version version) throws IOException
     {
         assert cf.getColumnCount() > 0 || cf.isMarkedForDelete();
 
@@ -202,7 +218,17 @@ public class SSTableWriter extends SSTable
         ColumnIndex index = builder.build(cf);
 
         out.writeShort(END_OF_ROW);
-        return RowIndexEntry.create(startPosition, cf.deletionInfo().getTopLevelDeletion(), index);
+        return RowIndexEntry.create(startPosition, cf.deletionInfo().getTopLevelDeletion(), index, withPartitionBounds(cf.metadata(), version));
+    }
+
+    /**
+     * @return whether the index entries of the table's rows should record partition bounds in an sstable of the given
+     * version.  The table's option may have changed since the sstable was created, and only its version tells readers
+     * whether to expect them.
+     */
+    public static boolean withPartitionBounds(CFMetaData metadata, Descriptor.Version version)
+    {
+        return metadata.indexPartitionBounds() && version.hasPartitionBoundsInIndex;
     }
 
     /**
@@ -278,7 +304,7 @@ public class SSTableWriter extends SSTable
         sstableMetadataCollector.mergeTombstoneHistogram(tombstones);
         sstableMetadataCollector.updateMinColumnNames(minColumnNames);
         sstableMetadataCollector.updateMaxColumnNames(maxColumnNames);
-        afterAppend(key, currentPosition, RowIndexEntry.create(currentPosition, cf.deletionInfo().getTopLevelDeletion(), columnIndexer.build()));
+        afterAppend(key, currentPosition, RowIndexEntry.create(currentPosition, cf.deletionInfo().getTopLevelDeletion(), columnIndexer.build(), withPartitionBounds(metadata, descriptor.version)), null);
         return currentPosition;
     }
 
@@ -290,6 +316,7 @@ public class SSTableWriter extends SSTable
         assert descriptor.temporary;
         FileUtils.closeQuietly(iwriter);
         FileUtils.closeQuietly(dataFile);
+        FileUtils.closeQuietly(hashWriter);
 
         Set<Component> components = SSTable.componentsFor(descriptor);
         try
@@ -344,6 +371,8 @@ public class SSTableWriter extends SSTable
         iwriter.close();
         // main data, close will truncate if necessary
         dataFile.close();
+        if (hashWriter != null)
+            hashWriter.close();
         // write sstable statistics
         SSTableMetadata sstableMetadata = sstableMetadataCollector.finalizeMetadata(partitioner.getClass().getCanonicalName(),
                                                                                     metadata.getBloomFilterFpChance());
@@ -418,7 +447,7 @@ public class SSTableWriter extends SSTable
                                               !metadata.populateIoCacheOnFlush());
             builder = SegmentedFile.getBuilder(DatabaseDescriptor.getIndexAccessMode());
             summary = new IndexSummaryBuilder(keyCount, metadata.getIndexInterval());
-            bf = FilterFactory.getFilter(keyCount, metadata.getBloomFilterFpChance(), true);
+            bf = FilterFactory.getFilter(keyCount, metadata.getBloomFilterFpChance(), true, DatabaseDescriptor.getBloomFilterType());
         }
 
         public void append(DecoratedKey key, RowIndexEntry indexEntry)
@@ -17,6 +17,13 @@
 */
 package org.apache.cassandra.io.util;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import org.apache.cassandra.cache.ChunkCache;
 import org.apache.cassandra.io.compress.CompressedRandomAccessReader;
 import org.apache.cassandra.io.compress.CompressionMetadata;
 
@@ -24,28 +31,75 @@ public class CompressedPoolingSegmentedFile extends PoolingSegmentedFile impleme
 {
     public final CompressionMetadata metadata;
 
+    // the compressed file, if readers are to read chunks from memory mappings rather than from their channel
+    private final MmappedRegions regions;
+
     public CompressedPoolingSegmentedFile(String path, CompressionMetadata metadata)
+    {
+        this(path, metadata, null);
+    }
+
+    public CompressedPoolingSegmentedFile(String path, CompressionMetadata metadata, MmappedRegions regions)
     {
         super(path, metadata.dataLength, metadata.compressedFileLength);
         this.metadata = metadata;
+        this.regions = regions;
     }
 
     public static class Builder extends SegmentedFile.Builder
     {
+        private final boolean mmap;
+
+        public Builder()
+        {
+            this(false);
+        }
+
+        public Builder(boolean mmap)
+        {
+            this.mmap = mmap;
+        }
+
         public void addPotentialBoundary(long boundary)
         {
-            // only one segment in a standard-io file
+            // only one segment in a standard-io file; mmapped regions are cut at chunk boundaries instead
         }
 
         public SegmentedFile complete(String path)
         {
-            return new CompressedPoolingSegmentedFile(path, CompressionMetadata.create(path));
+            CompressionMetadata metadata = CompressionMetadata.create(path);
+            return new CompressedPoolingSegmentedFile(path, metadata, mmap ? mapChunks(path, metadata) : null);
+        }
+
+        /**
+         * Maps the compressed file in as few regions as possible, cut between chunks so that each chunk and its
+         * checksum can be read from a single region.  A chunk larger than MAX_SEGMENT_SIZE gets a region of its own.
+         */
+        @VisibleForTesting
+        public static MmappedRegions mapChunks(String path, CompressionMetadata metadata)
+        {
+            List<Long> boundaries = new ArrayList<Long>();
+            boundaries.add(0L);
+            long regionStart = 0;
+            for (long position = 0; position < metadata.dataLength; position += metadata.chunkLength())
+            {
+                CompressionMetadata.Chunk chunk = metadata.chunkFor(position);
+                // the chunk's checksum is followed by the next chunk, or the end of the file
+                long chunkEnd = chunk.offset + chunk.length + 4;
+                if (chunkEnd - regionStart > MmappedSegmentedFile.MAX_SEGMENT_SIZE && chunk.offset > regionStart)
+                {
+                    regionStart = chunk.offset;
+                    boundaries.add(regionStart);
+                }
+            }
+            boundaries.add(metadata.compressedFileLength);
+            return MmappedRegions.map(path, boundaries);
         }
     }
 
     protected RandomAccessReader createReader(String path)
     {
-        return CompressedRandomAccessReader.open(path, metadata, this);
+        return CompressedRandomAccessReader.open(path, metadata, this, regions);
     }
 
     public CompressionMetadata getMetadata()
@@ -58,5 +112,9 @@ public class CompressedPoolingSegmentedFile extends PoolingSegmentedFile impleme
     {
         super.cleanup();
         metadata.close();
+        if (regions != null)
+            regions.close();
+        // the file is not going to be read anymore, most likely because the sstable is being deleted
+        ChunkCache.instance.invalidateFile(new File(path).getAbsolutePath());
     }
 }
@@ -79,4 +79,17 @@ public final class DataOutputBuffer extends DataOutputStream
     {
         return ((FastByteArrayOutputStream) out).count;
     }
+
+    /** Returns the size of the backing array, i.e. how much can be written before it has to be reallocated. */
+    public int getCapacity()
+    {
+        return ((FastByteArrayOutputStream) out).buf.length;
+    }
+
+    /** Discards the written data so the buffer can be reused, keeping the backing array. */
+    public void reset()
+    {
+        ((FastByteArrayOutputStream) out).reset();
+        written = 0;
+    }
 }
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.util;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.io.FSReadError;
+
+/**
+ * A file mapped read-only in consecutive regions, each starting at one of the given boundaries, so that a record
+ * that never spans a boundary can always be read from a single region.
+ */
+public class MmappedRegions
+{
+    private static final Logger logger = LoggerFactory.getLogger(MmappedRegions.class);
+
+    private final String path;
+    private final long[] offsets;
+    private final MappedByteBuffer[] buffers;
+
+    private MmappedRegions(String path, long[] offsets, MappedByteBuffer[] buffers)
+    {
+        this.path = path;
+        this.offsets = offsets;
+        this.buffers = buffers;
+    }
+
+    /**
+     * @param boundaries the start of each region, the first being 0, followed by the length of the file; regions
+     *                   should not be larger than MmappedSegmentedFile.MAX_SEGMENT_SIZE, unless they hold a
+     *                   single record, and cannot be larger than Integer.MAX_VALUE
+     */
+    public static MmappedRegions map(String path, List<Long> boundaries)
+    {
+        int count = boundaries.size() - 1;
+        long[] offsets = new long[count];
+        MappedByteBuffer[] buffers = new MappedByteBuffer[count];
+
+        RandomAccessFile raf;
+        try
+        {
+            raf = new RandomAccessFile(path, "r");
+        }
+        catch (FileNotFoundException e)
+        {
+            throw new RuntimeException(e);
+        }
+
+        try
+        {
+            for (int i = 0; i < count; i++)
+            {
+                long start = boundaries.get(i);
+                long size = boundaries.get(i + 1) - start;
+                assert size > 0 && size <= Integer.MAX_VALUE : size;
+                offsets[i] = start;
+                buffers[i] = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, start, size);
+            }
+        }
+        catch (IOException e)
+        {
+            throw new FSReadError(e, path);
+        }
+        finally
+        {
+            FileUtils.closeQuietly(raf);
+        }
+        return new MmappedRegions(path, offsets, buffers);
+    }
+
+    /**
+     * @return a buffer over the region containing the given position of the file, positioned at it
+     */
+    public ByteBuffer regionFor(long position)
+    {
+        int idx = Arrays.binarySearch(offsets, position);
+        if (idx < 0)
+            // round down to entry at insertion point
+            idx = -(idx + 2);
+
+        ByteBuffer region = buffers[idx].duplicate();
+        region.position((int) (position - offsets[idx]));
+        return region;
+    }
+
+    /**
+     * Unmaps the regions right away if possible, rather than when they are garbage collected.  They must not be
+     * used afterwards.
+     */
+    public void close()
+    {
+        if (!FileUtils.isCleanerAvailable())
+            return;
+
+        try
+        {
+            for (MappedByteBuffer buffer : buffers)
+                FileUtils.clean(buffer);
+        }
+        catch (Exception e)
+        {
+            // This is not supposed to happen
+            logger.error("Error while unmapping " + path, e);
+        }
+    }
+}
@@ -23,7 +23,7 @@ import sun.misc.Unsafe;
 
 public class NativeAllocator implements IAllocator
 {
-    static final Unsafe unsafe;
+    public static final Unsafe unsafe;
     static
     {
         try
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.util;
+
+import org.apache.cassandra.metrics.SerializationBufferMetrics;
+
+/**
+ * Per-thread DataOutputBuffers, for serializing data that is copied somewhere else (a commit log segment,
+ * a socket) before the same thread serializes anything else.  This avoids allocating (and growing) a new
+ * buffer for each serialized object.
+ *
+ * The buffer returned by get() must not escape the calling thread, and its content is only valid until the
+ * next call to get() from that thread.
+ */
+public final class ReusableDataOutputBuffer
+{
+    private static final int INITIAL_CAPACITY = 4096;
+
+    /**
+     * Buffers that grew beyond this after serializing an unusually large object are dropped rather than
+     * retained by the thread forever.
+     */
+    public static final int MAX_RECYCLED_CAPACITY = 1024 * 1024;
+
+    private static final ThreadLocal<ReusableDataOutputBuffer> instance = new ThreadLocal<ReusableDataOutputBuffer>()
+    {
+        protected ReusableDataOutputBuffer initialValue()
+        {
+            return new ReusableDataOutputBuffer();
+        }
+    };
+
+    private DataOutputBuffer buffer;
+    private int capacity;
+
+    private ReusableDataOutputBuffer()
+    {
+    }
+
+    /**
+     * @return the calling thread's buffer, emptied.
+     */
+    public static DataOutputBuffer get()
+    {
+        return instance.get().reuse();
+    }
+
+    private DataOutputBuffer reuse()
+    {
+        if (buffer == null || buffer.getCapacity() > MAX_RECYCLED_CAPACITY)
+        {
+            buffer = new DataOutputBuffer(INITIAL_CAPACITY);
+            SerializationBufferMetrics.allocations.inc();
+        }
+        else
+        {
+            // the previous user may have outgrown the buffer, which reallocates the backing array
+            if (buffer.getCapacity() != capacity)
+                SerializationBufferMetrics.allocations.inc();
+            SerializationBufferMetrics.reuses.inc();
+            buffer.reset();
+        }
+        capacity = buffer.getCapacity();
+        return buffer;
+    }
+}
@@ -78,6 +78,11 @@ public abstract class SegmentedFile
         return new CompressedPoolingSegmentedFile.Builder();
     }
 
+    public static Builder getCompressedBuilder(Config.DiskAccessMode mode)
+    {
+        return new CompressedPoolingSegmentedFile.Builder(mode == Config.DiskAccessMode.mmap);
+    }
+
     public abstract FileDataInput getSegment(long position);
 
     /**
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Gauge;
+import com.yammer.metrics.core.Meter;
+import com.yammer.metrics.util.RatioGauge;
+
+import org.apache.cassandra.cache.ChunkCache;
+
+/**
+ * Metrics for the cache of decompressed chunks.
+ */
+public class ChunkCacheMetrics
+{
+    /** Cache capacity in bytes */
+    public final Gauge<Long> capacity;
+    /** Total number of cache hits */
+    public final Meter hits;
+    /** Total number of cache requests */
+    public final Meter requests;
+    /** Total number of chunks evicted to make room for others */
+    public final Meter evictions;
+    /** cache hit rate */
+    public final Gauge<Double> hitRate;
+    /** Total size of cache, in bytes */
+    public final Gauge<Long> size;
+    /** Total number of cache entries */
+    public final Gauge<Integer> entries;
+
+    public ChunkCacheMetrics(final ChunkCache cache)
+    {
+        MetricNameFactory factory = new DefaultNameFactory("Cache", "ChunkCache");
+
+        capacity = Metrics.newGauge(factory.createMetricName("Capacity"), new Gauge<Long>()
+        {
+            public Long value()
+            {
+                return cache.capacity();
+            }
+        });
+        hits = Metrics.newMeter(factory.createMetricName("Hits"), "hits", TimeUnit.SECONDS);
+        requests = Metrics.newMeter(factory.createMetricName("Requests"), "requests", TimeUnit.SECONDS);
+        evictions = Metrics.newMeter(factory.createMetricName("Evictions"), "evictions", TimeUnit.SECONDS);
+        hitRate = Metrics.newGauge(factory.createMetricName("HitRate"), new RatioGauge()
+        {
+            protected double getNumerator()
+            {
+                return hits.count();
+            }
+
+            protected double getDenominator()
+            {
+                return requests.count();
+            }
+        });
+        size = Metrics.newGauge(factory.createMetricName("Size"), new Gauge<Long>()
+        {
+            public Long value()
+            {
+                return cache.weightedSize();
+            }
+        });
+        entries = Metrics.newGauge(factory.createMetricName("Entries"), new Gauge<Integer>()
+        {
+            public Integer value()
+            {
+                return cache.size();
+            }
+        });
+    }
+}
@@ -84,6 +84,8 @@ public class ColumnFamilyMetrics
     public final Histogram tombstoneScannedHistogram;
     /** Live cells scanned in queries on this CF */
     public final Histogram liveScannedHistogram;
+    /** Row cache hits on a partition head that could not answer the query and went to the sstables */
+    public final Counter rowCacheHeadMiss;
 
     public final Timer coordinatorReadLatency;
     public final Timer coordinatorScanLatency;
@@ -315,6 +317,7 @@ public class ColumnFamilyMetrics
         });
         tombstoneScannedHistogram = Metrics.newHistogram(factory.createMetricName("TombstoneScannedHistogram"), true);
         liveScannedHistogram = Metrics.newHistogram(factory.createMetricName("LiveScannedHistogram"), true);
+        rowCacheHeadMiss = Metrics.newCounter(factory.createMetricName("RowCacheHeadMiss"));
         coordinatorReadLatency = Metrics.newTimer(factory.createMetricName("CoordinatorReadLatency"), TimeUnit.MICROSECONDS, TimeUnit.SECONDS);
         coordinatorScanLatency = Metrics.newTimer(factory.createMetricName("CoordinatorScanLatency"), TimeUnit.MICROSECONDS, TimeUnit.SECONDS);
     }
@@ -357,6 +360,7 @@ public class ColumnFamilyMetrics
         Metrics.defaultRegistry().removeMetric(factory.createMetricName("SpeculativeRetries"));
         Metrics.defaultRegistry().removeMetric(factory.createMetricName("TombstoneScannedHistogram"));
         Metrics.defaultRegistry().removeMetric(factory.createMetricName("LiveScannedHistogram"));
+        Metrics.defaultRegistry().removeMetric(factory.createMetricName("RowCacheHeadMiss"));
         Metrics.defaultRegistry().removeMetric(factory.createMetricName("CoordinatorReadLatency"));
         Metrics.defaultRegistry().removeMetric(factory.createMetricName("CoordinatorScanLatency"));
     }
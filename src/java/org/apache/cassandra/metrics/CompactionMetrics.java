@@ -50,6 +50,12 @@ public class CompactionMetrics implements CompactionManager.CompactionExecutorSt
     public final Meter totalCompactionsCompleted;
     /** Total number of bytes compacted since server [re]start */
     public final Counter bytesCompacted;
+    /** Total time spent deciding whether tombstones can be purged, in microseconds */
+    public final Counter purgeEvaluationTime;
+    /** Number of times compaction checked whether the tombstones of a partition can be purged */
+    public final Counter purgeChecks;
+    /** Number of purge checks answered without looking at any overlapping sstable */
+    public final Counter purgeChecksSkipped;
 
     public CompactionMetrics(final ThreadPoolExecutor... collectors)
     {
@@ -80,6 +86,9 @@ public class CompactionMetrics implements CompactionManager.CompactionExecutorSt
         });
         totalCompactionsCompleted = Metrics.newMeter(factory.createMetricName("TotalCompactionsCompleted"), "compaction completed", TimeUnit.SECONDS);
         bytesCompacted = Metrics.newCounter(factory.createMetricName("BytesCompacted"));
+        purgeEvaluationTime = Metrics.newCounter(factory.createMetricName("PurgeEvaluationTime"));
+        purgeChecks = Metrics.newCounter(factory.createMetricName("PurgeChecks"));
+        purgeChecksSkipped = Metrics.newCounter(factory.createMetricName("PurgeChecksSkipped"));
     }
 
     public void beginCompaction(CompactionInfo.Holder ci)
@@ -22,6 +22,7 @@ import java.util.concurrent.TimeUnit;
 
 import com.yammer.metrics.Metrics;
 import com.yammer.metrics.core.Gauge;
+import com.yammer.metrics.core.Histogram;
 import com.yammer.metrics.core.Meter;
 
 import org.apache.cassandra.net.OutboundTcpConnectionPool;
@@ -48,8 +49,20 @@ public class ConnectionMetrics
     public final Gauge<Integer> responsePendingTasks;
     /** Completed tasks for Response(GOSSIP & RESPONSE) TCP Connections */
     public final Gauge<Long> responseCompletedTasks;
+    /** Dropped tasks for Response(GOSSIP & RESPONSE) TCP Connections */
+    public final Gauge<Long> responseDroppedTasks;
+    /** Pending tasks for large message TCP Connections */
+    public final Gauge<Integer> largeMessagePendingTasks;
+    /** Completed tasks for large message TCP Connections */
+    public final Gauge<Long> largeMessageCompletedTasks;
+    /** Dropped tasks for large message TCP Connections */
+    public final Gauge<Long> largeMessageDroppedTasks;
     /** Number of timeouts for specific IP */
     public final Meter timeouts;
+    /** Number of messages written per flush of the outbound connections */
+    public final Histogram messagesPerFlush;
+    /** Time spent waiting for more messages to coalesce before a flush, in microseconds */
+    public final Histogram coalescingDelay;
 
     private final MetricNameFactory factory;
 
@@ -103,7 +116,37 @@ public class ConnectionMetrics
                 return connectionPool.ackCon.getCompletedMesssages();
             }
         });
+        responseDroppedTasks = Metrics.newGauge(factory.createMetricName("ResponseDroppedTasks"), new Gauge<Long>()
+        {
+            public Long value()
+            {
+                return connectionPool.ackCon.getDroppedMessages();
+            }
+        });
+        largeMessagePendingTasks = Metrics.newGauge(factory.createMetricName("LargeMessagePendingTasks"), new Gauge<Integer>()
+        {
+            public Integer value()
+            {
+                return connectionPool.getLargeMessagePendingMessages();
+            }
+        });
+        largeMessageCompletedTasks = Metrics.newGauge(factory.createMetricName("LargeMessageCompletedTasks"), new Gauge<Long>()
+        {
+            public Long value()
+            {
+                return connectionPool.getLargeMessageCompletedMesssages();
+            }
+        });
+        largeMessageDroppedTasks = Metrics.newGauge(factory.createMetricName("LargeMessageDroppedTasks"), new Gauge<Long>()
+        {
+            public Long value()
+            {
+                return connectionPool.getLargeMessageDroppedMessages();
+            }
+        });
         timeouts = Metrics.newMeter(factory.createMetricName("Timeouts"), "timeouts", TimeUnit.SECONDS);
+        messagesPerFlush = Metrics.newHistogram(factory.createMetricName("MessagesPerFlush"), true);
+        coalescingDelay = Metrics.newHistogram(factory.createMetricName("CoalescingDelay"), true);
     }
 
     public void release()
@@ -113,7 +156,13 @@ public class ConnectionMetrics
         Metrics.defaultRegistry().removeMetric(factory.createMetricName("CommandDroppedTasks"));
         Metrics.defaultRegistry().removeMetric(factory.createMetricName("ResponsePendingTasks"));
         Metrics.defaultRegistry().removeMetric(factory.createMetricName("ResponseCompletedTasks"));
+        Metrics.defaultRegistry().removeMetric(factory.createMetricName("ResponseDroppedTasks"));
+        Metrics.defaultRegistry().removeMetric(factory.createMetricName("LargeMessagePendingTasks"));
+        Metrics.defaultRegistry().removeMetric(factory.createMetricName("LargeMessageCompletedTasks"));
+        Metrics.defaultRegistry().removeMetric(factory.createMetricName("LargeMessageDroppedTasks"));
         Metrics.defaultRegistry().removeMetric(factory.createMetricName("Timeouts"));
+        Metrics.defaultRegistry().removeMetric(factory.createMetricName("MessagesPerFlush"));
+        Metrics.defaultRegistry().removeMetric(factory.createMetricName("CoalescingDelay"));
     }
 
     @Deprecated
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.net;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cassandra.config.Config;
+
+/**
+ * Decides how long an OutboundTcpConnection that ran out of queued messages waits for more before flushing,
+ * so that several messages can share a single write to the socket.
+ *
+ * Strategies are only ever used by the connection's own thread and need not be thread safe.
+ */
+abstract class CoalescingStrategy
+{
+    /** the maximum time a message may be held back waiting for others */
+    protected final long windowNanos;
+
+    protected CoalescingStrategy(long windowNanos)
+    {
+        this.windowNanos = windowNanos;
+    }
+
+    /**
+     * @return a strategy of the given type, or null if messages should not be coalesced.
+     */
+    static CoalescingStrategy create(Config.OTCCoalescingStrategy type, int windowMicros)
+    {
+        long windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        if (windowNanos <= 0)
+            return null;
+
+        switch (type)
+        {
+            case disabled:
+                return null;
+            case fixed:
+                return new FixedCoalescingStrategy(windowNanos);
+            case movingaverage:
+                return new MovingAverageCoalescingStrategy(windowNanos);
+            default:
+                throw new AssertionError(type);
+        }
+    }
+
+    /**
+     * Records that a message, enqueued at the given System.nanoTime(), has been written.
+     */
+    abstract void newMessage(long enqueuedAtNanos);
+
+    /**
+     * @return how long to wait for more messages before flushing, in nanoseconds, at most the window.
+     */
+    abstract long waitNanos();
+
+    /**
+     * Always waits for the full window.
+     */
+    static class FixedCoalescingStrategy extends CoalescingStrategy
+    {
+        FixedCoalescingStrategy(long windowNanos)
+        {
+            super(windowNanos);
+        }
+
+        void newMessage(long enqueuedAtNanos)
+        {
+        }
+
+        long waitNanos()
+        {
+            return windowNanos;
+        }
+    }
+
+    /**
+     * Waits for about two average inter-arrival gaps, as measured over the last messages, if that fits in the
+     * window.  When messages arrive further apart than the window, waiting would only add latency and no
+     * coalescing is done.
+     */
+    static class MovingAverageCoalescingStrategy extends CoalescingStrategy
+    {
+        private static final int SAMPLES = 16;
+
+        private final long[] gaps = new long[SAMPLES];
+        private int index;
+        private long sum;
+        private long lastEnqueuedAtNanos = Long.MIN_VALUE;
+
+        MovingAverageCoalescingStrategy(long windowNanos)
+        {
+            super(windowNanos);
+            // start out pessimistic, so that a connection does not wait until it has seen some traffic
+            for (int i = 0; i < SAMPLES; i++)
+                gaps[i] = windowNanos;
+            sum = windowNanos * SAMPLES;
+        }
+
+        void newMessage(long enqueuedAtNanos)
+        {
+            if (lastEnqueuedAtNanos != Long.MIN_VALUE)
+            {
+                // messages are not necessarily written in enqueue order (retries); clamp the gap to [0, window]
+                long gap = Math.max(0, Math.min(windowNanos, enqueuedAtNanos - lastEnqueuedAtNanos));
+                sum += gap - gaps[index];
+                gaps[index] = gap;
+                index = (index + 1) % SAMPLES;
+            }
+            lastEnqueuedAtNanos = Math.max(lastEnqueuedAtNanos, enqueuedAtNanos);
+        }
+
+        long averageGapNanos()
+        {
+            return sum / SAMPLES;
+        }
+
+        long waitNanos()
+        {
+            long averageGap = averageGapNanos();
+            if (averageGap >= windowNanos)
+                return 0;
+            return Math.min(windowNanos, averageGap * 2);
+        }
+    }
+}
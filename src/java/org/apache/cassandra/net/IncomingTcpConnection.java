@@ -21,7 +21,13 @@ import java.io.*;
 import java.net.InetAddress;
 import java.net.Socket;
 import java.net.SocketException;
+import java.util.zip.Checksum;
 
+import com.google.common.annotations.VisibleForTesting;
+import net.jpountz.lz4.LZ4BlockInputStream;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.xxhash.XXHashFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xerial.snappy.SnappyInputStream;
@@ -36,14 +42,17 @@ public class IncomingTcpConnection extends Thread
 
     private final int version;
     private final boolean compressed;
+    private final boolean lz4;
     private final Socket socket;
     public InetAddress from;
 
-    public IncomingTcpConnection(int version, boolean compressed, Socket socket)
+    public IncomingTcpConnection(int version, boolean compressed, boolean lz4Offered, Socket socket)
     {
         assert socket != null;
         this.version = version;
         this.compressed = compressed;
+        // we can always decompress LZ4, regardless of what we use for our own outbound connections
+        this.lz4 = compressed && lz4Offered;
         this.socket = socket;
         if (DatabaseDescriptor.getInternodeRecvBufferSize() != null)
         {
@@ -92,17 +101,40 @@ public class IncomingTcpConnection extends Thread
         }
     }
 
+    /**
+     * @return the version to answer the handshake with, acknowledging the peer's LZ4 offer if we accept it
+     */
+    @VisibleForTesting
+    static int handshakeVersion(boolean acceptLZ4)
+    {
+        return acceptLZ4 ? MessagingService.current_version | MessagingService.LZ4_COMPRESSION_ACCEPTED
+                         : MessagingService.current_version;
+    }
+
+    @VisibleForTesting
+    static InputStream newLZ4InputStream(InputStream in)
+    {
+        LZ4FastDecompressor decompressor = LZ4Factory.fastestInstance().fastDecompressor();
+        Checksum checksum = XXHashFactory.fastestInstance().newStreamingHash32(OutboundTcpConnection.LZ4_HASH_SEED).asChecksum();
+        return new LZ4BlockInputStream(in, decompressor, checksum);
+    }
+
     private void handleModernVersion() throws IOException
     {
         DataOutputStream out = new DataOutputStream(socket.getOutputStream());
-        out.writeInt(MessagingService.current_version);
+        out.writeInt(handshakeVersion(lz4));
         out.flush();
 
         DataInputStream in = new DataInputStream(socket.getInputStream());
         int maxVersion = in.readInt();
         from = CompactEndpointSerializationHelper.deserialize(in);
 
-        if (compressed)
+        if (lz4)
+        {
+            logger.debug("Upgrading incoming connection to be compressed with LZ4");
+            in = new DataInputStream(newLZ4InputStream(socket.getInputStream()));
+        }
+        else if (compressed)
         {
             logger.debug("Upgrading incoming connection to be compressed");
             in = new DataInputStream(new SnappyInputStream(socket.getInputStream()));
@@ -46,6 +46,10 @@ public class MessageOut<T>
     public final IVersionedSerializer<T> serializer;
     public final Map<String, byte[]> parameters;
 
+    // the payload size along with the messaging version it was computed for, packed as (version << 32 | size),
+    // so that a message sent to several replicas only computes it once; -1 until first computed
+    private volatile long payloadSize = -1;
+
     // we do support messages that just consist of a verb
     public MessageOut(MessagingService.Verb verb)
     {
@@ -113,9 +117,7 @@ public class MessageOut<T>
             out.write(entry.getValue());
         }
 
-        long longSize = payload == null ? 0 : serializer.serializedSize(payload, version);
-        assert longSize <= Integer.MAX_VALUE; // larger values are supported in sstables but not messages
-        out.writeInt((int) longSize);
+        out.writeInt(payloadSize(version));
         if (payload != null)
             serializer.serialize(payload, out, version);
     }
@@ -133,10 +135,24 @@ public class MessageOut<T>
             size += entry.getValue().length;
         }
 
+        int payloadSize = payloadSize(version);
+        size += TypeSizes.NATIVE.sizeof(payloadSize);
+        size += payloadSize;
+        return size;
+    }
+
+    /**
+     * @return the serialized size of the payload for the given messaging version.
+     */
+    public int payloadSize(int version)
+    {
+        long cached = payloadSize;
+        if (cached >= 0 && (int) (cached >>> 32) == version)
+            return (int) cached;
+
         long longSize = payload == null ? 0 : serializer.serializedSize(payload, version);
         assert longSize <= Integer.MAX_VALUE; // larger values are supported in sstables but not messages
-        size += TypeSizes.NATIVE.sizeof((int) longSize);
-        size += longSize;
-        return size;
+        payloadSize = ((long) version << 32) | longSize;
+        return (int) longSize;
     }
 }
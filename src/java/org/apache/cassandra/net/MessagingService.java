@@ -78,6 +78,14 @@ public final class MessagingService implements MessagingServiceMBean
      */
     public static final int PROTOCOL_MAGIC = 0xCA552DFA;
 
+    /**
+     * Set in the connection header by nodes that would rather compress the connection with LZ4 than with Snappy.
+     * Nodes that don't know about it ignore it and expect Snappy; nodes that do acknowledge it by or'ing
+     * LZ4_COMPRESSION_ACCEPTED into the version they answer the handshake with.
+     */
+    public static final int LZ4_COMPRESSION_OFFERED = 1 << 4;
+    public static final int LZ4_COMPRESSION_ACCEPTED = 1 << 16;
+
     /* All verb handler identifiers */
     public enum Verb
     {
@@ -852,7 +860,10 @@ public final class MessagingService implements MessagingServiceMBean
 
                     Thread thread = isStream
                                   ? new IncomingStreamingConnection(version, socket)
-                                  : new IncomingTcpConnection(version, MessagingService.getBits(header, 2, 1) == 1, socket);
+                                  : new IncomingTcpConnection(version,
+                                                              MessagingService.getBits(header, 2, 1) == 1,
+                                                              (header & LZ4_COMPRESSION_OFFERED) != 0,
+                                                              socket);
                     thread.start();
                 }
                 catch (AsynchronousCloseException e)
@@ -933,6 +944,38 @@ public final class MessagingService implements MessagingServiceMBean
         return completedTasks;
     }
 
+    public Map<String, Long> getResponseDroppedTasks()
+    {
+        Map<String, Long> droppedTasks = new HashMap<String, Long>();
+        for (Map.Entry<InetAddress, OutboundTcpConnectionPool> entry : connectionManagers.entrySet())
+            droppedTasks.put(entry.getKey().getHostAddress(), entry.getValue().ackCon.getDroppedMessages());
+        return droppedTasks;
+    }
+
+    public Map<String, Integer> getLargeMessagePendingTasks()
+    {
+        Map<String, Integer> pendingTasks = new HashMap<String, Integer>();
+        for (Map.Entry<InetAddress, OutboundTcpConnectionPool> entry : connectionManagers.entrySet())
+            pendingTasks.put(entry.getKey().getHostAddress(), entry.getValue().getLargeMessagePendingMessages());
+        return pendingTasks;
+    }
+
+    public Map<String, Long> getLargeMessageCompletedTasks()
+    {
+        Map<String, Long> completedTasks = new HashMap<String, Long>();
+        for (Map.Entry<InetAddress, OutboundTcpConnectionPool> entry : connectionManagers.entrySet())
+            completedTasks.put(entry.getKey().getHostAddress(), entry.getValue().getLargeMessageCompletedMesssages());
+        return completedTasks;
+    }
+
+    public Map<String, Long> getLargeMessageDroppedTasks()
+    {
+        Map<String, Long> droppedTasks = new HashMap<String, Long>();
+        for (Map.Entry<InetAddress, OutboundTcpConnectionPool> entry : connectionManagers.entrySet())
+            droppedTasks.put(entry.getKey().getHostAddress(), entry.getValue().getLargeMessageDroppedMessages());
+        return droppedTasks;
+    }
+
     public Map<String, Integer> getDroppedMessages()
     {
         Map<String, Integer> map = new HashMap<String, Integer>();
@@ -24,7 +24,7 @@ import java.util.Map;
 
 /**
  * MBean exposing MessagingService metrics.
- * - OutboundConnectionPools - Command/Response - Pending/Completed Tasks
+ * - OutboundConnectionPools - Command/Response/Large message - Pending/Completed/Dropped Tasks
  */
 public interface MessagingServiceMBean
 {
@@ -53,6 +53,26 @@ public interface MessagingServiceMBean
      */
     public Map<String, Long> getResponseCompletedTasks();
 
+    /**
+     * Dropped tasks for Response(GOSSIP & RESPONSE) TCP Connections
+     */
+    public Map<String, Long> getResponseDroppedTasks();
+
+    /**
+     * Pending tasks for large message TCP Connections
+     */
+    public Map<String, Integer> getLargeMessagePendingTasks();
+
+    /**
+     * Completed tasks for large message TCP Connections
+     */
+    public Map<String, Long> getLargeMessageCompletedTasks();
+
+    /**
+     * Dropped tasks for large message TCP Connections
+     */
+    public Map<String, Long> getLargeMessageDroppedTasks();
+
     /**
      * dropped message counts for server lifetime
      */
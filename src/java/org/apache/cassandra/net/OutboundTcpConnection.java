@@ -21,6 +21,7 @@ import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.Socket;
 import java.net.SocketException;
@@ -32,6 +33,13 @@ import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.Checksum;
+
+import net.jpountz.lz4.LZ4BlockOutputStream;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.xxhash.XXHashFactory;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,7 +52,10 @@ import org.xerial.snappy.SnappyOutputStream;
 
 import org.apache.cassandra.config.Config;
 import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.io.util.DataOutputBuffer;
+import org.apache.cassandra.io.util.ReusableDataOutputBuffer;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.Uninterruptibles;
 
 public class OutboundTcpConnection extends Thread
@@ -58,6 +69,11 @@ public class OutboundTcpConnection extends Thread
     private static final int WAIT_FOR_VERSION_MAX_TIME = 5000;
     private static final int NO_VERSION = Integer.MIN_VALUE;
 
+    // LZ4 compressed connections are written in blocks of up to this size (flushing writes out partial blocks)
+    private static final int LZ4_BLOCK_SIZE = 1 << 14;
+    // seed of the xxhash checksum of LZ4 blocks; the same on both sides of the connection
+    static final int LZ4_HASH_SEED = 0x9747b28c;
+
     // sending thread reads from "active" (one of queue1, queue2) until it is empty.
     // then it swaps it with "backlog."
     private volatile BlockingQueue<QueuedMessage> backlog = new LinkedBlockingQueue<QueuedMessage>();
@@ -71,6 +87,12 @@ public class OutboundTcpConnection extends Thread
     private final AtomicLong dropped = new AtomicLong();
     private int targetVersion;
 
+    // null if messages to this peer are not coalesced
+    private CoalescingStrategy coalescingStrategy;
+    // messages written since the last flush, and when the first of them was enqueued
+    private int messagesSinceFlush;
+    private long batchStartNanos;
+
     public OutboundTcpConnection(OutboundTcpConnectionPool pool)
     {
         super("WRITE-" + pool.endPoint());
@@ -122,6 +144,11 @@ public class OutboundTcpConnection extends Thread
             QueuedMessage qm = active.poll();
             if (qm == null)
             {
+                // never block with written messages still sitting in the stream buffer (a coalesced flush may
+                // have been deferred in favor of messages that then expired)
+                if (messagesSinceFlush > 0 && backlog.isEmpty())
+                    flushQuietly();
+
                 // exhausted the active queue.  switch to backlog, once there's something to process there
                 try
                 {
@@ -203,8 +230,13 @@ public class OutboundTcpConnection extends Thread
             writeInternal(qm.message, qm.id, qm.timestamp);
 
             completed++;
+            if (messagesSinceFlush++ == 0)
+                batchStartNanos = qm.timestampNanos;
+            if (coalescingStrategy != null)
+                coalescingStrategy.newMessage(qm.timestampNanos);
+
             if (active.peek() == null)
-                out.flush();
+                maybeFlush();
         }
         catch (Exception e)
         {
@@ -236,7 +268,69 @@ public class OutboundTcpConnection extends Thread
         }
     }
 
+    /**
+     * Called when there is nothing left in the active queue.  Flushes right away unless coalescing is enabled,
+     * in which case we wait (without ever holding a message back longer than the strategy allows) for more
+     * messages to go out with the same flush.
+     */
+    private void maybeFlush() throws IOException
+    {
+        long coalescedNanos = 0;
+        if (coalescingStrategy != null)
+        {
+            long heldNanos = System.nanoTime() - batchStartNanos;
+            long maxHoldNanos = coalescingStrategy.waitNanos();
+            if (heldNanos < maxHoldNanos)
+            {
+                // more messages are already waiting: write them before flushing
+                if (!backlog.isEmpty())
+                    return;
+
+                long start = System.nanoTime();
+                LockSupport.parkNanos(maxHoldNanos - heldNanos);
+                coalescedNanos = System.nanoTime() - start;
+                if (!backlog.isEmpty())
+                    return;
+            }
+        }
+
+        out.flush();
+        poolReference.updateFlushMetrics(messagesSinceFlush, coalescedNanos);
+        messagesSinceFlush = 0;
+    }
+
+    private void flushQuietly()
+    {
+        try
+        {
+            if (out != null)
+                out.flush();
+        }
+        catch (IOException e)
+        {
+            if (logger.isDebugEnabled())
+                logger.debug("error flushing to " + poolReference.endPoint(), e);
+            disconnect();
+        }
+        messagesSinceFlush = 0;
+    }
+
     private void writeInternal(MessageOut message, int id, long timestamp) throws IOException
+    {
+        if (message.payloadSize(targetVersion) > ReusableDataOutputBuffer.MAX_RECYCLED_CAPACITY)
+        {
+            writeMessage(out, message, id, timestamp, targetVersion);
+            return;
+        }
+
+        // serialize into this thread's buffer and hand the whole message to the socket stream in one write,
+        // rather than pushing each field through the (synchronized) buffered stream
+        DataOutputBuffer buffer = ReusableDataOutputBuffer.get();
+        writeMessage(buffer, message, id, timestamp, targetVersion);
+        out.write(buffer.getData(), 0, buffer.getLength());
+    }
+
+    private static void writeMessage(DataOutputStream out, MessageOut message, int id, long timestamp, int targetVersion) throws IOException
     {
         out.writeInt(MessagingService.PROTOCOL_MAGIC);
 
@@ -251,21 +345,52 @@ public class OutboundTcpConnection extends Thread
         message.serialize(out, targetVersion);
     }
 
-    private static void writeHeader(DataOutputStream out, int version, boolean compressionEnabled) throws IOException
+    @VisibleForTesting
+    static void writeHeader(DataOutputStream out, int version, boolean compressionEnabled, boolean offerLZ4) throws IOException
     {
         // 2 bits: unused.  used to be "serializer type," which was always Binary
         // 1 bit: compression
         // 1 bit: streaming mode
-        // 3 bits: unused
+        // 1 bit: LZ4 compression offered (see MessagingService.LZ4_COMPRESSION_OFFERED)
+        // 2 bits: unused
         // 8 bits: version
         // 15 bits: unused
         int header = 0;
         if (compressionEnabled)
             header |= 4;
+        if (offerLZ4)
+            header |= MessagingService.LZ4_COMPRESSION_OFFERED;
         header |= (version << 8);
         out.writeInt(header);
     }
 
+    /**
+     * @return true if the peer answered the handshake with a version acknowledging our LZ4 offer
+     */
+    @VisibleForTesting
+    static boolean isLZ4Accepted(int handshakeVersion)
+    {
+        return handshakeVersion != NO_VERSION && (handshakeVersion & MessagingService.LZ4_COMPRESSION_ACCEPTED) != 0;
+    }
+
+    /**
+     * @return the max version the peer answered the handshake with, without the LZ4 acknowledgement
+     */
+    @VisibleForTesting
+    static int maxVersionOf(int handshakeVersion)
+    {
+        return isLZ4Accepted(handshakeVersion) ? handshakeVersion & ~MessagingService.LZ4_COMPRESSION_ACCEPTED : handshakeVersion;
+    }
+
+    @VisibleForTesting
+    static OutputStream newLZ4OutputStream(OutputStream out)
+    {
+        LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+        Checksum checksum = XXHashFactory.fastestInstance().newStreamingHash32(LZ4_HASH_SEED).asChecksum();
+        // sync flush, so that flushing the connection sends out the messages of a partial block
+        return new LZ4BlockOutputStream(out, LZ4_BLOCK_SIZE, compressor, checksum, true);
+    }
+
     private void disconnect()
     {
         if (socket != null)
@@ -318,13 +443,23 @@ public class OutboundTcpConnection extends Thread
                     }
                 }
                 out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 4096));
-
+                coalescingStrategy = CoalescingStrategy.create(DatabaseDescriptor.getOTCCoalescingStrategy(),
+                                                               isLocalDC(poolReference.endPoint())
+                                                               ? DatabaseDescriptor.getOTCCoalescingWindow()
+                                                               : DatabaseDescriptor.getInterDCOTCCoalescingWindow());
+                messagesSinceFlush = 0;
+
+                boolean compress = shouldCompressConnection();
+                boolean offerLZ4 = compress && DatabaseDescriptor.internodeCompressor() == Config.InternodeCompressor.lz4;
                 out.writeInt(MessagingService.PROTOCOL_MAGIC);
-                writeHeader(out, targetVersion, shouldCompressConnection());
+                writeHeader(out, targetVersion, compress, offerLZ4);
                 out.flush();
 
                 DataInputStream in = new DataInputStream(socket.getInputStream());
-                int maxTargetVersion = handshakeVersion(in);
+                int handshakeVersion = handshakeVersion(in);
+                // peers that don't know about LZ4 ignore our offer, and expect Snappy
+                boolean useLZ4 = offerLZ4 && isLZ4Accepted(handshakeVersion);
+                int maxTargetVersion = maxVersionOf(handshakeVersion);
                 if (maxTargetVersion == NO_VERSION)
                 {
                     // no version is returned, so disconnect an try again: we will either get
@@ -352,7 +487,13 @@ public class OutboundTcpConnection extends Thread
 
                 out.writeInt(MessagingService.current_version);
                 CompactEndpointSerializationHelper.serialize(FBUtilities.getBroadcastAddress(), out);
-                if (shouldCompressConnection())
+                if (useLZ4)
+                {
+                    out.flush();
+                    logger.trace("Upgrading OutputStream to be compressed with LZ4");
+                    out = new DataOutputStream(newLZ4OutputStream(socket.getOutputStream()));
+                }
+                else if (compress)
                 {
                     out.flush();
                     logger.trace("Upgrading OutputStream to be compressed");
@@ -442,12 +583,14 @@ public class OutboundTcpConnection extends Thread
         final MessageOut<?> message;
         final int id;
         final long timestamp;
+        final long timestampNanos;
 
         QueuedMessage(MessageOut<?> message, int id)
         {
             this.message = message;
             this.id = id;
             this.timestamp = System.currentTimeMillis();
+            this.timestampNanos = System.nanoTime();
         }
 
         boolean shouldRetry()
@@ -22,6 +22,10 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.annotations.VisibleForTesting;
 
 import org.apache.cassandra.concurrent.Stage;
 import org.apache.cassandra.config.Config;
@@ -38,6 +42,10 @@ public class OutboundTcpConnectionPool
     private final InetAddress id;
     public final OutboundTcpConnection cmdCon;
     public final OutboundTcpConnection ackCon;
+    // connections reserved for large messages, so that those don't hold up small, latency-sensitive ones
+    public final OutboundTcpConnection[] largeMessageCons;
+    private final OutboundTcpConnection[] allCons;
+    private final AtomicInteger nextLargeMessageCon = new AtomicInteger();
     // pointer to the reseted Address.
     private InetAddress resetedEndpoint;
     private ConnectionMetrics metrics;
@@ -48,34 +56,72 @@ public class OutboundTcpConnectionPool
         resetedEndpoint = SystemKeyspace.getPreferredIP(remoteEp);
 
         cmdCon = new OutboundTcpConnection(this);
-        cmdCon.start();
         ackCon = new OutboundTcpConnection(this);
-        ackCon.start();
+        largeMessageCons = new OutboundTcpConnection[DatabaseDescriptor.getInternodeLargeMessageConnections()];
+        for (int i = 0; i < largeMessageCons.length; i++)
+            largeMessageCons[i] = new OutboundTcpConnection(this);
+
+        allCons = new OutboundTcpConnection[2 + largeMessageCons.length];
+        allCons[0] = cmdCon;
+        allCons[1] = ackCon;
+        System.arraycopy(largeMessageCons, 0, allCons, 2, largeMessageCons.length);
 
+        // the metrics read the connections, and the connection threads report to the metrics as soon as they start
         metrics = new ConnectionMetrics(id, this);
+        for (OutboundTcpConnection conn : allCons)
+            conn.start();
     }
 
     /**
-     * returns the appropriate connection based on message type.
+     * returns the appropriate connection based on message type and size.
      * returns null if a connection could not be established.
      */
     OutboundTcpConnection getConnection(MessageOut msg)
     {
         Stage stage = msg.getStage();
-        return stage == Stage.REQUEST_RESPONSE || stage == Stage.INTERNAL_RESPONSE || stage == Stage.GOSSIP
-               ? ackCon
-               : cmdCon;
+        boolean isLarge = stage != Stage.GOSSIP
+                          && largeMessageCons.length > 0
+                          && isLargeMessage(msg, MessagingService.instance().getVersion(id), DatabaseDescriptor.getInternodeLargeMessageThreshold());
+        int next = isLarge ? nextLargeMessageCon.getAndIncrement() : 0;
+        return allCons[connectionIndex(stage, isLarge, largeMessageCons.length, next)];
+    }
+
+    /**
+     * @param next a counter used to spread large messages over the large message connections
+     * @return the index in allCons of the connection to use: 0 for commands, 1 for acks and gossip,
+     * and 2 and above for large messages
+     */
+    @VisibleForTesting
+    static int connectionIndex(Stage stage, boolean isLarge, int largeMessageConnections, int next)
+    {
+        // gossip is never held up behind anything else
+        if (stage == Stage.GOSSIP)
+            return 1;
+
+        if (largeMessageConnections > 0 && isLarge)
+            return 2 + (next & Integer.MAX_VALUE) % largeMessageConnections;
+
+        return stage == Stage.REQUEST_RESPONSE || stage == Stage.INTERNAL_RESPONSE ? 1 : 0;
+    }
+
+    @VisibleForTesting
+    static boolean isLargeMessage(MessageOut msg, int version, int threshold)
+    {
+        if (msg.verb == MessagingService.Verb.REPAIR_MESSAGE)
+            return true;
+        // the size is cached by the message, so the connection will not compute it again when writing it
+        return msg.payloadSize(version) >= threshold;
     }
 
     void reset()
     {
-        for (OutboundTcpConnection conn : new OutboundTcpConnection[] { cmdCon, ackCon })
+        for (OutboundTcpConnection conn : allCons)
             conn.closeSocket(false);
     }
 
     public void resetToNewerVersion(int version)
     {
-        for (OutboundTcpConnection conn : new OutboundTcpConnection[] { cmdCon, ackCon })
+        for (OutboundTcpConnection conn : allCons)
         {
             if (version > conn.getTargetVersion())
                 conn.softCloseSocket();
@@ -91,7 +137,7 @@ public class OutboundTcpConnectionPool
     {
         SystemKeyspace.updatePreferredIP(id, remoteEP);
         resetedEndpoint = remoteEP;
-        for (OutboundTcpConnection conn : new OutboundTcpConnection[] { cmdCon, ackCon })
+        for (OutboundTcpConnection conn : allCons)
             conn.softCloseSocket();
 
         // release previous metrics and create new one with reset address
@@ -114,6 +160,36 @@ public class OutboundTcpConnectionPool
         metrics.timeouts.mark();
     }
 
+    public int getLargeMessagePendingMessages()
+    {
+        int pending = 0;
+        for (OutboundTcpConnection conn : largeMessageCons)
+            pending += conn.getPendingMessages();
+        return pending;
+    }
+
+    public long getLargeMessageCompletedMesssages()
+    {
+        long completed = 0;
+        for (OutboundTcpConnection conn : largeMessageCons)
+            completed += conn.getCompletedMesssages();
+        return completed;
+    }
+
+    public long getLargeMessageDroppedMessages()
+    {
+        long dropped = 0;
+        for (OutboundTcpConnection conn : largeMessageCons)
+            dropped += conn.getDroppedMessages();
+        return dropped;
+    }
+
+    void updateFlushMetrics(int messages, long coalescedNanos)
+    {
+        metrics.messagesPerFlush.update(messages);
+        metrics.coalescingDelay.update(TimeUnit.NANOSECONDS.toMicros(coalescedNanos));
+    }
+
     public Socket newSocket() throws IOException
     {
         return newSocket(endPoint());
@@ -175,6 +251,11 @@ public class OutboundTcpConnectionPool
             ackCon.closeSocket(true);
         if (cmdCon != null)
             cmdCon.closeSocket(true);
+        if (largeMessageCons != null)
+        {
+            for (OutboundTcpConnection conn : largeMessageCons)
+                conn.closeSocket(true);
+        }
         metrics.release();
     }
 }
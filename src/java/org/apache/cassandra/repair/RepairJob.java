@@ -20,6 +20,7 @@ package org.apache.cassandra.repair;
 import java.net.InetAddress;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
@@ -30,6 +31,7 @@ import org.slf4j.LoggerFactory;
 
 import org.apache.cassandra.concurrent.Stage;
 import org.apache.cassandra.concurrent.StageManager;
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.SnapshotCommand;
 import org.apache.cassandra.db.Keyspace;
 import org.apache.cassandra.dht.Range;
@@ -37,6 +39,7 @@ import org.apache.cassandra.dht.Token;
 import org.apache.cassandra.net.IAsyncCallback;
 import org.apache.cassandra.net.MessageIn;
 import org.apache.cassandra.net.MessagingService;
+import org.apache.cassandra.repair.messages.MarkRepairedRequest;
 import org.apache.cassandra.repair.messages.ValidationRequest;
 import org.apache.cassandra.utils.FBUtilities;
 import org.apache.cassandra.utils.MerkleTree;
@@ -51,6 +54,7 @@ public class RepairJob
 
     public final RepairJobDesc desc;
     private final boolean isSequential;
+    private final boolean isIncremental;
     // first we send tree requests. this tracks the endpoints remaining to hear from
     private final RequestCoordinator<InetAddress> treeRequests;
     // tree responses are then tracked here
@@ -61,21 +65,27 @@ public class RepairJob
     private final Condition requestsSent = new SimpleCondition();
     private CountDownLatch snapshotLatch = null;
     private int gcBefore = -1;
+    // when the trees were requested; recorded as the repair time of the validated sstables
+    private volatile long repairedAt;
+    // the validation round trees are requested for, and the parts of the range to validate in that round
+    private int round = 1;
+    private volatile List<Range<Token>> subRanges = Collections.emptyList();
 
     private volatile boolean failed = false;
 
     /**
      * Create repair job to run on specific columnfamily
      */
-    public RepairJob(UUID sessionId, String keyspace, String columnFamily, Range<Token> range, boolean isSequential)
+    public RepairJob(UUID sessionId, String keyspace, String columnFamily, Range<Token> range, boolean isSequential, boolean isIncremental)
     {
         this.desc = new RepairJobDesc(sessionId, keyspace, columnFamily, range);
         this.isSequential = isSequential;
+        this.isIncremental = isIncremental;
         this.treeRequests = new RequestCoordinator<InetAddress>(isSequential)
         {
             public void send(InetAddress endpoint)
             {
-                ValidationRequest request = new ValidationRequest(desc, gcBefore);
+                ValidationRequest request = new ValidationRequest(desc, gcBefore, RepairJob.this.isIncremental, subRanges);
                 MessagingService.instance().sendOneWay(request.createMessage(), endpoint);
             }
         };
@@ -108,7 +118,8 @@ public class RepairJob
         if (isSequential)
             makeSnapshots(endpoints);
 
-        this.gcBefore = Keyspace.open(desc.keyspace).getColumnFamilyStore(desc.columnFamily).gcBefore(System.currentTimeMillis());
+        this.repairedAt = System.currentTimeMillis();
+        this.gcBefore = Keyspace.open(desc.keyspace).getColumnFamilyStore(desc.columnFamily).gcBefore(repairedAt);
 
         for (InetAddress endpoint : allEndpoints)
             treeRequests.add(endpoint);
@@ -175,6 +186,59 @@ public class RepairJob
         return treeRequests.completed(endpoint);
     }
 
+    /**
+     * Once all trees are received, checks whether the trees disagree on ranges that hold more than a partition.
+     * Streaming such a range would transfer all of its partitions even if only one of them differs, so unless
+     * max_repair_validation_rounds is reached, finer trees of the mismatching ranges (and of them only) are
+     * requested from every involved node instead.
+     * All tree *must* have been received before this is called.
+     *
+     * @return true if finer trees were requested, in which case the job waits for them before differencing
+     */
+    public synchronized boolean requestFinerTrees(Collection<InetAddress> endpoints)
+    {
+        assert !failed;
+        if (round >= DatabaseDescriptor.getMaxRepairValidationRounds())
+            return false;
+
+        List<Range<Token>> mismatching = new ArrayList<>();
+        boolean isWorthRefining = false;
+        for (int i = 0; i < trees.size() - 1; ++i)
+        {
+            for (int j = i + 1; j < trees.size(); ++j)
+            {
+                for (MerkleTree.TreeRange range : MerkleTree.difference(trees.get(i).tree, trees.get(j).tree))
+                {
+                    MerkleTree.TreeDifference difference = (MerkleTree.TreeDifference) range;
+                    isWorthRefining |= Math.max(difference.rowsOnLeft(), difference.rowsOnRight()) > 1;
+                    mismatching.add(new Range<>(difference.left, difference.right));
+                }
+            }
+        }
+
+        // with as many ranges to refine as a tree has leaves, finer trees would not be any finer
+        if (!isWorthRefining || mismatching.size() > Validator.MAX_TREE_SIZE / 2)
+            return false;
+
+        // ranges found by different pairs of trees may overlap
+        subRanges = Range.normalize(mismatching);
+        round++;
+        trees.clear();
+
+        if (isSequential)
+            makeSnapshots(endpoints);
+
+        List<InetAddress> allEndpoints = new ArrayList<>(endpoints);
+        allEndpoints.add(FBUtilities.getBroadcastAddress());
+        for (InetAddress endpoint : allEndpoints)
+            treeRequests.add(endpoint);
+
+        logger.info(String.format("[repair #%s] requesting finer merkle trees of %d mismatching range(s) for %s (round %d, to %s)",
+                                  desc.sessionId, subRanges.size(), desc.columnFamily, round, allEndpoints));
+        treeRequests.start();
+        return true;
+    }
+
     /**
      * Submit differencers for running.
      * All tree *must* have been received before this is called.
@@ -210,6 +274,20 @@ public class RepairJob
         return differencers.completed(completed) == 0;
     }
 
+    /**
+     * Ask every involved node, including this one, to mark the sstables it validated for this job as repaired.
+     * Only called for incremental jobs, once all differences are synced.
+     */
+    public void sendMarkRepairedRequests(Collection<InetAddress> endpoints)
+    {
+        List<InetAddress> allEndpoints = new ArrayList<>(endpoints);
+        allEndpoints.add(FBUtilities.getBroadcastAddress());
+
+        logger.info(String.format("[repair #%s] marking validated sstables of %s as repaired (on %s)", desc.sessionId, desc.columnFamily, allEndpoints));
+        for (InetAddress endpoint : allEndpoints)
+            MessagingService.instance().sendOneWay(new MarkRepairedRequest(desc, repairedAt).createMessage(), endpoint);
+    }
+
     /**
      * terminate this job.
      */
@@ -22,6 +22,7 @@ import org.apache.cassandra.db.Keyspace;
 import org.apache.cassandra.db.compaction.CompactionManager;
 import org.apache.cassandra.net.IVerbHandler;
 import org.apache.cassandra.net.MessageIn;
+import org.apache.cassandra.repair.messages.MarkRepairedRequest;
 import org.apache.cassandra.repair.messages.RepairMessage;
 import org.apache.cassandra.repair.messages.SyncRequest;
 import org.apache.cassandra.repair.messages.ValidationRequest;
@@ -41,13 +42,24 @@ public class RepairMessageVerbHandler implements IVerbHandler<RepairMessage>
         switch (message.payload.messageType)
         {
             case VALIDATION_REQUEST:
+            case INCREMENTAL_VALIDATION_REQUEST:
+            case REFINED_VALIDATION_REQUEST:
                 ValidationRequest validationRequest = (ValidationRequest) message.payload;
                 // trigger read-only compaction
                 ColumnFamilyStore store = Keyspace.open(desc.keyspace).getColumnFamilyStore(desc.columnFamily);
-                Validator validator = new Validator(desc, message.from, validationRequest.gcBefore);
+                Validator validator = new Validator(desc,
+                                                    message.from,
+                                                    validationRequest.gcBefore,
+                                                    validationRequest.isIncremental,
+                                                    validationRequest.subRanges);
                 CompactionManager.instance.submitValidation(store, validator);
                 break;
 
+            case MARK_REPAIRED_REQUEST:
+                MarkRepairedRequest markRequest = (MarkRepairedRequest) message.payload;
+                ActiveRepairService.instance.markRepaired(desc, markRequest.repairedAt);
+                break;
+
             case SYNC_REQUEST:
                 // forwarded sync request
                 SyncRequest request = (SyncRequest) message.payload;
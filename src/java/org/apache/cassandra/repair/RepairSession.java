@@ -78,6 +78,8 @@ public class RepairSession extends WrappedRunnable implements IEndpointStateChan
     public final String keyspace;
     private final String[] cfnames;
     public final boolean isSequential;
+    /** true if only unrepaired sstables are validated, and marked repaired once synced */
+    public final boolean isIncremental;
     /** Range to repair */
     public final Range<Token> range;
     public final Set<InetAddress> endpoints;
@@ -103,17 +105,19 @@ public class RepairSession extends WrappedRunnable implements IEndpointStateChan
      * @param keyspace name of keyspace
      * @param isSequential true if performing repair on snapshots sequentially
      * @param dataCenters the data centers that should be part of the repair; null for all DCs
+     * @param isIncremental true to only repair the data that no previous incremental repair covered
      * @param cfnames names of columnfamilies
      */
-    public RepairSession(Range<Token> range, String keyspace, boolean isSequential, Collection<String> dataCenters, String... cfnames)
+    public RepairSession(Range<Token> range, String keyspace, boolean isSequential, Collection<String> dataCenters, boolean isIncremental, String... cfnames)
     {
-        this(UUIDGen.getTimeUUID(), range, keyspace, isSequential, dataCenters, cfnames);
+        this(UUIDGen.getTimeUUID(), range, keyspace, isSequential, dataCenters, isIncremental, cfnames);
     }
 
-    public RepairSession(UUID id, Range<Token> range, String keyspace, boolean isSequential, Collection<String> dataCenters, String[] cfnames)
+    public RepairSession(UUID id, Range<Token> range, String keyspace, boolean isSequential, Collection<String> dataCenters, boolean isIncremental, String[] cfnames)
     {
         this.id = id;
         this.isSequential = isSequential;
+        this.isIncremental = isIncremental;
         this.keyspace = keyspace;
         this.cfnames = cfnames;
         assert cfnames.length > 0 : "Repairing no column families seems pointless, doesn't it";
@@ -162,6 +166,10 @@ public class RepairSession extends WrappedRunnable implements IEndpointStateChan
             logger.debug("All response received for " + getId() + "/" + desc.columnFamily);
             if (!job.isFailed())
             {
+                // the job stays first in line until it got the trees it is differenced with
+                if (job.requestFinerTrees(endpoints))
+                    return;
+
                 syncingJobs.put(job.desc.columnFamily, job);
                 job.submitDifferencers();
             }
@@ -209,9 +217,15 @@ public class RepairSession extends WrappedRunnable implements IEndpointStateChan
             RepairJob completedJob = syncingJobs.remove(job.desc.columnFamily);
             String remaining = syncingJobs.size() == 0 ? "" : String.format(" (%d remaining column family to sync for this session)", syncingJobs.size());
             if (completedJob != null && completedJob.isFailed())
+            {
                 logger.warn(String.format("[repair #%s] %s sync failed%s", getId(), desc.columnFamily, remaining));
+            }
             else
+            {
                 logger.info(String.format("[repair #%s] %s is fully synced%s", getId(), desc.columnFamily, remaining));
+                if (isIncremental)
+                    job.sendMarkRepairedRequests(endpoints);
+            }
 
             if (jobs.isEmpty() && syncingJobs.isEmpty())
             {
@@ -260,7 +274,7 @@ public class RepairSession extends WrappedRunnable implements IEndpointStateChan
             // Create and queue a RepairJob for each column family
             for (String cfname : cfnames)
             {
-                RepairJob job = new RepairJob(id, keyspace, cfname, range, isSequential);
+                RepairJob job = new RepairJob(id, keyspace, cfname, range, isSequential, isIncremental);
                 jobs.offer(job);
             }
 
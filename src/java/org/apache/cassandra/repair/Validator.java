@@ -20,6 +20,8 @@ package org.apache.cassandra.repair;
 import java.net.InetAddress;
 import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 
@@ -33,6 +35,9 @@ import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.ColumnFamilyStore;
 import org.apache.cassandra.db.DecoratedKey;
 import org.apache.cassandra.db.compaction.AbstractCompactedRow;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.io.sstable.SSTableReader;
 import org.apache.cassandra.net.MessagingService;
 import org.apache.cassandra.repair.messages.ValidationComplete;
 import org.apache.cassandra.utils.FBUtilities;
@@ -50,10 +55,19 @@ public class Validator implements Runnable
 {
     private static final Logger logger = LoggerFactory.getLogger(Validator.class);
 
+    /** the maximum number of ranges of the trees built by default */
+    public static final int MAX_TREE_SIZE = (int)Math.pow(2, 15);
+    /** the number of ranges trees are never limited below, whatever the estimated partition count */
+    public static final int MIN_TREE_SIZE = MAX_TREE_SIZE / 16;
+
     public final RepairJobDesc desc;
     public final InetAddress initiator;
     public final MerkleTree tree;
     public final int gcBefore;
+    /** true if only the sstables that are not repaired yet should be validated */
+    public final boolean isIncremental;
+    /** the parts of the range to validate with a finer tree, or an empty list to validate the whole range */
+    public final List<Range<Token>> subRanges;
 
     // null when all rows with the min token have been consumed
     private transient long validated;
@@ -65,29 +79,90 @@ public class Validator implements Runnable
      * Create Validator with default size of initial Merkle Tree.
      */
     public Validator(RepairJobDesc desc, InetAddress initiator, int gcBefore)
+    {
+        this(desc, initiator, gcBefore, false);
+    }
+
+    public Validator(RepairJobDesc desc, InetAddress initiator, int gcBefore, boolean isIncremental)
+    {
+        this(desc, initiator, gcBefore, isIncremental, Collections.<Range<Token>>emptyList());
+    }
+
+    public Validator(RepairJobDesc desc, InetAddress initiator, int gcBefore, boolean isIncremental, List<Range<Token>> subRanges)
     {
         this(desc,
              initiator,
              // TODO: memory usage (maxsize) should either be tunable per
              // CF, globally, or as shared for all CFs in a cluster
-             new MerkleTree(DatabaseDescriptor.getPartitioner(), desc.range, MerkleTree.RECOMMENDED_DEPTH, (int)Math.pow(2, 15)),
-             gcBefore);
+             new MerkleTree(DatabaseDescriptor.getPartitioner(), desc.range, MerkleTree.RECOMMENDED_DEPTH, MAX_TREE_SIZE),
+             gcBefore,
+             isIncremental,
+             subRanges);
     }
 
     public Validator(RepairJobDesc desc, InetAddress initiator, MerkleTree tree, int gcBefore)
+    {
+        this(desc, initiator, tree, gcBefore, false);
+    }
+
+    public Validator(RepairJobDesc desc, InetAddress initiator, MerkleTree tree, int gcBefore, boolean isIncremental)
+    {
+        this(desc, initiator, tree, gcBefore, isIncremental, Collections.<Range<Token>>emptyList());
+    }
+
+    public Validator(RepairJobDesc desc, InetAddress initiator, MerkleTree tree, int gcBefore, boolean isIncremental, List<Range<Token>> subRanges)
     {
         this.desc = desc;
         this.initiator = initiator;
         this.tree = tree;
         this.gcBefore = gcBefore;
+        this.isIncremental = isIncremental;
+        this.subRanges = subRanges;
         validated = 0;
         range = null;
         ranges = null;
     }
 
+    /**
+     * Lowers the maximum size of the tree to the number of partitions the given sstables are estimated to hold
+     * in the validated range.  Leaves that cover less than a partition do not make the differences any more
+     * precise, but they do cost memory here and on the repair coordinator, which holds a tree per replica.
+     * The tree is never limited below MIN_TREE_SIZE ranges: the estimate is made from the index summary samples,
+     * which can badly under-estimate small ranges, and a tree that is too coarse over-streams.
+     * Must be called before prepare().
+     */
+    public void limitTreeSize(Collection<SSTableReader> sstables)
+    {
+        // summed over sstables, which over-counts overlapping partitions, but sparse (or downsampled) summaries
+        // can miss the partitions of a small range altogether
+        long estimatedPartitions = 0;
+        for (SSTableReader sstable : sstables)
+            estimatedPartitions += sstable.estimatedKeysForRanges(ranges());
+
+        long limit = Math.max(MIN_TREE_SIZE, estimatedPartitions);
+        if (limit < tree.maxsize())
+        {
+            tree.maxsize(limit);
+            logger.debug("Limited tree for {} to {} ranges ({} partitions estimated)", desc, tree.maxsize(), estimatedPartitions);
+        }
+    }
+
+    /**
+     * @return the ranges whose rows are to be added to the tree
+     */
+    public List<Range<Token>> ranges()
+    {
+        return subRanges.isEmpty() ? Collections.singletonList(desc.range) : subRanges;
+    }
+
     public void prepare(ColumnFamilyStore cfs)
     {
-        if (!tree.partitioner().preservesOrder())
+        if (!subRanges.isEmpty())
+        {
+            // the rest of the range was found consistent already, its (empty) hashes will match on all replicas
+            tree.init(subRanges);
+        }
+        else if (!tree.partitioner().preservesOrder())
         {
             // You can't beat an even tree distribution for md5
             tree.init();
@@ -131,16 +206,28 @@ public class Validator implements Runnable
      */
     public void add(AbstractCompactedRow row)
     {
-        assert desc.range.contains(row.key.token) : row.key.token + " is not contained in " + desc.range;
-        assert lastKey == null || lastKey.compareTo(row.key) < 0
-               : "row " + row.key + " received out of order wrt " + lastKey;
-        lastKey = row.key;
+        add(row.key, hash(row));
+    }
+
+    /**
+     * Like add(row), for a row whose hash was computed when it was written.
+     *
+     * @param key the row key
+     * @param hash the hash of the row, as computed by hash()
+     */
+    public void add(DecoratedKey key, MerkleTree.RowHash hash)
+    {
+        assert desc.range.contains(key.token) : key.token + " is not contained in " + desc.range;
+        assert lastKey == null || lastKey.compareTo(key) < 0
+               : "row " + key + " received out of order wrt " + lastKey;
+        lastKey = key;
+        validated++;
 
         if (range == null)
             range = ranges.next();
 
         // generate new ranges as long as case 1 is true
-        while (!range.contains(row.key.token))
+        while (!range.contains(key.token))
         {
             // add the empty hash, and move to the next range
             range.ensureHashInitialised();
@@ -148,7 +235,7 @@ public class Validator implements Runnable
         }
 
         // case 3 must be true: mix in the hashed row
-        range.addHash(rowHash(row));
+        range.addHash(hash);
     }
 
     static class CountingDigest extends MessageDigest
@@ -190,9 +277,11 @@ public class Validator implements Runnable
 
     }
 
-    private MerkleTree.RowHash rowHash(AbstractCompactedRow row)
+    /**
+     * @return the hash a row contributes to the merkle tree
+     */
+    public static MerkleTree.RowHash hash(AbstractCompactedRow row)
     {
-        validated++;
         // MerkleTree uses XOR internally, so we want lots of output bits here
         CountingDigest digest = new CountingDigest(FBUtilities.newMessageDigest("SHA-256"));
         row.update(digest);
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.repair.messages;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.cassandra.db.TypeSizes;
+import org.apache.cassandra.repair.RepairJobDesc;
+
+/**
+ * Sent by the coordinator of an incremental repair to every replica once a column family is fully synced,
+ * so that they mark the sstables they validated for it as repaired.
+ */
+public class MarkRepairedRequest extends RepairMessage
+{
+    public static final MessageSerializer<MarkRepairedRequest> serializer = new MarkRepairedRequestSerializer();
+
+    /** the time validation was requested at, recorded as the repair time of the sstables */
+    public final long repairedAt;
+
+    public MarkRepairedRequest(RepairJobDesc desc, long repairedAt)
+    {
+        super(Type.MARK_REPAIRED_REQUEST, desc);
+        this.repairedAt = repairedAt;
+    }
+
+    private static class MarkRepairedRequestSerializer implements MessageSerializer<MarkRepairedRequest>
+    {
+        public void serialize(MarkRepairedRequest message, DataOutput out, int version) throws IOException
+        {
+            RepairJobDesc.serializer.serialize(message.desc, out, version);
+            out.writeLong(message.repairedAt);
+        }
+
+        public MarkRepairedRequest deserialize(DataInput in, int version) throws IOException
+        {
+            RepairJobDesc desc = RepairJobDesc.serializer.deserialize(in, version);
+            return new MarkRepairedRequest(desc, in.readLong());
+        }
+
+        public long serializedSize(MarkRepairedRequest message, int version)
+        {
+            long size = RepairJobDesc.serializer.serializedSize(message.desc, version);
+            size += TypeSizes.NATIVE.sizeof(message.repairedAt);
+            return size;
+        }
+    }
+}
@@ -42,17 +42,30 @@ public abstract class RepairMessage
         VALIDATION_REQUEST(0, ValidationRequest.serializer),
         VALIDATION_COMPLETE(1, ValidationComplete.serializer),
         SYNC_REQUEST(2, SyncRequest.serializer),
-        SYNC_COMPLETE(3, SyncComplete.serializer);
+        SYNC_COMPLETE(3, SyncComplete.serializer),
+        INCREMENTAL_VALIDATION_REQUEST(4, ValidationRequest.incrementalSerializer),
+        MARK_REPAIRED_REQUEST(5, MarkRepairedRequest.serializer),
+        REFINED_VALIDATION_REQUEST(6, ValidationRequest.refinedSerializer);
 
         private final byte type;
-        private final MessageSerializer<RepairMessage> serializer;
+        private final MessageSerializer<? extends RepairMessage> serializer;
 
-        private Type(int type, MessageSerializer<RepairMessage> serializer)
+        private Type(int type, MessageSerializer<? extends RepairMessage> serializer)
         {
             this.type = (byte) type;
             this.serializer = serializer;
         }
 
+        /**
+         * @return the serializer of this type, for messages of this type: a message's type is set by its own
+         * constructor, so the serializer always matches the message's class
+         */
+        @SuppressWarnings("unchecked")
+        private MessageSerializer<RepairMessage> serializer()
+        {
+            return (MessageSerializer<RepairMessage>) serializer;
+        }
+
         public static Type fromByte(byte b)
         {
             for (Type t : values())
@@ -83,7 +96,7 @@ public abstract class RepairMessage
         public void serialize(RepairMessage message, DataOutput out, int version) throws IOException
         {
             out.write(message.messageType.type);
-            message.messageType.serializer.serialize(message, out, version);
+            message.messageType.serializer().serialize(message, out, version);
         }
 
         public RepairMessage deserialize(DataInput in, int version) throws IOException
@@ -95,7 +108,7 @@ public abstract class RepairMessage
         public long serializedSize(RepairMessage message, int version)
         {
             long size = 1; // for messageType byte
-            size += message.messageType.serializer.serializedSize(message, version);
+            size += message.messageType.serializer().serializedSize(message, version);
             return size;
         }
     }
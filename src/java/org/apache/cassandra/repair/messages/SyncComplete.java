@@ -32,7 +32,7 @@ import org.apache.cassandra.repair.RepairJobDesc;
  */
 public class SyncComplete extends RepairMessage
 {
-    public static final MessageSerializer serializer = new SyncCompleteSerializer();
+    public static final MessageSerializer<SyncComplete> serializer = new SyncCompleteSerializer();
 
     /** nodes that involved in this sync */
     public final NodePair nodes;
@@ -40,7 +40,7 @@ import org.apache.cassandra.repair.RepairJobDesc;
  */
 public class SyncRequest extends RepairMessage
 {
-    public static MessageSerializer serializer = new SyncRequestSerializer();
+    public static MessageSerializer<SyncRequest> serializer = new SyncRequestSerializer();
 
     public final InetAddress initiator;
     public final InetAddress src;
@@ -32,7 +32,7 @@ import org.apache.cassandra.utils.MerkleTree;
  */
 public class ValidationComplete extends RepairMessage
 {
-    public static MessageSerializer serializer = new ValidationCompleteSerializer();
+    public static MessageSerializer<ValidationComplete> serializer = new ValidationCompleteSerializer();
 
     /** true if validation success, false otherwise */
     public final boolean success;
@@ -20,25 +20,55 @@ package org.apache.cassandra.repair.messages;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import org.apache.cassandra.db.TypeSizes;
+import org.apache.cassandra.dht.AbstractBounds;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
 import org.apache.cassandra.repair.RepairJobDesc;
 
 /**
  * ValidationRequest
  *
+ * Incremental validation requests, and requests for finer trees of only some parts of the range, are sent as
+ * message types of their own, so that nodes that don't know about them only fail to parse those.
+ *
  * @since 2.0
  */
 public class ValidationRequest extends RepairMessage
 {
-    public static MessageSerializer serializer = new ValidationRequestSerializer();
+    public static MessageSerializer<ValidationRequest> serializer = new ValidationRequestSerializer(false);
+    public static MessageSerializer<ValidationRequest> incrementalSerializer = new ValidationRequestSerializer(true);
+    public static MessageSerializer<ValidationRequest> refinedSerializer = new RefinedValidationRequestSerializer();
 
     public final int gcBefore;
+    /** true if only the sstables that are not repaired yet should be validated */
+    public final boolean isIncremental;
+    /** the parts of the range to validate with a finer tree, or an empty list to validate the whole range */
+    public final List<Range<Token>> subRanges;
 
     public ValidationRequest(RepairJobDesc desc, int gcBefore)
     {
-        super(Type.VALIDATION_REQUEST, desc);
+        this(desc, gcBefore, false);
+    }
+
+    public ValidationRequest(RepairJobDesc desc, int gcBefore, boolean isIncremental)
+    {
+        this(desc, gcBefore, isIncremental, Collections.<Range<Token>>emptyList());
+    }
+
+    public ValidationRequest(RepairJobDesc desc, int gcBefore, boolean isIncremental, List<Range<Token>> subRanges)
+    {
+        super(subRanges.isEmpty()
+              ? (isIncremental ? Type.INCREMENTAL_VALIDATION_REQUEST : Type.VALIDATION_REQUEST)
+              : Type.REFINED_VALIDATION_REQUEST,
+              desc);
         this.gcBefore = gcBefore;
+        this.isIncremental = isIncremental;
+        this.subRanges = subRanges;
     }
 
     @Override
@@ -48,17 +78,24 @@ public class ValidationRequest extends RepairMessage
         if (o == null || getClass() != o.getClass()) return false;
 
         ValidationRequest that = (ValidationRequest) o;
-        return gcBefore == that.gcBefore;
+        return gcBefore == that.gcBefore && isIncremental == that.isIncremental && subRanges.equals(that.subRanges);
     }
 
     @Override
     public int hashCode()
     {
-        return gcBefore;
+        return 31 * (31 * gcBefore + (isIncremental ? 1 : 0)) + subRanges.hashCode();
     }
 
     public static class ValidationRequestSerializer implements MessageSerializer<ValidationRequest>
     {
+        private final boolean isIncremental;
+
+        public ValidationRequestSerializer(boolean isIncremental)
+        {
+            this.isIncremental = isIncremental;
+        }
+
         public void serialize(ValidationRequest message, DataOutput out, int version) throws IOException
         {
             RepairJobDesc.serializer.serialize(message.desc, out, version);
@@ -68,13 +105,49 @@ public class ValidationRequest extends RepairMessage
         public ValidationRequest deserialize(DataInput dis, int version) throws IOException
         {
             RepairJobDesc desc = RepairJobDesc.serializer.deserialize(dis, version);
-            return new ValidationRequest(desc, dis.readInt());
+            return new ValidationRequest(desc, dis.readInt(), isIncremental);
+        }
+
+        public long serializedSize(ValidationRequest message, int version)
+        {
+            long size = RepairJobDesc.serializer.serializedSize(message.desc, version);
+            size += TypeSizes.NATIVE.sizeof(message.gcBefore);
+            return size;
+        }
+    }
+
+    public static class RefinedValidationRequestSerializer implements MessageSerializer<ValidationRequest>
+    {
+        public void serialize(ValidationRequest message, DataOutput out, int version) throws IOException
+        {
+            RepairJobDesc.serializer.serialize(message.desc, out, version);
+            out.writeInt(message.gcBefore);
+            out.writeBoolean(message.isIncremental);
+            out.writeInt(message.subRanges.size());
+            for (Range<Token> range : message.subRanges)
+                AbstractBounds.serializer.serialize(range, out, version);
+        }
+
+        public ValidationRequest deserialize(DataInput in, int version) throws IOException
+        {
+            RepairJobDesc desc = RepairJobDesc.serializer.deserialize(in, version);
+            int gcBefore = in.readInt();
+            boolean isIncremental = in.readBoolean();
+            int rangesCount = in.readInt();
+            List<Range<Token>> subRanges = new ArrayList<>(rangesCount);
+            for (int i = 0; i < rangesCount; ++i)
+                subRanges.add((Range<Token>) AbstractBounds.serializer.deserialize(in, version).toTokenBounds());
+            return new ValidationRequest(desc, gcBefore, isIncremental, subRanges);
         }
 
         public long serializedSize(ValidationRequest message, int version)
         {
             long size = RepairJobDesc.serializer.serializedSize(message.desc, version);
             size += TypeSizes.NATIVE.sizeof(message.gcBefore);
+            size += TypeSizes.NATIVE.sizeof(message.isIncremental);
+            size += TypeSizes.NATIVE.sizeof(message.subRanges.size());
+            for (Range<Token> range : message.subRanges)
+                size += AbstractBounds.serializer.serializedSize(range, version);
             return size;
         }
     }
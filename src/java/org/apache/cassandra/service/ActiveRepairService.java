@@ -17,20 +17,32 @@
  */
 package org.apache.cassandra.service;
 
+import java.io.IOException;
 import java.net.InetAddress;
 import java.util.*;
 import java.util.concurrent.*;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import org.apache.cassandra.concurrent.JMXConfigurableThreadPoolExecutor;
 import org.apache.cassandra.concurrent.NamedThreadFactory;
 import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.config.Schema;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.Keyspace;
 import org.apache.cassandra.dht.Range;
 import org.apache.cassandra.dht.Token;
 import org.apache.cassandra.gms.FailureDetector;
 import org.apache.cassandra.gms.Gossiper;
+import org.apache.cassandra.io.FSWriteError;
+import org.apache.cassandra.io.sstable.Component;
+import org.apache.cassandra.io.sstable.SSTableReader;
 import org.apache.cassandra.locator.TokenMetadata;
 import org.apache.cassandra.repair.*;
 import org.apache.cassandra.repair.messages.RepairMessage;
@@ -51,9 +63,15 @@ import org.apache.cassandra.utils.FBUtilities;
  *
  * The creation of a repair session is done through the submitRepairSession that
  * returns a future on the completion of that session.
+ *
+ * An incremental repair only validates the sstables that no previous incremental
+ * repair covered, and once a column family is synced on all replicas, each of them
+ * marks the sstables it validated as repaired (see markRepaired).
  */
 public class ActiveRepairService
 {
+    private static final Logger logger = LoggerFactory.getLogger(ActiveRepairService.class);
+
     // singleton enforcement
     public static final ActiveRepairService instance = new ActiveRepairService();
 
@@ -78,6 +96,12 @@ public class ActiveRepairService
      */
     private final ConcurrentMap<UUID, RepairSession> sessions;
 
+    /**
+     * Generations of the sstables validated by this node for each incremental repair job, until the
+     * coordinator asks for them to be marked repaired.  Jobs that never complete are forgotten after a day.
+     */
+    private final Cache<RepairJobDesc, Set<Integer>> validatedSSTables = CacheBuilder.newBuilder().expireAfterWrite(1, TimeUnit.DAYS).build();
+
     /**
      * Protected constructor. Use ActiveRepairService.instance.
      */
@@ -93,7 +117,12 @@ public class ActiveRepairService
      */
     public RepairFuture submitRepairSession(Range<Token> range, String keyspace, boolean isSequential, Collection<String> dataCenters, String... cfnames)
     {
-        RepairSession session = new RepairSession(range, keyspace, isSequential, dataCenters, cfnames);
+        return submitRepairSession(range, keyspace, isSequential, dataCenters, false, cfnames);
+    }
+
+    public RepairFuture submitRepairSession(Range<Token> range, String keyspace, boolean isSequential, Collection<String> dataCenters, boolean isIncremental, String... cfnames)
+    {
+        RepairSession session = new RepairSession(range, keyspace, isSequential, dataCenters, isIncremental, cfnames);
         if (session.endpoints.isEmpty())
             return null;
         RepairFuture futureTask = new RepairFuture(session);
@@ -127,7 +156,7 @@ public class ActiveRepairService
     // add it to the sessions (avoid NPE in tests)
     RepairFuture submitArtificialRepairSession(RepairJobDesc desc)
     {
-        RepairSession session = new RepairSession(desc.sessionId, desc.range, desc.keyspace, false, null, new String[]{desc.columnFamily});
+        RepairSession session = new RepairSession(desc.sessionId, desc.range, desc.keyspace, false, null, false, new String[]{desc.columnFamily});
         sessions.put(session.getId(), session);
         RepairFuture futureTask = new RepairFuture(session);
         executor.execute(futureTask);
@@ -186,6 +215,83 @@ public class ActiveRepairService
         return neighbors;
     }
 
+    /**
+     * Remembers the sstables an incremental validation covered, so that they can be marked repaired later on.
+     *
+     * Only the sstables whose keys all lie within the repaired range are remembered: there is no anticompaction
+     * to split the others, and marking them would claim that data outside of the range was repaired.  They stay
+     * unrepaired, and are validated again by every incremental repair of the ranges they span.
+     */
+    public void registerValidatedSSTables(RepairJobDesc desc, Collection<SSTableReader> sstables)
+    {
+        Set<Integer> generations = new HashSet<>();
+        for (SSTableReader sstable : sstables)
+        {
+            if (containsSpan(desc.range, sstable.first.token, sstable.last.token))
+                generations.add(sstable.descriptor.generation);
+        }
+        logger.debug(String.format("[repair #%s] %d of %d validated sstables of %s are within %s",
+                                   desc.sessionId, generations.size(), sstables.size(), desc.columnFamily, desc.range));
+        validatedSSTables.put(desc, generations);
+    }
+
+    /**
+     * @return true if every token from first to last, both inclusive, is in the given range
+     */
+    @VisibleForTesting
+    static boolean containsSpan(Range<Token> range, Token first, Token last)
+    {
+        if (!range.contains(first))
+            return false;
+        // (first, first] would be the whole ring
+        return first.equals(last) || range.contains(new Range<Token>(first, last));
+    }
+
+    /**
+     * Marks the sstables validated for the given incremental repair job as repaired, now that all replicas are in sync.
+     *
+     * Sstables that were compacted in the meantime are skipped: whatever they were compacted into stays unrepaired
+     * and will be validated again by the next incremental repair.
+     */
+    public void markRepaired(RepairJobDesc desc, long repairedAt)
+    {
+        Set<Integer> generations = validatedSSTables.getIfPresent(desc);
+        validatedSSTables.invalidate(desc);
+        if (generations == null)
+        {
+            logger.warn(String.format("[repair #%s] No validated sstables of %s to mark repaired", desc.sessionId, desc.columnFamily));
+            return;
+        }
+        if (Schema.instance.getCFMetaData(desc.keyspace, desc.columnFamily) == null)
+            return;
+
+        ColumnFamilyStore cfs = Keyspace.open(desc.keyspace).getColumnFamilyStore(desc.columnFamily);
+        int marked = 0;
+        for (SSTableReader sstable : cfs.getSSTables())
+        {
+            if (!generations.contains(sstable.descriptor.generation) || sstable.isRepaired())
+                continue;
+
+            Set<SSTableReader> single = Collections.singleton(sstable);
+            if (!cfs.getDataTracker().markCompacting(single))
+                continue;
+            try
+            {
+                if (sstable.markRepaired(repairedAt))
+                    marked++;
+            }
+            catch (IOException e)
+            {
+                throw new FSWriteError(e, sstable.descriptor.filenameFor(Component.STATS));
+            }
+            finally
+            {
+                cfs.getDataTracker().unmarkCompacting(single);
+            }
+        }
+        logger.info(String.format("[repair #%s] Marked %d of %d validated sstables of %s as repaired", desc.sessionId, marked, generations.size(), desc.columnFamily));
+    }
+
     public void handleMessage(InetAddress endpoint, RepairMessage message)
     {
         RepairJobDesc desc = message.desc;
@@ -39,12 +39,12 @@ import org.apache.cassandra.cache.*;
 import org.apache.cassandra.cache.AutoSavingCache.CacheSerializer;
 import org.apache.cassandra.concurrent.Stage;
 import org.apache.cassandra.concurrent.StageManager;
+import org.apache.cassandra.config.Config;
 import org.apache.cassandra.config.DatabaseDescriptor;
-import org.apache.cassandra.db.ColumnFamily;
 import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.DataTracker;
 import org.apache.cassandra.db.DecoratedKey;
 import org.apache.cassandra.db.RowIndexEntry;
-import org.apache.cassandra.db.filter.QueryFilter;
 import org.apache.cassandra.io.sstable.Descriptor;
 import org.apache.cassandra.io.sstable.SSTableReader;
 import org.apache.cassandra.utils.ByteBufferUtil;
@@ -79,6 +79,8 @@ public class CacheService implements CacheServiceMBean
 
     public final AutoSavingCache<KeyCacheKey, RowIndexEntry> keyCache;
     public final AutoSavingCache<RowCacheKey, IRowCacheEntry> rowCache;
+    // the key cache when it is off-heap, as it needs to hear of deleted sstables
+    private OffHeapKeyCache offHeapKeyCache;
 
     private CacheService()
     {
@@ -109,7 +111,10 @@ public class CacheService implements CacheServiceMBean
         // as values are constant size we can use singleton weigher
         // where 48 = 40 bytes (average size of the key) + 8 bytes (size of value)
         ICache<KeyCacheKey, RowIndexEntry> kc;
-        kc = ConcurrentLinkedHashCache.create(keyCacheInMemoryCapacity);
+        if (DatabaseDescriptor.getKeyCacheProvider() == Config.KeyCacheProvider.offheap)
+            kc = offHeapKeyCache = OffHeapKeyCache.create(keyCacheInMemoryCapacity);
+        else
+            kc = ConcurrentLinkedHashCache.create(keyCacheInMemoryCapacity);
         AutoSavingCache<KeyCacheKey, RowIndexEntry> keyCache = new AutoSavingCache<KeyCacheKey, RowIndexEntry>(kc, CacheType.KEY_CACHE, new KeyCacheSerializer());
 
         int keyCacheKeysToSave = DatabaseDescriptor.getKeyCacheKeysToSave();
@@ -236,6 +241,15 @@ public class CacheService implements CacheServiceMBean
         keyCache.clear();
     }
 
+    /**
+     * Lets the key cache know of the sstables of the given tracker that are deleted, if it needs to.
+     */
+    public void subscribeKeyCache(DataTracker tracker)
+    {
+        if (offHeapKeyCache != null)
+            tracker.subscribe(offHeapKeyCache);
+    }
+
     public void invalidateRowCache()
     {
         rowCache.clear();
@@ -277,6 +291,14 @@ public class CacheService implements CacheServiceMBean
         keyCache.setCapacity(capacity * 1024 * 1024);
     }
 
+    public void setChunkCacheCapacityInMB(long capacity)
+    {
+        if (capacity < 0)
+            throw new RuntimeException("capacity should not be negative.");
+
+        ChunkCache.instance.setCapacity(capacity * 1024 * 1024);
+    }
+
     public long getRowCacheSize()
     {
         return rowCache.getMetrics().size.value();
@@ -324,8 +346,8 @@ public class CacheService implements CacheServiceMBean
                 public Pair<RowCacheKey, IRowCacheEntry> call() throws Exception
                 {
                     DecoratedKey key = cfs.partitioner.decorateKey(buffer);
-                    ColumnFamily data = cfs.getTopLevelColumns(QueryFilter.getIdentityFilter(key, cfs.name, Long.MIN_VALUE), Integer.MIN_VALUE);
-                    return Pair.create(new RowCacheKey(cfs.metadata.cfId, key), (IRowCacheEntry) data);
+                    IRowCacheEntry data = cfs.readForRowCache(key, System.currentTimeMillis());
+                    return Pair.create(new RowCacheKey(cfs.metadata.cfId, key), data);
                 }
             });
         }
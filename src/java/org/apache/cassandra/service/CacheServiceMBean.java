@@ -47,6 +47,8 @@ public interface CacheServiceMBean
 
     public void setKeyCacheCapacityInMB(long capacity);
 
+    public void setChunkCacheCapacityInMB(long capacity);
+
     /**
      * save row and key caches
      *
@@ -51,9 +51,11 @@ import org.apache.cassandra.db.MeteredFlusher;
 import org.apache.cassandra.db.SystemKeyspace;
 import org.apache.cassandra.db.commitlog.CommitLog;
 import org.apache.cassandra.db.compaction.CompactionManager;
+import org.apache.cassandra.db.compaction.CompactionThroughputController;
 import org.apache.cassandra.db.compaction.LeveledManifest;
 import org.apache.cassandra.exceptions.ConfigurationException;
 import org.apache.cassandra.io.FSError;
+import org.apache.cassandra.io.sstable.IndexSummaryManager;
 import org.apache.cassandra.io.util.FileUtils;
 import org.apache.cassandra.metrics.StorageMetrics;
 import org.apache.cassandra.thrift.ThriftServer;
@@ -298,6 +300,12 @@ public class CassandraDaemon
         // Start it before commit log, so memtables can flush during commit log replay
         StorageService.optionalTasks.scheduleWithFixedDelay(new MeteredFlusher(), 1000, 1000, TimeUnit.MILLISECONDS);
 
+        // start redistributing memory between index summaries
+        IndexSummaryManager.instance.setResizeIntervalInMinutes(DatabaseDescriptor.getIndexSummaryResizeIntervalInMinutes());
+
+        // start adjusting the compaction throughput to the load, if asked to
+        CompactionThroughputController.instance.setEnabled(DatabaseDescriptor.isAdaptiveCompactionThroughput());
+
         // replay the log if necessary
         try
         {
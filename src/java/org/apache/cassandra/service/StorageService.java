@@ -2385,20 +2385,34 @@ public class StorageService extends NotificationBroadcasterSupport implements IE
     }
 
     public int forceRepairAsync(final String keyspace, final boolean isSequential, final Collection<String> dataCenters, final boolean primaryRange, final String... columnFamilies)
+    {
+        return forceRepairAsync(keyspace, isSequential, dataCenters, primaryRange, false, columnFamilies);
+    }
+
+    public int forceRepairAsync(final String keyspace, final boolean isSequential, final Collection<String> dataCenters, final boolean primaryRange, final boolean isIncremental, final String... columnFamilies)
     {
         final Collection<Range<Token>> ranges = primaryRange ? getLocalPrimaryRanges(keyspace) : getLocalRanges(keyspace);
-        return forceRepairAsync(keyspace, isSequential, dataCenters, ranges, columnFamilies);
+        return forceRepairAsync(keyspace, isSequential, dataCenters, ranges, isIncremental, columnFamilies);
     }
 
     public int forceRepairAsync(final String keyspace, final boolean isSequential, final Collection<String> dataCenters, final Collection<Range<Token>> ranges, final String... columnFamilies)
+    {
+        return forceRepairAsync(keyspace, isSequential, dataCenters, ranges, false, columnFamilies);
+    }
+
+    public int forceRepairAsync(final String keyspace, final boolean isSequential, final Collection<String> dataCenters, final Collection<Range<Token>> ranges, final boolean isIncremental, final String... columnFamilies)
     {
         if (Keyspace.SYSTEM_KS.equals(keyspace) || ranges.isEmpty())
             return 0;
 
+        // sstables marked repaired are never compared again, so all replicas must take part
+        if (isIncremental && dataCenters != null)
+            throw new IllegalArgumentException("Incremental repair can't be restricted to some data centers");
+
         final int cmd = nextRepairCommand.incrementAndGet();
         if (ranges.size() > 0)
         {
-            new Thread(createRepairTask(cmd, keyspace, ranges, isSequential, dataCenters, columnFamilies)).start();
+            new Thread(createRepairTask(cmd, keyspace, ranges, isSequential, dataCenters, isIncremental, columnFamilies)).start();
         }
         return cmd;
     }
@@ -2423,13 +2437,18 @@ public class StorageService extends NotificationBroadcasterSupport implements IE
     }
 
     public int forceRepairRangeAsync(String beginToken, String endToken, final String keyspaceName, boolean isSequential, Collection<String> dataCenters, final String... columnFamilies)
+    {
+        return forceRepairRangeAsync(beginToken, endToken, keyspaceName, isSequential, dataCenters, false, columnFamilies);
+    }
+
+    public int forceRepairRangeAsync(String beginToken, String endToken, final String keyspaceName, boolean isSequential, Collection<String> dataCenters, boolean isIncremental, final String... columnFamilies)
     {
         Token parsedBeginToken = getPartitioner().getTokenFactory().fromString(beginToken);
         Token parsedEndToken = getPartitioner().getTokenFactory().fromString(endToken);
 
         logger.info("starting user-requested repair of range ({}, {}] for keyspace {} and column families {}",
                     parsedBeginToken, parsedEndToken, keyspaceName, columnFamilies);
-        return forceRepairAsync(keyspaceName, isSequential, dataCenters, Collections.singleton(new Range<Token>(parsedBeginToken, parsedEndToken)), columnFamilies);
+        return forceRepairAsync(keyspaceName, isSequential, dataCenters, Collections.singleton(new Range<Token>(parsedBeginToken, parsedEndToken)), isIncremental, columnFamilies);
     }
 
     public int forceRepairRangeAsync(String beginToken, String endToken, final String keyspaceName, boolean isSequential, boolean isLocal, final String... columnFamilies)
@@ -2483,10 +2502,10 @@ public class StorageService extends NotificationBroadcasterSupport implements IE
         {
             dataCenters = Sets.newHashSet(DatabaseDescriptor.getLocalDataCenter());
         }
-        return createRepairTask(cmd, keyspace, ranges, isSequential, dataCenters, columnFamilies);
+        return createRepairTask(cmd, keyspace, ranges, isSequential, dataCenters, false, columnFamilies);
     }
 
-    private FutureTask<Object> createRepairTask(final int cmd, final String keyspace, final Collection<Range<Token>> ranges, final boolean isSequential, final Collection<String> dataCenters, final String... columnFamilies)
+    private FutureTask<Object> createRepairTask(final int cmd, final String keyspace, final Collection<Range<Token>> ranges, final boolean isSequential, final Collection<String> dataCenters, final boolean isIncremental, final String... columnFamilies)
     {
         return new FutureTask<Object>(new WrappedRunnable()
         {
@@ -2510,7 +2529,7 @@ public class StorageService extends NotificationBroadcasterSupport implements IE
                     RepairFuture future;
                     try
                     {
-                        future = forceKeyspaceRepair(range, keyspace, isSequential, dataCenters, columnFamilies);
+                        future = forceKeyspaceRepair(range, keyspace, isSequential, dataCenters, isIncremental, columnFamilies);
                     }
                     catch (IllegalArgumentException e)
                     {
@@ -2521,14 +2540,18 @@ public class StorageService extends NotificationBroadcasterSupport implements IE
                     if (future == null)
                         continue;
                     futures.add(future);
-                    // wait for a session to be done with its differencing before starting the next one
+                    // let no more than concurrent_repair_ranges sessions validate and difference at the same time:
+                    // wait for the oldest of them to be done with its differencing before starting the next one
+                    if (futures.size() < DatabaseDescriptor.getConcurrentRepairRanges())
+                        continue;
+                    RepairFuture oldest = futures.get(futures.size() - DatabaseDescriptor.getConcurrentRepairRanges());
                     try
                     {
-                        future.session.differencingDone.await();
+                        oldest.session.differencingDone.await();
                     }
                     catch (InterruptedException e)
                     {
-                        message = "Interrupted while waiting for the differencing of repair session " + future.session + " to be done. Repair may be imprecise.";
+                        message = "Interrupted while waiting for the differencing of repair session " + oldest.session + " to be done. Repair may be imprecise.";
                         logger.error(message, e);
                         sendNotification("repair", message, new int[]{cmd, ActiveRepairService.Status.SESSION_FAILED.ordinal()});
                     }
@@ -2561,6 +2584,11 @@ public class StorageService extends NotificationBroadcasterSupport implements IE
     }
 
     public RepairFuture forceKeyspaceRepair(final Range<Token> range, final String keyspaceName, boolean isSequential, Collection<String> dataCenters, final String... columnFamilies) throws IOException
+    {
+        return forceKeyspaceRepair(range, keyspaceName, isSequential, dataCenters, false, columnFamilies);
+    }
+
+    public RepairFuture forceKeyspaceRepair(final Range<Token> range, final String keyspaceName, boolean isSequential, Collection<String> dataCenters, boolean isIncremental, final String... columnFamilies) throws IOException
     {
         ArrayList<String> names = new ArrayList<String>();
         for (ColumnFamilyStore cfStore : getValidColumnFamilies(false, false, keyspaceName, columnFamilies))
@@ -2574,7 +2602,7 @@ public class StorageService extends NotificationBroadcasterSupport implements IE
             return null;
         }
 
-        return ActiveRepairService.instance.submitRepairSession(range, keyspaceName, isSequential, dataCenters, names.toArray(new String[names.size()]));
+        return ActiveRepairService.instance.submitRepairSession(range, keyspaceName, isSequential, dataCenters, isIncremental, names.toArray(new String[names.size()]));
     }
 
     public void forceTerminateAllRepairSessions() {
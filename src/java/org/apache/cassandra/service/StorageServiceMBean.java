@@ -264,6 +264,17 @@ public interface StorageServiceMBean extends NotificationEmitter
      */
     public int forceRepairRangeAsync(String beginToken, String endToken, final String keyspaceName, boolean isSequential, Collection<String> dataCenters, final String... columnFamilies);
 
+    /**
+     * Same as forceRepairAsync, but if isIncremental is true only repairs the data that no previous incremental
+     * repair covered, and marks what it repaired as such.  Incremental repair can't be restricted to data centers.
+     */
+    public int forceRepairAsync(String keyspace, boolean isSequential, Collection<String> dataCenters, boolean primaryRange, boolean isIncremental, String... columnFamilies);
+
+    /**
+     * Same as forceRepairRangeAsync, with the option to repair incrementally
+     */
+    public int forceRepairRangeAsync(String beginToken, String endToken, final String keyspaceName, boolean isSequential, Collection<String> dataCenters, boolean isIncremental, final String... columnFamilies);
+
 
     /**
      * Invoke repair asynchronously.
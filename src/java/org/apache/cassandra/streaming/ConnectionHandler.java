@@ -58,6 +58,8 @@ public class ConnectionHandler
     private static final int MAX_CONNECT_ATTEMPTS = 3;
 
     private final StreamSession session;
+    // the initiator picks the version of both connections, the other side uses it
+    private volatile int protocolVersion = initiatingVersion();
 
     private IncomingMessageHandler incoming;
     private OutgoingMessageHandler outgoing;
@@ -80,12 +82,12 @@ public class ConnectionHandler
     {
         logger.debug("[Stream #{}] Sending stream init for incoming stream", session.planId());
         Socket incomingSocket = connect(session.peer);
-        incoming.start(incomingSocket, StreamMessage.CURRENT_VERSION);
+        incoming.start(incomingSocket, protocolVersion);
         incoming.sendInitMessage(incomingSocket, true);
 
         logger.debug("[Stream #{}] Sending stream init for outgoing stream", session.planId());
         Socket outgoingSocket = connect(session.peer);
-        outgoing.start(outgoingSocket, StreamMessage.CURRENT_VERSION);
+        outgoing.start(outgoingSocket, protocolVersion);
         outgoing.sendInitMessage(outgoingSocket, false);
     }
 
@@ -98,12 +100,30 @@ public class ConnectionHandler
      */
     public void initiateOnReceivingSide(Socket socket, boolean isForOutgoing, int version) throws IOException
     {
+        protocolVersion = version;
         if (isForOutgoing)
             outgoing.start(socket, version);
         else
             incoming.start(socket, version);
     }
 
+    /**
+     * Nodes that cannot stream with zero copy drop connections of a newer version, so sessions are only
+     * initiated at {@link StreamMessage#VERSION_ZERO_COPY} when zero_copy_streaming is enabled.
+     */
+    private static int initiatingVersion()
+    {
+        return DatabaseDescriptor.isZeroCopyStreaming() ? StreamMessage.VERSION_ZERO_COPY : StreamMessage.VERSION_20;
+    }
+
+    /**
+     * @return the streaming protocol version of this session's connections
+     */
+    public int protocolVersion()
+    {
+        return protocolVersion;
+    }
+
     /**
      * Connect to peer and start exchanging message.
      * When connect attempt fails, this retries for maximum of MAX_CONNECT_ATTEMPTS times.
@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.streaming;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+
+import org.apache.cassandra.config.Schema;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.Directories;
+import org.apache.cassandra.db.Keyspace;
+import org.apache.cassandra.io.sstable.*;
+import org.apache.cassandra.io.util.FileUtils;
+import org.apache.cassandra.streaming.messages.FileMessageHeader;
+import org.apache.cassandra.utils.Pair;
+
+/**
+ * Reads all the files of an sstable sent by EntireSSTableStreamWriter and writes them, as they are, to
+ * a temporary sstable of the sender's version.
+ */
+public class EntireSSTableStreamReader
+{
+    private final UUID cfId;
+    private final List<Pair<String, Long>> components;
+    private final StreamSession session;
+    private final Descriptor.Version inputVersion;
+
+    public EntireSSTableStreamReader(FileMessageHeader header, StreamSession session)
+    {
+        assert header.isEntireSSTable();
+        this.session = session;
+        this.cfId = header.cfId;
+        this.components = header.components;
+        this.inputVersion = new Descriptor.Version(header.version);
+    }
+
+    /**
+     * @param channel where this reads data from
+     * @return the temporary descriptor of the sstable transferred
+     * @throws IOException if reading the remote sstable fails. Will throw an RTE if local write fails.
+     */
+    public Descriptor read(ReadableByteChannel channel) throws IOException
+    {
+        long totalSize = totalSize();
+
+        Pair<String, String> kscf = Schema.instance.getCF(cfId);
+        ColumnFamilyStore cfs = Keyspace.open(kscf.left).getColumnFamilyStore(kscf.right);
+
+        Directories.DataDirectory localDir = cfs.directories.getWriteableLocation();
+        if (localDir == null)
+            throw new IOException("Insufficient disk space to store " + totalSize + " bytes");
+        Descriptor desc = Descriptor.fromFilename(cfs.getTempSSTablePath(cfs.directories.getLocationForDisk(localDir), inputVersion));
+
+        Set<Component> written = new HashSet<>();
+        long bytesRead = 0;
+        try
+        {
+            // check every name before creating any file, so that a bad header leaves nothing behind
+            for (Pair<String, Long> component : components)
+                componentFor(component.left);
+
+            for (Pair<String, Long> component : components)
+            {
+                Component type = componentFor(component.left);
+                written.add(type);
+                FileOutputStream out = new FileOutputStream(desc.filenameFor(type));
+                try
+                {
+                    FileChannel fc = out.getChannel();
+                    long position = 0;
+                    while (position < component.right)
+                    {
+                        long read = fc.transferFrom(channel, position, Math.min(StreamWriter.TRANSFER_CHUNK_SIZE, component.right - position));
+                        if (read <= 0)
+                            throw new EOFException("Stream ended after " + bytesRead + " of " + totalSize + " bytes");
+                        position += read;
+                        bytesRead += read;
+                        session.progress(desc, ProgressInfo.Direction.IN, bytesRead, totalSize);
+                    }
+                    fc.force(true);
+                }
+                finally
+                {
+                    FileUtils.closeQuietly(out);
+                }
+            }
+
+            resetMetadata(desc);
+            if (cfs.isRowCacheEnabled())
+                invalidateCachedRows(cfs, desc);
+            return desc;
+        }
+        catch (Throwable e)
+        {
+            for (Component component : written)
+                FileUtils.delete(desc.filenameFor(component));
+            drain(Channels.newInputStream(channel), bytesRead);
+            if (e instanceof IOException)
+                throw (IOException) e;
+            else
+                throw Throwables.propagate(e);
+        }
+    }
+
+    /**
+     * Component names come from the peer and become file names, so only the names of known component types
+     * are accepted: anything else, such as a name with a path separator, could write outside of the sstable.
+     *
+     * @return the component named {@code name}
+     * @throws IOException if {@code name} is not the name of a known component type
+     */
+    @VisibleForTesting
+    static Component componentFor(String name) throws IOException
+    {
+        Component component = name.indexOf('/') < 0 && name.indexOf('\\') < 0 && !name.contains(File.separator)
+                            ? Component.fromKnownName(name)
+                            : null;
+        if (component == null)
+            throw new IOException("Received unknown sstable component " + name);
+        return component;
+    }
+
+    /**
+     * The sender's level, repair time and ancestors say nothing about the sstable once it lives on this node,
+     * so reset them to what a freshly streamed sstable would have.
+     */
+    @SuppressWarnings("deprecation") // copyWithNewSSTableLevel is what moving an existing sstable to another level is kept for
+    private void resetMetadata(Descriptor desc) throws IOException
+    {
+        Pair<SSTableMetadata, Set<Integer>> oldMetadata = SSTableMetadata.serializer.deserialize(desc);
+        SSTableMetadata metadata = SSTableMetadata.copyWithNewSSTableLevel(oldMetadata.left, 0);
+        metadata = SSTableMetadata.copyWithNewRepairedAt(metadata, SSTableMetadata.UNREPAIRED);
+        SSTableMetadata.serializer.rewrite(desc, metadata, Collections.<Integer>emptySet());
+    }
+
+    private void invalidateCachedRows(ColumnFamilyStore cfs, Descriptor desc)
+    {
+        KeyIterator keys = new KeyIterator(desc);
+        try
+        {
+            while (keys.hasNext())
+            {
+                DecoratedKey key = keys.next();
+                cfs.invalidateCachedRow(key);
+            }
+        }
+        finally
+        {
+            keys.close();
+        }
+    }
+
+    private void drain(InputStream in, long bytesRead) throws IOException
+    {
+        long toSkip = totalSize() - bytesRead;
+        toSkip = toSkip - in.skip(toSkip);
+        while (toSkip > 0)
+            toSkip = toSkip - in.skip(toSkip);
+    }
+
+    private long totalSize()
+    {
+        long size = 0;
+        for (Pair<String, Long> component : components)
+            size += component.right;
+        return size;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.streaming;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.cassandra.io.sstable.SSTableReader;
+import org.apache.cassandra.io.util.FileUtils;
+import org.apache.cassandra.utils.Pair;
+
+/**
+ * Streams all the files of an sstable as they are on disk, so that the receiver can add them without
+ * deserializing and rewriting every row.
+ */
+public class EntireSSTableStreamWriter extends StreamWriter
+{
+    private final List<Pair<String, Long>> components;
+
+    public EntireSSTableStreamWriter(SSTableReader sstable, List<Pair<String, Long>> components, StreamSession session)
+    {
+        super(sstable, Collections.<Pair<Long, Long>>emptyList(), session, true);
+        this.components = components;
+    }
+
+    @Override
+    public void write(WritableByteChannel channel) throws IOException
+    {
+        long totalSize = totalSize();
+        long progress = 0L;
+        for (Pair<String, Long> component : components)
+        {
+            RandomAccessFile file = new RandomAccessFile(sstable.descriptor.filenameFor(component.left), "r");
+            try
+            {
+                progress = transfer(file.getChannel(), 0, component.right, channel, progress, totalSize);
+            }
+            finally
+            {
+                // no matter what happens close file
+                FileUtils.closeQuietly(file);
+            }
+        }
+
+        sstable.releaseReference();
+    }
+
+    @Override
+    protected long totalSize()
+    {
+        long size = 0;
+        for (Pair<String, Long> component : components)
+            size += component.right;
+        return size;
+    }
+}
@@ -17,6 +17,7 @@
  */
 package org.apache.cassandra.streaming;
 
+import java.io.BufferedInputStream;
 import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.IOException;
@@ -27,6 +28,7 @@ import java.util.Collection;
 import java.util.UUID;
 
 import com.google.common.base.Throwables;
+import com.google.common.io.ByteStreams;
 import com.ning.compress.lzf.LZFInputStream;
 
 import org.apache.cassandra.config.Schema;
@@ -53,6 +55,7 @@ public class StreamReader
     protected final Collection<Pair<Long, Long>> sections;
     protected final StreamSession session;
     protected final Descriptor.Version inputVersion;
+    protected final boolean isZeroCopy;
 
     protected Descriptor desc;
 
@@ -63,6 +66,7 @@ public class StreamReader
         this.estimatedKeys = header.estimatedKeys;
         this.sections = header.sections;
         this.inputVersion = new Descriptor.Version(header.version);
+        this.isZeroCopy = header.isZeroCopy;
     }
 
     /**
@@ -78,7 +82,10 @@ public class StreamReader
         ColumnFamilyStore cfs = Keyspace.open(kscf.left).getColumnFamilyStore(kscf.right);
 
         SSTableWriter writer = createWriter(cfs, totalSize);
-        DataInputStream dis = new DataInputStream(new LZFInputStream(Channels.newInputStream(channel)));
+        // sections sent with zero copy are not compressed; limit buffering to them so nothing past the file is consumed
+        DataInputStream dis = isZeroCopy
+                            ? new DataInputStream(new BufferedInputStream(ByteStreams.limit(Channels.newInputStream(channel), totalSize)))
+                            : new DataInputStream(new LZFInputStream(Channels.newInputStream(channel)));
         BytesReadTracker in = new BytesReadTracker(dis);
         try
         {
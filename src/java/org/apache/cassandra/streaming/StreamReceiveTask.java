@@ -17,14 +17,22 @@
  */
 package org.apache.cassandra.streaming;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
+import com.google.common.annotations.VisibleForTesting;
+
 import org.apache.cassandra.config.Schema;
 import org.apache.cassandra.db.ColumnFamilyStore;
 import org.apache.cassandra.db.Keyspace;
+import org.apache.cassandra.io.FSReadError;
+import org.apache.cassandra.io.sstable.Component;
+import org.apache.cassandra.io.sstable.Descriptor;
+import org.apache.cassandra.io.sstable.SSTable;
 import org.apache.cassandra.io.sstable.SSTableReader;
 import org.apache.cassandra.io.sstable.SSTableWriter;
 import org.apache.cassandra.service.StorageService;
@@ -43,6 +51,8 @@ public class StreamReceiveTask extends StreamTask
 
     //  holds references to SSTables received
     protected Collection<SSTableWriter> sstables;
+    //  holds temporary descriptors of SSTables received whole
+    protected Collection<Descriptor> transferred;
 
     public StreamReceiveTask(StreamSession session, UUID cfId, int totalFiles, long totalSize)
     {
@@ -50,6 +60,7 @@ public class StreamReceiveTask extends StreamTask
         this.totalFiles = totalFiles;
         this.totalSize = totalSize;
         this.sstables = new ArrayList<>(totalFiles);
+        this.transferred = new ArrayList<>();
     }
 
     /**
@@ -63,7 +74,21 @@ public class StreamReceiveTask extends StreamTask
         assert !aborted;
 
         sstables.add(sstable);
-        if (sstables.size() == totalFiles)
+        if (sstables.size() + transferred.size() == totalFiles)
+            complete();
+    }
+
+    /**
+     * Process received entire SSTable.
+     *
+     * @param desc temporary descriptor of the SSTable files received.
+     */
+    public void received(Descriptor desc)
+    {
+        assert !aborted;
+
+        transferred.add(desc);
+        if (sstables.size() + transferred.size() == totalFiles)
             complete();
     }
 
@@ -79,10 +104,31 @@ public class StreamReceiveTask extends StreamTask
 
     private void complete()
     {
-        if (!sstables.isEmpty())
+        if (!sstables.isEmpty() || !transferred.isEmpty())
             StorageService.tasks.submit(new OnCompletionRunnable(this));
     }
 
+    /**
+     * Renames the files of an sstable received whole to their final names and opens it.
+     *
+     * @param tmpdesc temporary descriptor the sstable was received as
+     */
+    @VisibleForTesting
+    static SSTableReader open(Descriptor tmpdesc, ColumnFamilyStore cfs)
+    {
+        Descriptor desc = tmpdesc.asTemporary(false);
+        Set<Component> components = SSTable.componentsFor(tmpdesc);
+        SSTableWriter.rename(tmpdesc, desc, components);
+        try
+        {
+            return SSTableReader.open(desc, components, cfs.metadata, cfs.partitioner);
+        }
+        catch (IOException e)
+        {
+            throw new FSReadError(e, desc.filenameFor(Component.DATA));
+        }
+    }
+
     private static class OnCompletionRunnable implements Runnable
     {
         private final StreamReceiveTask task;
@@ -98,10 +144,16 @@ public class StreamReceiveTask extends StreamTask
             ColumnFamilyStore cfs = Keyspace.open(kscf.left).getColumnFamilyStore(kscf.right);
 
             StreamLockfile lockfile = new StreamLockfile(cfs.directories.getWriteableLocationAsFile(), UUID.randomUUID());
-            lockfile.create(task.sstables);
+            List<Descriptor> descriptors = new ArrayList<>();
+            for (SSTableWriter writer : task.sstables)
+                descriptors.add(writer.descriptor);
+            descriptors.addAll(task.transferred);
+            lockfile.create(descriptors);
             List<SSTableReader> readers = new ArrayList<>();
             for (SSTableWriter writer : task.sstables)
                 readers.add(writer.closeAndOpenReader());
+            for (Descriptor tmpdesc : task.transferred)
+                readers.add(open(tmpdesc, cfs));
             lockfile.delete();
 
             if (!SSTableReader.acquireReferences(readers))
@@ -130,6 +182,8 @@ public class StreamReceiveTask extends StreamTask
             {
                 for (SSTableWriter writer : sstables)
                     writer.abort();
+                for (Descriptor desc : transferred)
+                    SSTable.delete(desc, SSTable.componentsFor(desc));
             }
         };
         StorageService.tasks.submit(r);
@@ -168,6 +168,14 @@ public class StreamSession implements IEndpointStateChangeSubscriber, IFailureDe
         return streamResult == null ? null : streamResult.description;
     }
 
+    /**
+     * @return true if files are sent with zero copy: it is enabled here, and the peer supports it
+     */
+    public boolean isZeroCopy()
+    {
+        return DatabaseDescriptor.isZeroCopyStreaming() && handler.protocolVersion() >= StreamMessage.VERSION_ZERO_COPY;
+    }
+
     /**
      * Bind this session to report to specific {@link StreamResultFuture} and
      * perform pre-streaming initialization.
@@ -473,7 +481,10 @@ public class StreamSession implements IEndpointStateChangeSubscriber, IFailureDe
         metrics.incomingBytes.inc(headerSize);
         // send back file received message
         handler.sendMessage(new ReceivedMessage(message.header.cfId, message.header.sequenceNumber));
-        receivers.get(message.header.cfId).received(message.sstable);
+        if (message.transferred == null)
+            receivers.get(message.header.cfId).received(message.sstable);
+        else
+            receivers.get(message.header.cfId).received(message.transferred);
     }
 
     public void progress(Descriptor desc, ProgressInfo.Direction direction, long bytes, long total)
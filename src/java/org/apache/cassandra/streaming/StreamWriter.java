@@ -21,6 +21,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.channels.WritableByteChannel;
 import java.util.Collection;
 
@@ -41,11 +42,14 @@ import org.apache.cassandra.utils.Pair;
 public class StreamWriter
 {
     private static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+    /** the most bytes handed to a single FileChannel.transferTo call, so that rate limiting and progress stay fine grained */
+    public static final int TRANSFER_CHUNK_SIZE = 10 * 1024 * 1024;
 
     protected final SSTableReader sstable;
     protected final Collection<Pair<Long, Long>> sections;
     protected final RateLimiter limiter = StreamManager.getRateLimiter();
     protected final StreamSession session;
+    protected final boolean isZeroCopy;
 
     private OutputStream compressedOutput;
 
@@ -53,22 +57,35 @@ public class StreamWriter
     private byte[] transferBuffer;
 
     public StreamWriter(SSTableReader sstable, Collection<Pair<Long, Long>> sections, StreamSession session)
+    {
+        this(sstable, sections, session, false);
+    }
+
+    public StreamWriter(SSTableReader sstable, Collection<Pair<Long, Long>> sections, StreamSession session, boolean isZeroCopy)
     {
         this.session = session;
         this.sstable = sstable;
         this.sections = sections;
+        this.isZeroCopy = isZeroCopy;
     }
 
     /**
      * Stream file of specified sections to given channel.
      *
-     * StreamWriter uses LZF compression on wire to decrease size to transfer.
+     * StreamWriter uses LZF compression on wire to decrease size to transfer, unless zero copy
+     * is requested, in which case sections are handed from the page cache to the socket as they are on disk.
      *
      * @param channel where this writes data to
      * @throws IOException on any I/O error
      */
     public void write(WritableByteChannel channel) throws IOException
     {
+        if (isZeroCopy)
+        {
+            writeZeroCopy(channel);
+            return;
+        }
+
         long totalSize = totalSize();
         RandomAccessReader file = sstable.openDataReader();
         ChecksumValidator validator = null;
@@ -120,6 +137,48 @@ public class StreamWriter
         sstable.releaseReference();
     }
 
+    private void writeZeroCopy(WritableByteChannel channel) throws IOException
+    {
+        long totalSize = totalSize();
+        RandomAccessReader file = sstable.openDataReader();
+        try
+        {
+            long progress = 0L;
+            for (Pair<Long, Long> section : sections)
+                progress = transfer(file.getChannel(), section.left, section.right - section.left, channel, progress, totalSize);
+        }
+        finally
+        {
+            FileUtils.closeQuietly(file);
+        }
+
+        sstable.releaseReference();
+    }
+
+    /**
+     * Transfers length bytes of the file, starting at position, to the channel without copying them through
+     * the heap, reporting progress as it goes.
+     *
+     * @param progress bytes of this file transferred so far
+     * @param totalSize bytes of this file to transfer in total
+     * @return progress after this transfer
+     * @throws IOException on any I/O error
+     */
+    protected long transfer(FileChannel fc, long position, long length, WritableByteChannel channel, long progress, long totalSize) throws IOException
+    {
+        long bytesTransferred = 0;
+        while (bytesTransferred < length)
+        {
+            int toTransfer = (int) Math.min(TRANSFER_CHUNK_SIZE, length - bytesTransferred);
+            limiter.acquire(toTransfer);
+            long lastWrite = fc.transferTo(position + bytesTransferred, toTransfer, channel);
+            bytesTransferred += lastWrite;
+            progress += lastWrite;
+            session.progress(sstable.descriptor, ProgressInfo.Direction.OUT, progress, totalSize);
+        }
+        return progress;
+    }
+
     protected long totalSize()
     {
         long size = 0;
@@ -21,6 +21,7 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 
@@ -46,6 +47,10 @@ public class FileMessageHeader
     public final long estimatedKeys;
     public final List<Pair<Long, Long>> sections;
     public final CompressionInfo compressionInfo;
+    /** true if the sections of an uncompressed data file are sent as they are on disk rather than LZF compressed */
+    public final boolean isZeroCopy;
+    /** names and lengths of the files of an sstable sent whole, in the order they are sent; empty otherwise */
+    public final List<Pair<String, Long>> components;
 
     public FileMessageHeader(UUID cfId,
                              int sequenceNumber,
@@ -53,6 +58,18 @@ public class FileMessageHeader
                              long estimatedKeys,
                              List<Pair<Long, Long>> sections,
                              CompressionInfo compressionInfo)
+    {
+        this(cfId, sequenceNumber, version, estimatedKeys, sections, compressionInfo, false, Collections.<Pair<String, Long>>emptyList());
+    }
+
+    public FileMessageHeader(UUID cfId,
+                             int sequenceNumber,
+                             String version,
+                             long estimatedKeys,
+                             List<Pair<Long, Long>> sections,
+                             CompressionInfo compressionInfo,
+                             boolean isZeroCopy,
+                             List<Pair<String, Long>> components)
     {
         this.cfId = cfId;
         this.sequenceNumber = sequenceNumber;
@@ -60,6 +77,16 @@ public class FileMessageHeader
         this.estimatedKeys = estimatedKeys;
         this.sections = sections;
         this.compressionInfo = compressionInfo;
+        this.isZeroCopy = isZeroCopy;
+        this.components = components;
+    }
+
+    /**
+     * @return true if all the files of the sstable are sent, to be written as they are
+     */
+    public boolean isEntireSSTable()
+    {
+        return !components.isEmpty();
     }
 
     /**
@@ -68,7 +95,12 @@ public class FileMessageHeader
     public long size()
     {
         long size = 0;
-        if (compressionInfo != null)
+        if (isEntireSSTable())
+        {
+            for (Pair<String, Long> component : components)
+                size += component.right;
+        }
+        else if (compressionInfo != null)
         {
             // calculate total length of transferring chunks
             for (CompressionMetadata.Chunk chunk : compressionInfo.chunks)
@@ -92,6 +124,8 @@ public class FileMessageHeader
         sb.append(", estimated keys: ").append(estimatedKeys);
         sb.append(", transfer size: ").append(size());
         sb.append(", compressed?: ").append(compressionInfo != null);
+        sb.append(", zero copy?: ").append(isZeroCopy);
+        sb.append(", entire sstable?: ").append(isEntireSSTable());
         sb.append(')');
         return sb.toString();
     }
@@ -129,6 +163,19 @@ public class FileMessageHeader
                 out.writeLong(section.right);
             }
             CompressionInfo.serializer.serialize(header.compressionInfo, out, version);
+            if (version < StreamMessage.VERSION_ZERO_COPY)
+            {
+                assert !header.isZeroCopy && !header.isEntireSSTable() : "zero copy is not supported by streaming version " + version;
+                return;
+            }
+
+            out.writeBoolean(header.isZeroCopy);
+            out.writeInt(header.components.size());
+            for (Pair<String, Long> component : header.components)
+            {
+                out.writeUTF(component.left);
+                out.writeLong(component.right);
+            }
         }
 
         public FileMessageHeader deserialize(DataInput in, int version) throws IOException
@@ -142,7 +189,15 @@ public class FileMessageHeader
             for (int k = 0; k < count; k++)
                 sections.add(Pair.create(in.readLong(), in.readLong()));
             CompressionInfo compressionInfo = CompressionInfo.serializer.deserialize(in, MessagingService.current_version);
-            return new FileMessageHeader(cfId, sequenceNumber, sstableVersion, estimatedKeys, sections, compressionInfo);
+            if (version < StreamMessage.VERSION_ZERO_COPY)
+                return new FileMessageHeader(cfId, sequenceNumber, sstableVersion, estimatedKeys, sections, compressionInfo);
+
+            boolean isZeroCopy = in.readBoolean();
+            int componentCount = in.readInt();
+            List<Pair<String, Long>> components = new ArrayList<>(componentCount);
+            for (int k = 0; k < componentCount; k++)
+                components.add(Pair.create(in.readUTF(), in.readLong()));
+            return new FileMessageHeader(cfId, sequenceNumber, sstableVersion, estimatedKeys, sections, compressionInfo, isZeroCopy, components);
         }
 
         public long serializedSize(FileMessageHeader header, int version)
@@ -159,6 +214,16 @@ public class FileMessageHeader
                 size += TypeSizes.NATIVE.sizeof(section.right);
             }
             size += CompressionInfo.serializer.serializedSize(header.compressionInfo, version);
+            if (version < StreamMessage.VERSION_ZERO_COPY)
+                return size;
+
+            size += TypeSizes.NATIVE.sizeof(header.isZeroCopy);
+            size += TypeSizes.NATIVE.sizeof(header.components.size());
+            for (Pair<String, Long> component : header.components)
+            {
+                size += TypeSizes.NATIVE.sizeof(component.left);
+                size += TypeSizes.NATIVE.sizeof(component.right);
+            }
             return size;
         }
     }
@@ -23,7 +23,10 @@ import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 
+import org.apache.cassandra.io.sstable.Component;
+import org.apache.cassandra.io.sstable.Descriptor;
 import org.apache.cassandra.io.sstable.SSTableWriter;
+import org.apache.cassandra.streaming.EntireSSTableStreamReader;
 import org.apache.cassandra.streaming.StreamReader;
 import org.apache.cassandra.streaming.StreamSession;
 import org.apache.cassandra.streaming.compress.CompressedStreamReader;
@@ -39,11 +42,13 @@ public class IncomingFileMessage extends StreamMessage
         {
             DataInputStream input = new DataInputStream(Channels.newInputStream(in));
             FileMessageHeader header = FileMessageHeader.serializer.deserialize(input, version);
-            StreamReader reader = header.compressionInfo == null ? new StreamReader(header, session)
-                    : new CompressedStreamReader(header, session);
-
             try
             {
+                if (header.isEntireSSTable())
+                    return new IncomingFileMessage(new EntireSSTableStreamReader(header, session).read(in), header);
+
+                StreamReader reader = header.compressionInfo == null ? new StreamReader(header, session)
+                        : new CompressedStreamReader(header, session);
                 return new IncomingFileMessage(reader.read(in), header);
             }
             catch (Throwable e)
@@ -61,6 +66,8 @@ public class IncomingFileMessage extends StreamMessage
 
     public FileMessageHeader header;
     public SSTableWriter sstable;
+    /** the temporary sstable written as it was received, if the sender sent the entire sstable; null otherwise */
+    public Descriptor transferred;
 
     public IncomingFileMessage(SSTableWriter sstable, FileMessageHeader header)
     {
@@ -69,10 +76,18 @@ public class IncomingFileMessage extends StreamMessage
         this.sstable = sstable;
     }
 
+    public IncomingFileMessage(Descriptor transferred, FileMessageHeader header)
+    {
+        super(Type.FILE);
+        this.header = header;
+        this.transferred = transferred;
+    }
+
     @Override
     public String toString()
     {
-        return "File (" + header + ", file: " + sstable.getFilename() + ")";
+        String filename = sstable == null ? transferred.filenameFor(Component.DATA) : sstable.getFilename();
+        return "File (" + header + ", file: " + filename + ")";
     }
 }
 
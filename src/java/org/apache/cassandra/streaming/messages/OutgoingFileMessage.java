@@ -19,14 +19,20 @@ package org.apache.cassandra.streaming.messages;
 
 import java.io.DataOutput;
 import java.io.DataOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.cassandra.io.compress.CompressionMetadata;
+import org.apache.cassandra.io.sstable.Component;
+import org.apache.cassandra.io.sstable.SSTable;
 import org.apache.cassandra.io.sstable.SSTableReader;
+import org.apache.cassandra.streaming.EntireSSTableStreamWriter;
 import org.apache.cassandra.streaming.StreamSession;
 import org.apache.cassandra.streaming.StreamWriter;
 import org.apache.cassandra.streaming.compress.CompressedStreamWriter;
@@ -51,11 +57,15 @@ public class OutgoingFileMessage extends StreamMessage
             FileMessageHeader.serializer.serialize(message.header, output, version);
 
             final SSTableReader reader = message.sstable;
-            StreamWriter writer = message.header.compressionInfo == null ?
-                    new StreamWriter(reader, message.header.sections, session) :
-                    new CompressedStreamWriter(reader,
-                            message.header.sections,
-                            message.header.compressionInfo, session);
+            StreamWriter writer;
+            if (message.header.isEntireSSTable())
+                writer = new EntireSSTableStreamWriter(reader, message.header.components, session);
+            else if (message.header.compressionInfo == null)
+                writer = new StreamWriter(reader, message.header.sections, session, message.header.isZeroCopy);
+            else
+                writer = new CompressedStreamWriter(reader,
+                                                    message.header.sections,
+                                                    message.header.compressionInfo, session);
             writer.write(out);
             session.fileSent(message.header);
         }
@@ -64,13 +74,21 @@ public class OutgoingFileMessage extends StreamMessage
     public FileMessageHeader header;
     public SSTableReader sstable;
 
-    public OutgoingFileMessage(SSTableReader sstable, int sequenceNumber, long estimatedKeys, List<Pair<Long, Long>> sections)
+    /**
+     * @param isZeroCopy whether the sections may be sent as they are on disk, or the entire sstable as files;
+     *                   only if the peer speaks {@link StreamMessage#VERSION_ZERO_COPY}
+     */
+    public OutgoingFileMessage(SSTableReader sstable, int sequenceNumber, long estimatedKeys, List<Pair<Long, Long>> sections, boolean isZeroCopy)
     {
         super(Type.FILE);
         this.sstable = sstable;
 
+        List<Pair<String, Long>> components = isZeroCopy && coversEntireSSTable(sstable, sections)
+                                            ? componentsOf(sstable)
+                                            : Collections.<Pair<String, Long>>emptyList();
+
         CompressionInfo compressionInfo = null;
-        if (sstable.compression)
+        if (sstable.compression && components.isEmpty())
         {
             CompressionMetadata meta = sstable.getCompressionMetadata();
             compressionInfo = new CompressionInfo(meta.getChunksForSections(sections), meta.parameters);
@@ -80,7 +98,41 @@ public class OutgoingFileMessage extends StreamMessage
                 sstable.descriptor.version.toString(),
                 estimatedKeys,
                 sections,
-                compressionInfo);
+                compressionInfo,
+                isZeroCopy,
+                components);
+    }
+
+    /**
+     * Counter sstables are never sent whole, since the receiver has to rewrite counter shards it does not own.
+     *
+     * @return true if the sections to send span the whole data file, so that all of the sstable's files can be sent as they are
+     */
+    private static boolean coversEntireSSTable(SSTableReader sstable, List<Pair<Long, Long>> sections)
+    {
+        return !sstable.metadata.getDefaultValidator().isCommutative()
+               && sections.size() == 1
+               && sections.get(0).left == 0
+               && sections.get(0).right == sstable.uncompressedLength();
+    }
+
+    /**
+     * The receiver only writes files of known component types, so sstables with a custom component are rewritten.
+     *
+     * @return the names and lengths of the sstable's files, or an empty list if it has a custom component
+     */
+    private static List<Pair<String, Long>> componentsOf(SSTableReader sstable)
+    {
+        List<Pair<String, Long>> components = new ArrayList<>();
+        for (Component component : SSTable.componentsFor(sstable.descriptor))
+        {
+            if (component.type == Component.Type.CUSTOM)
+                return Collections.emptyList();
+            if (component.equals(Component.COMPACTED_MARKER))
+                continue;
+            components.add(Pair.create(component.name(), new File(sstable.descriptor.filenameFor(component)).length()));
+        }
+        return components;
     }
 
     @Override
@@ -31,8 +31,12 @@ import org.apache.cassandra.streaming.StreamSession;
  */
 public abstract class StreamMessage
 {
+    /** Streaming protocol version of nodes that cannot stream with zero copy */
+    public static final int VERSION_20 = 1;
+    /** Adds the zero-copy flag and the components of entire sstables to file message headers */
+    public static final int VERSION_ZERO_COPY = 2;
     /** Streaming protocol version */
-    public static final int CURRENT_VERSION = 1;
+    public static final int CURRENT_VERSION = VERSION_ZERO_COPY;
 
     public static void serialize(StreamMessage message, WritableByteChannel out, int version, StreamSession session) throws IOException
     {
@@ -1654,6 +1654,10 @@ public class CassandraServer implements Cassandra.Iface
             CFMetaData cfm = CFMetaData.fromThrift(cf_def);
             CFMetaData.validateCompactionOptions(cfm.compactionStrategyClass, cfm.compactionStrategyOptions);
             cfm.addDefaultIndexNames();
+            // not part of CfDef, so preserve the current setting
+            cfm.rowsPerPartitionToCache(oldCfm.getRowsPerPartitionToCache());
+            cfm.parallelSSTableReads(oldCfm.parallelSSTableReads());
+            cfm.indexPartitionBounds(oldCfm.indexPartitionBounds());
 
             if (!oldCfm.getTriggers().equals(cfm.getTriggers()))
                 state().ensureIsSuper("Only superusers are allowed to add or remove triggers.");
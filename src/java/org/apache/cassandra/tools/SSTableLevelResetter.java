@@ -67,7 +67,7 @@ public class SSTableLevelResetter
                 Descriptor descriptor = sstable.getKey();
                 Pair<SSTableMetadata, Set<Integer>> metadata = SSTableMetadata.serializer.deserialize(descriptor);
                 out.println("Changing level from " + metadata.left.sstableLevel + " to 0 on " + descriptor.filenameFor(Component.DATA));
-                LeveledManifest.mutateLevel(metadata, descriptor, descriptor.filenameFor(Component.STATS), 0);
+                LeveledManifest.mutateLevel(metadata, descriptor, 0);
             }
         }
 
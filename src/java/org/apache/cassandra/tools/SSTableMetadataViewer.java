@@ -52,6 +52,7 @@ public class SSTableMetadataViewer
             out.printf("Compression ratio: %s%n", metadata.compressionRatio);
             out.printf("Estimated droppable tombstones: %s%n", metadata.getEstimatedDroppableTombstoneRatio((int) (System.currentTimeMillis() / 1000)));
             out.printf("SSTable Level: %d%n", metadata.sstableLevel);
+            out.printf("Repaired at: %d%n", metadata.repairedAt);
             out.println(metadata.replayPosition);
             printHistograms(metadata, out);
         }
@@ -42,7 +42,11 @@ abstract class BloomFilterSerializer implements ISerializer<BloomFilter>
 
     public BloomFilter deserialize(DataInput in, boolean offheap) throws IOException
     {
-        int hashes = in.readInt();
+        return deserialize(in.readInt(), in, offheap);
+    }
+
+    BloomFilter deserialize(int hashes, DataInput in, boolean offheap) throws IOException
+    {
         IBitSet bs = offheap ? OffHeapBitSet.deserialize(in) : OpenBitSet.deserialize(in);
         return createFilter(hashes, bs);
     }
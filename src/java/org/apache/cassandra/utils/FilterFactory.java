@@ -21,6 +21,7 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 
+import org.apache.cassandra.config.Config;
 import org.apache.cassandra.db.TypeSizes;
 import org.apache.cassandra.utils.obs.IBitSet;
 import org.apache.cassandra.utils.obs.OffHeapBitSet;
@@ -38,12 +39,19 @@ public class FilterFactory
 
     public static void serialize(IFilter bf, DataOutput output) throws IOException
     {
-        Murmur3BloomFilter.serializer.serialize((Murmur3BloomFilter) bf, output);
+        if (bf instanceof BlockedBloomFilter)
+            BlockedBloomFilter.serializer.serialize((BlockedBloomFilter) bf, output);
+        else
+            Murmur3BloomFilter.serializer.serialize((Murmur3BloomFilter) bf, output);
     }
 
     public static IFilter deserialize(DataInput input, boolean offheap) throws IOException
     {
-        return Murmur3BloomFilter.serializer.deserialize(input, offheap);
+        // standard filters start with their (positive) hash count, blocked ones with a negative marker
+        int hashesOrMarker = input.readInt();
+        if (hashesOrMarker == BlockedBloomFilter.FORMAT_MARKER)
+            return BlockedBloomFilter.serializer.deserializeAfterMarker(input, offheap);
+        return Murmur3BloomFilter.serializer.deserialize(hashesOrMarker, input, offheap);
     }
 
     /**
@@ -51,6 +59,11 @@ public class FilterFactory
      *         probability for the given number of elements.
      */
     public static IFilter getFilter(long numElements, int targetBucketsPerElem, boolean offheap)
+    {
+        return getFilter(numElements, targetBucketsPerElem, offheap, Config.BloomFilterType.standard);
+    }
+
+    public static IFilter getFilter(long numElements, int targetBucketsPerElem, boolean offheap, Config.BloomFilterType type)
     {
         int maxBucketsPerElement = Math.max(1, BloomCalculations.maxBucketsPerElement(numElements));
         int bucketsPerElement = Math.min(targetBucketsPerElem, maxBucketsPerElement);
@@ -59,7 +72,7 @@ public class FilterFactory
             logger.warn(String.format("Cannot provide an optimal BloomFilter for %d elements (%d/%d buckets per element).", numElements, bucketsPerElement, targetBucketsPerElem));
         }
         BloomCalculations.BloomSpecification spec = BloomCalculations.computeBloomSpec(bucketsPerElement);
-        return createFilter(spec.K, numElements, spec.bucketsPerElement, offheap);
+        return createFilter(spec.K, numElements, spec.bucketsPerElement, offheap, type);
     }
 
     /**
@@ -70,19 +83,32 @@ public class FilterFactory
      *         filter.
      */
     public static IFilter getFilter(long numElements, double maxFalsePosProbability, boolean offheap)
+    {
+        return getFilter(numElements, maxFalsePosProbability, offheap, Config.BloomFilterType.standard);
+    }
+
+    public static IFilter getFilter(long numElements, double maxFalsePosProbability, boolean offheap, Config.BloomFilterType type)
     {
         assert maxFalsePosProbability <= 1.0 : "Invalid probability";
         if (maxFalsePosProbability == 1.0)
             return new AlwaysPresentFilter();
         int bucketsPerElement = BloomCalculations.maxBucketsPerElement(numElements);
         BloomCalculations.BloomSpecification spec = BloomCalculations.computeBloomSpec(bucketsPerElement, maxFalsePosProbability);
-        return createFilter(spec.K, numElements, spec.bucketsPerElement, offheap);
+        return createFilter(spec.K, numElements, spec.bucketsPerElement, offheap, type);
     }
 
-    private static IFilter createFilter(int hash, long numElements, int bucketsPer, boolean offheap)
+    private static IFilter createFilter(int hash, long numElements, int bucketsPer, boolean offheap, Config.BloomFilterType type)
     {
         long numBits = (numElements * bucketsPer) + BITSET_EXCESS;
+        if (type == Config.BloomFilterType.blocked)
+        {
+            // whole blocks only
+            long blockBits = BlockedBloomFilter.BLOCK_BITS;
+            numBits = (numBits + blockBits - 1) / blockBits * blockBits;
+        }
         IBitSet bitset = offheap ? new OffHeapBitSet(numBits) : new OpenBitSet(numBits);
-        return new Murmur3BloomFilter(hash, bitset);
+        return type == Config.BloomFilterType.blocked
+             ? new BlockedBloomFilter(hash, bitset)
+             : new Murmur3BloomFilter(hash, bitset);
     }
 }
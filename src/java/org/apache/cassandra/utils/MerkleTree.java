@@ -189,6 +189,53 @@ public class MerkleTree implements Serializable
         return new Inner(midpoint, lchild, rchild);
     }
 
+    /**
+     * Initializes this tree so that it is only fine-grained within the given ranges: each of them is split
+     * evenly into its share of maxsize subranges (and no deeper than hashdepth), while the rest of the tree
+     * is covered by as few subranges as possible.  Used to get finer hashes of the ranges where coarser
+     * trees disagreed.
+     *
+     * NB: Replaces all nodes in the tree.
+     *
+     * @param ranges disjoint ranges contained in the range of this tree.
+     */
+    public void init(Collection<Range<Token>> ranges)
+    {
+        assert !ranges.isEmpty();
+        // determine the depth to which each range can safely be split
+        byte sizedepth = (byte)(Math.log10(Math.max(1, maxsize / ranges.size())) / Math.log10(2));
+
+        size = 0;
+        root = initHelper(fullRange.left, fullRange.right, (byte)0, ranges, sizedepth);
+    }
+
+    private Hashable initHelper(Token left, Token right, byte depth, Collection<Range<Token>> ranges, byte sizedepth)
+    {
+        Range<Token> active = new Range<>(left, right);
+        boolean intersects = false;
+        for (Range<Token> range : ranges)
+        {
+            if (range.contains(active))
+            {
+                byte max = (byte)Math.min(depth + sizedepth, hashdepth);
+                size += (long)Math.pow(2, max - depth);
+                return initHelper(left, right, depth, max);
+            }
+            intersects |= range.intersects(active);
+        }
+
+        Token midpoint = partitioner.midpoint(left, right);
+        if (!intersects || depth == hashdepth || midpoint.equals(left) || midpoint.equals(right))
+        {
+            size++;
+            return new Leaf();
+        }
+
+        Hashable lchild = initHelper(left, midpoint, inc(depth), ranges, sizedepth);
+        Hashable rchild = initHelper(midpoint, right, inc(depth), ranges, sizedepth);
+        return new Inner(midpoint, lchild, rchild);
+    }
+
     Hashable root()
     {
         return root;
@@ -236,6 +283,7 @@ public class MerkleTree implements Serializable
         byte[] lhash = lnode.hash();
         byte[] rhash = rnode.hash();
         active.setSize(lnode.sizeOfRange(), rnode.sizeOfRange());
+        active.setRows(lnode.rowsInRange(), rnode.rowsInRange());
 
         if (lhash != null && rhash != null && !Arrays.equals(lhash, rhash))
         {
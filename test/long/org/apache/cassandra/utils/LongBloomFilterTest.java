@@ -18,12 +18,16 @@
  */
 package org.apache.cassandra.utils;
 
+import java.nio.ByteBuffer;
 import java.util.Random;
 
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.io.util.FileUtils;
+
 public class LongBloomFilterTest
 {
     private static final Logger logger = LoggerFactory.getLogger(LongBloomFilterTest.class);
@@ -69,4 +73,45 @@ public class LongBloomFilterTest
         }
         logger.info("Bloom filter mean false positive: {}", sumfp / 10);
     }
+
+    /**
+     * Compares blocked filters against standard ones of the same false positive chance: the rate they actually
+     * achieve, and how long they take to check keys that were not added (the common case of a read touching
+     * sstables that do not have the partition, where all probes are usually needed).
+     */
+    @Test
+    public void testBlockedVersusStandard()
+    {
+        int size = 5 * 1000 * 1000;
+        for (double fpChance : new double[]{ 0.1, 0.01, 0.001 })
+        {
+            double standardFp = 0;
+            for (Config.BloomFilterType type : Config.BloomFilterType.values())
+            {
+                IFilter bf = FilterFactory.getFilter(size, fpChance, true, type);
+                ResetableIterator<ByteBuffer> keys = new KeyGenerator.IntGenerator(size);
+                while (keys.hasNext())
+                    bf.add(keys.next());
+
+                ResetableIterator<ByteBuffer> otherKeys = new KeyGenerator.IntGenerator(size, size * 2);
+                int falsePositives = 0;
+                long start = System.nanoTime();
+                while (otherKeys.hasNext())
+                {
+                    if (bf.isPresent(otherKeys.next()))
+                        falsePositives++;
+                }
+                long elapsed = System.nanoTime() - start;
+                FileUtils.closeQuietly(bf);
+
+                double fp = (double) falsePositives / size;
+                logger.info("{} bloom filter for a false positive chance of {}: false positive rate {}, {}ns per lookup",
+                            type, fpChance, fp, elapsed / size);
+                if (type == Config.BloomFilterType.standard)
+                    standardFp = fp;
+                else
+                    assert fp < 2 * Math.max(standardFp, fpChance) : String.format("%s >= 2 * %s", fp, standardFp);
+            }
+        }
+    }
 }
@@ -29,7 +29,10 @@ import java.util.UUID;
 import org.junit.Test;
 
 import org.apache.cassandra.SchemaLoader;
+import org.apache.cassandra.Util;
 import org.apache.cassandra.db.ColumnFamily;
+import org.apache.cassandra.db.filter.QueryFilter;
+import org.apache.cassandra.utils.ByteBufferUtil;
 
 import com.googlecode.concurrentlinkedhashmap.Weighers;
 import org.apache.cassandra.db.TreeMapBackedSortedColumns;
@@ -115,6 +118,33 @@ public class CacheProviderTest extends SchemaLoader
         concurrentCase(cf, cache);
     }
     
+    @Test
+    public void testSerializingCacheFilteredRead()
+    {
+        ICache<MeasureableString, IRowCacheEntry> cache = SerializingCache.create(1 << 20, new SerializingCacheProvider.RowCacheSerializer());
+        ColumnFamily cf = TreeMapBackedSortedColumns.factory.create(keyspaceName, cfName);
+        for (int i = 0; i < 50; i++)
+            cf.addColumn(column(String.format("col%02d", i), "val" + i, 1));
+        cache.put(key1, cf);
+
+        long now = System.currentTimeMillis();
+        assertFilteredRead(cache, cf, QueryFilter.getNamesFilter(Util.dk("k"), cfName, ByteBufferUtil.bytes("col07"), now), 1);
+        assertFilteredRead(cache, cf, QueryFilter.getNamesFilter(Util.dk("k"), cfName, ByteBufferUtil.bytes("missing"), now), 0);
+        assertFilteredRead(cache, cf, QueryFilter.getSliceFilter(Util.dk("k"), cfName, ByteBufferUtil.bytes("col10"), ByteBufferUtil.bytes("col19"), false, 100, now), 10);
+        assertFilteredRead(cache, cf, QueryFilter.getSliceFilter(Util.dk("k"), cfName, ByteBufferUtil.bytes("col105"), ByteBufferUtil.EMPTY_BYTE_BUFFER, false, 5, now), 5);
+        assertFilteredRead(cache, cf, QueryFilter.getSliceFilter(Util.dk("k"), cfName, ByteBufferUtil.bytes("col195"), ByteBufferUtil.bytes("col10"), true, 100, now), 10);
+        assertFilteredRead(cache, cf, QueryFilter.getSliceFilter(Util.dk("k"), cfName, ByteBufferUtil.EMPTY_BYTE_BUFFER, ByteBufferUtil.EMPTY_BYTE_BUFFER, true, 3, now), 3);
+        assertNull(cache.read(key2, new RowCacheFilter(QueryFilter.getIdentityFilter(Util.dk("k"), cfName, now), Integer.MIN_VALUE)));
+    }
+
+    private void assertFilteredRead(ICache<MeasureableString, IRowCacheEntry> cache, ColumnFamily cf, QueryFilter filter, int expectedColumns)
+    {
+        ColumnFamily offHeap = (ColumnFamily) cache.read(key1, new RowCacheFilter(filter, Integer.MIN_VALUE));
+        ColumnFamily onHeap = (ColumnFamily) new RowCacheFilter(filter, Integer.MIN_VALUE).read(cf);
+        assertEquals(expectedColumns, offHeap.getColumnCount());
+        assertEquals(ColumnFamily.digest(onHeap), ColumnFamily.digest(offHeap));
+    }
+
     @Test
     public void testKeys()
     {
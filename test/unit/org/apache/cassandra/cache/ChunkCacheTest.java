@@ -0,0 +1,93 @@
+package org.apache.cassandra.cache;
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ChunkCacheTest
+{
+    private final ChunkCache cache = ChunkCache.instance;
+
+    @Before
+    public void clear()
+    {
+        cache.clear();
+    }
+
+    private static byte[] chunk(int length, int seed)
+    {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++)
+            bytes[i] = (byte) (seed + i);
+        return bytes;
+    }
+
+    @Test
+    public void testReadAndInvalidate()
+    {
+        assertTrue(cache.isEnabled());
+        byte[] buffer = new byte[65536];
+        assertEquals(-1, cache.read("/data/ks-cf-jb-1-Data.db", 0, buffer));
+
+        cache.put("/data/ks-cf-jb-1-Data.db", 0, chunk(65536, 1), 65000);
+        cache.put("/data/ks-cf-jb-1-Data.db", 40000, chunk(65536, 2), 65536);
+        cache.put("/data/ks-cf-jb-2-Data.db", 0, chunk(65536, 3), 65536);
+
+        assertEquals(65000, cache.read("/data/ks-cf-jb-1-Data.db", 0, buffer));
+        assertArrayEquals(chunk(65000, 1), Arrays.copyOf(buffer, 65000));
+        assertEquals(65536, cache.read("/data/ks-cf-jb-2-Data.db", 0, buffer));
+        assertArrayEquals(chunk(65536, 3), buffer);
+
+        cache.invalidateFile("/data/ks-cf-jb-1-Data.db");
+        assertEquals(-1, cache.read("/data/ks-cf-jb-1-Data.db", 0, buffer));
+        assertEquals(-1, cache.read("/data/ks-cf-jb-1-Data.db", 40000, buffer));
+        assertEquals(65536, cache.read("/data/ks-cf-jb-2-Data.db", 0, buffer));
+    }
+
+    @Test
+    public void testEviction()
+    {
+        long capacity = cache.capacity();
+        try
+        {
+            cache.setCapacity(4 * 65536);
+            long evictions = cache.metrics.evictions.count();
+            for (int i = 0; i < 10; i++)
+                cache.put("/data/ks-cf-jb-1-Data.db", i * 65536L, chunk(65536, i), 65536);
+
+            assertEquals(4, cache.size());
+            assertEquals(6, cache.metrics.evictions.count() - evictions);
+            byte[] buffer = new byte[65536];
+            assertEquals(-1, cache.read("/data/ks-cf-jb-1-Data.db", 0, buffer));
+            assertEquals(65536, cache.read("/data/ks-cf-jb-1-Data.db", 9 * 65536L, buffer));
+        }
+        finally
+        {
+            cache.setCapacity(capacity);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package org.apache.cassandra.cache;
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+import java.io.File;
+import java.util.Set;
+
+import org.junit.Test;
+
+import org.apache.cassandra.db.RowIndexEntry;
+import org.apache.cassandra.io.sstable.Descriptor;
+import org.apache.cassandra.utils.ByteBufferUtil;
+
+import static org.junit.Assert.*;
+
+public class OffHeapKeyCacheTest
+{
+    private final Descriptor desc1 = new Descriptor(new File("."), "Keyspace1", "Standard1", 1, false);
+    private final Descriptor desc2 = new Descriptor(new File("."), "Keyspace1", "Standard1", 2, false);
+
+    private static KeyCacheKey key(Descriptor desc, int i)
+    {
+        return new KeyCacheKey(desc, ByteBufferUtil.bytes("key" + i));
+    }
+
+    @Test
+    public void testPutGetRemove()
+    {
+        OffHeapKeyCache cache = OffHeapKeyCache.create(1024 * 1024 * 1024);
+        for (int i = 0; i < 1000; i++)
+        {
+            cache.put(key(desc1, i), new RowIndexEntry(i));
+            cache.put(key(desc2, i), new RowIndexEntry(-i));
+        }
+        assertEquals(2000, cache.size());
+
+        for (int i = 0; i < 1000; i++)
+        {
+            assertEquals(i, cache.get(key(desc1, i)).position);
+            assertEquals(-i, cache.get(key(desc2, i)).position);
+        }
+
+        // removing entries must keep the others reachable
+        for (int i = 0; i < 1000; i += 2)
+            cache.remove(key(desc1, i));
+        assertEquals(1500, cache.size());
+        for (int i = 0; i < 1000; i++)
+        {
+            assertEquals(i % 2 == 0, cache.get(key(desc1, i)) == null);
+            assertNotNull(cache.get(key(desc2, i)));
+        }
+
+        assertFalse(cache.putIfAbsent(key(desc2, 1), new RowIndexEntry(42)));
+        assertFalse(cache.replace(key(desc2, 1), new RowIndexEntry(42), new RowIndexEntry(43)));
+        assertTrue(cache.replace(key(desc2, 1), new RowIndexEntry(-1), new RowIndexEntry(43)));
+        assertEquals(43, cache.get(key(desc2, 1)).position);
+
+        Set<KeyCacheKey> keys = cache.keySet();
+        assertEquals(1500, keys.size());
+        assertTrue(keys.contains(key(desc1, 1)));
+        assertFalse(keys.contains(key(desc1, 2)));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertNull(cache.get(key(desc1, 1)));
+    }
+
+    @Test
+    public void testEviction()
+    {
+        // large enough for each segment to hold many more entries than its table takes
+        long capacity = 1024 * 1024;
+        OffHeapKeyCache cache = OffHeapKeyCache.create(capacity);
+        for (int i = 0; i < 100000; i++)
+        {
+            cache.put(key(desc1, i), new RowIndexEntry(i));
+            // keep reading the first keys, so that CLOCK gives them a second chance
+            for (int j = 0; j < 10; j++)
+                cache.get(key(desc1, j));
+        }
+        assertTrue(cache.weightedSize() <= capacity);
+        // the keys are spread over all the segments, so the whole capacity is used
+        assertTrue(cache.weightedSize() > capacity * 3 / 4);
+        assertTrue(cache.size() < 100000);
+        for (int j = 0; j < 10; j++)
+            assertNotNull(cache.get(key(desc1, j)));
+
+        cache.setCapacity(capacity / 2);
+        assertTrue(cache.weightedSize() <= capacity / 2);
+    }
+
+    @Test
+    public void testRemoveSSTable()
+    {
+        OffHeapKeyCache cache = OffHeapKeyCache.create(1024 * 1024 * 1024);
+        for (int i = 0; i < 20000; i++)
+        {
+            cache.put(key(desc1, i), new RowIndexEntry(i));
+            cache.put(key(desc2, i), new RowIndexEntry(-i));
+        }
+        assertEquals(2, cache.sstableCount());
+
+        cache.removeSSTable(desc1);
+        assertEquals(1, cache.sstableCount());
+        for (int i = 0; i < 20000; i++)
+        {
+            assertNull(cache.get(key(desc1, i)));
+            assertFalse(cache.containsKey(key(desc1, i)));
+            assertEquals(-i, cache.get(key(desc2, i)).position);
+        }
+        assertEquals(20000, cache.keySet().size());
+
+        // the entries of the removed sstable go first, even though they were all put since the hand last went by
+        long size = cache.weightedSize();
+        cache.setCapacity(size * 4 / 5);
+        assertTrue(cache.weightedSize() <= size * 4 / 5);
+        for (int i = 0; i < 20000; i++)
+            assertNotNull(cache.get(key(desc2, i)));
+    }
+}
@@ -19,10 +19,17 @@
 package org.apache.cassandra.db;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.cassandra.SchemaLoader;
 import org.apache.cassandra.Util;
@@ -84,6 +91,69 @@ public class CollationControllerTest extends SchemaLoader
         assertEquals(2, controller.getSstablesIterated());
     }
 
+    @Test
+    public void parallelReadsMatchSequentialReads()
+    throws IOException, ExecutionException, InterruptedException
+    {
+        Keyspace keyspace = Keyspace.open("Keyspace1");
+        ColumnFamilyStore cfs = keyspace.getColumnFamilyStore("Standard2");
+        cfs.disableAutoCompaction();
+        RowMutation rm;
+        DecoratedKey dk = Util.dk("key1");
+        ByteBuffer cellName = ByteBufferUtil.bytes("Column1");
+
+        for (int i = 0; i < 4; i++)
+        {
+            rm = new RowMutation(keyspace.getName(), dk.key);
+            rm.add(cfs.name, cellName, ByteBufferUtil.bytes("value" + i), i);
+            rm.add(cfs.name, ByteBufferUtil.bytes("Column" + (i + 2)), ByteBufferUtil.bytes("value" + i), i);
+            rm.apply();
+            cfs.forceBlockingFlush();
+        }
+
+        // a newer version of one column, in the memtable only
+        rm = new RowMutation(keyspace.getName(), dk.key);
+        rm.add(cfs.name, ByteBufferUtil.bytes("Column2"), ByteBufferUtil.bytes("value4"), 4);
+        rm.apply();
+
+        QueryFilter namesFilter = QueryFilter.getNamesFilter(dk, cfs.name, cellName, System.currentTimeMillis());
+        SortedSet<ByteBuffer> columns = new TreeSet<ByteBuffer>(cfs.getComparator());
+        for (int i = 1; i <= 5; i++)
+            columns.add(ByteBufferUtil.bytes("Column" + i));
+        QueryFilter allNamesFilter = QueryFilter.getNamesFilter(dk, cfs.name, columns, System.currentTimeMillis());
+        QueryFilter identityFilter = QueryFilter.getIdentityFilter(dk, cfs.name, System.currentTimeMillis());
+
+        ColumnFamily sequentialNames = new CollationController(cfs, namesFilter, Integer.MIN_VALUE).getTopLevelColumns();
+        ColumnFamily sequentialAllNames = new CollationController(cfs, allNamesFilter, Integer.MIN_VALUE).getTopLevelColumns();
+        ColumnFamily sequentialIdentity = new CollationController(cfs, identityFilter, Integer.MIN_VALUE).getTopLevelColumns();
+
+        cfs.metadata.parallelSSTableReads(true);
+        try
+        {
+            CollationController controller = new CollationController(cfs, namesFilter, Integer.MIN_VALUE);
+            ColumnFamily cf = controller.getTopLevelColumns();
+            assertEquals(ByteBufferUtil.bytes("value3"), cf.getColumn(cellName).value());
+            assertEquals(1, controller.getSstablesIterated());
+            assertEquals(sequentialNames, cf);
+
+            cf = new CollationController(cfs, allNamesFilter, Integer.MIN_VALUE).getTopLevelColumns();
+            assertEquals(ByteBufferUtil.bytes("value4"), cf.getColumn(ByteBufferUtil.bytes("Column2")).value());
+            assertEquals(5, cf.getColumnCount());
+            assertEquals(sequentialAllNames, cf);
+
+            controller = new CollationController(cfs, identityFilter, Integer.MIN_VALUE);
+            cf = controller.getTopLevelColumns();
+            assertEquals(ByteBufferUtil.bytes("value3"), cf.getColumn(cellName).value());
+            assertEquals(5, cf.getColumnCount());
+            assertEquals(4, controller.getSstablesIterated());
+            assertEquals(sequentialIdentity, cf);
+        }
+        finally
+        {
+            cfs.metadata.parallelSSTableReads(false);
+        }
+    }
+
     @Test
     public void ensureTombstonesAppliedAfterGCGS()
     throws IOException, ExecutionException, InterruptedException
@@ -121,4 +191,43 @@ public class CollationControllerTest extends SchemaLoader
         controller = new CollationController(cfs, filter, gcBefore);
         assert ColumnFamilyStore.removeDeleted(controller.getTopLevelColumns(), gcBefore) == null;
     }
+
+    @Test
+    public void cancelledReadsNeverStart() throws Exception
+    {
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch running = new CountDownLatch(1);
+        final CountDownLatch finish = new CountDownLatch(1);
+        Callable<Integer> callable = new Callable<Integer>()
+        {
+            public Integer call() throws Exception
+            {
+                running.countDown();
+                finish.await();
+                return calls.incrementAndGet();
+            }
+        };
+
+        // a read that has not started is cancelled, and does nothing when the pool gets to it
+        CollationController.SSTableRead<Integer> read = new CollationController.SSTableRead<Integer>(callable);
+        assertTrue(read.cancelIfNotStarted());
+        assertTrue(read.isCancelled());
+        read.run();
+        assertEquals(0, calls.get());
+
+        // a running read is left to complete
+        final CollationController.SSTableRead<Integer> runningRead = new CollationController.SSTableRead<Integer>(callable);
+        Thread thread = new Thread(runningRead);
+        thread.start();
+        running.await();
+        assertFalse(runningRead.cancelIfNotStarted());
+        assertFalse(runningRead.isCancelled());
+        finish.countDown();
+        assertEquals(1, (int) runningRead.get());
+        thread.join();
+
+        // and so is a completed one
+        assertFalse(runningRead.cancelIfNotStarted());
+        assertEquals(1, (int) runningRead.get());
+    }
 }
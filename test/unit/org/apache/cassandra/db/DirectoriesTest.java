@@ -176,6 +176,19 @@ public class DirectoriesTest
         }
     }
 
+    @Test
+    public void testWriteableLocations()
+    {
+        for (String cf : CFS)
+        {
+            Directories directories = Directories.create(KS, cf);
+            List<DataDirectory> locations = directories.getWriteableLocations();
+            Assert.assertEquals(Directories.dataFileLocations.length, locations.size());
+            Assert.assertEquals(locations.get(0), directories.getWriteableLocation());
+            Assert.assertEquals(cfDir(cf), directories.getLocationForDisk(locations.get(0)));
+        }
+    }
+
     @Test
     public void testDiskFailurePolicy_best_effort() throws IOException
     {
@@ -28,8 +28,11 @@ import org.junit.Test;
 import org.apache.cassandra.SchemaLoader;
 import org.apache.cassandra.Util;
 import org.apache.cassandra.cache.KeyCacheKey;
+import org.apache.cassandra.cache.OffHeapKeyCache;
 import org.apache.cassandra.db.compaction.CompactionManager;
 import org.apache.cassandra.db.filter.QueryFilter;
+import org.apache.cassandra.io.sstable.SSTableDeletingTask;
+import org.apache.cassandra.io.sstable.SSTableReader;
 import org.apache.cassandra.service.CacheService;
 import org.apache.cassandra.utils.ByteBufferUtil;
 
@@ -170,6 +173,40 @@ public class KeyCacheTest extends SchemaLoader
         assertKeyCacheSize(4, KEYSPACE1, COLUMN_FAMILY1);
     }
 
+    @Test
+    public void testOffHeapKeyCacheForgetsDeletedSSTables() throws ExecutionException, InterruptedException
+    {
+        CompactionManager.instance.disableAutoCompaction();
+
+        Keyspace keyspace = Keyspace.open(KEYSPACE1);
+        ColumnFamilyStore cfs = keyspace.getColumnFamilyStore(COLUMN_FAMILY2);
+        OffHeapKeyCache cache = OffHeapKeyCache.create(1024 * 1024);
+        cfs.getDataTracker().subscribe(cache);
+        try
+        {
+            for (int i = 0; i < 2; i++)
+            {
+                RowMutation rm = new RowMutation(KEYSPACE1, Util.dk("key" + i).key);
+                rm.add(COLUMN_FAMILY2, ByteBufferUtil.bytes("1"), ByteBufferUtil.EMPTY_BYTE_BUFFER, 0);
+                rm.apply();
+                cfs.forceBlockingFlush();
+            }
+            for (SSTableReader sstable : cfs.getSSTables())
+                cache.put(new KeyCacheKey(sstable.descriptor, sstable.first.key), sstable.getPosition(sstable.first, SSTableReader.Operator.EQ));
+            assertEquals(cfs.getSSTables().size(), cache.sstableCount());
+
+            // the compacted sstables are deleted once released, and the cache forgets them
+            Util.compactAll(cfs, Integer.MAX_VALUE).get();
+            SSTableDeletingTask.waitForDeletions();
+            assertEquals(0, cache.sstableCount());
+            assertEquals(0, cache.keySet().size());
+        }
+        finally
+        {
+            cfs.getDataTracker().unsubscribe(cache);
+        }
+    }
+
     private void assertKeyCacheSize(int expected, String keyspace, String columnFamily)
     {
         int size = 0;
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.Futures;
+import org.junit.Test;
+
+import org.apache.cassandra.SchemaLoader;
+import org.apache.cassandra.Util;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.commitlog.ReplayPosition;
+import org.apache.cassandra.io.sstable.SSTable;
+import org.apache.cassandra.io.sstable.SSTableReader;
+import org.apache.cassandra.io.sstable.SSTableScanner;
+import org.apache.cassandra.io.util.FileUtils;
+import org.apache.cassandra.utils.ByteBufferUtil;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MemtableTest extends SchemaLoader
+{
+    /**
+     * Split flushes must write every row exactly once, in non-overlapping sstables.
+     */
+    @Test
+    public void testSplitRows()
+    {
+        for (int rowCount : new int[]{ 0, 1, 2, 3, 10, 97, 1000 })
+        {
+            ConcurrentSkipListMap<Integer, Integer> rows = new ConcurrentSkipListMap<Integer, Integer>();
+            for (int i = 0; i < rowCount; i++)
+                rows.put(i * 2, i);
+
+            for (int sliceCount = 1; sliceCount <= 5; sliceCount++)
+            {
+                List<ConcurrentNavigableMap<Integer, Integer>> slices = Memtable.splitRows(rows, sliceCount);
+                assertEquals(Math.max(1, Math.min(sliceCount, rowCount)), slices.size());
+
+                List<Integer> keys = new ArrayList<Integer>();
+                Integer previousLast = null;
+                for (ConcurrentNavigableMap<Integer, Integer> slice : slices)
+                {
+                    if (rowCount == 0)
+                        continue;
+                    // every slice holds about an even share of the rows
+                    assertTrue(slice.size() >= rowCount / slices.size());
+                    assertTrue(slice.size() <= rowCount / slices.size() + 1);
+                    // and starts after the previous one ended
+                    if (previousLast != null)
+                        assertTrue(slice.firstKey() > previousLast);
+                    previousLast = slice.lastKey();
+                    keys.addAll(slice.keySet());
+                }
+                assertEquals(new ArrayList<Integer>(rows.keySet()), keys);
+            }
+        }
+    }
+
+    /**
+     * A memtable over the split threshold is flushed to one sstable per data directory.
+     */
+    @Test
+    public void testSplitFlush() throws Exception
+    {
+        ColumnFamilyStore cfs = Keyspace.open("Keyspace1").getColumnFamilyStore("Standard1");
+        cfs.disableAutoCompaction();
+        cfs.truncateBlocking();
+
+        // about 2MB of rows, over a 1MB threshold
+        int rowCount = 500;
+        ByteBuffer value = ByteBuffer.wrap(new byte[4096]);
+        for (int i = 0; i < rowCount; i++)
+        {
+            RowMutation rm = new RowMutation("Keyspace1", ByteBufferUtil.bytes("key" + i));
+            rm.add("Standard1", ByteBufferUtil.bytes("c"), value, 0);
+            rm.apply();
+        }
+
+        long threshold = DatabaseDescriptor.getFlushSplitThreshold();
+        DatabaseDescriptor.setFlushSplitThreshold(1);
+        File[] locations = new File[]{ Files.createTempDir(), Files.createTempDir(), Files.createTempDir() };
+        try
+        {
+            // the test configuration has a single data directory
+            final Directories directories = Directories.createForTest(cfs.keyspace.getName(), cfs.name, locations);
+            Memtable memtable = cfs.getDataTracker().switchMemtable();
+            CountDownLatch latch = new CountDownLatch(1);
+            memtable.new FlushRunnable(latch, Futures.immediateFuture(ReplayPosition.NONE))
+            {
+                protected Directories getDirectories()
+                {
+                    return directories;
+                }
+            }.run();
+            assertEquals(0, latch.getCount());
+
+            List<SSTableReader> sstables = new ArrayList<>(cfs.getSSTables());
+            assertEquals(locations.length, sstables.size());
+            Collections.sort(sstables, SSTable.sstableComparator);
+
+            Set<File> used = new HashSet<>();
+            int flushed = 0;
+            for (int i = 0; i < sstables.size(); i++)
+            {
+                SSTableReader sstable = sstables.get(i);
+                for (File location : locations)
+                {
+                    if (sstable.getFilename().startsWith(location.getPath()))
+                        used.add(location);
+                }
+                // each sstable covers a token range of its own
+                if (i > 0)
+                    assertTrue(sstables.get(i - 1).last.compareTo(sstable.first) < 0);
+
+                SSTableScanner scanner = sstable.getScanner();
+                try
+                {
+                    while (scanner.hasNext())
+                    {
+                        scanner.next();
+                        flushed++;
+                    }
+                }
+                finally
+                {
+                    scanner.close();
+                }
+            }
+            assertEquals(locations.length, used.size());
+            assertEquals(rowCount, flushed);
+            assertEquals(rowCount, Util.getRangeSlice(cfs).size());
+        }
+        finally
+        {
+            DatabaseDescriptor.setFlushSplitThreshold((int) (threshold / (1024 * 1024)));
+            cfs.truncateBlocking();
+            for (File location : locations)
+                FileUtils.deleteRecursive(location);
+        }
+    }
+}
@@ -26,13 +26,17 @@ import org.junit.Test;
 
 import org.apache.cassandra.SchemaLoader;
 import org.apache.cassandra.Util;
+import org.apache.cassandra.cache.IRowCacheEntry;
+import org.apache.cassandra.cache.RowCacheHead;
+import org.apache.cassandra.cache.RowCacheKey;
+import org.apache.cassandra.config.CFMetaData;
 import org.apache.cassandra.db.compaction.CompactionManager;
 import org.apache.cassandra.dht.BytesToken;
 import org.apache.cassandra.locator.TokenMetadata;
 import org.apache.cassandra.service.CacheService;
 import org.apache.cassandra.service.StorageService;
 import org.apache.cassandra.utils.ByteBufferUtil;
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 public class RowCacheTest extends SchemaLoader
 {
@@ -173,6 +177,64 @@ public class RowCacheTest extends SchemaLoader
         CacheService.instance.setRowCacheCapacityInMB(0);
     }
 
+    @Test
+    public void testRowCacheHead() throws Exception
+    {
+        CompactionManager.instance.disableAutoCompaction();
+
+        ColumnFamilyStore store = Keyspace.open(KEYSPACE).getColumnFamilyStore(COLUMN_FAMILY);
+        CacheService.instance.invalidateRowCache();
+        CacheService.instance.setRowCacheCapacityInMB(1);
+        store.metadata.rowsPerPartitionToCache(10);
+
+        try
+        {
+            DecoratedKey key = Util.dk("head");
+            RowMutation rm = new RowMutation(KEYSPACE, key.key);
+            for (int i = 0; i < 100; i++)
+                rm.add(COLUMN_FAMILY, ByteBufferUtil.bytes(String.format("col%02d", i)), ByteBufferUtil.bytes("val" + i), 0);
+            rm.applyUnsafe();
+
+            // only the first 10 cells of the partition get cached
+            ColumnFamily cf = store.getColumnFamily(key, ByteBufferUtil.EMPTY_BYTE_BUFFER, ByteBufferUtil.EMPTY_BYTE_BUFFER, false, 5, System.currentTimeMillis());
+            assertEquals(5, cf.getColumnCount());
+            IRowCacheEntry cached = CacheService.instance.rowCache.getInternal(new RowCacheKey(store.metadata.cfId, key));
+            assertTrue(cached instanceof RowCacheHead);
+            assertEquals(10, ((RowCacheHead) cached).data.getColumnCount());
+            assertNull(store.getRawCachedRow(key));
+
+            // queries within the head and past it both see the right data
+            cf = store.getColumnFamily(key, ByteBufferUtil.bytes("col03"), ByteBufferUtil.bytes("col09"), false, 100, System.currentTimeMillis());
+            assertEquals(7, cf.getColumnCount());
+            cf = store.getColumnFamily(key, ByteBufferUtil.bytes("col05"), ByteBufferUtil.EMPTY_BYTE_BUFFER, false, 10, System.currentTimeMillis());
+            assertEquals(10, cf.getColumnCount());
+            assertEquals(ByteBufferUtil.bytes("col14"), cf.getReverseSortedColumns().iterator().next().name());
+            cf = store.getColumnFamily(key, ByteBufferUtil.EMPTY_BYTE_BUFFER, ByteBufferUtil.EMPTY_BYTE_BUFFER, true, 3, System.currentTimeMillis());
+            assertEquals(ByteBufferUtil.bytes("col99"), cf.getReverseSortedColumns().iterator().next().name());
+
+            // a write within the head invalidates it
+            rm = new RowMutation(KEYSPACE, key.key);
+            rm.delete(COLUMN_FAMILY, ByteBufferUtil.bytes("col00"), 1);
+            rm.applyUnsafe();
+            assertFalse(store.containsCachedRow(key));
+            long now = System.currentTimeMillis();
+            cf = store.getColumnFamily(key, ByteBufferUtil.EMPTY_BYTE_BUFFER, ByteBufferUtil.EMPTY_BYTE_BUFFER, false, 1, now);
+            // the tombstone comes back along with the first live cell
+            assertTrue(cf.getColumn(ByteBufferUtil.bytes("col00")).isMarkedForDelete(now));
+            assertTrue(cf.getColumn(ByteBufferUtil.bytes("col01")).isLive(now));
+
+            // small partitions are cached whole
+            insertData(KEYSPACE, COLUMN_FAMILY, 0, 1);
+            readData(KEYSPACE, COLUMN_FAMILY, 0, 1);
+            assertNotNull(store.getRawCachedRow(Util.dk("key0")));
+        }
+        finally
+        {
+            store.metadata.rowsPerPartitionToCache(CFMetaData.DEFAULT_ROWS_PER_PARTITION_TO_CACHE);
+            CacheService.instance.setRowCacheCapacityInMB(0);
+        }
+    }
+
     public void rowCacheLoad(int totalKeys, int keysToSave, int offset) throws Exception
     {
         CompactionManager.instance.disableAutoCompaction();
@@ -0,0 +1,165 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.apache.cassandra.db;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.db.filter.ColumnSlice;
+import org.apache.cassandra.db.marshal.IntegerType;
+import org.apache.cassandra.db.marshal.LongType;
+import org.apache.cassandra.io.sstable.Descriptor;
+import org.apache.cassandra.io.sstable.IndexHelper;
+import org.apache.cassandra.io.sstable.IndexHelper.IndexInfo;
+import org.apache.cassandra.io.util.DataOutputBuffer;
+import org.apache.cassandra.io.util.MappedFileDataInput;
+
+import static org.junit.Assert.*;
+import static org.apache.cassandra.utils.ByteBufferUtil.bytes;
+
+public class RowIndexEntryTest
+{
+    @Test
+    public void testSerializedColumnIndex() throws IOException
+    {
+        List<IndexInfo> indexes = new ArrayList<IndexInfo>();
+        for (long i = 0; i < 100; i++)
+            indexes.add(new IndexInfo(bytes(i * 10), bytes(i * 10 + 5), i * 1000, 1000));
+        DeletionTime deletionTime = new DeletionTime(42L, 24);
+
+        // write the promoted index the way the column index writer lays it out
+        DataOutputBuffer out = new DataOutputBuffer();
+        out.writeLong(123L);
+        DataOutputBuffer promoted = new DataOutputBuffer();
+        DeletionTime.serializer.serialize(deletionTime, promoted);
+        promoted.writeInt(indexes.size());
+        for (IndexInfo info : indexes)
+            info.serialize(promoted);
+        out.writeInt(promoted.getLength());
+        out.write(promoted.getData(), 0, promoted.getLength());
+        byte[] serialized = Arrays.copyOf(out.getData(), out.getLength());
+
+        RowIndexEntry entry = RowIndexEntry.serializer.deserialize(new DataInputStream(new ByteArrayInputStream(serialized)), new Descriptor.Version("jb"));
+        assertEquals(123L, entry.position);
+        assertFalse(entry.hasPartitionBounds());
+        assertTrue(entry.isIndexed());
+        assertEquals(deletionTime, entry.deletionTime());
+
+        List<IndexInfo> columnsIndex = entry.columnsIndex();
+        assertEquals(indexes.size(), columnsIndex.size());
+        for (int i = 0; i < indexes.size(); i++)
+        {
+            assertEquals(indexes.get(i).firstName, columnsIndex.get(i).firstName);
+            assertEquals(indexes.get(i).lastName, columnsIndex.get(i).lastName);
+            assertEquals(indexes.get(i).offset, columnsIndex.get(i).offset);
+            assertEquals(indexes.get(i).width, columnsIndex.get(i).width);
+        }
+
+        assertEquals(37, IndexHelper.indexFor(bytes(372L), columnsIndex, IntegerType.instance, false, -1));
+        assertEquals(37, IndexHelper.indexFor(bytes(372L), columnsIndex, IntegerType.instance, true, -1));
+        assertEquals(100, IndexHelper.indexFor(bytes(10000L), columnsIndex, IntegerType.instance, false, 50));
+
+        DataOutputBuffer reserialized = new DataOutputBuffer();
+        RowIndexEntry.serializer.serialize(entry, reserialized);
+        assertArrayEquals(serialized, Arrays.copyOf(reserialized.getData(), reserialized.getLength()));
+    }
+
+    @Test
+    public void testPartitionBounds() throws IOException
+    {
+        CFMetaData cfm = new CFMetaData("Keyspace1", "Standard1", ColumnFamilyType.Standard, LongType.instance);
+        ColumnFamily cf = ArrayBackedSortedColumns.factory.create(cfm);
+        for (long i = 10; i <= 20; i++)
+            cf.addColumn(new Column(bytes(i), bytes(i), i));
+        // range tombstones extend the bounds past the last column
+        cf.delete(new RangeTombstone(bytes(15L), bytes(30L), 25, 0));
+
+        ColumnIndex index = new ColumnIndex.Builder(cf, bytes("key"), new DataOutputBuffer()).build(cf);
+        RowIndexEntry written = RowIndexEntry.create(123L, cf.deletionInfo().getTopLevelDeletion(), index, true);
+
+        DataOutputBuffer out = new DataOutputBuffer();
+        RowIndexEntry.serializer.serialize(written, out);
+        byte[] serialized = Arrays.copyOf(out.getData(), out.getLength());
+
+        RowIndexEntry entry = RowIndexEntry.serializer.deserialize(new DataInputStream(new ByteArrayInputStream(serialized)), Descriptor.Version.CURRENT);
+        assertEquals(123L, entry.position);
+        assertFalse(entry.isIndexed());
+        assertTrue(entry.hasPartitionBounds());
+        assertEquals(DeletionTime.LIVE, entry.deletionTime());
+        assertEquals(bytes(10L), entry.minColumnName());
+        assertEquals(bytes(30L), entry.maxColumnName());
+        assertEquals(25L, entry.maxTimestamp());
+
+        assertTrue(new ColumnSlice(bytes(25L), bytes(40L)).intersects(LongType.instance, entry.minColumnName(), entry.maxColumnName(), false));
+        assertFalse(new ColumnSlice(bytes(31L), bytes(40L)).intersects(LongType.instance, entry.minColumnName(), entry.maxColumnName(), false));
+        assertFalse(new ColumnSlice(bytes(9L), bytes(0L)).intersects(LongType.instance, entry.minColumnName(), entry.maxColumnName(), true));
+
+        DataOutputBuffer reserialized = new DataOutputBuffer();
+        RowIndexEntry.serializer.serialize(entry, reserialized);
+        assertArrayEquals(serialized, Arrays.copyOf(reserialized.getData(), reserialized.getLength()));
+    }
+
+    @Test
+    public void testDeserializeFromMappedFile() throws IOException
+    {
+        // index files are usually mapped, and mapped inputs only support readBytes
+        List<IndexInfo> indexes = new ArrayList<IndexInfo>();
+        for (long i = 0; i < 10; i++)
+            indexes.add(new IndexInfo(bytes(i * 10), bytes(i * 10 + 5), i * 1000, 1000));
+        DataOutputBuffer out = new DataOutputBuffer();
+        out.writeLong(123L);
+        DataOutputBuffer promoted = new DataOutputBuffer();
+        DeletionTime.serializer.serialize(DeletionTime.LIVE, promoted);
+        promoted.writeInt(indexes.size());
+        for (IndexInfo info : indexes)
+            info.serialize(promoted);
+        out.writeInt(promoted.getLength());
+        out.write(promoted.getData(), 0, promoted.getLength());
+
+        File file = File.createTempFile("RowIndexEntryTest", null);
+        file.deleteOnExit();
+        try (FileOutputStream fos = new FileOutputStream(file))
+        {
+            fos.write(out.getData(), 0, out.getLength());
+        }
+
+        RowIndexEntry entry;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"))
+        {
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+            entry = RowIndexEntry.serializer.deserialize(new MappedFileDataInput(buffer, file.getPath(), 0, 0), new Descriptor.Version("jb"));
+        }
+        assertEquals(123L, entry.position);
+        assertTrue(entry.isIndexed());
+        assertEquals(indexes.size(), entry.columnsIndex().size());
+        assertEquals(indexes.get(9).firstName, entry.columnsIndex().get(9).firstName);
+    }
+}
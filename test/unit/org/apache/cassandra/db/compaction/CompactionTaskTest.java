@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.compaction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.utils.ByteBufferUtil;
+
+import static org.apache.cassandra.db.compaction.CompactionTask.splitRanges;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class CompactionTaskTest
+{
+    private static final IPartitioner partitioner = new Murmur3Partitioner();
+    private static final Token minimum = partitioner.getMinimumToken();
+
+    @Test
+    public void testSplitRanges()
+    {
+        Random random = new Random(42);
+        List<DecoratedKey> keys = new ArrayList<DecoratedKey>();
+        for (int i = 0; i < 1000; i++)
+            keys.add(partitioner.decorateKey(ByteBufferUtil.bytes(random.nextLong())));
+
+        for (int splits = 2; splits <= 16; splits++)
+        {
+            List<Range<Token>> ranges = splitRanges(new ArrayList<DecoratedKey>(keys), splits, minimum);
+            assertEquals(splits, ranges.size());
+            assertContiguous(ranges);
+
+            // every key falls in exactly one range, and the ranges get about the same number of keys
+            int[] counts = new int[ranges.size()];
+            for (DecoratedKey key : keys)
+            {
+                int containing = 0;
+                for (int i = 0; i < ranges.size(); i++)
+                {
+                    if (ranges.get(i).contains(key.token))
+                    {
+                        containing++;
+                        counts[i]++;
+                    }
+                }
+                assertEquals(1, containing);
+            }
+            for (int count : counts)
+                assertEquals(keys.size() / (double) splits, count, 2);
+        }
+    }
+
+    @Test
+    public void testSplitRangesSkipsDuplicateBoundaries()
+    {
+        DecoratedKey first = partitioner.decorateKey(ByteBufferUtil.bytes(1L));
+        DecoratedKey second = partitioner.decorateKey(ByteBufferUtil.bytes(2L));
+        List<DecoratedKey> keys = new ArrayList<DecoratedKey>();
+        for (int i = 0; i < 10; i++)
+        {
+            keys.add(first);
+            keys.add(second);
+        }
+        // 7 boundaries are asked for, but there are only 2 distinct ones
+        List<Range<Token>> ranges = splitRanges(keys, 8, minimum);
+        assertEquals(3, ranges.size());
+        assertContiguous(ranges);
+    }
+
+    @Test
+    public void testSplitRangesNotSplit()
+    {
+        List<DecoratedKey> keys = new ArrayList<DecoratedKey>();
+        for (long i = 0; i < 3; i++)
+            keys.add(partitioner.decorateKey(ByteBufferUtil.bytes(i)));
+
+        List<Range<Token>> unsplit = Collections.singletonList(null);
+        assertEquals(unsplit, splitRanges(new ArrayList<DecoratedKey>(keys), 1, minimum));
+        // fewer samples than splits
+        assertEquals(unsplit, splitRanges(new ArrayList<DecoratedKey>(keys), 4, minimum));
+    }
+
+    /**
+     * Checks that the ranges start and end at the minimum token, and that each one starts where the previous
+     * one ends, i.e. that they are disjoint and cover the whole ring.
+     */
+    private static void assertContiguous(List<Range<Token>> ranges)
+    {
+        assertEquals(minimum, ranges.get(0).left);
+        assertEquals(minimum, ranges.get(ranges.size() - 1).right);
+        for (int i = 0; i < ranges.size(); i++)
+        {
+            Range<Token> range = ranges.get(i);
+            assertFalse(range.left.equals(range.right));
+            if (i > 0)
+                assertEquals(ranges.get(i - 1).right, range.left);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.compaction;
+
+import org.junit.Test;
+
+import org.apache.cassandra.db.compaction.CompactionThroughputController.Decision;
+
+import static org.apache.cassandra.db.compaction.CompactionThroughputController.clamp;
+import static org.apache.cassandra.db.compaction.CompactionThroughputController.decide;
+import static org.apache.cassandra.db.compaction.CompactionThroughputController.initialThroughput;
+import static org.junit.Assert.assertEquals;
+
+public class CompactionThroughputControllerTest
+{
+    @Test
+    public void testDecide()
+    {
+        // nothing to do: slow down
+        assertEquals(Decision.LOWER_WHEN_IDLE, decide(false, 1, 1000, 1000));
+        // pending compactions, reads are fine
+        assertEquals(Decision.RAISE_FOR_BACKLOG, decide(true, 2, 1000, 1000));
+        // pending compactions and reads merge many sstables
+        assertEquals(Decision.RAISE_FOR_READS, decide(true, 8, 5000, 1000));
+        // many sstables per read but nothing to compact them with
+        assertEquals(Decision.LOWER_WHEN_IDLE, decide(false, 8, 1000, 1000));
+        // read latency went up, and compacting faster won't reduce read amplification
+        assertEquals(Decision.LOWER_FOR_LATENCY, decide(true, 2, 5000, 1000));
+        assertEquals(Decision.LOWER_FOR_LATENCY, decide(false, 2, 5000, 1000));
+        // no read latency history yet
+        assertEquals(Decision.RAISE_FOR_BACKLOG, decide(true, 2, 5000, 0));
+    }
+
+    @Test
+    public void testClamp()
+    {
+        assertEquals(8.0, clamp(4.0, 8, 128), 0.0);
+        assertEquals(128.0, clamp(200.0, 8, 128), 0.0);
+        assertEquals(16.5, clamp(16.5, 8, 128), 0.0);
+    }
+
+    @Test
+    public void testInitialThroughput()
+    {
+        assertEquals(16.0, initialThroughput(16, 8, 128), 0.0);
+        assertEquals(8.0, initialThroughput(4, 8, 128), 0.0);
+        assertEquals(128.0, initialThroughput(200, 8, 128), 0.0);
+        // unthrottled
+        assertEquals(128.0, initialThroughput(0, 8, 128), 0.0);
+    }
+}
@@ -20,6 +20,8 @@ package org.apache.cassandra.db.compaction;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
@@ -189,6 +191,48 @@ public class CompactionsPurgeTest extends SchemaLoader
         assertEquals(2, cf.getColumnCount());
     }
 
+    @Test
+    public void testPurgeCheckAgainstOverlappingMinTimestamp()
+    {
+        CompactionManager.instance.disableAutoCompaction();
+        Keyspace keyspace = Keyspace.open(KEYSPACE1);
+        String cfName = "Standard3";
+        ColumnFamilyStore cfs = keyspace.getColumnFamilyStore(cfName);
+        cfs.clearUnsafe();
+
+        DecoratedKey key = Util.dk("key1");
+        RowMutation rm = new RowMutation(KEYSPACE1, key.key);
+        rm.add(cfName, ByteBufferUtil.bytes("c1"), ByteBufferUtil.EMPTY_BYTE_BUFFER, 1);
+        rm.apply();
+        cfs.forceBlockingFlush();
+        Set<SSTableReader> compacting = new HashSet<SSTableReader>(cfs.getSSTables());
+
+        // an overlapping sstable, not part of the compaction, whose data is no older than timestamp 10
+        rm = new RowMutation(KEYSPACE1, key.key);
+        rm.add(cfName, ByteBufferUtil.bytes("c2"), ByteBufferUtil.EMPTY_BYTE_BUFFER, 10);
+        rm.apply();
+        cfs.forceBlockingFlush();
+        assertEquals(2, cfs.getSSTables().size());
+
+        CompactionController controller = new CompactionController(cfs, compacting, Integer.MAX_VALUE);
+        try
+        {
+            // tombstones older than anything in the overlapping sstable can't shadow it: no need for the bloom filter
+            assertTrue(controller.shouldPurge(key, 9));
+            assertEquals(1, controller.getPurgeChecks());
+            assertEquals(1, controller.getPurgeChecksSkipped());
+
+            // tombstones that might shadow the overlapping data go through the bloom filter, which has the key
+            assertFalse(controller.shouldPurge(key, 10));
+            assertEquals(2, controller.getPurgeChecks());
+            assertEquals(1, controller.getPurgeChecksSkipped());
+        }
+        finally
+        {
+            controller.close();
+        }
+    }
+
     @Test
     public void testCompactionPurgeOneFile() throws IOException, ExecutionException, InterruptedException
     {
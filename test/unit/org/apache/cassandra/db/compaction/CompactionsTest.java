@@ -34,6 +34,7 @@ import org.junit.runner.RunWith;
 import org.apache.cassandra.OrderedJUnit4ClassRunner;
 import org.apache.cassandra.SchemaLoader;
 import org.apache.cassandra.Util;
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.*;
 import org.apache.cassandra.db.columniterator.IdentityQueryFilter;
 import org.apache.cassandra.db.columniterator.OnDiskAtomIterator;
@@ -43,6 +44,7 @@ import org.apache.cassandra.dht.BytesToken;
 import org.apache.cassandra.dht.Range;
 import org.apache.cassandra.dht.Token;
 import org.apache.cassandra.io.sstable.Component;
+import org.apache.cassandra.io.sstable.SSTable;
 import org.apache.cassandra.io.sstable.SSTableReader;
 import org.apache.cassandra.io.sstable.SSTableScanner;
 import org.apache.cassandra.utils.ByteBufferUtil;
@@ -360,6 +362,131 @@ public class CompactionsTest extends SchemaLoader
         return ranges;
     }
 
+    @Test
+    public void testSplitByRepairStatus() throws IOException
+    {
+        Keyspace keyspace = Keyspace.open(KEYSPACE1);
+        ColumnFamilyStore cfs = keyspace.getColumnFamilyStore("Standard3");
+        cfs.clearUnsafe();
+        cfs.disableAutoCompaction();
+
+        for (int i = 0; i < 3; i++)
+        {
+            RowMutation rm = new RowMutation(KEYSPACE1, ByteBufferUtil.bytes("key" + i));
+            rm.add("Standard3", ByteBufferUtil.bytes("col"), ByteBufferUtil.EMPTY_BYTE_BUFFER, i);
+            rm.apply();
+            cfs.forceBlockingFlush();
+        }
+        assertEquals(3, cfs.getSSTables().size());
+
+        List<List<SSTableReader>> groups = AbstractCompactionStrategy.splitByRepairStatus(cfs.getSSTables());
+        assertEquals(0, groups.get(0).size());
+        assertEquals(3, groups.get(1).size());
+
+        SSTableReader repaired = cfs.getSSTables().iterator().next();
+        assertTrue(repaired.markRepaired(1234L));
+        groups = AbstractCompactionStrategy.splitByRepairStatus(cfs.getSSTables());
+        assertEquals(Collections.singletonList(repaired), groups.get(0));
+        assertEquals(2, groups.get(1).size());
+        assertFalse(groups.get(1).contains(repaired));
+    }
+
+    @Test
+    public void testConcurrentRangeCompaction() throws Exception
+    {
+        Keyspace keyspace = Keyspace.open(KEYSPACE1);
+        ColumnFamilyStore single = keyspace.getColumnFamilyStore("Standard3");
+        ColumnFamilyStore concurrent = keyspace.getColumnFamilyStore("Standard4");
+        for (ColumnFamilyStore cfs : Arrays.asList(single, concurrent))
+        {
+            cfs.clearUnsafe();
+            cfs.disableAutoCompaction();
+        }
+
+        // four overlapping sstables of about 2MB each, with overwrites, row and column tombstones
+        ByteBuffer value = ByteBuffer.wrap(new byte[4096]);
+        for (int round = 0; round < 4; round++)
+        {
+            for (int i = round % 2; i < 1000; i += 2)
+            {
+                for (ColumnFamilyStore cfs : Arrays.asList(single, concurrent))
+                {
+                    RowMutation rm = new RowMutation(KEYSPACE1, ByteBufferUtil.bytes(String.format("%04d", i)));
+                    rm.add(cfs.name, ByteBufferUtil.bytes("c" + (i % 10)), value, round);
+                    rm.add(cfs.name, ByteBufferUtil.bytes("r" + round), ByteBufferUtil.bytes(round), round);
+                    if (round == 3 && i % 7 == 0)
+                        rm.delete(cfs.name, round - 1);
+                    if (round == 3 && i % 5 == 0)
+                        rm.delete(cfs.name, ByteBufferUtil.bytes("r1"), round);
+                    rm.apply();
+                }
+            }
+            single.forceBlockingFlush();
+            concurrent.forceBlockingFlush();
+        }
+
+        int splits = DatabaseDescriptor.getCompactionRangeSplits();
+        int minSizeInMB = (int) (DatabaseDescriptor.getCompactionRangeSplitMinSize() / (1024 * 1024));
+        try
+        {
+            Util.compact(single, single.getSSTables());
+            DatabaseDescriptor.setCompactionRangeSplits(4);
+            DatabaseDescriptor.setCompactionRangeSplitMinSizeInMB(1);
+            Util.compact(concurrent, concurrent.getSSTables());
+        }
+        finally
+        {
+            DatabaseDescriptor.setCompactionRangeSplits(splits);
+            DatabaseDescriptor.setCompactionRangeSplitMinSizeInMB(minSizeInMB);
+        }
+
+        // one sstable per range, not overlapping each other
+        assertEquals(1, single.getSSTables().size());
+        List<SSTableReader> sstables = new ArrayList<>(concurrent.getSSTables());
+        assertEquals(4, sstables.size());
+        Collections.sort(sstables, SSTable.sstableComparator);
+        for (int i = 1; i < sstables.size(); i++)
+            assertTrue(sstables.get(i - 1).last.compareTo(sstables.get(i).first) < 0);
+
+        // and together they hold the same rows as the single pass compaction
+        SSTableScanner expected = single.getSSTables().iterator().next().getScanner();
+        for (SSTableReader sstable : sstables)
+        {
+            SSTableScanner actual = sstable.getScanner();
+            while (actual.hasNext())
+            {
+                assertTrue(expected.hasNext());
+                assertSameRow(expected.next(), actual.next());
+            }
+            actual.close();
+        }
+        assertFalse(expected.hasNext());
+        expected.close();
+    }
+
+    /**
+     * Compares two rows of different column families, ignoring local deletion times since the same tombstone
+     * was written to each column family separately.
+     */
+    private static void assertSameRow(OnDiskAtomIterator expected, OnDiskAtomIterator actual)
+    {
+        assertEquals(expected.getKey(), actual.getKey());
+        assertEquals(expected.getColumnFamily().deletionInfo().getTopLevelDeletion().markedForDeleteAt,
+                     actual.getColumnFamily().deletionInfo().getTopLevelDeletion().markedForDeleteAt);
+        while (expected.hasNext())
+        {
+            assertTrue(actual.hasNext());
+            Column expectedColumn = (Column) expected.next();
+            Column actualColumn = (Column) actual.next();
+            assertEquals(expectedColumn.getClass(), actualColumn.getClass());
+            assertEquals(expectedColumn.name(), actualColumn.name());
+            assertEquals(expectedColumn.timestamp(), actualColumn.timestamp());
+            if (!(expectedColumn instanceof DeletedColumn))
+                assertEquals(expectedColumn.value(), actualColumn.value());
+        }
+        assertFalse(actual.hasNext());
+    }
+
     private static void insertRowWithKey(int key)
     {
         long timestamp = System.currentTimeMillis();
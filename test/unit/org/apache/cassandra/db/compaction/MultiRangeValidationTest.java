@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.compaction;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.apache.cassandra.SchemaLoader;
+import org.apache.cassandra.Util;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.Keyspace;
+import org.apache.cassandra.db.RowMutation;
+import org.apache.cassandra.db.compaction.CompactionManager.PendingValidation;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.net.MessageIn;
+import org.apache.cassandra.net.MessageOut;
+import org.apache.cassandra.net.MessagingService;
+import org.apache.cassandra.repair.RepairJobDesc;
+import org.apache.cassandra.repair.Validator;
+import org.apache.cassandra.repair.messages.RepairMessage;
+import org.apache.cassandra.repair.messages.ValidationComplete;
+import org.apache.cassandra.service.StorageService;
+import org.apache.cassandra.sink.IMessageSink;
+import org.apache.cassandra.sink.SinkManager;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.MerkleTree;
+
+import static org.junit.Assert.*;
+
+public class MultiRangeValidationTest extends SchemaLoader
+{
+    private static final String KEYSPACE = "Keyspace1";
+    private static final String CF = "Standard3";
+
+    private static final Token MIN = StorageService.getPartitioner().getMinimumToken();
+    private static final Range<Token> A = new Range<Token>(MIN, Util.token("b"));
+    private static final Range<Token> C = new Range<Token>(Util.token("b"), Util.token("d"));
+
+    @After
+    public void tearDown()
+    {
+        SinkManager.clear();
+    }
+
+    @Test
+    public void testTakeCompatibleValidations() throws Exception
+    {
+        ColumnFamilyStore cfs = Keyspace.open(KEYSPACE).getColumnFamilyStore(CF);
+        ColumnFamilyStore other = Keyspace.open(KEYSPACE).getColumnFamilyStore("Standard2");
+
+        List<PendingValidation> batch = Collections.singletonList(pending(cfs, A, false));
+        Queue<PendingValidation> pendingValidations = new ConcurrentLinkedQueue<>();
+        PendingValidation disjoint = pending(cfs, C, false);
+        PendingValidation overlapping = pending(cfs, new Range<Token>(Util.token("a"), Util.token("c")), false);
+        PendingValidation otherTable = pending(other, new Range<Token>(Util.token("e"), Util.token("f")), false);
+        PendingValidation incremental = pending(cfs, new Range<Token>(Util.token("e"), Util.token("f")), true);
+        // disjoint from the batch, but not from the validation taken before it
+        PendingValidation overlappingTaken = pending(cfs, new Range<Token>(Util.token("c"), Util.token("e")), false);
+        PendingValidation alsoDisjoint = pending(cfs, new Range<Token>(Util.token("f"), Util.token("h")), false);
+        pendingValidations.addAll(Arrays.asList(disjoint, overlapping, otherTable, incremental, overlappingTaken, alsoDisjoint));
+
+        List<PendingValidation> taken = CompactionManager.takeCompatibleValidations(pendingValidations, cfs, batch);
+        assertEquals(Arrays.asList(disjoint, alsoDisjoint), taken);
+        assertEquals(Arrays.asList(overlapping, otherTable, incremental, overlappingTaken), new ArrayList<>(pendingValidations));
+    }
+
+    @Test
+    public void testRowsAreValidatedWithTheirValidatorsGcBefore() throws Exception
+    {
+        ColumnFamilyStore cfs = Keyspace.open(KEYSPACE).getColumnFamilyStore(CF);
+        cfs.clearUnsafe();
+        cfs.disableAutoCompaction();
+
+        // rows on both sides of b, each with a live column and a tombstone
+        for (String prefix : Arrays.asList("a", "c"))
+        {
+            for (int i = 0; i < 5; i++)
+            {
+                RowMutation rm = new RowMutation(KEYSPACE, ByteBufferUtil.bytes(prefix + i));
+                rm.add(CF, ByteBufferUtil.bytes("live"), ByteBufferUtil.bytes(i), 0);
+                rm.delete(CF, ByteBufferUtil.bytes("dead"), 0);
+                rm.apply();
+            }
+        }
+        cfs.forceBlockingFlush();
+
+        // tombstones are purged from A's tree, and kept in C's; a misrouted row would fail the validator's assertion
+        Validator a = validator(A);
+        Validator c = validator(C);
+        validate(cfs, Arrays.asList(a, c), Integer.MAX_VALUE, 0);
+
+        Validator aAlone = validator(A);
+        validate(cfs, Collections.singletonList(aAlone), Integer.MAX_VALUE);
+        Validator cAlone = validator(C);
+        validate(cfs, Collections.singletonList(cAlone), 0);
+        assertTrue(MerkleTree.difference(aAlone.tree, a.tree).isEmpty());
+        assertTrue(MerkleTree.difference(cAlone.tree, c.tree).isEmpty());
+
+        // and the gcBefore does make a difference
+        Validator aWithTombstones = validator(A);
+        validate(cfs, Collections.singletonList(aWithTombstones), 0);
+        assertFalse(MerkleTree.difference(aWithTombstones.tree, a.tree).isEmpty());
+    }
+
+    @Test
+    public void testFailedBatchFailsEveryValidator() throws Exception
+    {
+        final Set<RepairJobDesc> failed = Collections.synchronizedSet(new HashSet<RepairJobDesc>());
+        SinkManager.add(new IMessageSink()
+        {
+            public MessageOut handleMessage(MessageOut message, int id, InetAddress to)
+            {
+                if (message.verb == MessagingService.Verb.REPAIR_MESSAGE)
+                {
+                    RepairMessage m = (RepairMessage) message.payload;
+                    if (m.messageType == RepairMessage.Type.VALIDATION_COMPLETE && !((ValidationComplete) m).success)
+                        failed.add(m.desc);
+                }
+                return null;
+            }
+
+            public MessageIn handleMessage(MessageIn message, int id, InetAddress to)
+            {
+                return null;
+            }
+        });
+
+        ColumnFamilyStore cfs = Keyspace.open(KEYSPACE).getColumnFamilyStore(CF);
+        List<PendingValidation> batch = Arrays.asList(pending(cfs, A, false), pending(cfs, C, false));
+        IOException failure = new IOException("validation failed");
+        CompactionManager.finishValidations(batch, failure);
+
+        Set<RepairJobDesc> expected = new HashSet<>();
+        for (PendingValidation validation : batch)
+        {
+            expected.add(validation.validator.desc);
+            try
+            {
+                validation.result.get();
+                fail("the validation should have failed");
+            }
+            catch (ExecutionException e)
+            {
+                assertSame(failure, e.getCause());
+            }
+        }
+        assertEquals(expected, failed);
+    }
+
+    private static Validator validator(Range<Token> range) throws IOException
+    {
+        return validator(range, false);
+    }
+
+    private static Validator validator(Range<Token> range, boolean isIncremental) throws IOException
+    {
+        RepairJobDesc desc = new RepairJobDesc(UUID.randomUUID(), KEYSPACE, CF, range);
+        return new Validator(desc, InetAddress.getByName("127.0.0.2"), 0, isIncremental);
+    }
+
+    private static PendingValidation pending(ColumnFamilyStore cfs, Range<Token> range, boolean isIncremental) throws IOException
+    {
+        return new PendingValidation(cfs, validator(range, isIncremental));
+    }
+
+    private static void validate(ColumnFamilyStore cfs, List<Validator> validators, int... gcBefores) throws IOException
+    {
+        MultiRangeValidation validation = new MultiRangeValidation(cfs, cfs.getSSTables(), validators, gcBefores);
+        try
+        {
+            validation.validate();
+        }
+        finally
+        {
+            validation.close();
+        }
+        for (Validator validator : validators)
+            validator.completeTree();
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.compaction;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+import org.junit.Test;
+
+import org.apache.cassandra.SchemaLoader;
+import org.apache.cassandra.Util;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.Keyspace;
+import org.apache.cassandra.db.RowMutation;
+import org.apache.cassandra.db.marshal.CompositeType;
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.io.sstable.RowHashes;
+import org.apache.cassandra.io.sstable.SSTableReader;
+import org.apache.cassandra.repair.RepairJobDesc;
+import org.apache.cassandra.repair.Validator;
+import org.apache.cassandra.service.StorageService;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.CloseableIterator;
+import org.apache.cassandra.utils.MerkleTree;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class RowHashValidationTest extends SchemaLoader
+{
+    private static final String KEYSPACE = "Keyspace1";
+    private static final String CF = "Standard1";
+
+    @Test
+    public void testSameTreeAsValidationCompaction() throws Exception
+    {
+        DatabaseDescriptor.setPrecomputeRepairHashes(true);
+        try
+        {
+            ColumnFamilyStore cfs = Keyspace.open(KEYSPACE).getColumnFamilyStore(CF);
+            cfs.disableAutoCompaction();
+            cfs.truncateBlocking();
+
+            // plain rows, hashed when flushed
+            for (int i = 0; i < 10; i++)
+                insert("key" + i, "c", 0);
+            cfs.forceBlockingFlush();
+
+            // rows overlapping the first sstable, and a row with a tombstone
+            insert("key1", "d", 1);
+            insert("key2", "c", 2);
+            RowMutation rm = new RowMutation(KEYSPACE, ByteBufferUtil.bytes("key3"));
+            rm.delete(CF, 3);
+            rm.apply();
+            cfs.forceBlockingFlush();
+
+            assertSameTreeAsValidationCompaction(cfs);
+        }
+        finally
+        {
+            DatabaseDescriptor.setPrecomputeRepairHashes(false);
+        }
+    }
+
+    @Test
+    public void testRowsWithTombstonesAreNotHashed() throws Exception
+    {
+        DatabaseDescriptor.setPrecomputeRepairHashes(true);
+        try
+        {
+            ColumnFamilyStore cfs = Keyspace.open(KEYSPACE).getColumnFamilyStore(CF);
+            cfs.disableAutoCompaction();
+            cfs.truncateBlocking();
+
+            insert("live", "c", 0);
+            RowMutation rm = new RowMutation(KEYSPACE, ByteBufferUtil.bytes("deleted"));
+            rm.delete(CF, ByteBufferUtil.bytes("c"), 0);
+            rm.apply();
+            cfs.forceBlockingFlush();
+
+            SSTableReader sstable = cfs.getSSTables().iterator().next();
+            IPartitioner partitioner = StorageService.getPartitioner();
+            CloseableIterator<RowHashes.Entry> entries = RowHashes.iterator(sstable, new Range<>(partitioner.getMinimumToken(), partitioner.getMinimumToken()));
+            try
+            {
+                int count = 0;
+                while (entries.hasNext())
+                {
+                    RowHashes.Entry entry = entries.next();
+                    assertEquals(entry.key.equals(Util.dk("live")), entry.hash != null);
+                    count++;
+                }
+                assertEquals(2, count);
+            }
+            finally
+            {
+                entries.close();
+            }
+        }
+        finally
+        {
+            DatabaseDescriptor.setPrecomputeRepairHashes(false);
+        }
+    }
+
+    @Test
+    public void testDroppedColumnsAreNotTakenFromHashes() throws Exception
+    {
+        DatabaseDescriptor.setPrecomputeRepairHashes(true);
+        ColumnFamilyStore cfs = Keyspace.open(KEYSPACE).getColumnFamilyStore("StandardComposite2");
+        try
+        {
+            cfs.disableAutoCompaction();
+            cfs.truncateBlocking();
+
+            CompositeType comparator = (CompositeType) cfs.metadata.comparator;
+            for (int i = 0; i < 10; i++)
+            {
+                RowMutation rm = new RowMutation(KEYSPACE, ByteBufferUtil.bytes("key" + i));
+                for (int j = 0; j < 2; j++)
+                {
+                    ByteBuffer name = comparator.builder().add(ByteBufferUtil.bytes("a")).add(ByteBufferUtil.bytes(j)).build();
+                    // rows are hashed without their key, so identical rows would cancel out in the leaf
+                    rm.add(cfs.name, name, ByteBufferUtil.bytes("value" + i), 0);
+                }
+                rm.apply();
+            }
+            cfs.forceBlockingFlush();
+
+            // drop one of the columns after the rows were hashed
+            Map<ByteBuffer, Long> dropped = new HashMap<>();
+            dropped.put(ByteBufferUtil.bytes(1), 1L);
+            cfs.metadata.droppedColumns(dropped);
+
+            assertSameTreeAsValidationCompaction(cfs);
+        }
+        finally
+        {
+            cfs.metadata.droppedColumns(new HashMap<ByteBuffer, Long>());
+            DatabaseDescriptor.setPrecomputeRepairHashes(false);
+        }
+    }
+
+    @Test
+    public void testIteratorOnlyReadsRange() throws Exception
+    {
+        DatabaseDescriptor.setPrecomputeRepairHashes(true);
+        try
+        {
+            ColumnFamilyStore cfs = Keyspace.open(KEYSPACE).getColumnFamilyStore(CF);
+            cfs.disableAutoCompaction();
+            cfs.truncateBlocking();
+
+            // enough rows for the entries to be sampled several times
+            for (int i = 0; i < RowHashes.SAMPLE_INTERVAL * 5; i++)
+                insert(String.format("key%04d", i), "c", 0);
+            cfs.forceBlockingFlush();
+            SSTableReader sstable = cfs.getSSTables().iterator().next();
+
+            IPartitioner partitioner = StorageService.getPartitioner();
+            Range<Token> all = new Range<>(partitioner.getMinimumToken(), partitioner.getMinimumToken());
+            List<DecoratedKey> keys = new ArrayList<>();
+            for (RowHashes.Entry entry : entries(sstable, all))
+                keys.add(entry.key);
+            assertEquals(RowHashes.SAMPLE_INTERVAL * 5, keys.size());
+
+            Token left = keys.get(200).token;
+            Token right = keys.get(400).token;
+            assertEquals(keys.subList(201, 401), keysOf(entries(sstable, new Range<>(left, right))));
+
+            List<DecoratedKey> wrapped = new ArrayList<>(keys.subList(0, 201));
+            wrapped.addAll(keys.subList(401, keys.size()));
+            assertEquals(wrapped, keysOf(entries(sstable, new Range<>(right, left))));
+        }
+        finally
+        {
+            DatabaseDescriptor.setPrecomputeRepairHashes(false);
+        }
+    }
+
+    private static void assertSameTreeAsValidationCompaction(ColumnFamilyStore cfs) throws Exception
+    {
+        Collection<SSTableReader> sstables = cfs.getSSTables();
+        assertTrue(RowHashValidation.isPossible(sstables));
+
+        IPartitioner partitioner = StorageService.getPartitioner();
+        Range<Token> range = new Range<>(partitioner.getMinimumToken(), partitioner.getMinimumToken());
+        int gcBefore = CompactionManager.getDefaultGcBefore(cfs);
+
+        Validator fromHashes = validator(cfs, range);
+        RowHashValidation validation = new RowHashValidation(cfs, sstables, range, gcBefore);
+        try
+        {
+            validation.validate(fromHashes);
+        }
+        finally
+        {
+            validation.close();
+        }
+        fromHashes.completeTree();
+
+        Validator fromData = validator(cfs, range);
+        CompactionIterable ci = new CompactionIterable(OperationType.VALIDATION,
+                                                       cfs.getCompactionStrategy().getScanners(sstables, range),
+                                                       new CompactionManager.ValidationCompactionController(cfs, gcBefore));
+        CloseableIterator<AbstractCompactedRow> iter = ci.iterator();
+        try
+        {
+            fromData.prepare(cfs);
+            while (iter.hasNext())
+                fromData.add(iter.next());
+        }
+        finally
+        {
+            iter.close();
+        }
+        fromData.completeTree();
+
+        // both trees are a single leaf, which difference() does not look into
+        assertNotNull(fromData.tree.hash(range));
+        assertArrayEquals(fromData.tree.hash(range), fromHashes.tree.hash(range));
+    }
+
+    private static List<RowHashes.Entry> entries(SSTableReader sstable, Range<Token> range) throws IOException
+    {
+        List<RowHashes.Entry> entries = new ArrayList<>();
+        CloseableIterator<RowHashes.Entry> iter = RowHashes.iterator(sstable, range);
+        try
+        {
+            while (iter.hasNext())
+                entries.add(iter.next());
+        }
+        finally
+        {
+            iter.close();
+        }
+        return entries;
+    }
+
+    private static List<DecoratedKey> keysOf(List<RowHashes.Entry> entries)
+    {
+        List<DecoratedKey> keys = new ArrayList<>(entries.size());
+        for (RowHashes.Entry entry : entries)
+            keys.add(entry.key);
+        return keys;
+    }
+
+    private static void insert(String key, String column, long timestamp)
+    {
+        RowMutation rm = new RowMutation(KEYSPACE, ByteBufferUtil.bytes(key));
+        rm.add(CF, ByteBufferUtil.bytes(column), ByteBufferUtil.bytes("value"), timestamp);
+        rm.apply();
+    }
+
+    private static Validator validator(ColumnFamilyStore cfs, Range<Token> range) throws Exception
+    {
+        RepairJobDesc desc = new RepairJobDesc(UUID.randomUUID(), KEYSPACE, cfs.name, range);
+        // a single leaf, so that both trees are split the same way
+        MerkleTree tree = new MerkleTree(StorageService.getPartitioner(), range, MerkleTree.RECOMMENDED_DEPTH, 1);
+        return new Validator(desc, InetAddress.getByName("127.0.0.2"), tree, 0);
+    }
+}
@@ -22,6 +22,8 @@ package org.apache.cassandra.db.compaction;
 
 
 
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -42,6 +44,7 @@ import org.apache.cassandra.io.sstable.SSTableReader;
 import org.apache.cassandra.io.sstable.SSTableScanner;
 import org.apache.cassandra.utils.ByteBufferUtil;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 @RunWith(OrderedJUnit4ClassRunner.class)
@@ -149,4 +152,82 @@ public class TTLExpiryTest extends SchemaLoader
             assertEquals(noTTLKey, iter.getKey());
         }
     }
+
+    @Test
+    public void testDropExpiredWithoutCompaction() throws ExecutionException, InterruptedException
+    {
+        ColumnFamilyStore cfs = Keyspace.open("Keyspace1").getColumnFamilyStore("Standard1");
+        cfs.truncateBlocking();
+        cfs.disableAutoCompaction();
+        cfs.metadata.gcGraceSeconds(0);
+        long timestamp = System.currentTimeMillis();
+        RowMutation rm = new RowMutation("Keyspace1", Util.dk("ttl").key);
+        rm.add("Standard1", ByteBufferUtil.bytes("col"),
+               ByteBufferUtil.EMPTY_BYTE_BUFFER,
+               timestamp,
+               1);
+        rm.apply();
+        cfs.forceBlockingFlush();
+        DecoratedKey noTTLKey = Util.dk("nottl");
+        rm = new RowMutation("Keyspace1", noTTLKey.key);
+        rm.add("Standard1", ByteBufferUtil.bytes("col"),
+               ByteBufferUtil.EMPTY_BYTE_BUFFER,
+               timestamp + 1);
+        rm.apply();
+        cfs.forceBlockingFlush();
+        Thread.sleep(2000); // wait for ttl to expire
+        assertEquals(2, cfs.getSSTables().size());
+        // two sstables are below the compaction threshold, so only the expired one can go away
+        cfs.enableAutoCompaction(true);
+        assertEquals(1, cfs.getSSTables().size());
+        assertEquals(noTTLKey, cfs.getSSTables().iterator().next().first);
+    }
+
+    @Test
+    public void testExpiredCheckFrequency() throws ExecutionException, InterruptedException
+    {
+        ColumnFamilyStore cfs = Keyspace.open("Keyspace1").getColumnFamilyStore("Standard1");
+        cfs.truncateBlocking();
+        cfs.disableAutoCompaction();
+        cfs.metadata.gcGraceSeconds(0);
+        long timestamp = System.currentTimeMillis();
+        RowMutation rm = new RowMutation("Keyspace1", Util.dk("shadowed").key);
+        rm.add("Standard1", ByteBufferUtil.bytes("col"),
+               ByteBufferUtil.EMPTY_BYTE_BUFFER,
+               timestamp);
+        rm.apply();
+        cfs.forceBlockingFlush();
+        Set<SSTableReader> shadowed = new HashSet<>(cfs.getSSTables());
+        rm = new RowMutation("Keyspace1", Util.dk("shadowed").key);
+        rm.add("Standard1", ByteBufferUtil.bytes("col"),
+               ByteBufferUtil.EMPTY_BYTE_BUFFER,
+               timestamp + 1,
+               1);
+        rm.apply();
+        cfs.forceBlockingFlush();
+        Thread.sleep(2000); // wait for ttl to expire
+
+        AbstractCompactionStrategy strategy = cfs.getCompactionStrategy();
+        int gcBefore = (int) (System.currentTimeMillis() / 1000) - cfs.metadata.getGcGraceSeconds();
+        try
+        {
+            // the expired sstable is newer than the other one, it cannot be dropped
+            assertFalse(strategy.dropFullyExpiredSSTables(gcBefore));
+
+            // once the shadowed data is gone the expired sstable could go too, but it is not checked again right away
+            assertTrue(cfs.getDataTracker().markCompacting(shadowed));
+            cfs.markObsolete(shadowed, OperationType.UNKNOWN);
+            cfs.getDataTracker().unmarkCompacting(shadowed);
+            assertFalse(strategy.dropFullyExpiredSSTables(gcBefore));
+            assertEquals(1, cfs.getSSTables().size());
+
+            strategy.expiredSSTableCheckFrequency = 0;
+            assertTrue(strategy.dropFullyExpiredSSTables(gcBefore));
+            assertEquals(0, cfs.getSSTables().size());
+        }
+        finally
+        {
+            strategy.expiredSSTableCheckFrequency = AbstractCompactionStrategy.DEFAULT_EXPIRED_SSTABLE_CHECK_FREQUENCY;
+        }
+    }
 }
@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.compaction;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import org.apache.cassandra.SchemaLoader;
+import org.apache.cassandra.Util;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.Keyspace;
+import org.apache.cassandra.db.RowMutation;
+import org.apache.cassandra.exceptions.ConfigurationException;
+import org.apache.cassandra.io.sstable.SSTableReader;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.Pair;
+
+import static org.apache.cassandra.db.compaction.TimeWindowCompactionStrategy.createSSTableAndMaxTimestampPairs;
+import static org.apache.cassandra.db.compaction.TimeWindowCompactionStrategy.getBuckets;
+import static org.apache.cassandra.db.compaction.TimeWindowCompactionStrategy.getWindowLowerBound;
+import static org.apache.cassandra.db.compaction.TimeWindowCompactionStrategy.trimToThreshold;
+import static org.apache.cassandra.db.compaction.TimeWindowCompactionStrategy.validateOptions;
+
+import static org.junit.Assert.*;
+
+public class TimeWindowCompactionStrategyTest extends SchemaLoader
+{
+    @Test
+    public void testOptionsValidation() throws ConfigurationException
+    {
+        Map<String, String> options = new HashMap<>();
+        options.put(TimeWindowCompactionStrategyOptions.COMPACTION_WINDOW_SIZE_KEY, "30");
+        options.put(TimeWindowCompactionStrategyOptions.COMPACTION_WINDOW_UNIT_KEY, "MINUTES");
+        options.put(TimeWindowCompactionStrategyOptions.TIMESTAMP_RESOLUTION_KEY, "MILLISECONDS");
+        options.put(TimeWindowCompactionStrategyOptions.EXPIRED_SSTABLE_CHECK_FREQUENCY_SECONDS_KEY, "60");
+        options.put(SizeTieredCompactionStrategyOptions.MIN_SSTABLE_SIZE_KEY, "10000");
+        Map<String, String> unvalidated = validateOptions(options);
+        assertTrue(unvalidated.isEmpty());
+
+        try
+        {
+            options.put(TimeWindowCompactionStrategyOptions.COMPACTION_WINDOW_SIZE_KEY, "0");
+            validateOptions(options);
+            fail(String.format("%s == 0 should be rejected", TimeWindowCompactionStrategyOptions.COMPACTION_WINDOW_SIZE_KEY));
+        }
+        catch (ConfigurationException e) {}
+
+        try
+        {
+            options.put(TimeWindowCompactionStrategyOptions.COMPACTION_WINDOW_SIZE_KEY, "1");
+            options.put(TimeWindowCompactionStrategyOptions.COMPACTION_WINDOW_UNIT_KEY, "SECONDS");
+            validateOptions(options);
+            fail(String.format("%s == SECONDS should be rejected", TimeWindowCompactionStrategyOptions.COMPACTION_WINDOW_UNIT_KEY));
+        }
+        catch (ConfigurationException e) {}
+
+        try
+        {
+            options.put(TimeWindowCompactionStrategyOptions.COMPACTION_WINDOW_UNIT_KEY, "HOURS");
+            options.put(TimeWindowCompactionStrategyOptions.TIMESTAMP_RESOLUTION_KEY, "FORTNIGHTS");
+            validateOptions(options);
+            fail(String.format("%s == FORTNIGHTS should be rejected", TimeWindowCompactionStrategyOptions.TIMESTAMP_RESOLUTION_KEY));
+        }
+        catch (ConfigurationException e) {}
+
+        options.put(TimeWindowCompactionStrategyOptions.TIMESTAMP_RESOLUTION_KEY, "microseconds");
+        options.put("bad_option", "1.0");
+        unvalidated = validateOptions(options);
+        assertTrue(unvalidated.containsKey("bad_option"));
+    }
+
+    @Test
+    public void testWindowLowerBound()
+    {
+        long hour = TimeUnit.HOURS.toMillis(1);
+        assertEquals(0, getWindowLowerBound(TimeUnit.HOURS, 1, 0));
+        assertEquals(0, getWindowLowerBound(TimeUnit.HOURS, 1, hour - 1));
+        assertEquals(hour, getWindowLowerBound(TimeUnit.HOURS, 1, hour));
+        assertEquals(2 * hour, getWindowLowerBound(TimeUnit.HOURS, 2, 3 * hour + 5));
+        assertEquals(-hour, getWindowLowerBound(TimeUnit.HOURS, 1, -1));
+    }
+
+    @Test
+    public void testGetBuckets()
+    {
+        long hour = TimeUnit.HOURS.toMicros(1);
+        List<Pair<String, Long>> pairs = new ArrayList<Pair<String, Long>>();
+        pairs.add(Pair.create("a1", 10L));
+        pairs.add(Pair.create("a2", hour - 1));
+        pairs.add(Pair.create("b1", hour));
+        pairs.add(Pair.create("c1", 5 * hour + 1));
+        pairs.add(Pair.create("c2", 5 * hour + 2));
+        pairs.add(Pair.create("c3", 6 * hour - 1));
+
+        NavigableMap<Long, List<String>> buckets = getBuckets(pairs, TimeUnit.HOURS, 1, TimeUnit.MICROSECONDS);
+        assertEquals(3, buckets.size());
+        assertEquals(Arrays.asList("a1", "a2"), buckets.get(0L));
+        assertEquals(Arrays.asList("b1"), buckets.get(TimeUnit.HOURS.toMillis(1)));
+        assertEquals(Arrays.asList("c1", "c2", "c3"), buckets.get(TimeUnit.HOURS.toMillis(5)));
+        assertEquals(TimeUnit.HOURS.toMillis(5), (long) buckets.lastKey());
+
+        // wider windows merge the first two
+        buckets = getBuckets(pairs, TimeUnit.HOURS, 4, TimeUnit.MICROSECONDS);
+        assertEquals(2, buckets.size());
+        assertEquals(Arrays.asList("a1", "a2", "b1"), buckets.get(0L));
+        assertEquals(Arrays.asList("c1", "c2", "c3"), buckets.get(TimeUnit.HOURS.toMillis(4)));
+    }
+
+    @Test
+    public void testPrepBucket() throws Exception
+    {
+        String ksname = "Keyspace1";
+        String cfname = "Standard1";
+        Keyspace keyspace = Keyspace.open(ksname);
+        ColumnFamilyStore cfs = keyspace.getColumnFamilyStore(cfname);
+        cfs.truncateBlocking();
+        cfs.disableAutoCompaction();
+
+        long hour = TimeUnit.HOURS.toMicros(1);
+        long base = 400000 * hour;
+        // one sstable in the oldest window, two in an older one and three in the newest one
+        writeSSTables(cfs, base, 1);
+        List<SSTableReader> older = writeSSTables(cfs, base + 5 * hour, 2);
+        List<SSTableReader> newest = writeSSTables(cfs, base + 10 * hour, 3);
+
+        Map<String, String> options = new HashMap<>();
+        options.put(TimeWindowCompactionStrategyOptions.COMPACTION_WINDOW_SIZE_KEY, "1");
+        options.put(TimeWindowCompactionStrategyOptions.COMPACTION_WINDOW_UNIT_KEY, "HOURS");
+        options.put(TimeWindowCompactionStrategyOptions.TIMESTAMP_RESOLUTION_KEY, "MICROSECONDS");
+        TimeWindowCompactionStrategy twcs = new TimeWindowCompactionStrategy(cfs, options);
+        twcs.startup();
+
+        NavigableMap<Long, List<SSTableReader>> buckets = getBuckets(createSSTableAndMaxTimestampPairs(cfs.getSSTables()),
+                                                                     TimeUnit.HOURS,
+                                                                     1,
+                                                                     TimeUnit.MICROSECONDS);
+        assertEquals(3, buckets.size());
+
+        // the newest window is size-tiered, so its three similar sstables are compacted together once they reach minThreshold
+        assertEquals(new HashSet<>(newest), new HashSet<>(twcs.newestBucket(buckets, 2, 32)));
+        // below minThreshold they are left alone, and the older window is compacted down to one sstable instead
+        assertEquals(new HashSet<>(older), new HashSet<>(twcs.newestBucket(buckets, 4, 32)));
+        // an older window is compacted maxThreshold sstables at a time
+        assertEquals(1, twcs.newestBucket(buckets, 4, 1).size());
+        assertTrue(older.containsAll(twcs.newestBucket(buckets, 4, 1)));
+        // a window holding a single sstable has nothing to compact
+        assertTrue(twcs.newestBucket(buckets.headMap(base / 1000 + TimeUnit.HOURS.toMillis(1), false), 2, 32).isEmpty());
+
+        // one task for the newest window, one for the older one
+        assertEquals(2, twcs.estimatedCompactionsByTasks(buckets, 2, 32));
+        assertEquals(1, twcs.estimatedCompactionsByTasks(buckets, 4, 32));
+        assertEquals(2, twcs.estimatedCompactionsByTasks(buckets, 4, 1));
+
+        assertEquals(1, trimToThreshold(newest, 1).size());
+        assertEquals(3, trimToThreshold(newest, 32).size());
+
+        // with the default minThreshold of 4, background compaction picks the older window
+        assertEquals(new HashSet<>(older), new HashSet<>(twcs.getNextBackgroundSSTables(Integer.MIN_VALUE)));
+
+        cfs.truncateBlocking();
+    }
+
+    @Test
+    public void testRepairedWindows() throws Exception
+    {
+        ColumnFamilyStore cfs = Keyspace.open("Keyspace1").getColumnFamilyStore("Standard1");
+        cfs.truncateBlocking();
+        cfs.disableAutoCompaction();
+
+        long hour = TimeUnit.HOURS.toMicros(1);
+        long base = 400000 * hour;
+        List<SSTableReader> older = writeSSTables(cfs, base + 5 * hour, 2);
+        List<SSTableReader> newest = writeSSTables(cfs, base + 10 * hour, 3);
+
+        Map<String, String> options = new HashMap<>();
+        options.put(TimeWindowCompactionStrategyOptions.COMPACTION_WINDOW_SIZE_KEY, "1");
+        options.put(TimeWindowCompactionStrategyOptions.COMPACTION_WINDOW_UNIT_KEY, "HOURS");
+        options.put(TimeWindowCompactionStrategyOptions.TIMESTAMP_RESOLUTION_KEY, "MICROSECONDS");
+        TimeWindowCompactionStrategy twcs = new TimeWindowCompactionStrategy(cfs, options);
+        twcs.startup();
+        assertEquals(new HashSet<>(older), new HashSet<>(twcs.getNextBackgroundSSTables(Integer.MIN_VALUE)));
+
+        // once one of its sstables is repaired, the older window no longer has two sstables of the same kind
+        assertTrue(older.get(0).markRepaired(System.currentTimeMillis()));
+        assertTrue(twcs.getNextBackgroundSSTables(Integer.MIN_VALUE).isEmpty());
+
+        // repaired sstables are windowed on their own: alone, the older window is the newest repaired one and is size-tiered
+        assertTrue(older.get(1).markRepaired(System.currentTimeMillis()));
+        assertTrue(twcs.getNextBackgroundSSTables(Integer.MIN_VALUE).isEmpty());
+
+        // once newer sstables are repaired too, the repaired older window is compacted together again
+        for (SSTableReader sstable : newest)
+            assertTrue(sstable.markRepaired(System.currentTimeMillis()));
+        assertEquals(new HashSet<>(older), new HashSet<>(twcs.getNextBackgroundSSTables(Integer.MIN_VALUE)));
+
+        cfs.truncateBlocking();
+    }
+
+    private static List<SSTableReader> writeSSTables(ColumnFamilyStore cfs, long timestamp, int count)
+    {
+        ByteBuffer value = ByteBuffer.wrap(new byte[100]);
+        List<SSTableReader> written = new ArrayList<>();
+        for (int r = 0; r < count; r++)
+        {
+            Set<SSTableReader> before = new HashSet<>(cfs.getSSTables());
+            DecoratedKey key = Util.dk(timestamp + "-" + r);
+            RowMutation rm = new RowMutation(cfs.keyspace.getName(), key.key);
+            rm.add(cfs.name, ByteBufferUtil.bytes("column"), value, timestamp + r);
+            rm.apply();
+            cfs.forceBlockingFlush();
+
+            Set<SSTableReader> after = new HashSet<>(cfs.getSSTables());
+            after.removeAll(before);
+            written.addAll(after);
+        }
+        return written;
+    }
+}
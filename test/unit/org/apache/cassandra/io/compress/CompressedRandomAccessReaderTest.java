@@ -19,10 +19,12 @@
 package org.apache.cassandra.io.compress;
 
 import java.io.*;
+import java.util.Arrays;
 import java.util.Random;
 
 import org.junit.Test;
 
+import org.apache.cassandra.cache.ChunkCache;
 import org.apache.cassandra.db.marshal.BytesType;
 import org.apache.cassandra.io.sstable.CorruptSSTableException;
 import org.apache.cassandra.io.sstable.SSTableMetadata;
@@ -183,4 +185,101 @@ public class CompressedRandomAccessReaderTest
         file.write(checksum);
         file.getFD().sync();
     }
+
+    @Test
+    public void testChunkCache() throws IOException
+    {
+        File file = File.createTempFile("chunkcache", "1");
+        String filename = file.getAbsolutePath();
+        File metadataFile = new File(filename + ".metadata");
+        try
+        {
+            SSTableMetadata.Collector sstableMetadataCollector = SSTableMetadata.createCollector(BytesType.instance).replayPosition(null);
+            SequentialWriter writer = new CompressedSequentialWriter(file, metadataFile.getPath(), false, new CompressionParameters(SnappyCompressor.instance), sstableMetadataCollector);
+            int length = 3 * CompressionParameters.DEFAULT_CHUNK_LENGTH + 100;
+            for (int i = 0; i < length; i++)
+                writer.write((byte) i);
+            writer.close();
+
+            ChunkCache.instance.clear();
+            SegmentedFile segmentedFile = new CompressedPoolingSegmentedFile(filename, new CompressionMetadata(metadataFile.getPath(), file.length(), true));
+            long hits = ChunkCache.instance.metrics.hits.count();
+            for (int pass = 0; pass < 2; pass++)
+            {
+                for (long position : new long[]{ 0, CompressionParameters.DEFAULT_CHUNK_LENGTH + 10, length - 1 })
+                {
+                    FileDataInput in = segmentedFile.getSegment(position);
+                    assertEquals((byte) position, in.readByte());
+                    FileUtils.closeQuietly(in);
+                }
+            }
+            // the second pass only reads cached chunks
+            assertEquals(3, ChunkCache.instance.metrics.hits.count() - hits);
+            assertEquals(3, ChunkCache.instance.size());
+
+            segmentedFile.cleanup();
+            assertEquals(0, ChunkCache.instance.size());
+        }
+        finally
+        {
+            file.delete();
+            metadataFile.delete();
+        }
+    }
+
+    @Test
+    public void testMmappedChunks() throws IOException
+    {
+        File file = File.createTempFile("mmapped", "1");
+        String filename = file.getAbsolutePath();
+        File metadataFile = new File(filename + ".metadata");
+        try
+        {
+            SSTableMetadata.Collector sstableMetadataCollector = SSTableMetadata.createCollector(BytesType.instance).replayPosition(null);
+            SequentialWriter writer = new CompressedSequentialWriter(file, metadataFile.getPath(), false, new CompressionParameters(SnappyCompressor.instance), sstableMetadataCollector);
+            int length = 3 * CompressionParameters.DEFAULT_CHUNK_LENGTH + 100;
+            for (int i = 0; i < length; i++)
+                writer.write((byte) (i / 7));
+            writer.close();
+
+            CompressionMetadata metadata = new CompressionMetadata(metadataFile.getPath(), file.length(), true);
+            // one region per pair of chunks
+            long secondRegion = metadata.chunkFor(2 * CompressionParameters.DEFAULT_CHUNK_LENGTH).offset;
+            MmappedRegions regions = MmappedRegions.map(filename, Arrays.asList(0L, secondRegion, file.length()));
+
+            RandomAccessReader reader = CompressedRandomAccessReader.open(filename, metadata, null, regions);
+            for (long position : new long[]{ 0, CompressionParameters.DEFAULT_CHUNK_LENGTH + 10, 2 * CompressionParameters.DEFAULT_CHUNK_LENGTH, length - 1 })
+            {
+                reader.seek(position);
+                assertEquals((byte) (position / 7), reader.readByte());
+            }
+            reader.seek(0);
+            for (int i = 0; i < length; i++)
+                assertEquals((byte) (i / 7), reader.readByte());
+            reader.close();
+            regions.close();
+
+            // chunks larger than the maximum segment size are each mapped on their own
+            long maxSegmentSize = MmappedSegmentedFile.MAX_SEGMENT_SIZE;
+            MmappedSegmentedFile.MAX_SEGMENT_SIZE = 10;
+            try
+            {
+                regions = CompressedPoolingSegmentedFile.Builder.mapChunks(filename, metadata);
+            }
+            finally
+            {
+                MmappedSegmentedFile.MAX_SEGMENT_SIZE = maxSegmentSize;
+            }
+            reader = CompressedRandomAccessReader.open(filename, metadata, null, regions);
+            for (int i = 0; i < length; i++)
+                assertEquals((byte) (i / 7), reader.readByte());
+            reader.close();
+            regions.close();
+        }
+        finally
+        {
+            file.delete();
+            metadataFile.delete();
+        }
+    }
 }
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.sstable;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.apache.cassandra.io.sstable.IndexSummaryManager.SummaryState;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class IndexSummaryManagerTest
+{
+    private static final int INDEX_INTERVAL = 128;
+    private static final long KEYS = 1000000;
+    private static final int BYTES_PER_ENTRY = 40;
+
+    private static SummaryState state(Double readRate)
+    {
+        long samples = KEYS / INDEX_INTERVAL;
+        return new SummaryState(INDEX_INTERVAL, samples, samples * BYTES_PER_ENTRY, KEYS, readRate);
+    }
+
+    @Test
+    public void testEmptyPool()
+    {
+        List<Integer> intervals = IndexSummaryManager.computeSummaryIntervals(Arrays.asList(state(10.0), state(null), state(0.0)), 0);
+        assertEquals(INDEX_INTERVAL * IndexSummaryManager.MAX_INTERVAL_FACTOR, (int) intervals.get(0));
+        // unmetered sstables are left alone
+        assertNull(intervals.get(1));
+        assertEquals(INDEX_INTERVAL * IndexSummaryManager.MAX_INTERVAL_FACTOR, (int) intervals.get(2));
+    }
+
+    @Test
+    public void testLargePool()
+    {
+        List<Integer> intervals = IndexSummaryManager.computeSummaryIntervals(Arrays.asList(state(10.0), state(5.0)), Long.MAX_VALUE / 2);
+        for (Integer interval : intervals)
+            assertEquals(INDEX_INTERVAL / IndexSummaryManager.MIN_INTERVAL_DIVISOR, (int) interval);
+    }
+
+    @Test
+    public void testNoReads()
+    {
+        List<Integer> intervals = IndexSummaryManager.computeSummaryIntervals(Arrays.asList(state(0.0), state(0.0)), Long.MAX_VALUE / 2);
+        for (Integer interval : intervals)
+            assertEquals(INDEX_INTERVAL * IndexSummaryManager.MAX_INTERVAL_FACTOR, (int) interval);
+    }
+
+    @Test
+    public void testHotSSTablesGetFinerSummaries()
+    {
+        List<SummaryState> states = Arrays.asList(state(100.0), state(1.0), state(null));
+        // enough for about the current summary of each sstable
+        long pool = 3 * (KEYS / INDEX_INTERVAL) * BYTES_PER_ENTRY;
+        List<Integer> intervals = IndexSummaryManager.computeSummaryIntervals(states, pool);
+
+        int hot = intervals.get(0);
+        int cold = intervals.get(1);
+        assertTrue(hot + " should be below " + cold, hot < cold);
+        assertTrue(hot >= INDEX_INTERVAL / IndexSummaryManager.MIN_INTERVAL_DIVISOR);
+        assertTrue(cold <= INDEX_INTERVAL * IndexSummaryManager.MAX_INTERVAL_FACTOR);
+
+        // the resampled summaries, plus the unmetered one, fit in the pool
+        double total = states.get(0).estimateSize(hot) + states.get(1).estimateSize(cold) + states.get(2).offHeapSize;
+        assertTrue(total + " should fit in " + pool, total <= pool);
+    }
+}
@@ -40,6 +40,8 @@ import org.apache.cassandra.utils.Pair;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class IndexSummaryTest
 {
@@ -110,6 +112,38 @@ public class IndexSummaryTest
         assertArrayEquals(summary.getKey(0), summary.getKey(0));
     }
 
+    @Test
+    public void testDownsample() throws IOException
+    {
+        Pair<List<DecoratedKey>, IndexSummary> random = generateRandomIndex(100, 2);
+        IndexSummary downsampled = IndexSummaryBuilder.downsample(random.right, 3, DatabaseDescriptor.getPartitioner());
+        assertEquals(6, downsampled.getIndexInterval());
+        assertEquals(17, downsampled.size());
+        for (int i = 0; i < downsampled.size(); i++)
+        {
+            assertEquals(random.left.get(i * 6).key, ByteBuffer.wrap(downsampled.getKey(i)));
+            assertEquals(i * 6, downsampled.getPosition(i));
+        }
+        assertEquals(-2, downsampled.binarySearch(random.left.get(1)));
+        downsampled.close();
+    }
+
+    @Test
+    public void testReferences() throws IOException
+    {
+        Pair<List<DecoratedKey>, IndexSummary> random = generateRandomIndex(10, 1);
+        IndexSummary summary = random.right;
+
+        // a lookup in progress keeps the summary usable after its owner released it
+        assertTrue(summary.tryReference());
+        summary.close();
+        assertEquals(random.left.get(3).key, ByteBuffer.wrap(summary.getKey(3)));
+        summary.releaseReference();
+
+        // once freed, the summary cannot be referenced again
+        assertFalse(summary.tryReference());
+    }
+
     private Pair<List<DecoratedKey>, IndexSummary> generateRandomIndex(int size, int interval)
     {
         List<DecoratedKey> list = Lists.newArrayList();
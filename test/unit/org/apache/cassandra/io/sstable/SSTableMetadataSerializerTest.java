@@ -50,11 +50,13 @@ public class SSTableMetadataSerializerTest
         ReplayPosition rp = new ReplayPosition(11L, 12);
         long minTimestamp = 2162517136L;
         long maxTimestamp = 4162517136L;
+        long repairedAt = 1381499612000L;
 
         SSTableMetadata.Collector collector = SSTableMetadata.createCollector(BytesType.instance)
                                                              .estimatedRowSize(rowSizes)
                                                              .estimatedColumnCount(columnCounts)
-                                                             .replayPosition(rp);
+                                                             .replayPosition(rp)
+                                                             .repairedAt(repairedAt);
         collector.updateMinTimestamp(minTimestamp);
         collector.updateMaxTimestamp(maxTimestamp);
         SSTableMetadata originalMetadata = collector.finalizeMetadata(RandomPartitioner.class.getCanonicalName(), 0.1);
@@ -84,6 +86,7 @@ public class SSTableMetadataSerializerTest
         assert stats.minTimestamp == originalMetadata.minTimestamp;
         assert stats.maxTimestamp == originalMetadata.maxTimestamp;
         assert stats.bloomFilterFPChance == originalMetadata.bloomFilterFPChance;
+        assert stats.repairedAt == repairedAt;
         assert RandomPartitioner.class.getCanonicalName().equals(stats.partitioner);
         assert ancestors.equals(statsPair.right);
     }
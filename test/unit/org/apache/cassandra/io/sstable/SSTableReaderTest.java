@@ -163,6 +163,77 @@ public class SSTableReaderTest extends SchemaLoader
         assert store.getMaxRowSize() != 0;
     }
 
+    @Test
+    public void testMarkRepaired() throws IOException
+    {
+        Keyspace keyspace = Keyspace.open("Keyspace1");
+        ColumnFamilyStore store = keyspace.getColumnFamilyStore("Standard2");
+        store.clearUnsafe();
+
+        RowMutation rm = new RowMutation("Keyspace1", ByteBufferUtil.bytes("k1"));
+        rm.add("Standard2", ByteBufferUtil.bytes("0"), ByteBufferUtil.EMPTY_BYTE_BUFFER, 0);
+        rm.apply();
+        store.forceBlockingFlush();
+
+        SSTableReader sstable = store.getSSTables().iterator().next();
+        assert !sstable.isRepaired();
+        assert sstable.getRepairedAt() == SSTableMetadata.UNREPAIRED;
+
+        assert sstable.markRepaired(1234L);
+        assert sstable.isRepaired();
+        assert sstable.getRepairedAt() == 1234L;
+
+        // the repair time is persisted in the stats component
+        clearAndLoad(store);
+        sstable = store.getSSTables().iterator().next();
+        assert sstable.isRepaired();
+        assert sstable.getRepairedAt() == 1234L;
+    }
+
+    @Test
+    public void testPartitionBoundsVersion() throws IOException, ExecutionException, InterruptedException
+    {
+        Keyspace keyspace = Keyspace.open("Keyspace1");
+        ColumnFamilyStore store = keyspace.getColumnFamilyStore("Standard2");
+        store.clearUnsafe();
+        DecoratedKey key = Util.dk("k1");
+
+        // tables that do not record partition bounds write sstables previous versions can read
+        RowMutation rm = new RowMutation("Keyspace1", key.key);
+        rm.add("Standard2", ByteBufferUtil.bytes("0"), ByteBufferUtil.EMPTY_BYTE_BUFFER, 0);
+        rm.apply();
+        store.forceBlockingFlush();
+        SSTableReader sstable = store.getSSTables().iterator().next();
+        Assert.assertEquals(Descriptor.Version.WITHOUT_PARTITION_BOUNDS, sstable.descriptor.version);
+        Assert.assertFalse(sstable.getPosition(key, SSTableReader.Operator.EQ).hasPartitionBounds());
+
+        store.metadata.indexPartitionBounds(true);
+        try
+        {
+            rm = new RowMutation("Keyspace1", key.key);
+            rm.add("Standard2", ByteBufferUtil.bytes("1"), ByteBufferUtil.EMPTY_BYTE_BUFFER, 1);
+            rm.apply();
+            store.forceBlockingFlush();
+            Set<SSTableReader> flushed = Sets.difference(Sets.newHashSet(store.getSSTables()), Sets.newHashSet(sstable));
+            sstable = flushed.iterator().next();
+            Assert.assertEquals(Descriptor.Version.CURRENT, sstable.descriptor.version);
+            assertTrue(sstable.getPosition(key, SSTableReader.Operator.EQ).hasPartitionBounds());
+
+            // once the option is turned off, compaction writes the version previous versions can read again
+            store.metadata.indexPartitionBounds(false);
+            CompactionManager.instance.performMaximal(store);
+            Assert.assertEquals(1, store.getSSTables().size());
+            sstable = store.getSSTables().iterator().next();
+            Assert.assertEquals(Descriptor.Version.WITHOUT_PARTITION_BOUNDS, sstable.descriptor.version);
+            Assert.assertFalse(sstable.getPosition(key, SSTableReader.Operator.EQ).hasPartitionBounds());
+            Assert.assertEquals(2, Util.getColumnFamily(keyspace, key, "Standard2").getColumnCount());
+        }
+        finally
+        {
+            store.metadata.indexPartitionBounds(false);
+        }
+    }
+
     private void clearAndLoad(ColumnFamilyStore cfs) throws IOException
     {
         cfs.clearUnsafe();
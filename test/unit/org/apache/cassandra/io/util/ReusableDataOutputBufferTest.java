@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.util;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import org.apache.cassandra.metrics.SerializationBufferMetrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class ReusableDataOutputBufferTest
+{
+    @Test
+    public void testReuse() throws IOException
+    {
+        DataOutputBuffer buffer = ReusableDataOutputBuffer.get();
+        buffer.writeLong(42L);
+        assertEquals(8, buffer.getLength());
+
+        long allocations = SerializationBufferMetrics.allocations.count();
+        DataOutputBuffer reused = ReusableDataOutputBuffer.get();
+        assertSame(buffer, reused);
+        assertEquals(0, reused.getLength());
+        assertEquals(0, reused.size());
+        assertEquals(allocations, SerializationBufferMetrics.allocations.count());
+    }
+
+    @Test
+    public void testOversizedBufferIsDropped() throws IOException
+    {
+        DataOutputBuffer buffer = ReusableDataOutputBuffer.get();
+        buffer.write(new byte[ReusableDataOutputBuffer.MAX_RECYCLED_CAPACITY + 1]);
+
+        long allocations = SerializationBufferMetrics.allocations.count();
+        DataOutputBuffer next = ReusableDataOutputBuffer.get();
+        assertNotSame(buffer, next);
+        assertEquals(0, next.getLength());
+        assertEquals(allocations + 1, SerializationBufferMetrics.allocations.count());
+    }
+}
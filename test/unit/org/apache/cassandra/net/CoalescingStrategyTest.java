@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.net;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import org.apache.cassandra.config.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CoalescingStrategyTest
+{
+    private static final long WINDOW = TimeUnit.MICROSECONDS.toNanos(200);
+
+    @Test
+    public void testCreate()
+    {
+        assertNull(CoalescingStrategy.create(Config.OTCCoalescingStrategy.disabled, 200));
+        assertNull(CoalescingStrategy.create(Config.OTCCoalescingStrategy.fixed, 0));
+        assertTrue(CoalescingStrategy.create(Config.OTCCoalescingStrategy.fixed, 200) instanceof CoalescingStrategy.FixedCoalescingStrategy);
+        assertTrue(CoalescingStrategy.create(Config.OTCCoalescingStrategy.movingaverage, 200) instanceof CoalescingStrategy.MovingAverageCoalescingStrategy);
+    }
+
+    @Test
+    public void testFixed()
+    {
+        CoalescingStrategy strategy = CoalescingStrategy.create(Config.OTCCoalescingStrategy.fixed, 200);
+        assertEquals(WINDOW, strategy.waitNanos());
+        strategy.newMessage(System.nanoTime());
+        assertEquals(WINDOW, strategy.waitNanos());
+    }
+
+    @Test
+    public void testMovingAverage()
+    {
+        CoalescingStrategy.MovingAverageCoalescingStrategy strategy = new CoalescingStrategy.MovingAverageCoalescingStrategy(WINDOW);
+        // no traffic seen yet: don't wait
+        assertEquals(0, strategy.waitNanos());
+
+        // messages every 10us: wait for about two of them
+        long now = 0;
+        for (int i = 0; i < 32; i++)
+            strategy.newMessage(now += TimeUnit.MICROSECONDS.toNanos(10));
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(10), strategy.averageGapNanos());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(20), strategy.waitNanos());
+
+        // messages further apart than the window: waiting is pointless
+        for (int i = 0; i < 32; i++)
+            strategy.newMessage(now += TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals(0, strategy.waitNanos());
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.net;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import org.apache.cassandra.concurrent.Stage;
+import org.apache.cassandra.io.IVersionedSerializer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OutboundTcpConnectionPoolTest
+{
+    private static final IVersionedSerializer<byte[]> serializer = new IVersionedSerializer<byte[]>()
+    {
+        public void serialize(byte[] bytes, DataOutput out, int version) throws IOException
+        {
+            out.write(bytes);
+        }
+
+        public byte[] deserialize(DataInput in, int version) throws IOException
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        public long serializedSize(byte[] bytes, int version)
+        {
+            return bytes.length;
+        }
+    };
+
+    @Test
+    public void testIsLargeMessage() throws IOException
+    {
+        InetAddress from = InetAddress.getByName("127.0.0.1");
+        int version = MessagingService.current_version;
+
+        assertFalse(OutboundTcpConnectionPool.isLargeMessage(message(from, MessagingService.Verb.MUTATION, 1023), version, 1024));
+        assertTrue(OutboundTcpConnectionPool.isLargeMessage(message(from, MessagingService.Verb.MUTATION, 1024), version, 1024));
+        // repair messages always go to the large message connections, however small
+        assertTrue(OutboundTcpConnectionPool.isLargeMessage(message(from, MessagingService.Verb.REPAIR_MESSAGE, 1), version, 1024));
+    }
+
+    @Test
+    public void testConnectionIndex()
+    {
+        // without large message connections, only the command and ack connections are used
+        assertEquals(0, OutboundTcpConnectionPool.connectionIndex(Stage.MUTATION, true, 0, 0));
+        assertEquals(1, OutboundTcpConnectionPool.connectionIndex(Stage.REQUEST_RESPONSE, true, 0, 0));
+
+        // small messages
+        assertEquals(0, OutboundTcpConnectionPool.connectionIndex(Stage.MUTATION, false, 2, 0));
+        assertEquals(0, OutboundTcpConnectionPool.connectionIndex(Stage.READ, false, 2, 0));
+        assertEquals(1, OutboundTcpConnectionPool.connectionIndex(Stage.REQUEST_RESPONSE, false, 2, 0));
+        assertEquals(1, OutboundTcpConnectionPool.connectionIndex(Stage.INTERNAL_RESPONSE, false, 2, 0));
+
+        // gossip always goes to the ack connection
+        assertEquals(1, OutboundTcpConnectionPool.connectionIndex(Stage.GOSSIP, true, 2, 0));
+
+        // large messages are spread over the large message connections, also once the counter wraps around
+        assertEquals(2, OutboundTcpConnectionPool.connectionIndex(Stage.MUTATION, true, 2, 0));
+        assertEquals(3, OutboundTcpConnectionPool.connectionIndex(Stage.MUTATION, true, 2, 1));
+        assertEquals(2, OutboundTcpConnectionPool.connectionIndex(Stage.REQUEST_RESPONSE, true, 2, 2));
+        int index = OutboundTcpConnectionPool.connectionIndex(Stage.MUTATION, true, 3, Integer.MIN_VALUE + 1);
+        assertTrue(index >= 2 && index < 5);
+    }
+
+    private static MessageOut<byte[]> message(InetAddress from, MessagingService.Verb verb, int size)
+    {
+        return new MessageOut<>(from, verb, new byte[size], serializer, Collections.<String, byte[]>emptyMap());
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.net;
+
+import java.io.*;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OutboundTcpConnectionTest
+{
+    private static int header(boolean compress, boolean offerLZ4) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutboundTcpConnection.writeHeader(new DataOutputStream(bytes), MessagingService.current_version, compress, offerLZ4);
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())).readInt();
+    }
+
+    @Test
+    public void testHeader() throws IOException
+    {
+        // read back the way MessagingService does
+        int header = header(true, true);
+        assertEquals(1, MessagingService.getBits(header, 2, 1));
+        assertEquals(0, MessagingService.getBits(header, 3, 1));
+        assertEquals(MessagingService.current_version, MessagingService.getBits(header, 15, 8));
+        assertTrue((header & MessagingService.LZ4_COMPRESSION_OFFERED) != 0);
+
+        header = header(true, false);
+        assertEquals(1, MessagingService.getBits(header, 2, 1));
+        assertEquals(MessagingService.current_version, MessagingService.getBits(header, 15, 8));
+        assertFalse((header & MessagingService.LZ4_COMPRESSION_OFFERED) != 0);
+
+        // the flag is the only difference, so nodes ignoring it see the header of a Snappy connection
+        assertEquals(header, header(true, true) & ~MessagingService.LZ4_COMPRESSION_OFFERED);
+    }
+
+    @Test
+    public void testLZ4Accepted()
+    {
+        int handshakeVersion = IncomingTcpConnection.handshakeVersion(true);
+        assertTrue(OutboundTcpConnection.isLZ4Accepted(handshakeVersion));
+        assertEquals(MessagingService.current_version, OutboundTcpConnection.maxVersionOf(handshakeVersion));
+    }
+
+    @Test
+    public void testLZ4NotAccepted()
+    {
+        // a node that does not know about LZ4, or that was not offered it, answers with a plain version
+        int handshakeVersion = IncomingTcpConnection.handshakeVersion(false);
+        assertEquals(MessagingService.current_version, handshakeVersion);
+        assertFalse(OutboundTcpConnection.isLZ4Accepted(handshakeVersion));
+        assertEquals(MessagingService.current_version, OutboundTcpConnection.maxVersionOf(handshakeVersion));
+
+        for (int version : new int[]{ MessagingService.VERSION_12, MessagingService.VERSION_20 })
+        {
+            assertFalse(OutboundTcpConnection.isLZ4Accepted(version));
+            assertEquals(version, OutboundTcpConnection.maxVersionOf(version));
+        }
+    }
+
+    @Test
+    public void testLZ4RoundTrip() throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(OutboundTcpConnection.newLZ4OutputStream(bytes));
+
+        // a message much smaller than a block is sent as soon as the connection is flushed
+        out.writeUTF("hello");
+        out.flush();
+        DataInputStream in = new DataInputStream(IncomingTcpConnection.newLZ4InputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals("hello", in.readUTF());
+
+        // messages spanning several blocks
+        byte[] random = new byte[100000];
+        new Random(0).nextBytes(random);
+        byte[] repetitive = new byte[100000];
+        for (int i = 0; i < repetitive.length; i++)
+            repetitive[i] = (byte) (i % 7);
+        out.write(random);
+        out.write(repetitive);
+        out.close();
+
+        in = new DataInputStream(IncomingTcpConnection.newLZ4InputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals("hello", in.readUTF());
+        byte[] read = new byte[random.length];
+        in.readFully(read);
+        assertArrayEquals(random, read);
+        read = new byte[repetitive.length];
+        in.readFully(read);
+        assertArrayEquals(repetitive, read);
+        assertEquals(-1, in.read());
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.repair;
+
+import java.net.InetAddress;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.cassandra.SchemaLoader;
+import org.apache.cassandra.Util;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.Keyspace;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.net.MessageIn;
+import org.apache.cassandra.net.MessageOut;
+import org.apache.cassandra.net.MessagingService;
+import org.apache.cassandra.repair.messages.RepairMessage;
+import org.apache.cassandra.repair.messages.ValidationRequest;
+import org.apache.cassandra.sink.IMessageSink;
+import org.apache.cassandra.sink.SinkManager;
+import org.apache.cassandra.utils.FBUtilities;
+import org.apache.cassandra.utils.MerkleTree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RepairJobTest extends SchemaLoader
+{
+    private static final String KEYSPACE = "Keyspace1";
+    private static final String CF = "Standard1";
+    private static final Range<Token> RANGE = new Range<Token>(Util.token("a"), Util.token("c"));
+
+    private final AtomicInteger snapshots = new AtomicInteger();
+    private final List<RepairMessage> requests = Collections.synchronizedList(new ArrayList<RepairMessage>());
+    private int maxRounds;
+
+    @Before
+    public void setUp()
+    {
+        maxRounds = DatabaseDescriptor.getMaxRepairValidationRounds();
+        SinkManager.add(new IMessageSink()
+        {
+            public MessageOut handleMessage(MessageOut message, int id, InetAddress to)
+            {
+                if (message.verb == MessagingService.Verb.REPAIR_MESSAGE)
+                {
+                    requests.add((RepairMessage) message.payload);
+                }
+                else if (message.verb == MessagingService.Verb.SNAPSHOT)
+                {
+                    // acknowledge the snapshot right away
+                    snapshots.incrementAndGet();
+                    MessageIn<Object> response = MessageIn.create(to, null, Collections.<String, byte[]>emptyMap(), MessagingService.Verb.REQUEST_RESPONSE, MessagingService.current_version);
+                    MessagingService.instance().receive(response, id, System.currentTimeMillis());
+                }
+                return null;
+            }
+
+            public MessageIn handleMessage(MessageIn message, int id, InetAddress to)
+            {
+                return message;
+            }
+        });
+    }
+
+    @After
+    public void tearDown()
+    {
+        SinkManager.clear();
+        DatabaseDescriptor.setMaxRepairValidationRounds(maxRounds);
+    }
+
+    @Test
+    public void testRequestFinerTrees() throws Exception
+    {
+        DatabaseDescriptor.setMaxRepairValidationRounds(3);
+        InetAddress remote = InetAddress.getByName("127.0.0.2");
+        List<InetAddress> endpoints = Collections.singletonList(remote);
+        RepairJob job = new RepairJob(UUID.randomUUID(), KEYSPACE, CF, RANGE, true, false);
+        job.sendTreeRequests(endpoints);
+        assertEquals(1, snapshots.get());
+
+        // two mismatching rows in the same tree range: streaming it would send both
+        job.addTree(remote, tree(job.desc, 1, 2));
+        assertEquals(0, job.addTree(FBUtilities.getBroadcastAddress(), tree(job.desc, 1, 3)));
+        requests.clear();
+        assertTrue(job.requestFinerTrees(endpoints));
+
+        // the replicas are snapshotted again, and asked for finer trees of the mismatching range
+        assertEquals(2, snapshots.get());
+        assertEquals(RepairMessage.Type.REFINED_VALIDATION_REQUEST, requests.get(0).messageType);
+        assertEquals(Collections.singletonList(RANGE), ((ValidationRequest) requests.get(0)).subRanges);
+
+        // the trees of the first round were dropped: the finer trees agree, so there is nothing left to refine
+        job.addTree(remote, tree(job.desc, 1, 2));
+        assertEquals(0, job.addTree(FBUtilities.getBroadcastAddress(), tree(job.desc, 1, 2)));
+        assertFalse(job.requestFinerTrees(endpoints));
+    }
+
+    @Test
+    public void testRequestFinerTreesNotWorthIt() throws Exception
+    {
+        DatabaseDescriptor.setMaxRepairValidationRounds(2);
+        InetAddress remote = InetAddress.getByName("127.0.0.2");
+        List<InetAddress> endpoints = Collections.singletonList(remote);
+
+        // a single mismatching row per tree range: finer trees would not stream any less
+        RepairJob job = new RepairJob(UUID.randomUUID(), KEYSPACE, CF, RANGE, false, false);
+        job.sendTreeRequests(endpoints);
+        job.addTree(remote, tree(job.desc, 1));
+        job.addTree(FBUtilities.getBroadcastAddress(), tree(job.desc, 2));
+        assertFalse(job.requestFinerTrees(endpoints));
+
+        // the last round allowed
+        DatabaseDescriptor.setMaxRepairValidationRounds(1);
+        job = new RepairJob(UUID.randomUUID(), KEYSPACE, CF, RANGE, false, false);
+        job.sendTreeRequests(endpoints);
+        job.addTree(remote, tree(job.desc, 1, 2));
+        job.addTree(FBUtilities.getBroadcastAddress(), tree(job.desc, 1, 3));
+        assertFalse(job.requestFinerTrees(endpoints));
+        assertEquals(0, snapshots.get());
+    }
+
+    /**
+     * @return a tree of a single range, holding rows b0, b1... with the given hashes
+     */
+    private static MerkleTree tree(RepairJobDesc desc, int... rowHashes) throws Exception
+    {
+        ColumnFamilyStore cfs = Keyspace.open(KEYSPACE).getColumnFamilyStore(CF);
+        MerkleTree tree = new MerkleTree(DatabaseDescriptor.getPartitioner(), desc.range, MerkleTree.RECOMMENDED_DEPTH, 1);
+        Validator validator = new Validator(desc, InetAddress.getByName("127.0.0.2"), tree, 0);
+        validator.prepare(cfs);
+        for (int i = 0; i < rowHashes.length; i++)
+        {
+            DecoratedKey key = Util.dk("b" + i);
+            byte[] hash = new byte[32];
+            Arrays.fill(hash, (byte) rowHashes[i]);
+            validator.add(key, new MerkleTree.RowHash(key.token, hash, 100));
+        }
+        validator.completeTree();
+        return validator.tree;
+    }
+}
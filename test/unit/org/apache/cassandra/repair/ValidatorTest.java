@@ -18,6 +18,7 @@
 package org.apache.cassandra.repair;
 
 import java.net.InetAddress;
+import java.util.Collections;
 import java.util.UUID;
 
 import org.junit.After;
@@ -32,6 +33,7 @@ import org.apache.cassandra.db.compaction.PrecompactedRow;
 import org.apache.cassandra.dht.IPartitioner;
 import org.apache.cassandra.dht.Range;
 import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.io.sstable.SSTableReader;
 import org.apache.cassandra.net.MessageIn;
 import org.apache.cassandra.net.MessageOut;
 import org.apache.cassandra.net.MessagingService;
@@ -41,6 +43,7 @@ import org.apache.cassandra.repair.messages.RepairMessage;
 import org.apache.cassandra.repair.messages.ValidationComplete;
 import org.apache.cassandra.service.StorageService;
 import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.MerkleTree;
 import org.apache.cassandra.utils.SimpleCondition;
 
 import static org.junit.Assert.assertFalse;
@@ -121,6 +124,33 @@ public class ValidatorTest extends SchemaLoader
             lock.await();
     }
 
+    @Test
+    public void testLimitTreeSize() throws Throwable
+    {
+        Range<Token> range = new Range<>(partitioner.getMinimumToken(), partitioner.getRandomToken());
+        RepairJobDesc desc = new RepairJobDesc(UUID.randomUUID(), keyspace, columnFamily, range);
+        ColumnFamilyStore cfs = Keyspace.open(keyspace).getColumnFamilyStore(columnFamily);
+
+        // nothing to validate as far as the estimate can tell, which may be an under-estimate: keep the floor
+        Validator validator = new Validator(desc, InetAddress.getByName("127.0.0.2"), 0);
+        long maxsize = validator.tree.maxsize();
+        validator.limitTreeSize(Collections.<SSTableReader>emptyList());
+        assertEquals(Validator.MIN_TREE_SIZE, validator.tree.maxsize());
+        validator.prepare(cfs);
+        assertTrue(validator.tree.size() <= Validator.MIN_TREE_SIZE);
+
+        // trees that are smaller than the floor to begin with are left alone
+        MerkleTree tree = new MerkleTree(partitioner, range, MerkleTree.RECOMMENDED_DEPTH, 1);
+        validator = new Validator(desc, InetAddress.getByName("127.0.0.2"), tree, 0);
+        validator.limitTreeSize(Collections.<SSTableReader>emptyList());
+        assertEquals(1, validator.tree.maxsize());
+
+        // sstables holding more partitions than the tree could have ranges do not grow it
+        validator = new Validator(desc, InetAddress.getByName("127.0.0.2"), 0);
+        validator.limitTreeSize(cfs.getSSTables());
+        assertTrue(validator.tree.maxsize() <= maxsize);
+    }
+
     @Test
     public void testValidatorFailed() throws Throwable
     {
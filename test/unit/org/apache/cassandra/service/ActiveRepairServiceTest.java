@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.service;
+
+import java.util.UUID;
+
+import org.junit.Test;
+
+import org.apache.cassandra.SchemaLoader;
+import org.apache.cassandra.Util;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.Keyspace;
+import org.apache.cassandra.db.RowMutation;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.io.sstable.SSTableReader;
+import org.apache.cassandra.repair.RepairJobDesc;
+import org.apache.cassandra.utils.ByteBufferUtil;
+
+import static org.apache.cassandra.service.ActiveRepairService.containsSpan;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ActiveRepairServiceTest extends SchemaLoader
+{
+    private static final String KEYSPACE = "Keyspace1";
+    private static final String CF = "Standard4";
+
+    @Test
+    public void testContainsSpan()
+    {
+        Token min = StorageService.getPartitioner().getMinimumToken();
+        Range<Token> range = new Range<Token>(Util.token("b"), Util.token("d"));
+        assertTrue(containsSpan(range, Util.token("c"), Util.token("c")));
+        assertTrue(containsSpan(range, Util.token("ba"), Util.token("d")));
+        // (b, d] doesn't contain b
+        assertFalse(containsSpan(range, Util.token("b"), Util.token("c")));
+        assertFalse(containsSpan(range, Util.token("c"), Util.token("e")));
+        assertFalse(containsSpan(range, Util.token("a"), Util.token("e")));
+
+        // (d, b] wraps around, and doesn't contain what is between b and d
+        Range<Token> wrapping = new Range<Token>(Util.token("d"), Util.token("b"));
+        assertTrue(containsSpan(wrapping, Util.token("a"), Util.token("b")));
+        assertTrue(containsSpan(wrapping, Util.token("e"), Util.token("f")));
+        assertFalse(containsSpan(wrapping, Util.token("a"), Util.token("f")));
+
+        // the whole ring contains everything
+        assertTrue(containsSpan(new Range<Token>(min, min), Util.token("a"), Util.token("f")));
+    }
+
+    @Test
+    public void testMarkRepairedOnlyWithinRange()
+    {
+        ColumnFamilyStore cfs = Keyspace.open(KEYSPACE).getColumnFamilyStore(CF);
+        cfs.clearUnsafe();
+        cfs.disableAutoCompaction();
+
+        SSTableReader inside = writeSSTable(cfs, "b1", "b2");
+        SSTableReader outside = writeSSTable(cfs, "d1", "d2");
+        SSTableReader across = writeSSTable(cfs, "b3", "d3");
+
+        RepairJobDesc desc = new RepairJobDesc(UUID.randomUUID(), KEYSPACE, CF, new Range<Token>(Util.token("b"), Util.token("c")));
+        ActiveRepairService.instance.registerValidatedSSTables(desc, cfs.getSSTables());
+        ActiveRepairService.instance.markRepaired(desc, 1234L);
+
+        assertEquals(1234L, inside.getRepairedAt());
+        assertFalse(outside.isRepaired());
+        // only partly in the range, so it must be validated again
+        assertFalse(across.isRepaired());
+    }
+
+    private static SSTableReader writeSSTable(ColumnFamilyStore cfs, String... keys)
+    {
+        for (String key : keys)
+        {
+            RowMutation rm = new RowMutation(KEYSPACE, ByteBufferUtil.bytes(key));
+            rm.add(CF, ByteBufferUtil.bytes("col"), ByteBufferUtil.EMPTY_BYTE_BUFFER, 0);
+            rm.apply();
+        }
+        cfs.forceBlockingFlush();
+        SSTableReader newest = null;
+        for (SSTableReader sstable : cfs.getSSTables())
+        {
+            if (newest == null || sstable.descriptor.generation > newest.descriptor.generation)
+                newest = sstable;
+        }
+        return newest;
+    }
+}
@@ -22,12 +22,15 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.InetAddress;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 
 import org.junit.Test;
 
 import org.apache.cassandra.AbstractSerializationsTester;
+import org.apache.cassandra.dht.BigIntegerToken;
 import org.apache.cassandra.dht.IPartitioner;
 import org.apache.cassandra.dht.RandomPartitioner;
 import org.apache.cassandra.dht.Range;
@@ -89,6 +92,82 @@ public class SerializationsTest extends AbstractSerializationsTester
         }
     }
 
+    private void testIncrementalValidationRequestWrite() throws IOException
+    {
+        ValidationRequest message = new ValidationRequest(DESC, 1234, true);
+        testRepairMessageWrite("service.IncrementalValidationRequest.bin", message);
+    }
+
+    @Test
+    public void testIncrementalValidationRequestRead() throws IOException
+    {
+        if (EXECUTE_WRITES)
+            testIncrementalValidationRequestWrite();
+
+        try (DataInputStream in = getInput("service.IncrementalValidationRequest.bin"))
+        {
+            RepairMessage message = RepairMessage.serializer.deserialize(in, getVersion());
+            assert message.messageType == RepairMessage.Type.INCREMENTAL_VALIDATION_REQUEST;
+            assert DESC.equals(message.desc);
+            assert ((ValidationRequest) message).gcBefore == 1234;
+            assert ((ValidationRequest) message).isIncremental;
+            assert ((ValidationRequest) message).subRanges.isEmpty();
+
+            assert MessageIn.read(in, getVersion(), -1) != null;
+        }
+    }
+
+    private static final List<Range<Token>> SUB_RANGES = Arrays.asList(new Range<Token>(new BigIntegerToken("10"), new BigIntegerToken("20")),
+                                                                       new Range<Token>(new BigIntegerToken("30"), new BigIntegerToken("40")));
+
+    private void testRefinedValidationRequestWrite() throws IOException
+    {
+        ValidationRequest message = new ValidationRequest(DESC, 1234, true, SUB_RANGES);
+        testRepairMessageWrite("service.RefinedValidationRequest.bin", message);
+    }
+
+    @Test
+    public void testRefinedValidationRequestRead() throws IOException
+    {
+        if (EXECUTE_WRITES)
+            testRefinedValidationRequestWrite();
+
+        try (DataInputStream in = getInput("service.RefinedValidationRequest.bin"))
+        {
+            RepairMessage message = RepairMessage.serializer.deserialize(in, getVersion());
+            assert message.messageType == RepairMessage.Type.REFINED_VALIDATION_REQUEST;
+            assert DESC.equals(message.desc);
+            assert ((ValidationRequest) message).gcBefore == 1234;
+            assert ((ValidationRequest) message).isIncremental;
+            assert SUB_RANGES.equals(((ValidationRequest) message).subRanges);
+
+            assert MessageIn.read(in, getVersion(), -1) != null;
+        }
+    }
+
+    private void testMarkRepairedRequestWrite() throws IOException
+    {
+        MarkRepairedRequest message = new MarkRepairedRequest(DESC, 1385112345678L);
+        testRepairMessageWrite("service.MarkRepairedRequest.bin", message);
+    }
+
+    @Test
+    public void testMarkRepairedRequestRead() throws IOException
+    {
+        if (EXECUTE_WRITES)
+            testMarkRepairedRequestWrite();
+
+        try (DataInputStream in = getInput("service.MarkRepairedRequest.bin"))
+        {
+            RepairMessage message = RepairMessage.serializer.deserialize(in, getVersion());
+            assert message.messageType == RepairMessage.Type.MARK_REPAIRED_REQUEST;
+            assert DESC.equals(message.desc);
+            assert ((MarkRepairedRequest) message).repairedAt == 1385112345678L;
+
+            assert MessageIn.read(in, getVersion(), -1) != null;
+        }
+    }
+
     private void testValidationCompleteWrite() throws IOException
     {
         // empty validation
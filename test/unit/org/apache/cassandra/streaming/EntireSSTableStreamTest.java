@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.streaming;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.apache.cassandra.SchemaLoader;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.Keyspace;
+import org.apache.cassandra.db.RowMutation;
+import org.apache.cassandra.db.compaction.LeveledManifest;
+import org.apache.cassandra.io.sstable.*;
+import org.apache.cassandra.streaming.messages.FileMessageHeader;
+import org.apache.cassandra.streaming.messages.OutgoingFileMessage;
+import org.apache.cassandra.streaming.messages.StreamMessage;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.FBUtilities;
+import org.apache.cassandra.utils.Pair;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class EntireSSTableStreamTest extends SchemaLoader
+{
+    @Test
+    public void testStreamEntireSSTable() throws IOException
+    {
+        ColumnFamilyStore cfs = Keyspace.open("Keyspace1").getColumnFamilyStore("Standard1");
+        cfs.clearUnsafe();
+
+        for (int i = 0; i < 10; i++)
+        {
+            RowMutation rm = new RowMutation("Keyspace1", ByteBufferUtil.bytes("key" + i));
+            rm.add("Standard1", ByteBufferUtil.bytes("col"), ByteBufferUtil.bytes("value" + i), 0);
+            rm.apply();
+        }
+        cfs.forceBlockingFlush();
+        SSTableReader sstable = cfs.getSSTables().iterator().next();
+
+        // give the sent sstable a repair time and a level, neither of which should survive streaming
+        assertTrue(sstable.markRepaired(1234L));
+        LeveledManifest.mutateLevel(Pair.create(sstable.getSSTableMetadata(), sstable.getAncestors()), sstable.descriptor, 2);
+        sstable.reloadSSTableMetadata();
+        assertEquals(2, sstable.getSSTableLevel());
+
+        StreamSession session = new StreamSession(FBUtilities.getBroadcastAddress())
+        {
+            @Override
+            public void progress(Descriptor desc, ProgressInfo.Direction direction, long bytes, long total)
+            {
+            }
+        };
+        List<Pair<Long, Long>> sections = Collections.singletonList(Pair.create(0L, sstable.uncompressedLength()));
+        OutgoingFileMessage message = new OutgoingFileMessage(sstable, 0, sstable.estimatedKeys(), sections, true);
+        assertTrue(message.header.isEntireSSTable());
+
+        File stream = File.createTempFile("EntireSSTableStreamTest", null);
+        stream.deleteOnExit();
+        try (FileChannel out = new FileOutputStream(stream).getChannel())
+        {
+            FileMessageHeader.serializer.serialize(message.header, new DataOutputStream(Channels.newOutputStream(out)), StreamMessage.CURRENT_VERSION);
+            // the writer releases the reference it sends
+            assertTrue(sstable.acquireReference());
+            new EntireSSTableStreamWriter(sstable, message.header.components, session).write(out);
+        }
+
+        Descriptor tmpdesc;
+        try (FileChannel in = new FileInputStream(stream).getChannel())
+        {
+            FileMessageHeader header = FileMessageHeader.serializer.deserialize(new DataInputStream(Channels.newInputStream(in)), StreamMessage.CURRENT_VERSION);
+            tmpdesc = new EntireSSTableStreamReader(header, session).read(in);
+            assertEquals(in.size(), in.position());
+        }
+        assertTrue(tmpdesc.temporary);
+        assertFalse(tmpdesc.generation == sstable.descriptor.generation);
+
+        SSTableReader received = StreamReceiveTask.open(tmpdesc, cfs);
+        assertFalse(received.descriptor.temporary);
+        assertEquals(0, received.getSSTableLevel());
+        assertEquals(SSTableMetadata.UNREPAIRED, received.getRepairedAt());
+        assertEquals(sstable.first, received.first);
+        assertEquals(sstable.last, received.last);
+        assertEquals(sstable.onDiskLength(), received.onDiskLength());
+        assertEquals(10, countRows(received));
+
+        // the sent sstable is left as it was
+        assertEquals(2, sstable.getSSTableLevel());
+        assertEquals(1234L, sstable.getRepairedAt());
+
+        received.markObsolete();
+        received.releaseReference();
+    }
+
+    @Test
+    public void testComponentFor() throws IOException
+    {
+        assertEquals(Component.DATA, EntireSSTableStreamReader.componentFor("Data.db"));
+        assertEquals(Component.STATS, EntireSSTableStreamReader.componentFor("Statistics.db"));
+
+        for (String name : new String[]{ "../Data.db", "Data.db/../../Data.db", "..\\Data.db", "Custom.db", "" })
+        {
+            try
+            {
+                EntireSSTableStreamReader.componentFor(name);
+                fail("accepted component " + name);
+            }
+            catch (IOException e)
+            {
+                // expected
+            }
+        }
+    }
+
+    private static int countRows(SSTableReader sstable) throws IOException
+    {
+        SSTableScanner scanner = sstable.getScanner();
+        int rows = 0;
+        while (scanner.hasNext())
+        {
+            scanner.next();
+            rows++;
+        }
+        scanner.close();
+        return rows;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.streaming.messages;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import org.apache.cassandra.io.util.DataOutputBuffer;
+import org.apache.cassandra.utils.Pair;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FileMessageHeaderTest
+{
+    @Test
+    public void testSerializeSections() throws IOException
+    {
+        List<Pair<Long, Long>> sections = Arrays.asList(Pair.create(0L, 100L), Pair.create(200L, 250L));
+        FileMessageHeader header = new FileMessageHeader(UUID.randomUUID(), 1, "jb", 10, sections, null, true, Collections.<Pair<String, Long>>emptyList());
+
+        FileMessageHeader deserialized = roundTrip(header);
+        assertEquals(header.cfId, deserialized.cfId);
+        assertEquals(sections, deserialized.sections);
+        assertTrue(deserialized.isZeroCopy);
+        assertFalse(deserialized.isEntireSSTable());
+        assertEquals(150, deserialized.size());
+    }
+
+    @Test
+    public void testSerializeEntireSSTable() throws IOException
+    {
+        List<Pair<Long, Long>> sections = Collections.singletonList(Pair.create(0L, 1000L));
+        List<Pair<String, Long>> components = Arrays.asList(Pair.create("Data.db", 1000L), Pair.create("Index.db", 40L), Pair.create("TOC.txt", 8L));
+        FileMessageHeader header = new FileMessageHeader(UUID.randomUUID(), 2, "jb", 10, sections, null, true, components);
+
+        FileMessageHeader deserialized = roundTrip(header);
+        assertTrue(deserialized.isEntireSSTable());
+        assertEquals(components, deserialized.components);
+        // the whole files are sent, not only the data sections
+        assertEquals(1048, deserialized.size());
+    }
+
+    @Test
+    public void testSerializeVersion20() throws IOException
+    {
+        List<Pair<Long, Long>> sections = Arrays.asList(Pair.create(0L, 100L), Pair.create(200L, 250L));
+        FileMessageHeader header = new FileMessageHeader(UUID.randomUUID(), 1, "jb", 10, sections, null);
+
+        // older nodes read headers without the zero-copy flag and components
+        assertEquals(FileMessageHeader.serializer.serializedSize(header, StreamMessage.CURRENT_VERSION) - 5,
+                     FileMessageHeader.serializer.serializedSize(header, StreamMessage.VERSION_20));
+        FileMessageHeader deserialized = roundTrip(header, StreamMessage.VERSION_20);
+        assertEquals(sections, deserialized.sections);
+        assertFalse(deserialized.isZeroCopy);
+        assertFalse(deserialized.isEntireSSTable());
+    }
+
+    private FileMessageHeader roundTrip(FileMessageHeader header) throws IOException
+    {
+        return roundTrip(header, StreamMessage.CURRENT_VERSION);
+    }
+
+    private FileMessageHeader roundTrip(FileMessageHeader header, int version) throws IOException
+    {
+        DataOutputBuffer out = new DataOutputBuffer();
+        FileMessageHeader.serializer.serialize(header, out, version);
+        assertEquals(FileMessageHeader.serializer.serializedSize(header, version), out.getLength());
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(out.getData(), 0, out.getLength()));
+        return FileMessageHeader.serializer.deserialize(in, version);
+    }
+}
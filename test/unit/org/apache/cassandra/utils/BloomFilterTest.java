@@ -35,6 +35,7 @@ import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import org.apache.cassandra.config.Config;
 import org.apache.cassandra.io.util.DataOutputBuffer;
 import org.apache.cassandra.io.util.FileUtils;
 
@@ -121,6 +122,15 @@ public class BloomFilterTest
         BloomFilterTest.testSerialize(bf);
     }
 
+    @Test
+    public void testBlockedSerialize() throws IOException
+    {
+        IFilter blocked = FilterFactory.getFilter(10000L, FilterTestHelper.MAX_FAILURE_RATE, true, Config.BloomFilterType.blocked);
+        IFilter blocked2 = BloomFilterTest.testSerialize(blocked);
+        Assert.assertTrue(blocked2 instanceof BlockedBloomFilter);
+        Assert.assertEquals(blocked.serializedSize(), blocked2.serializedSize());
+    }
+
     public void testManyHashes(Iterator<ByteBuffer> keys)
     {
         int MAX_HASH_COUNT = 128;
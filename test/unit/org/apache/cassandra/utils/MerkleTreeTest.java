@@ -439,6 +439,38 @@ public class MerkleTreeTest
         assertTrue(diffs.contains(new Range<>(leftmost.left, middle.right)));
     }
 
+    @Test
+    public void testInitRanges()
+    {
+        int maxsize = 8;
+        mt.maxsize(maxsize);
+        MerkleTree mt2 = new MerkleTree(partitioner, fullRange(), RECOMMENDED_DEPTH, maxsize);
+
+        // only (two,four] is split, into all eight subranges
+        List<Range<Token>> refined = Arrays.asList(new Range<>(tok(2), tok(4)));
+        mt.init(refined);
+        mt2.init(refined);
+        assertEquals(10, mt.size());
+        assertEquals(new Range<>(tok(-1), tok(2)), mt.get(tok(1)));
+        assertEquals(new Range<>(tok(4), tok(-1)), mt.get(tok(5)));
+        assertEquals((byte)2, mt.get(tok(1)).depth);
+        assertEquals((byte)1, mt.get(tok(5)).depth);
+        assertEquals((byte)5, mt.get(tok(3)).depth);
+
+        // add dummy hashes to both trees
+        for (TreeRange range : mt.invalids())
+            range.addAll(new HIterator(range.right));
+        for (TreeRange range : mt2.invalids())
+            range.addAll(new HIterator(range.right));
+
+        // trees should only disagree on the subrange that hashes differently
+        TreeRange changed = mt.get(tok(3));
+        changed.hash("arbitrary!".getBytes());
+        List<TreeRange> diffs = MerkleTree.difference(mt, mt2);
+        assertEquals(diffs + " contains wrong number of differences:", 1, diffs.size());
+        assertTrue(diffs.contains(new Range<>(changed.left, changed.right)));
+    }
+
     /**
      * Return the root hash of a binary tree with leaves at the given depths
      * and with the given hash val in each leaf.